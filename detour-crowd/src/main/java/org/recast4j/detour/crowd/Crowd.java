@@ -34,6 +34,7 @@ import java.util.function.IntFunction;
 import org.recast4j.detour.ClosestPointOnPolyResult;
 import org.recast4j.detour.DefaultQueryFilter;
 import org.recast4j.detour.FindNearestPolyResult;
+import org.recast4j.detour.FlowField;
 import org.recast4j.detour.NavMesh;
 import org.recast4j.detour.NavMeshQuery;
 import org.recast4j.detour.QueryFilter;
@@ -311,6 +312,28 @@ public class Crowd {
 
         // Initialize request.
         agent.setTarget(ref, pos);
+        agent.targetFlowField = null;
+        agent.targetReplan = false;
+        return true;
+    }
+
+    /// Submits a new move request towards the goal of the flow field for the specified agent.
+    /// @param[in] agent The agent.
+    /// @param[in] flowField The flow field, usually shared by many agents moving to the same goal.
+    /// @return True if the request was successfully submitted.
+    ///
+    /// The corridor is taken from the flow field instead of running a path search. Agents outside of the flow
+    /// field, or with the flow field out of date, fall back to the regular path search.
+    ///
+    /// The request will be processed during the next #update().
+    public boolean requestMoveTarget(CrowdAgent agent, FlowField flowField) {
+        if (flowField == null) {
+            return false;
+        }
+
+        // Initialize request.
+        agent.setTarget(flowField.getGoalRef(), flowField.getGoalPos());
+        agent.targetFlowField = flowField;
         agent.targetReplan = false;
         return true;
     }
@@ -324,6 +347,7 @@ public class Crowd {
         agent.targetRef = 0;
         vCopy(agent.targetPos, vel);
         agent.targetPathQueryResult = null;
+        agent.targetFlowField = null;
         agent.targetReplan = false;
         agent.targetState = MoveRequestState.DT_CROWDAGENT_TARGET_VELOCITY;
 
@@ -339,6 +363,7 @@ public class Crowd {
         vSet(agent.targetPos, 0, 0, 0);
         vSet(agent.dvel, 0, 0, 0);
         agent.targetPathQueryResult = null;
+        agent.targetFlowField = null;
         agent.targetReplan = false;
         agent.targetState = MoveRequestState.DT_CROWDAGENT_TARGET_NONE;
         return true;
@@ -550,6 +575,19 @@ public class Crowd {
                 if (path.isEmpty()) {
                     throw new IllegalArgumentException("Empty path");
                 }
+                // Follow the flow field if the agent is inside of it.
+                if (ag.targetFlowField != null && ag.targetFlowField.getGoalRef() == ag.targetRef) {
+                    Result<List<Long>> flowPath = ag.targetFlowField.getPath(path.get(0));
+                    if (flowPath.succeeded()) {
+                        ag.corridor.setCorridor(ag.targetPos, flowPath.result);
+                        ag.boundary.reset();
+                        ag.partial = false;
+                        ag.targetState = MoveRequestState.DT_CROWDAGENT_TARGET_VALID;
+                        ag.targetReplanTime = 0;
+                        ag.targetReplanWaitTime = 0;
+                        continue;
+                    }
+                }
                 // Quick search towards the goal.
                 navQuery.initSlicedFindPath(path.get(0), ag.targetRef, ag.npos, ag.targetPos,
                         m_filters[ag.params.queryFilterType], 0);
@@ -23,6 +23,7 @@ import static org.recast4j.detour.DetourCommon.*;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.recast4j.detour.FlowField;
 import org.recast4j.detour.NavMeshQuery;
 import org.recast4j.detour.StraightPathItem;
 import org.recast4j.detour.crowd.Crowd.CrowdNeighbour;
@@ -87,6 +88,7 @@ public class CrowdAgent {
     public float[] targetPos = new float[3]; /// < Target position of the movement request (or velocity in case of
                                              /// DT_CROWDAGENT_TARGET_VELOCITY).
     PathQueryResult targetPathQueryResult; /// < Path finder query
+    FlowField targetFlowField; /// < Flow field towards the target shared with other agents, null if not used.
     boolean targetReplan; /// < Flag indicating that the current path is being replanned.
     float targetReplanTime; /// <Time since the agent's target was replanned.
     float targetReplanWaitTime;
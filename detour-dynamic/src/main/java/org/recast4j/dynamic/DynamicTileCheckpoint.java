@@ -23,7 +23,6 @@ import static org.recast4j.detour.DetourCommon.vCopy;
 import java.util.Set;
 
 import org.recast4j.recast.Heightfield;
-import org.recast4j.recast.Span;
 
 public class DynamicTileCheckpoint {
 
@@ -40,20 +39,18 @@ public class DynamicTileCheckpoint {
                 source.ch, source.borderSize);
         for (int z = 0, pz = 0; z < source.height; z++, pz += source.width) {
             for (int x = 0; x < source.width; x++) {
-                Span span = source.spans[pz + x];
-                Span prevCopy = null;
-                while (span != null) {
-                    Span copy = new Span();
-                    copy.smin = span.smin;
-                    copy.smax = span.smax;
-                    copy.area = span.area;
-                    if (prevCopy == null) {
+                int span = source.spans[pz + x];
+                int prevCopy = Heightfield.NULL_SPAN;
+                while (span != Heightfield.NULL_SPAN) {
+                    int copy = clone.allocSpan(source.getSpanMin(span), source.getSpanMax(span), source.getSpanArea(span),
+                            Heightfield.NULL_SPAN);
+                    if (prevCopy == Heightfield.NULL_SPAN) {
                         clone.spans[pz + x] = copy;
                     } else {
-                        prevCopy.next = copy;
+                        clone.setNextSpan(prevCopy, copy);
                     }
                     prevCopy = copy;
-                    span = span.next;
+                    span = source.getNextSpan(span);
                 }
             }
         }
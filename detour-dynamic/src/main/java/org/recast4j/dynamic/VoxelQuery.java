@@ -22,7 +22,6 @@ import java.util.Optional;
 import java.util.function.BiFunction;
 
 import org.recast4j.recast.Heightfield;
-import org.recast4j.recast.Span;
 
 /**
  * Voxel raycast based on the algorithm described in
@@ -134,12 +133,12 @@ public class VoxelQuery {
                     float y2 = start[1] + ty * (tMin + Math.min(tMaxX, tMaxZ)) - hf.bmin[1];
                     float ymin = Math.min(y1, y2) / hf.ch;
                     float ymax = Math.max(y1, y2) / hf.ch;
-                    Span span = hf.spans[sx + sz * hf.width];
-                    while (span != null) {
-                        if (span.smin <= ymin && span.smax >= ymax) {
+                    int span = hf.spans[sx + sz * hf.width];
+                    while (span != Heightfield.NULL_SPAN) {
+                        if (hf.getSpanMin(span) <= ymin && hf.getSpanMax(span) >= ymax) {
                             return Optional.of(Math.min(1, tMin + t));
                         }
-                        span = span.next;
+                        span = hf.getNextSpan(span);
                     }
                 }
                 if ((dx > 0 ? sx >= ex : sx <= ex) && (dz > 0 ? sz >= ez : sz <= ez)) {
@@ -29,7 +29,6 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 import org.recast4j.recast.Heightfield;
-import org.recast4j.recast.Span;
 
 public class VoxelTile {
 
@@ -82,21 +81,21 @@ public class VoxelTile {
         int position = 0;
         for (int z = 0, pz = 0; z < depth; z++, pz += width) {
             for (int x = 0; x < width; x++) {
-                Span prev = null;
+                int prev = Heightfield.NULL_SPAN;
                 int spanCount = getShortBE(spanData, position);
                 position += 2;
                 for (int s = 0; s < spanCount; s++) {
-                    Span span = new Span();
-                    span.smin = getIntBE(spanData, position);
+                    int smin = getIntBE(spanData, position);
                     position += 4;
-                    span.smax = getIntBE(spanData, position);
+                    int smax = getIntBE(spanData, position);
                     position += 4;
-                    span.area = getIntBE(spanData, position);
+                    int area = getIntBE(spanData, position);
                     position += 4;
-                    if (prev == null) {
+                    int span = hf.allocSpan(smin, smax, area, Heightfield.NULL_SPAN);
+                    if (prev == Heightfield.NULL_SPAN) {
                         hf.spans[pz + x] = span;
                     } else {
-                        prev.next = span;
+                        hf.setNextSpan(prev, span);
                     }
                     prev = span;
                 }
@@ -110,21 +109,21 @@ public class VoxelTile {
         int position = 0;
         for (int z = 0, pz = 0; z < depth; z++, pz += width) {
             for (int x = 0; x < width; x++) {
-                Span prev = null;
+                int prev = Heightfield.NULL_SPAN;
                 int spanCount = getShortLE(spanData, position);
                 position += 2;
                 for (int s = 0; s < spanCount; s++) {
-                    Span span = new Span();
-                    span.smin = getIntLE(spanData, position);
+                    int smin = getIntLE(spanData, position);
                     position += 4;
-                    span.smax = getIntLE(spanData, position);
+                    int smax = getIntLE(spanData, position);
                     position += 4;
-                    span.area = getIntLE(spanData, position);
+                    int area = getIntLE(spanData, position);
                     position += 4;
-                    if (prev == null) {
+                    int span = hf.allocSpan(smin, smax, area, Heightfield.NULL_SPAN);
+                    if (prev == Heightfield.NULL_SPAN) {
                         hf.spans[pz + x] = span;
                     } else {
-                        prev.next = span;
+                        hf.setNextSpan(prev, span);
                     }
                     prev = span;
                 }
@@ -138,11 +137,11 @@ public class VoxelTile {
         int totalCount = 0;
         for (int z = 0, pz = 0; z < heightfield.height; z++, pz += heightfield.width) {
             for (int x = 0; x < heightfield.width; x++) {
-                Span span = heightfield.spans[pz + x];
-                while (span != null) {
+                int span = heightfield.spans[pz + x];
+                while (span != Heightfield.NULL_SPAN) {
                     counts[pz + x]++;
                     totalCount++;
-                    span = span.next;
+                    span = heightfield.getNextSpan(span);
                 }
             }
         }
@@ -151,12 +150,12 @@ public class VoxelTile {
         for (int z = 0, pz = 0; z < heightfield.height; z++, pz += heightfield.width) {
             for (int x = 0; x < heightfield.width; x++) {
                 position = putShort(counts[pz + x], data, position, order);
-                Span span = heightfield.spans[pz + x];
-                while (span != null) {
-                    position = putInt(span.smin, data, position, order);
-                    position = putInt(span.smax, data, position, order);
-                    position = putInt(span.area, data, position, order);
-                    span = span.next;
+                int span = heightfield.spans[pz + x];
+                while (span != Heightfield.NULL_SPAN) {
+                    position = putInt(heightfield.getSpanMin(span), data, position, order);
+                    position = putInt(heightfield.getSpanMax(span), data, position, order);
+                    position = putInt(heightfield.getSpanArea(span), data, position, order);
+                    span = heightfield.getNextSpan(span);
                 }
             }
         }
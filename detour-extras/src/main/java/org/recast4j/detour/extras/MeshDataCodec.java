@@ -0,0 +1,72 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour.extras;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.recast4j.detour.MeshData;
+import org.recast4j.detour.MeshHeader;
+import org.recast4j.detour.io.MeshDataReader;
+import org.recast4j.detour.io.MeshDataWriter;
+import org.recast4j.recast.TileBuildCache;
+
+/**
+ * Stores detour tiles in a TileBuildCache using the MeshDataWriter format, so RecastBuilder can stream cached MeshData
+ * straight to a NavMesh.
+ */
+public class MeshDataCodec implements TileBuildCache.Codec<MeshData> {
+
+    private final MeshDataWriter writer = new MeshDataWriter();
+    private final MeshDataReader reader = new MeshDataReader();
+    private final int maxVertsPerPoly;
+    private final long version;
+
+    public MeshDataCodec(int maxVertsPerPoly) {
+        this(maxVertsPerPoly, 0);
+    }
+
+    /**
+     * @param version
+     *            Identifies the conversion of build results to MeshData (area flags, off-mesh connections etc.), change
+     *            it to invalidate the cached tiles when the conversion changes.
+     */
+    public MeshDataCodec(int maxVertsPerPoly, long version) {
+        this.maxVertsPerPoly = maxVertsPerPoly;
+        this.version = version;
+    }
+
+    @Override
+    public byte[] encode(MeshData tile) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.write(os, tile, ByteOrder.LITTLE_ENDIAN, false);
+        return os.toByteArray();
+    }
+
+    @Override
+    public MeshData decode(byte[] data) throws IOException {
+        return reader.read(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), maxVertsPerPoly);
+    }
+
+    @Override
+    public long version() {
+        return (version * 31 + MeshHeader.DT_NAVMESH_VERSION_RECAST4J_LAST) * 31 + maxVertsPerPoly;
+    }
+}
@@ -3,7 +3,6 @@ package org.recast4j.detour.extras.jumplink;
 import static org.recast4j.detour.DetourCommon.vDist2D;
 
 import org.recast4j.recast.Heightfield;
-import org.recast4j.recast.Span;
 
 class TrajectorySampler {
 
@@ -53,18 +52,18 @@ class TrajectorySampler {
             return false;
         }
 
-        Span s = solid.spans[ix + iz * w];
-        if (s == null) {
+        int s = solid.spans[ix + iz * w];
+        if (s == Heightfield.NULL_SPAN) {
             return false;
         }
 
-        while (s != null) {
-            float symin = orig[1] + s.smin * ch;
-            float symax = orig[1] + s.smax * ch;
+        while (s != Heightfield.NULL_SPAN) {
+            float symin = orig[1] + solid.getSpanMin(s) * ch;
+            float symax = orig[1] + solid.getSpanMax(s) * ch;
             if (overlapRange(ymin, ymax, symin, symax)) {
                 return true;
             }
-            s = s.next;
+            s = solid.getNextSpan(s);
         }
 
         return false;
@@ -27,6 +27,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.recast4j.detour.MeshData;
 import org.recast4j.detour.NavMesh;
@@ -478,6 +480,30 @@ public class TileCache {
     }
 
     public void buildNavMeshTile(long ref) {
+        CompressedTile tile = getTileForBuild(ref);
+        addNavMeshTile(tile, buildNavMeshData(tile, ref));
+    }
+
+    /**
+     * Builds the navmesh tiles of the given compressed tiles concurrently and adds them to the navmesh in the order of
+     * the references, so the resulting navmesh does not depend on the scheduling. The tile cache must not be modified
+     * while the build is running and the mesh processor, if any, must be thread safe.
+     */
+    public void buildNavMeshTiles(long[] refs, Executor executor) {
+        CompressedTile[] tiles = new CompressedTile[refs.length];
+        List<CompletableFuture<MeshData>> futures = new ArrayList<>(refs.length);
+        for (int i = 0; i < refs.length; i++) {
+            CompressedTile tile = getTileForBuild(refs[i]);
+            long ref = refs[i];
+            tiles[i] = tile;
+            futures.add(CompletableFuture.supplyAsync(() -> buildNavMeshData(tile, ref), executor));
+        }
+        for (int i = 0; i < refs.length; i++) {
+            addNavMeshTile(tiles[i], futures.get(i).join());
+        }
+    }
+
+    private CompressedTile getTileForBuild(long ref) {
         int idx = decodeTileIdTile(ref);
         if (idx > m_params.maxTiles) {
             throw new RuntimeException("Invalid tile index");
@@ -487,6 +513,10 @@ public class TileCache {
         if (tile.salt != salt) {
             throw new RuntimeException("Invalid tile salt");
         }
+        return tile;
+    }
+
+    private MeshData buildNavMeshData(CompressedTile tile, long ref) {
         int walkableClimbVx = (int) (m_params.walkableClimb / m_params.ch);
 
         // Decompress tile layer data.
@@ -517,8 +547,7 @@ public class TileCache {
         TileCachePolyMesh polyMesh = builder.buildTileCachePolyMesh(lcset, m_navmesh.getMaxVertsPerPoly());
         // Early out if the mesh tile is empty.
         if (polyMesh.npolys == 0) {
-            m_navmesh.removeTile(m_navmesh.getTileRefAt(tile.header.tx, tile.header.ty, tile.header.tlayer));
-            return;
+            return null;
         }
         NavMeshDataCreateParams params = new NavMeshDataCreateParams();
         params.verts = polyMesh.verts;
@@ -542,7 +571,10 @@ public class TileCache {
         if (m_tmproc != null) {
             m_tmproc.process(params);
         }
-        MeshData meshData = NavMeshBuilder.createNavMeshData(params);
+        return NavMeshBuilder.createNavMeshData(params);
+    }
+
+    private void addNavMeshTile(CompressedTile tile, MeshData meshData) {
         // Remove existing tile.
         m_navmesh.removeTile(m_navmesh.getTileRefAt(tile.header.tx, tile.header.ty, tile.header.tlayer));
         // Add new tile, or leave the location empty. if (navData) { // Let the
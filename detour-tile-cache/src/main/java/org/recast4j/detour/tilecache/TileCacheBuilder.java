@@ -668,16 +668,21 @@ public class TileCacheBuilder {
 
     static final int VERTEX_BUCKET_COUNT2 = (1 << 8);
 
-    private int computeVertexHash2(int x, int y, int z) {
+    /** Power-of-two bucket count keeping the vertex hash chains short for the given vertex capacity. */
+    static int vertexBucketCount2(int maxVertices) {
+        return Math.max(VERTEX_BUCKET_COUNT2, Integer.highestOneBit(Math.max(1, maxVertices)) << 1);
+    }
+
+    private int computeVertexHash2(int x, int y, int z, int buckets) {
         int h1 = 0x8da6b343; // Large multiplicative constants;
         int h2 = 0xd8163841; // here arbitrarily chosen primes
         int h3 = 0xcb1ab31f;
         int n = h1 * x + h2 * y + h3 * z;
-        return n & (VERTEX_BUCKET_COUNT2 - 1);
+        return (n ^ (n >>> 16)) & (buckets - 1);
     }
 
     private int addVertex(int x, int y, int z, int[] verts, int[] firstVert, int[] nextVert, int nv) {
-        int bucket = computeVertexHash2(x, 0, z);
+        int bucket = computeVertexHash2(x, 0, z, firstVert.length);
         int i = firstVert[bucket];
         while (i != DT_TILECACHE_NULL_IDX) {
             int v = i * 3;
@@ -1493,9 +1498,8 @@ public class TileCacheBuilder {
 
         Arrays.fill(mesh.polys, DT_TILECACHE_NULL_IDX);
 
-        int[] firstVert = new int[VERTEX_BUCKET_COUNT2];
-        for (int i = 0; i < VERTEX_BUCKET_COUNT2; ++i)
-            firstVert[i] = DT_TILECACHE_NULL_IDX;
+        int[] firstVert = new int[vertexBucketCount2(maxVertices)];
+        Arrays.fill(firstVert, DT_TILECACHE_NULL_IDX);
 
         int[] nextVert = new int[maxVertices];
         int[] indices = new int[maxVertsPerCont];
@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 import org.recast4j.detour.NavMesh;
 import org.recast4j.detour.io.IOUtils;
@@ -43,6 +45,22 @@ public class TileCacheReader {
     }
 
     public TileCache read(ByteBuffer bb, int maxVertPerPoly, TileCacheMeshProcess meshProcessor) throws IOException {
+        return read(bb, maxVertPerPoly, meshProcessor, null);
+    }
+
+    /**
+     * Reads the tile cache building the navmesh tiles concurrently on the given executor. Tiles are added to the
+     * navmesh in file order, so the result is identical to the sequential read. The mesh processor must be thread
+     * safe.
+     */
+    public TileCache read(InputStream is, int maxVertPerPoly, TileCacheMeshProcess meshProcessor, Executor executor)
+            throws IOException {
+        ByteBuffer bb = IOUtils.toByteBuffer(is);
+        return read(bb, maxVertPerPoly, meshProcessor, executor);
+    }
+
+    public TileCache read(ByteBuffer bb, int maxVertPerPoly, TileCacheMeshProcess meshProcessor, Executor executor)
+            throws IOException {
         TileCacheSetHeader header = new TileCacheSetHeader();
         header.magic = bb.getInt();
         if (header.magic != TileCacheSetHeader.TILECACHESET_MAGIC) {
@@ -67,6 +85,8 @@ public class TileCacheReader {
         TileCache tc = new TileCache(header.cacheParams, new TileCacheStorageParams(bb.order(), cCompatibility), mesh,
                 compressor, meshProcessor);
         // Read tiles.
+        long[] tiles = new long[header.numTiles];
+        int tileCount = 0;
         for (int i = 0; i < header.numTiles; ++i) {
             long tileRef = bb.getInt();
             int dataSize = bb.getInt();
@@ -77,9 +97,16 @@ public class TileCacheReader {
             bb.get(data);
             long tile = tc.addTile(data, 0);
             if (tile != 0) {
-                tc.buildNavMeshTile(tile);
+                if (executor == null) {
+                    tc.buildNavMeshTile(tile);
+                } else {
+                    tiles[tileCount++] = tile;
+                }
             }
         }
+        if (executor != null) {
+            tc.buildNavMeshTiles(Arrays.copyOf(tiles, tileCount), executor);
+        }
         return tc;
     }
 
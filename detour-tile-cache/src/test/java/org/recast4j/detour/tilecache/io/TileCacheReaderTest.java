@@ -23,6 +23,8 @@ import static org.assertj.core.api.Assertions.offset;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 import org.recast4j.detour.MeshData;
@@ -223,4 +225,29 @@ public class TileCacheReaderTest {
         assertThat(data.verts[9]).isEqualTo(48.484783f, offset(0.0001f));
     }
 
+    @Test
+    public void testNavmeshConcurrently() throws IOException {
+        TileCache expected = reader.read(getClass().getClassLoader().getResourceAsStream("all_tiles_tilecache.bin"), 6,
+                null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            InputStream is = getClass().getClassLoader().getResourceAsStream("all_tiles_tilecache.bin");
+            TileCache tc = reader.read(is, 6, null, executor);
+            assertThat(tc.getTileCount()).isEqualTo(expected.getTileCount());
+            for (int i = 0; i < expected.getNavMesh().getMaxTiles(); i++) {
+                MeshTile expectedTile = expected.getNavMesh().getTile(i);
+                MeshTile tile = tc.getNavMesh().getTile(i);
+                assertThat(tc.getNavMesh().getTileRef(tile)).isEqualTo(expected.getNavMesh().getTileRef(expectedTile));
+                if (expectedTile.data == null) {
+                    assertThat(tile.data).isNull();
+                    continue;
+                }
+                assertThat(tile.data.verts).containsExactly(expectedTile.data.verts);
+                assertThat(tile.data.polys).hasSize(expectedTile.data.polys.length);
+                assertThat(tile.data.detailTris).containsExactly(expectedTile.data.detailTris);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * State of a Dijkstra search around a start polygon which can be kept between queries. The explored region and the
+ * costs are retained, so growing the search radius resumes the search instead of restarting it.
+ *
+ * The field is created by {@link NavMeshQuery#createRangeField(long, float[], QueryFilter)} and expanded by
+ * {@link NavMeshQuery#findPolysAroundCircle(DijkstraRangeField, float)}. The field refers to polygons by reference, so
+ * it has to be discarded when tiles are added to or removed from the navigation mesh.
+ */
+public class DijkstraRangeField {
+
+    final long startRef;
+    final float[] centerPos;
+    final QueryFilter filter;
+    final NodePool nodePool;
+    final NodeQueue openList;
+    /** Whether settled nodes can be reopened when the search is resumed with a larger radius. */
+    final boolean resumable;
+    /** Settled nodes in the order they were closed for the first time. */
+    final List<Node> closedNodes = new ArrayList<>();
+    /** Nodes with at least one neighbour skipped because it was outside of the search radius. */
+    final List<DeferredNode> deferredNodes = new ArrayList<>();
+    /** Targets which have not been settled yet, the search stops once all of them are settled. */
+    Set<Long> remainingTargets;
+    float radius = -1;
+
+    static class DeferredNode {
+        final Node node;
+        final float distSqr;
+
+        DeferredNode(Node node, float distSqr) {
+            this.node = node;
+            this.distSqr = distSqr;
+        }
+    }
+
+    DijkstraRangeField(long startRef, float[] centerPos, QueryFilter filter, NodePool nodePool, NodeQueue openList,
+            boolean resumable) {
+        this.startRef = startRef;
+        this.centerPos = new float[] { centerPos[0], centerPos[1], centerPos[2] };
+        this.filter = filter;
+        this.nodePool = nodePool;
+        this.openList = openList;
+        this.resumable = resumable;
+    }
+
+    public long getStartRef() {
+        return startRef;
+    }
+
+    public float[] getCenterPos() {
+        return centerPos;
+    }
+
+    public QueryFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return The radius the field has been expanded to, or a negative value if it has not been expanded yet.
+     */
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * @return The search cost from the center position to the polygon, or empty if the polygon has not been reached.
+     */
+    public Optional<Float> getCost(long ref) {
+        Node node = nodePool.findNode(ref);
+        if (node == null || (node.flags & Node.DT_NODE_CLOSED) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(node.total);
+    }
+
+    /**
+     * @return True if the polygon has been reached and the search cost to it does not exceed the given limit.
+     */
+    public boolean isReachable(long ref, float maxCost) {
+        Node node = nodePool.findNode(ref);
+        return node != null && (node.flags & Node.DT_NODE_CLOSED) != 0 && node.total <= maxCost;
+    }
+
+    /**
+     * @return All polygons reached so far ordered from least to highest cost.
+     */
+    public FindPolysAroundResult getPolys() {
+        return getPolysWithinCost(Float.MAX_VALUE);
+    }
+
+    /**
+     * @return Polygons reached so far with the search cost not exceeding the given limit, ordered from least to
+     *         highest cost.
+     */
+    public FindPolysAroundResult getPolysWithinCost(float maxCost) {
+        List<Long> refs = new ArrayList<>();
+        List<Long> parentRefs = new ArrayList<>();
+        List<Float> costs = new ArrayList<>();
+        for (Node node : closedNodes) {
+            if (node.total <= maxCost) {
+                Node parent = nodePool.getNodeAtIdx(node.pidx);
+                refs.add(node.id);
+                parentRefs.add(parent != null ? parent.id : 0L);
+                costs.add(node.total);
+            }
+        }
+        return new FindPolysAroundResult(refs, parentRefs, costs);
+    }
+
+}
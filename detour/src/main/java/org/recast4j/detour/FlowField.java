@@ -0,0 +1,286 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.recast4j.detour.DetourCommon.vCopy;
+import static org.recast4j.detour.DetourCommon.vNormalize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Costs and directions towards a shared goal for every polygon reached by a reverse Dijkstra search from the goal.
+ * Each polygon stores the search cost to the goal, the next polygon on the way to the goal and the midpoint of the
+ * portal leading to it.
+ *
+ * The data is kept in per tile arrays, so the memory is proportional to the number of tiles reached by the search,
+ * and the number of polygons is limited by {@link #getMaxPolys()}. The field is built by
+ * {@link NavMeshQuery#buildFlowField(long, float[], QueryFilter, int)} and brought up to date after tiles are added,
+ * removed or replaced by {@link NavMeshQuery#updateFlowField(FlowField)}.
+ */
+public class FlowField {
+
+    private static final float NO_COST = -1;
+
+    final NavMesh nav;
+    final long goalRef;
+    final float[] goalPos;
+    final QueryFilter filter;
+    final int maxPolys;
+    /** Tile data and salt captured when the tile entries were stored, used to detect tile changes. */
+    private final MeshData[] tileData;
+    private final int[] tileSalts;
+    private final float[][] costs;
+    private final long[][] nextRefs;
+    private final float[][] portals;
+    private int polyCount;
+
+    FlowField(NavMesh nav, long goalRef, float[] goalPos, QueryFilter filter, int maxPolys) {
+        this.nav = nav;
+        this.goalRef = goalRef;
+        this.goalPos = new float[] { goalPos[0], goalPos[1], goalPos[2] };
+        this.filter = filter;
+        this.maxPolys = maxPolys;
+        int maxTiles = nav.getMaxTiles();
+        tileData = new MeshData[maxTiles];
+        tileSalts = new int[maxTiles];
+        costs = new float[maxTiles][];
+        nextRefs = new long[maxTiles][];
+        portals = new float[maxTiles][];
+    }
+
+    public long getGoalRef() {
+        return goalRef;
+    }
+
+    public float[] getGoalPos() {
+        return goalPos;
+    }
+
+    public QueryFilter getFilter() {
+        return filter;
+    }
+
+    public int getMaxPolys() {
+        return maxPolys;
+    }
+
+    /**
+     * @return The number of polygons with a known way to the goal.
+     */
+    public int getPolyCount() {
+        return polyCount;
+    }
+
+    /**
+     * @return True if the polygon has a known way to the goal.
+     */
+    public boolean contains(long ref) {
+        int it = NavMesh.decodePolyIdTile(ref);
+        int ip = NavMesh.decodePolyIdPoly(ref);
+        return isValid(it, NavMesh.decodePolyIdSalt(ref)) && ip < costs[it].length && costs[it][ip] != NO_COST;
+    }
+
+    /**
+     * @return The search cost from the polygon to the goal, or {@link Float#MAX_VALUE} if the polygon has not been
+     *         reached.
+     */
+    public float getCost(long ref) {
+        return contains(ref) ? costs[NavMesh.decodePolyIdTile(ref)][NavMesh.decodePolyIdPoly(ref)] : Float.MAX_VALUE;
+    }
+
+    /**
+     * @return The next polygon on the way to the goal, or 0 if the polygon is the goal or has not been reached.
+     */
+    public long getNextRef(long ref) {
+        return contains(ref) ? nextRefs[NavMesh.decodePolyIdTile(ref)][NavMesh.decodePolyIdPoly(ref)] : 0;
+    }
+
+    /**
+     * Gets the point to steer to from the polygon, i.e. the midpoint of the portal to the next polygon or the goal
+     * position within the goal polygon.
+     *
+     * @return The point, or null if the polygon has not been reached.
+     */
+    public float[] getSteerTarget(long ref) {
+        if (!contains(ref)) {
+            return null;
+        }
+        int it = NavMesh.decodePolyIdTile(ref);
+        int ip = NavMesh.decodePolyIdPoly(ref);
+        return new float[] { portals[it][ip * 3], portals[it][ip * 3 + 1], portals[it][ip * 3 + 2] };
+    }
+
+    /**
+     * Gets the normalized direction on the xz-plane from the position within the polygon towards its steer target.
+     *
+     * @return The direction, or a zero vector if the polygon has not been reached or the position is at the target.
+     */
+    public float[] getFlowDirection(long ref, float[] pos) {
+        float[] dir = new float[3];
+        float[] target = getSteerTarget(ref);
+        if (target != null) {
+            dir[0] = target[0] - pos[0];
+            dir[2] = target[2] - pos[2];
+            vNormalize(dir);
+        }
+        return dir;
+    }
+
+    /**
+     * Gets the corridor from the polygon to the goal by following the next polygons.
+     *
+     * @param startRef
+     *            The reference id of the start polygon.
+     * @return An ordered list of polygon references from the start polygon to the goal polygon.
+     */
+    public Result<List<Long>> getPath(long startRef) {
+        if (!contains(startRef)) {
+            return Result.invalidParam("Polygon not reached by the flow field");
+        }
+        List<Long> path = new ArrayList<>();
+        long ref = startRef;
+        while (ref != goalRef) {
+            if (path.size() > polyCount || !contains(ref)) {
+                return Result.failure("Flow field is out of date");
+            }
+            path.add(ref);
+            ref = getNextRef(ref);
+        }
+        path.add(goalRef);
+        return Result.success(path);
+    }
+
+    boolean isFull() {
+        return polyCount >= maxPolys;
+    }
+
+    void set(long ref, MeshTile tile, float cost, long nextRef, float[] portal) {
+        int it = tile.index;
+        int ip = NavMesh.decodePolyIdPoly(ref);
+        if (!isValid(it, tile.salt)) {
+            int polys = tile.data.header.polyCount;
+            tileData[it] = tile.data;
+            tileSalts[it] = tile.salt;
+            costs[it] = new float[polys];
+            nextRefs[it] = new long[polys];
+            portals[it] = new float[polys * 3];
+            Arrays.fill(costs[it], NO_COST);
+        }
+        if (costs[it][ip] == NO_COST) {
+            polyCount++;
+        }
+        costs[it][ip] = cost;
+        nextRefs[it][ip] = nextRef;
+        System.arraycopy(portal, 0, portals[it], ip * 3, 3);
+    }
+
+    /**
+     * Drops the entries of tiles which have been removed or replaced, and the entries whose way to the goal leads
+     * through them.
+     */
+    void invalidateChangedTiles() {
+        for (int it = 0; it < costs.length; it++) {
+            if (costs[it] != null && !isValid(it, tileSalts[it])) {
+                clearTile(it);
+            }
+        }
+        // Follow the next polygons until the goal, a checked entry or a dropped entry is found, then keep or drop the
+        // whole chain.
+        boolean[][] checked = new boolean[costs.length][];
+        List<Long> chain = new ArrayList<>();
+        for (int it = 0; it < costs.length; it++) {
+            if (costs[it] == null) {
+                continue;
+            }
+            for (int ip = 0; ip < costs[it].length; ip++) {
+                if (costs[it][ip] == NO_COST) {
+                    continue;
+                }
+                chain.clear();
+                long ref = NavMesh.encodePolyId(tileSalts[it], it, ip);
+                while (contains(ref) && ref != goalRef && !isChecked(checked, ref) && chain.size() <= polyCount) {
+                    chain.add(ref);
+                    ref = getNextRef(ref);
+                }
+                boolean valid = contains(ref) && (ref == goalRef || isChecked(checked, ref));
+                for (long r : chain) {
+                    if (valid) {
+                        int ct = NavMesh.decodePolyIdTile(r);
+                        if (checked[ct] == null) {
+                            checked[ct] = new boolean[costs[ct].length];
+                        }
+                        checked[ct][NavMesh.decodePolyIdPoly(r)] = true;
+                    } else {
+                        clear(r);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isChecked(boolean[][] checked, long ref) {
+        boolean[] tile = checked[NavMesh.decodePolyIdTile(ref)];
+        return tile != null && tile[NavMesh.decodePolyIdPoly(ref)];
+    }
+
+    void clear() {
+        for (int it = 0; it < costs.length; it++) {
+            if (costs[it] != null) {
+                clearTile(it);
+            }
+        }
+    }
+
+    private void clear(long ref) {
+        int it = NavMesh.decodePolyIdTile(ref);
+        int ip = NavMesh.decodePolyIdPoly(ref);
+        if (costs[it][ip] != NO_COST) {
+            costs[it][ip] = NO_COST;
+            polyCount--;
+        }
+    }
+
+    private void clearTile(int it) {
+        for (float cost : costs[it]) {
+            if (cost != NO_COST) {
+                polyCount--;
+            }
+        }
+        tileData[it] = null;
+        costs[it] = null;
+        nextRefs[it] = null;
+        portals[it] = null;
+    }
+
+    private boolean isValid(int it, int salt) {
+        if (it >= costs.length || costs[it] == null || tileSalts[it] != salt) {
+            return false;
+        }
+        MeshTile tile = nav.getTile(it);
+        return tile.salt == salt && tile.data != null && tile.data == tileData[it];
+    }
+
+    void copyPortal(long ref, float[] dest) {
+        int it = NavMesh.decodePolyIdTile(ref);
+        int ip = NavMesh.decodePolyIdPoly(ref);
+        vCopy(dest, portals[it], ip * 3);
+    }
+
+}
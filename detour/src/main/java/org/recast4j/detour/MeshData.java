@@ -18,6 +18,8 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.detour;
 
+import java.util.function.Consumer;
+
 public class MeshData {
 
     /** The tile header. */
@@ -41,5 +43,53 @@ public class MeshData {
     public BVNode[] bvTree;
     /** The tile off-mesh connections. [Size: MeshHeader::offMeshConCount] */
     public OffMeshConnection[] offMeshCons;
+    /**
+     * Decodes the detail mesh fields on first access. Set by readers that defer detail mesh decoding, null once the
+     * detail mesh has been decoded.
+     */
+    private volatile Consumer<MeshData> detailLoader;
+
+    /**
+     * Defers decoding of detailMeshes, detailVerts and detailTris until one of the detail accessors is first called.
+     * Until then the detail fields are null.
+     */
+    public void setDetailLoader(Consumer<MeshData> loader) {
+        detailLoader = loader;
+    }
+
+    /** Returns true if the detail mesh fields have been populated. */
+    public boolean isDetailLoaded() {
+        return detailLoader == null;
+    }
+
+    /** The tile's detail sub-meshes, decoded on first access if the tile was read lazily. */
+    public PolyDetail[] getDetailMeshes() {
+        loadDetail();
+        return detailMeshes;
+    }
+
+    /** The detail mesh's unique vertices, decoded on first access if the tile was read lazily. */
+    public float[] getDetailVerts() {
+        loadDetail();
+        return detailVerts;
+    }
+
+    /** The detail mesh's triangles, decoded on first access if the tile was read lazily. */
+    public int[] getDetailTris() {
+        loadDetail();
+        return detailTris;
+    }
+
+    private void loadDetail() {
+        if (detailLoader != null) {
+            synchronized (this) {
+                Consumer<MeshData> loader = detailLoader;
+                if (loader != null) {
+                    loader.accept(this);
+                    detailLoader = null;
+                }
+            }
+        }
+    }
 
 }
\ No newline at end of file
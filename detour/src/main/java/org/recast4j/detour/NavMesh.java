@@ -950,12 +950,14 @@ public class NavMesh {
         float[] pmin = null;
         float[] pmax = null;
 
-        if (tile.data.detailMeshes != null) {
+        PolyDetail[] detailMeshes = tile.data.getDetailMeshes();
+        if (detailMeshes != null) {
 
-            PolyDetail pd = tile.data.detailMeshes[ip];
+            PolyDetail pd = detailMeshes[ip];
+            int[] tris = tile.data.getDetailTris();
+            float[] detailVerts = tile.data.getDetailVerts();
             for (int i = 0; i < pd.triCount; i++) {
                 int ti = (pd.triBase + i) * 4;
-                int[] tris = tile.data.detailTris;
                 if (onlyBoundary && (tris[ti + 3] & ANY_BOUNDARY_EDGE) == 0) {
                     continue;
                 }
@@ -968,8 +970,7 @@ public class NavMesh {
                                 tile.data.verts[index + 2] };
                     } else {
                         int index = (pd.vertBase + (tris[ti + j] - poly.vertCount)) * 3;
-                        v[j] = new float[] { tile.data.detailVerts[index], tile.data.detailVerts[index + 1],
-                                tile.data.detailVerts[index + 2] };
+                        v[j] = new float[] { detailVerts[index], detailVerts[index + 1], detailVerts[index + 2] };
                     }
                 }
 
@@ -1038,20 +1039,22 @@ public class NavMesh {
         }
 
         // Find height at the location.
-        if (tile.data.detailMeshes != null) {
-            PolyDetail pd = tile.data.detailMeshes[ip];
+        PolyDetail[] detailMeshes = tile.data.getDetailMeshes();
+        if (detailMeshes != null) {
+            PolyDetail pd = detailMeshes[ip];
+            int[] tris = tile.data.getDetailTris();
+            float[] detailVerts = tile.data.getDetailVerts();
             for (int j = 0; j < pd.triCount; ++j) {
                 int t = (pd.triBase + j) * 4;
                 float[][] v = new float[3][];
                 for (int k = 0; k < 3; ++k) {
-                    if (tile.data.detailTris[t + k] < poly.vertCount) {
-                        int index = poly.verts[tile.data.detailTris[t + k]] * 3;
+                    if (tris[t + k] < poly.vertCount) {
+                        int index = poly.verts[tris[t + k]] * 3;
                         v[k] = new float[] { tile.data.verts[index], tile.data.verts[index + 1],
                                 tile.data.verts[index + 2] };
                     } else {
-                        int index = (pd.vertBase + (tile.data.detailTris[t + k] - poly.vertCount)) * 3;
-                        v[k] = new float[] { tile.data.detailVerts[index], tile.data.detailVerts[index + 1],
-                                tile.data.detailVerts[index + 2] };
+                        int index = (pd.vertBase + (tris[t + k] - poly.vertCount)) * 3;
+                        v[k] = new float[] { detailVerts[index], detailVerts[index + 1], detailVerts[index + 2] };
                     }
                 }
                 Optional<Float> h = closestHeightPointTriangle(pos, v[0], v[1], v[2]);
@@ -24,11 +24,14 @@ import static org.recast4j.detour.Node.DT_NODE_OPEN;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.recast4j.detour.DetourCommon.IntersectResult;
 
@@ -2160,26 +2163,101 @@ public class NavMeshQuery {
             return Result.invalidParam();
         }
 
-        List<Long> resultRef = new ArrayList<>();
-        List<Long> resultParent = new ArrayList<>();
-        List<Float> resultCost = new ArrayList<>();
-
         m_nodePool.clear();
         m_openList.clear();
 
-        Node startNode = m_nodePool.getNode(startRef);
-        vCopy(startNode.pos, centerPos);
+        DijkstraRangeField field = new DijkstraRangeField(startRef, centerPos, filter, m_nodePool, m_openList, false);
+        initRangeField(field);
+        expandRangeField(field, radius);
+
+        return Result.success(field.getPolys());
+    }
+
+    /**
+     * Creates a Dijkstra search state around the start polygon which can be expanded and queried repeatedly. The
+     * field uses its own node pool, so it does not interfere with other queries made by this object.
+     *
+     * @param startRef
+     *            The reference id of the polygon where the search starts.
+     * @param centerPos
+     *            The center of the search circle. [(x, y, z)]
+     * @param filter
+     *            The polygon filter to apply to the search.
+     * @return The field, not expanded yet.
+     */
+    public Result<DijkstraRangeField> createRangeField(long startRef, float[] centerPos, QueryFilter filter) {
+        if (!m_nav.isValidPolyRef(startRef) || Objects.isNull(centerPos) || !vIsFinite(centerPos)
+                || Objects.isNull(filter)) {
+            return Result.invalidParam();
+        }
+        DijkstraRangeField field = new DijkstraRangeField(startRef, centerPos, filter, new NodePool(), new NodeQueue(),
+                true);
+        initRangeField(field);
+        return Result.success(field);
+    }
+
+    /**
+     * Expands the field to the polygons along the navigation graph that touch the circle of the given radius. If the
+     * field has already been expanded to a smaller radius, the search is resumed from its boundary rather than
+     * restarted. The field never shrinks, a radius smaller than the current one returns the current result.
+     *
+     * @param field
+     *            The field created by {@link #createRangeField(long, float[], QueryFilter)}.
+     * @param radius
+     *            The radius of the search circle.
+     * @return All polygons reached so far ordered from least to highest cost.
+     */
+    public Result<FindPolysAroundResult> findPolysAroundCircle(DijkstraRangeField field, float radius) {
+        if (Objects.isNull(field) || !field.resumable || radius < 0 || !Float.isFinite(radius)) {
+            return Result.invalidParam();
+        }
+        if (radius > field.radius) {
+            expandRangeField(field, radius);
+        }
+        return Result.success(field.getPolys());
+    }
+
+    private void initRangeField(DijkstraRangeField field) {
+        Node startNode = field.nodePool.getNode(field.startRef);
+        vCopy(startNode.pos, field.centerPos);
         startNode.pidx = 0;
         startNode.cost = 0;
         startNode.total = 0;
-        startNode.id = startRef;
+        startNode.id = field.startRef;
         startNode.flags = Node.DT_NODE_OPEN;
-        m_openList.push(startNode);
+        field.openList.push(startNode);
+    }
 
+    private void expandRangeField(DijkstraRangeField field, float radius) {
+        NodePool nodePool = field.nodePool;
+        NodeQueue openList = field.openList;
+        QueryFilter filter = field.filter;
+        float[] centerPos = field.centerPos;
         float radiusSqr = sqr(radius);
 
-        while (!m_openList.isEmpty()) {
-            Node bestNode = m_openList.pop();
+        boolean resumed = field.radius >= 0;
+        if (resumed) {
+            // Reopen the boundary nodes which have neighbours within the new radius. The nodes stay closed, so they
+            // are not reported twice, but they are expanded again with the larger radius.
+            for (DijkstraRangeField.DeferredNode deferred : field.deferredNodes) {
+                Node node = deferred.node;
+                if (deferred.distSqr <= radiusSqr && (node.flags & Node.DT_NODE_OPEN) == 0) {
+                    node.flags |= Node.DT_NODE_OPEN;
+                    openList.push(node);
+                }
+            }
+            field.deferredNodes.removeIf(deferred -> (deferred.node.flags & Node.DT_NODE_OPEN) != 0);
+        }
+        field.radius = radius;
+
+        while (!openList.isEmpty() && (field.remainingTargets == null || !field.remainingTargets.isEmpty())) {
+            Node bestNode = openList.pop();
+            if ((bestNode.flags & Node.DT_NODE_CLOSED) == 0) {
+                field.closedNodes.add(bestNode);
+                if (field.remainingTargets != null) {
+                    field.remainingTargets.remove(bestNode.id);
+                }
+            }
             bestNode.flags &= ~Node.DT_NODE_OPEN;
             bestNode.flags |= Node.DT_NODE_CLOSED;
 
@@ -2195,7 +2273,7 @@ public class NavMeshQuery {
             MeshTile parentTile = null;
             Poly parentPoly = null;
             if (bestNode.pidx != 0) {
-                parentRef = m_nodePool.getNodeAtIdx(bestNode.pidx).id;
+                parentRef = nodePool.getNodeAtIdx(bestNode.pidx).id;
             }
             if (parentRef != 0) {
                 tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(parentRef);
@@ -2203,10 +2281,7 @@ public class NavMeshQuery {
                 parentPoly = tileAndPoly.second;
             }
 
-            resultRef.add(bestRef);
-            resultParent.add(parentRef);
-            resultCost.add(bestNode.total);
-
+            float deferredDistSqr = Float.MAX_VALUE;
             for (int i = bestTile.polyLinks[bestPoly.index]; i != NavMesh.DT_NULL_LINK; i = bestTile.links.get(i).next) {
                 Link link = bestTile.links.get(i);
                 long neighbourRef = link.ref;
@@ -2238,12 +2313,15 @@ public class NavMeshQuery {
                 Tupple2<Float, Float> distseg = distancePtSegSqr2D(centerPos, va, vb);
                 float distSqr = distseg.first;
                 if (distSqr > radiusSqr) {
+                    deferredDistSqr = Math.min(deferredDistSqr, distSqr);
                     continue;
                 }
 
-                Node neighbourNode = m_nodePool.getNode(neighbourRef);
+                Node neighbourNode = nodePool.getNode(neighbourRef);
 
-                if ((neighbourNode.flags & Node.DT_NODE_CLOSED) != 0) {
+                // A resumable search may find a cheaper way to a closed node through the polygons which were outside
+                // of the previous radius.
+                if ((neighbourNode.flags & Node.DT_NODE_CLOSED) != 0 && !field.resumable) {
                     continue;
                 }
 
@@ -2256,25 +2334,314 @@ public class NavMeshQuery {
                         bestTile, bestPoly, neighbourRef, neighbourTile, neighbourPoly);
 
                 float total = bestNode.total + cost;
-                // The node is already in open list and the new result is worse, skip.
-                if ((neighbourNode.flags & Node.DT_NODE_OPEN) != 0 && total >= neighbourNode.total) {
+                // The node is already in open list or closed and the new result is worse, skip.
+                if ((neighbourNode.flags & (Node.DT_NODE_OPEN | Node.DT_NODE_CLOSED)) != 0
+                        && total >= neighbourNode.total) {
                     continue;
                 }
 
                 neighbourNode.id = neighbourRef;
-                neighbourNode.pidx = m_nodePool.getNodeIdx(bestNode);
+                neighbourNode.pidx = nodePool.getNodeIdx(bestNode);
                 neighbourNode.total = total;
 
                 if ((neighbourNode.flags & Node.DT_NODE_OPEN) != 0) {
-                    m_openList.modify(neighbourNode);
+                    openList.modify(neighbourNode);
                 } else {
-                    neighbourNode.flags = Node.DT_NODE_OPEN;
-                    m_openList.push(neighbourNode);
+                    neighbourNode.flags |= Node.DT_NODE_OPEN;
+                    openList.push(neighbourNode);
                 }
             }
+            if (field.resumable && deferredDistSqr != Float.MAX_VALUE) {
+                field.deferredNodes.add(new DijkstraRangeField.DeferredNode(bestNode, deferredDistSqr));
+            }
         }
 
-        return Result.success(new FindPolysAroundResult(resultRef, resultParent, resultCost));
+        if (resumed) {
+            // Reopened nodes and nodes reached through the new boundary are not settled in cost order.
+            field.closedNodes.sort((n1, n2) -> Float.compare(n1.total, n2.total));
+        }
+    }
+
+    /**
+     * Finds the search costs from the start position to each of the target polygons using a single Dijkstra search.
+     * The costs are measured the same way as in {@link #findPolysAroundCircle(long, float[], float, QueryFilter)},
+     * i.e. along the portal midpoints up to the entry of the target polygon. The search stops as soon as all targets
+     * are settled.
+     *
+     * @param startRef
+     *            The reference id of the polygon where the search starts.
+     * @param startPos
+     *            A position within the start polygon. [(x, y, z)]
+     * @param targetRefs
+     *            The reference ids of the target polygons.
+     * @param filter
+     *            The polygon filter to apply to the query.
+     * @return The cost to each target, {@link Float#MAX_VALUE} if the target cannot be reached.
+     */
+    public Result<float[]> findCostsToTargets(long startRef, float[] startPos, long[] targetRefs, QueryFilter filter) {
+        if (!m_nav.isValidPolyRef(startRef) || Objects.isNull(startPos) || !vIsFinite(startPos)
+                || Objects.isNull(targetRefs) || Objects.isNull(filter)) {
+            return Result.invalidParam();
+        }
+        m_nodePool.clear();
+        m_openList.clear();
+        return Result.success(findCostsToTargets(m_nodePool, m_openList, startRef, startPos, targetRefs, filter));
+    }
+
+    /**
+     * Finds the search costs from each of the start positions to each of the target polygons. One Dijkstra search is
+     * run per start polygon, see {@link #findCostsToTargets(long, float[], long[], QueryFilter)}.
+     *
+     * @param startRefs
+     *            The reference ids of the start polygons.
+     * @param startPoss
+     *            A position within each of the start polygons. [(x, y, z) * startRefs.length]
+     * @param targetRefs
+     *            The reference ids of the target polygons.
+     * @param filter
+     *            The polygon filter to apply to the query.
+     * @return Dense cost matrix indexed by [start][target], {@link Float#MAX_VALUE} if the target cannot be reached.
+     */
+    public Result<float[][]> findCostMatrix(long[] startRefs, float[][] startPoss, long[] targetRefs,
+            QueryFilter filter) {
+        if (!isValidCostMatrixInput(startRefs, startPoss, targetRefs, filter)) {
+            return Result.invalidParam();
+        }
+        float[][] costs = new float[startRefs.length][];
+        for (int i = 0; i < startRefs.length; i++) {
+            m_nodePool.clear();
+            m_openList.clear();
+            costs[i] = findCostsToTargets(m_nodePool, m_openList, startRefs[i], startPoss[i], targetRefs, filter);
+        }
+        return Result.success(costs);
+    }
+
+    /**
+     * Finds the cost matrix concurrently, the searches from the start polygons are split across the executor threads.
+     * Each search uses its own node pool, so the state of this query object is not modified. The filter must be safe
+     * to use from multiple threads.
+     *
+     * @see #findCostMatrix(long[], float[][], long[], QueryFilter)
+     */
+    public CompletableFuture<Result<float[][]>> findCostMatrix(long[] startRefs, float[][] startPoss,
+            long[] targetRefs, QueryFilter filter, Executor executor) {
+        if (!isValidCostMatrixInput(startRefs, startPoss, targetRefs, filter) || Objects.isNull(executor)) {
+            return CompletableFuture.completedFuture(Result.invalidParam());
+        }
+        float[][] costs = new float[startRefs.length][];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[startRefs.length];
+        for (int i = 0; i < startRefs.length; i++) {
+            int source = i;
+            futures[i] = CompletableFuture.runAsync(() -> costs[source] = findCostsToTargets(new NodePool(),
+                    new NodeQueue(), startRefs[source], startPoss[source], targetRefs, filter), executor);
+        }
+        return CompletableFuture.allOf(futures).thenApply(v -> Result.success(costs));
+    }
+
+    private boolean isValidCostMatrixInput(long[] startRefs, float[][] startPoss, long[] targetRefs,
+            QueryFilter filter) {
+        if (Objects.isNull(startRefs) || Objects.isNull(startPoss) || startRefs.length != startPoss.length
+                || Objects.isNull(targetRefs) || Objects.isNull(filter)) {
+            return false;
+        }
+        for (int i = 0; i < startRefs.length; i++) {
+            if (!m_nav.isValidPolyRef(startRefs[i]) || Objects.isNull(startPoss[i]) || !vIsFinite(startPoss[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private float[] findCostsToTargets(NodePool nodePool, NodeQueue openList, long startRef, float[] startPos,
+            long[] targetRefs, QueryFilter filter) {
+        DijkstraRangeField field = new DijkstraRangeField(startRef, startPos, filter, nodePool, openList, false);
+        field.remainingTargets = new HashSet<>();
+        for (long ref : targetRefs) {
+            field.remainingTargets.add(ref);
+        }
+        initRangeField(field);
+        expandRangeField(field, Float.MAX_VALUE);
+        float[] costs = new float[targetRefs.length];
+        for (int i = 0; i < targetRefs.length; i++) {
+            Node node = nodePool.findNode(targetRefs[i]);
+            costs[i] = node != null && (node.flags & Node.DT_NODE_CLOSED) != 0 ? node.total : Float.MAX_VALUE;
+        }
+        return costs;
+    }
+
+    /**
+     * Builds a flow field towards the goal by a reverse Dijkstra search over the polygons which can reach the goal.
+     * The search uses its own node pool, so the state of this query object is not modified.
+     *
+     * @param goalRef
+     *            The reference id of the goal polygon.
+     * @param goalPos
+     *            A position within the goal polygon. [(x, y, z)]
+     * @param filter
+     *            The polygon filter to apply to the search.
+     * @param maxPolys
+     *            The maximum number of polygons stored in the field.
+     * @return The flow field.
+     */
+    public Result<FlowField> buildFlowField(long goalRef, float[] goalPos, QueryFilter filter, int maxPolys) {
+        if (!m_nav.isValidPolyRef(goalRef) || Objects.isNull(goalPos) || !vIsFinite(goalPos) || Objects.isNull(filter)
+                || maxPolys <= 0) {
+            return Result.invalidParam();
+        }
+        FlowField field = new FlowField(m_nav, goalRef, goalPos, filter, maxPolys);
+        NodePool nodePool = new NodePool();
+        NodeQueue openList = new NodeQueue();
+        Node goalNode = nodePool.getNode(goalRef);
+        vCopy(goalNode.pos, goalPos);
+        goalNode.pidx = 0;
+        goalNode.total = 0;
+        goalNode.flags = Node.DT_NODE_OPEN;
+        openList.push(goalNode);
+        expandFlowField(field, nodePool, openList);
+        return Result.success(field);
+    }
+
+    /**
+     * Updates the flow field after tiles have been added to, removed from or replaced in the navigation mesh. The
+     * entries of the changed tiles, and the entries whose way to the goal leads through them, are dropped. The search
+     * is then resumed from the remaining entries bordering polygons without an entry, so only the affected part of the
+     * field is recalculated.
+     *
+     * @param field
+     *            The field to update.
+     * @return The status of the update. Fails if the goal polygon is no longer valid, the field must be rebuilt then.
+     */
+    public Status updateFlowField(FlowField field) {
+        if (Objects.isNull(field) || field.nav != m_nav) {
+            return Status.FAILURE_INVALID_PARAM;
+        }
+        if (!m_nav.isValidPolyRef(field.goalRef)) {
+            field.clear();
+            return Status.FAILURE;
+        }
+        field.invalidateChangedTiles();
+
+        NodePool nodePool = new NodePool();
+        NodeQueue openList = new NodeQueue();
+        if (!field.contains(field.goalRef)) {
+            Node goalNode = nodePool.getNode(field.goalRef);
+            vCopy(goalNode.pos, field.goalPos);
+            goalNode.total = 0;
+            goalNode.flags = Node.DT_NODE_OPEN;
+            openList.push(goalNode);
+        }
+        // Seed the search with the entries which border polygons without an entry.
+        for (int it = 0; it < m_nav.getMaxTiles(); it++) {
+            MeshTile tile = m_nav.getTile(it);
+            if (tile == null || tile.data == null) {
+                continue;
+            }
+            long base = m_nav.getPolyRefBase(tile);
+            for (int ip = 0; ip < tile.data.header.polyCount; ip++) {
+                long ref = base | ip;
+                if (!field.contains(ref)) {
+                    continue;
+                }
+                for (int i = tile.polyLinks[ip]; i != NavMesh.DT_NULL_LINK; i = tile.links.get(i).next) {
+                    long neighbourRef = tile.links.get(i).ref;
+                    if (neighbourRef != 0 && !field.contains(neighbourRef)) {
+                        Node node = nodePool.getNode(ref);
+                        field.copyPortal(ref, node.pos);
+                        node.total = field.getCost(ref);
+                        node.flags = Node.DT_NODE_OPEN | Node.DT_NODE_CLOSED;
+                        openList.push(node);
+                        break;
+                    }
+                }
+            }
+        }
+        expandFlowField(field, nodePool, openList);
+        return Status.SUCCSESS;
+    }
+
+    private void expandFlowField(FlowField field, NodePool nodePool, NodeQueue openList) {
+        QueryFilter filter = field.filter;
+        while (!openList.isEmpty()) {
+            Node bestNode = openList.pop();
+            bestNode.flags &= ~Node.DT_NODE_OPEN;
+            bestNode.flags |= Node.DT_NODE_CLOSED;
+
+            // Get poly and tile.
+            long bestRef = bestNode.id;
+            Tupple2<MeshTile, Poly> tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(bestRef);
+            MeshTile bestTile = tileAndPoly.first;
+            Poly bestPoly = tileAndPoly.second;
+
+            // Stop growing the field once it is full, but keep improving the existing entries.
+            if (!field.contains(bestRef) && field.isFull()) {
+                continue;
+            }
+
+            // Get next poly and tile on the way to the goal. Seed nodes have no parent, their next poly is already
+            // stored in the field.
+            long nextRef = bestNode.pidx != 0 ? nodePool.getNodeAtIdx(bestNode.pidx).id : field.getNextRef(bestRef);
+            MeshTile nextTile = null;
+            Poly nextPoly = null;
+            if (nextRef != 0) {
+                tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(nextRef);
+                nextTile = tileAndPoly.first;
+                nextPoly = tileAndPoly.second;
+            }
+            field.set(bestRef, bestTile, bestNode.total, nextRef, bestNode.pos);
+
+            for (int i = bestTile.polyLinks[bestPoly.index]; i != NavMesh.DT_NULL_LINK; i = bestTile.links.get(i).next) {
+                long neighbourRef = bestTile.links.get(i).ref;
+                // Skip invalid neighbours and do not follow back to the next poly.
+                if (neighbourRef == 0 || neighbourRef == nextRef) {
+                    continue;
+                }
+
+                tileAndPoly = m_nav.getTileAndPolyByRefUnsafe(neighbourRef);
+                MeshTile neighbourTile = tileAndPoly.first;
+                Poly neighbourPoly = tileAndPoly.second;
+
+                // Do not advance if the polygon is excluded by the filter.
+                if (!filter.passFilter(neighbourRef, neighbourTile, neighbourPoly)) {
+                    continue;
+                }
+
+                // The search runs backwards, the agent moves from the neighbour to the best poly. This fails for
+                // one-way off-mesh connections leading away from the best poly.
+                Result<PortalResult> pp = getPortalPoints(neighbourRef, neighbourPoly, neighbourTile, bestRef, bestPoly,
+                        bestTile, 0, 0);
+                if (pp.failed()) {
+                    continue;
+                }
+                float[] neighbourPos = vLerp(pp.result.left, pp.result.right, 0.5f);
+
+                float cost = filter.getCost(neighbourPos, bestNode.pos, neighbourRef, neighbourTile, neighbourPoly,
+                        bestRef, bestTile, bestPoly, nextRef, nextTile, nextPoly);
+                float total = bestNode.total + cost;
+
+                Node neighbourNode = nodePool.getNode(neighbourRef);
+                if (neighbourNode.flags == 0 && field.contains(neighbourRef)) {
+                    // Entry kept from the previous search.
+                    neighbourNode.total = field.getCost(neighbourRef);
+                    neighbourNode.flags = Node.DT_NODE_CLOSED;
+                }
+                // The node is already in open list or closed and the new result is worse, skip.
+                if ((neighbourNode.flags & (Node.DT_NODE_OPEN | Node.DT_NODE_CLOSED)) != 0
+                        && total >= neighbourNode.total) {
+                    continue;
+                }
+
+                neighbourNode.pidx = nodePool.getNodeIdx(bestNode);
+                neighbourNode.total = total;
+                neighbourNode.pos = neighbourPos;
+
+                if ((neighbourNode.flags & Node.DT_NODE_OPEN) != 0) {
+                    openList.modify(neighbourNode);
+                } else {
+                    neighbourNode.flags |= Node.DT_NODE_OPEN;
+                    openList.push(neighbourNode);
+                }
+            }
+        }
     }
 
     /// @par
@@ -3010,16 +3377,42 @@ public class NavMeshQuery {
         return Result.success(getPathToNode(endNode));
     }
 
+    /**
+     * Gets a path from the explored nodes of the range field.
+     *
+     * @param field
+     *            The field created by {@link #createRangeField(long, float[], QueryFilter)}.
+     * @param endRef
+     *            The reference id of the end polygon.
+     * @returns An ordered list of polygon references representing the path. (Start to end.)
+     * @remarks Unlike {@link #getPathFromDijkstraSearch(long)}, the result does not depend on the state of the query
+     *          object, so any number of paths can be retrieved from one expansion of the field.
+     */
+    public Result<List<Long>> getPathFromDijkstraSearch(DijkstraRangeField field, long endRef) {
+        if (Objects.isNull(field) || !m_nav.isValidPolyRef(endRef)) {
+            return Result.invalidParam("Invalid end ref");
+        }
+        Node endNode = field.nodePool.findNode(endRef);
+        if (endNode == null || (endNode.flags & DT_NODE_CLOSED) == 0) {
+            return Result.invalidParam("Invalid end ref");
+        }
+        return Result.success(getPathToNode(field.nodePool, endNode));
+    }
+
     /**
      * Gets the path leading to the specified end node.
      */
     protected List<Long> getPathToNode(Node endNode) {
+        return getPathToNode(m_nodePool, endNode);
+    }
+
+    private static List<Long> getPathToNode(NodePool nodePool, Node endNode) {
         List<Long> path = new ArrayList<>();
         // Reverse the path.
         Node curNode = endNode;
         do {
             path.add(curNode.id);
-            Node nextNode = m_nodePool.getNodeAtIdx(curNode.pidx);
+            Node nextNode = nodePool.getNodeAtIdx(curNode.pidx);
             if (curNode.shortcut != null) {
                 // remove potential duplicates from shortcut path
                 for (int i = curNode.shortcut.size() - 1; i >=0; i--) {
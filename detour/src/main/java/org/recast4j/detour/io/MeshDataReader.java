@@ -51,7 +51,24 @@ public class MeshDataReader {
         return read(buf, maxVertPerPoly, true);
     }
 
+    /**
+     * Reads the tile without decoding its detail mesh. Detail meshes, vertices and triangles are decoded from the
+     * buffer on first access through MeshData.getDetailMeshes(), getDetailVerts() or getDetailTris(). The buffer
+     * content must not be modified until then, so it is typically a read-only or memory mapped buffer.
+     */
+    public MeshData readLazy(ByteBuffer buf, int maxVertPerPoly) throws IOException {
+        return read(buf, maxVertPerPoly, false, true);
+    }
+
+    public MeshData readLazy32Bit(ByteBuffer buf, int maxVertPerPoly) throws IOException {
+        return read(buf, maxVertPerPoly, true, true);
+    }
+
     MeshData read(ByteBuffer buf, int maxVertPerPoly, boolean is32Bit) throws IOException {
+        return read(buf, maxVertPerPoly, is32Bit, false);
+    }
+
+    MeshData read(ByteBuffer buf, int maxVertPerPoly, boolean is32Bit, boolean lazyDetail) throws IOException {
         MeshData data = new MeshData();
         MeshHeader header = new MeshHeader();
         data.header = header;
@@ -99,9 +116,14 @@ public class MeshDataReader {
         if (cCompatibility) {
             buf.position(buf.position() + header.maxLinkCount * getSizeofLink(is32Bit));
         }
-        data.detailMeshes = readPolyDetails(buf, header, cCompatibility);
-        data.detailVerts = readVerts(buf, header.detailVertCount);
-        data.detailTris = readDTris(buf, header);
+        if (lazyDetail) {
+            ByteBuffer detail = buf.duplicate().order(buf.order());
+            data.setDetailLoader(d -> readDetail(detail, d, cCompatibility));
+            buf.position(buf.position() + header.detailMeshCount * getSizeofPolyDetail(cCompatibility)
+                    + header.detailVertCount * 3 * 4 + header.detailTriCount * 4);
+        } else {
+            readDetail(buf, data, cCompatibility);
+        }
         data.bvTree = readBVTree(buf, header);
         data.offMeshCons = readOffMeshCons(buf, header);
         return data;
@@ -114,11 +136,21 @@ public class MeshDataReader {
         return is32Bit ? LINK_SIZEOF32BIT : LINK_SIZEOF;
     }
 
+    static int getSizeofPolyDetail(boolean cCompatibility) {
+        return cCompatibility ? DT_POLY_DETAIL_SIZE + 2 : DT_POLY_DETAIL_SIZE;
+    }
+
+    private void readDetail(ByteBuffer buf, MeshData data, boolean cCompatibility) {
+        data.detailMeshes = readPolyDetails(buf, data.header, cCompatibility);
+        data.detailVerts = readVerts(buf, data.header.detailVertCount);
+        data.detailTris = readDTris(buf, data.header);
+    }
+
     private float[] readVerts(ByteBuffer buf, int count) {
         float[] verts = new float[count * 3];
-        for (int i = 0; i < verts.length; i++) {
-            verts[i] = buf.getFloat();
-        }
+        // bulk copy straight from the (possibly direct) buffer
+        buf.asFloatBuffer().get(verts);
+        buf.position(buf.position() + verts.length * 4);
         return verts;
     }
 
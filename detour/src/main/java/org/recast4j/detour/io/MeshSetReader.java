@@ -24,6 +24,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.recast4j.detour.MeshData;
 import org.recast4j.detour.NavMesh;
@@ -58,14 +63,50 @@ public class MeshSetReader {
         return read(bb, -1, false);
     }
 
+    /**
+     * Reads the nav mesh decoding the tiles concurrently on the given executor. Tiles are added to the nav mesh in file
+     * order, so the result is identical to the sequential read.
+     */
+    public NavMesh read(InputStream is, int maxVertPerPoly, Executor executor) throws IOException {
+        return read(IOUtils.toByteBuffer(is), maxVertPerPoly, false, executor);
+    }
+
+    public NavMesh read(ByteBuffer bb, int maxVertPerPoly, Executor executor) throws IOException {
+        return read(bb, maxVertPerPoly, false, executor);
+    }
+
+    public NavMesh read32Bit(InputStream is, int maxVertPerPoly, Executor executor) throws IOException {
+        return read(IOUtils.toByteBuffer(is), maxVertPerPoly, true, executor);
+    }
+
+    public NavMesh read32Bit(ByteBuffer bb, int maxVertPerPoly, Executor executor) throws IOException {
+        return read(bb, maxVertPerPoly, true, executor);
+    }
+
+    public NavMesh read(InputStream is, Executor executor) throws IOException {
+        return read(IOUtils.toByteBuffer(is), executor);
+    }
+
+    public NavMesh read(ByteBuffer bb, Executor executor) throws IOException {
+        return read(bb, -1, false, executor);
+    }
+
     NavMesh read(ByteBuffer bb, int maxVertPerPoly, boolean is32Bit) throws IOException {
+        return read(bb, maxVertPerPoly, is32Bit, null);
+    }
+
+    NavMesh read(ByteBuffer bb, int maxVertPerPoly, boolean is32Bit, Executor executor) throws IOException {
         NavMeshSetHeader header = readHeader(bb, maxVertPerPoly);
         if (header.maxVertsPerPoly <= 0) {
             throw new IOException("Invalid number of verts per poly " + header.maxVertsPerPoly);
         }
         boolean cCompatibility = header.version == NavMeshSetHeader.NAVMESHSET_VERSION;
         NavMesh mesh = new NavMesh(header.params, header.maxVertsPerPoly);
-        readTiles(bb, is32Bit, header, cCompatibility, mesh);
+        if (executor != null) {
+            readTiles(bb, is32Bit, header, cCompatibility, mesh, executor);
+        } else {
+            readTiles(bb, is32Bit, header, cCompatibility, mesh);
+        }
         return mesh;
     }
 
@@ -97,24 +138,70 @@ public class MeshSetReader {
             throws IOException {
         // Read tiles.
         for (int i = 0; i < header.numTiles; ++i) {
-            NavMeshTileHeader tileHeader = new NavMeshTileHeader();
-            if (is32Bit) {
-                tileHeader.tileRef = convert32BitRef(bb.getInt(), header.params);
-            } else {
-                tileHeader.tileRef = bb.getLong();
-            }
-            tileHeader.dataSize = bb.getInt();
-            if (tileHeader.tileRef == 0 || tileHeader.dataSize == 0) {
+            NavMeshTileHeader tileHeader = readTileHeader(bb, is32Bit, header, cCompatibility);
+            if (tileHeader == null) {
                 break;
             }
-            if (cCompatibility && !is32Bit) {
-                bb.getInt(); // C struct padding
-            }
             MeshData data = meshReader.read(bb, mesh.getMaxVertsPerPoly(), is32Bit);
             mesh.addTile(data, i, tileHeader.tileRef);
         }
     }
 
+    private void readTiles(ByteBuffer bb, boolean is32Bit, NavMeshSetHeader header, boolean cCompatibility, NavMesh mesh,
+            Executor executor) throws IOException {
+        // Scan the tile headers and hand each tile's data to the executor.
+        List<NavMeshTileHeader> tileHeaders = new ArrayList<>();
+        List<CompletableFuture<MeshData>> tiles = new ArrayList<>();
+        for (int i = 0; i < header.numTiles; ++i) {
+            NavMeshTileHeader tileHeader = readTileHeader(bb, is32Bit, header, cCompatibility);
+            if (tileHeader == null) {
+                break;
+            }
+            ByteBuffer tileData = bb.duplicate().order(bb.order());
+            tileData.limit(bb.position() + tileHeader.dataSize);
+            bb.position(bb.position() + tileHeader.dataSize);
+            tileHeaders.add(tileHeader);
+            tiles.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return meshReader.read(tileData, mesh.getMaxVertsPerPoly(), is32Bit);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        // Add tiles in file order.
+        for (int i = 0; i < tiles.size(); ++i) {
+            MeshData data;
+            try {
+                data = tiles.get(i).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+            mesh.addTile(data, i, tileHeaders.get(i).tileRef);
+        }
+    }
+
+    private NavMeshTileHeader readTileHeader(ByteBuffer bb, boolean is32Bit, NavMeshSetHeader header,
+            boolean cCompatibility) {
+        NavMeshTileHeader tileHeader = new NavMeshTileHeader();
+        if (is32Bit) {
+            tileHeader.tileRef = convert32BitRef(bb.getInt(), header.params);
+        } else {
+            tileHeader.tileRef = bb.getLong();
+        }
+        tileHeader.dataSize = bb.getInt();
+        if (tileHeader.tileRef == 0 || tileHeader.dataSize == 0) {
+            return null;
+        }
+        if (cCompatibility && !is32Bit) {
+            bb.getInt(); // C struct padding
+        }
+        return tileHeader;
+    }
+
     private long convert32BitRef(int ref, NavMeshParams params) {
         int m_tileBits = ilog2(nextPow2(params.maxTiles));
         int m_polyBits = ilog2(nextPow2(params.maxPolys));
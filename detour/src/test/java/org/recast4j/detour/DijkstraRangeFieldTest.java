@@ -0,0 +1,90 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class DijkstraRangeFieldTest extends AbstractDetourTest {
+
+    private static final float[] RADII = { 2f, 7.5f, 20f, 60f };
+
+    @Test
+    public void testExpandMatchesFindPolysAroundCircle() {
+        QueryFilter filter = new DefaultQueryFilter();
+        for (int i = 0; i < startRefs.length; i++) {
+            long startRef = startRefs[i];
+            float[] startPos = startPoss[i];
+            Result<DijkstraRangeField> field = query.createRangeField(startRef, startPos, filter);
+            assertThat(field.succeeded()).isTrue();
+            for (float radius : RADII) {
+                Result<FindPolysAroundResult> expanded = query.findPolysAroundCircle(field.result, radius);
+                assertThat(expanded.succeeded()).isTrue();
+                FindPolysAroundResult polys = expanded.result;
+                FindPolysAroundResult expected = query.findPolysAroundCircle(startRef, startPos, radius, filter).result;
+                assertThat(polys.getRefs()).hasSize(expected.getRefs().size());
+                for (int v = 0; v < expected.getRefs().size(); v++) {
+                    long ref = expected.getRefs().get(v);
+                    assertThat(field.result.getCost(ref)).isPresent();
+                    assertThat(field.result.getCost(ref).get().floatValue()).isEqualTo(expected.getCosts().get(v),
+                            offset(0.001f));
+                }
+                for (int v = 1; v < polys.getCosts().size(); v++) {
+                    assertThat(polys.getCosts().get(v)).isGreaterThanOrEqualTo(polys.getCosts().get(v - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPathFromRangeField() {
+        QueryFilter filter = new DefaultQueryFilter();
+        for (int i = 0; i < startRefs.length; i++) {
+            DijkstraRangeField field = query.createRangeField(startRefs[i], startPoss[i], filter).result;
+            FindPolysAroundResult polys = query.findPolysAroundCircle(field, 20f).result;
+            query.findPolysAroundCircle(startRefs[i], startPoss[i], 20f, filter);
+            for (long ref : polys.getRefs()) {
+                Result<List<Long>> path = query.getPathFromDijkstraSearch(field, ref);
+                assertThat(path.succeeded()).isTrue();
+                assertThat(path.result).isEqualTo(query.getPathFromDijkstraSearch(ref).result);
+                assertThat(path.result.get(0)).isEqualTo(startRefs[i]);
+                assertThat(path.result.get(path.result.size() - 1)).isEqualTo(ref);
+            }
+        }
+    }
+
+    @Test
+    public void testReachableWithinCost() {
+        QueryFilter filter = new DefaultQueryFilter();
+        DijkstraRangeField field = query.createRangeField(startRefs[0], startPoss[0], filter).result;
+        query.findPolysAroundCircle(field, 20f);
+        FindPolysAroundResult polys = field.getPolysWithinCost(5f);
+        assertThat(polys.getRefs()).isNotEmpty();
+        for (int v = 0; v < polys.getRefs().size(); v++) {
+            assertThat(polys.getCosts().get(v) <= 5f).isTrue();
+            assertThat(field.isReachable(polys.getRefs().get(v), 5f)).isTrue();
+        }
+        assertThat(field.isReachable(endRefs[0], Float.MAX_VALUE)).isFalse();
+        assertThat(query.getPathFromDijkstraSearch(field, endRefs[0]).failed()).isTrue();
+    }
+
+}
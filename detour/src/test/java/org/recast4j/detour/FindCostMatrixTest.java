@@ -0,0 +1,88 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+public class FindCostMatrixTest extends AbstractDetourTest {
+
+    @Test
+    public void testFindCostsToTargets() {
+        QueryFilter filter = new DefaultQueryFilter();
+        for (int i = 0; i < startRefs.length; i++) {
+            Result<float[]> costs = query.findCostsToTargets(startRefs[i], startPoss[i], endRefs, filter);
+            assertThat(costs.succeeded()).isTrue();
+            FindPolysAroundResult polys = query.findPolysAroundCircle(startRefs[i], startPoss[i], 1000f, filter).result;
+            for (int t = 0; t < endRefs.length; t++) {
+                int index = polys.getRefs().indexOf(endRefs[t]);
+                if (index < 0) {
+                    assertThat(costs.result[t]).isEqualTo(Float.MAX_VALUE);
+                } else {
+                    assertThat(costs.result[t]).isEqualTo(polys.getCosts().get(index), offset(0.001f));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFindCostMatrix() {
+        QueryFilter filter = new DefaultQueryFilter();
+        Result<float[][]> matrix = query.findCostMatrix(startRefs, startPoss, endRefs, filter);
+        assertThat(matrix.succeeded()).isTrue();
+        assertThat(matrix.result.length).isEqualTo(startRefs.length);
+        for (int i = 0; i < startRefs.length; i++) {
+            float[] costs = query.findCostsToTargets(startRefs[i], startPoss[i], endRefs, filter).result;
+            assertThat(matrix.result[i]).containsExactly(costs);
+        }
+        // start polygons can be targets as well
+        matrix = query.findCostMatrix(startRefs, startPoss, startRefs, filter);
+        for (int i = 0; i < startRefs.length; i++) {
+            assertThat(matrix.result[i][i]).isEqualTo(0f);
+        }
+    }
+
+    @Test
+    public void testFindCostMatrixConcurrently() throws Exception {
+        QueryFilter filter = new DefaultQueryFilter();
+        float[][] expected = query.findCostMatrix(startRefs, startPoss, endRefs, filter).result;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Result<float[][]> matrix = query.findCostMatrix(startRefs, startPoss, endRefs, filter, executor).get();
+            assertThat(matrix.succeeded()).isTrue();
+            for (int i = 0; i < startRefs.length; i++) {
+                assertThat(matrix.result[i]).containsExactly(expected[i]);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidInput() {
+        QueryFilter filter = new DefaultQueryFilter();
+        assertThat(query.findCostMatrix(startRefs, new float[1][], endRefs, filter).failed()).isTrue();
+        assertThat(query.findCostsToTargets(0L, startPoss[0], endRefs, filter).failed()).isTrue();
+    }
+
+}
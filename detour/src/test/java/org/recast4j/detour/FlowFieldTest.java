@@ -0,0 +1,98 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.detour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class FlowFieldTest {
+
+    private static final long START_REF = 281475015507969L;
+    private static final long GOAL_REF = 281474985099266L;
+    private static final float[] GOAL_POS = { 19.292645f, 11.611748f, -57.750366f };
+
+    @Test
+    public void testFlowFieldPath() {
+        NavMesh navmesh = new TestTiledNavMeshBuilder().getNavMesh();
+        NavMeshQuery query = new NavMeshQuery(navmesh);
+        QueryFilter filter = new DefaultQueryFilter();
+        Result<FlowField> field = query.buildFlowField(GOAL_REF, GOAL_POS, filter, 4096);
+        assertThat(field.succeeded()).isTrue();
+        assertThat(field.result.getCost(GOAL_REF)).isEqualTo(0f);
+        Result<List<Long>> path = field.result.getPath(START_REF);
+        assertThat(path.succeeded()).isTrue();
+        assertThat(path.result.get(0)).isEqualTo(START_REF);
+        assertThat(path.result.get(path.result.size() - 1)).isEqualTo(GOAL_REF);
+        for (int i = 1; i < path.result.size(); i++) {
+            assertThat(field.result.getCost(path.result.get(i))).isLessThan(field.result.getCost(path.result.get(i - 1)));
+        }
+        float[] dir = field.result.getFlowDirection(START_REF, new float[] { 39.447338f, 9.998177f, -0.784811f });
+        assertThat(dir[1]).isEqualTo(0f);
+        assertThat(dir[0] * dir[0] + dir[2] * dir[2]).isEqualTo(1f, offset(0.001f));
+    }
+
+    @Test
+    public void testBoundedFlowField() {
+        NavMesh navmesh = new TestTiledNavMeshBuilder().getNavMesh();
+        NavMeshQuery query = new NavMeshQuery(navmesh);
+        FlowField field = query.buildFlowField(GOAL_REF, GOAL_POS, new DefaultQueryFilter(), 50).result;
+        assertThat(field.getPolyCount()).isEqualTo(50);
+        assertThat(field.contains(START_REF)).isFalse();
+        assertThat(field.getPath(START_REF).failed()).isTrue();
+    }
+
+    @Test
+    public void testUpdateFlowField() {
+        NavMesh navmesh = new TestTiledNavMeshBuilder().getNavMesh();
+        NavMeshQuery query = new NavMeshQuery(navmesh);
+        QueryFilter filter = new DefaultQueryFilter();
+        FlowField field = query.buildFlowField(GOAL_REF, GOAL_POS, filter, 4096).result;
+        List<Long> path = field.getPath(START_REF).result;
+        MeshTile tile = navmesh.getTileByRef(path.get(path.size() / 2));
+        MeshData data = tile.data;
+
+        navmesh.removeTile(navmesh.getTileRef(tile));
+        assertThat(query.updateFlowField(field)).isEqualTo(Status.SUCCSESS);
+        assertSameCosts(navmesh, field, query.buildFlowField(GOAL_REF, GOAL_POS, filter, 4096).result);
+
+        navmesh.addTile(data, 0, 0);
+        assertThat(query.updateFlowField(field)).isEqualTo(Status.SUCCSESS);
+        assertSameCosts(navmesh, field, query.buildFlowField(GOAL_REF, GOAL_POS, filter, 4096).result);
+        assertThat(field.getPath(START_REF).succeeded()).isTrue();
+    }
+
+    private void assertSameCosts(NavMesh navmesh, FlowField actual, FlowField expected) {
+        assertThat(actual.getPolyCount()).isEqualTo(expected.getPolyCount());
+        for (int i = 0; i < navmesh.getMaxTiles(); i++) {
+            MeshTile tile = navmesh.getTile(i);
+            if (tile == null || tile.data == null) {
+                continue;
+            }
+            long base = navmesh.getPolyRefBase(tile);
+            for (int j = 0; j < tile.data.header.polyCount; j++) {
+                long ref = base | j;
+                assertThat(actual.contains(ref)).isEqualTo(expected.contains(ref));
+                assertThat(actual.getCost(ref)).isEqualTo(expected.getCost(ref), offset(0.001f));
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -60,6 +61,16 @@ public class MeshDataReaderWriterTest {
         test(false, ByteOrder.LITTLE_ENDIAN);
     }
 
+    @Test
+    public void testLazyCCompatibility() throws IOException {
+        testLazy(true, ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    public void testLazyCompactLE() throws IOException {
+        testLazy(false, ByteOrder.LITTLE_ENDIAN);
+    }
+
     public void test(boolean cCompatibility, ByteOrder order) throws IOException {
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         MeshDataWriter writer = new MeshDataWriter();
@@ -67,7 +78,27 @@ public class MeshDataReaderWriterTest {
         ByteArrayInputStream bais = new ByteArrayInputStream(os.toByteArray());
         MeshDataReader reader = new MeshDataReader();
         MeshData readData = reader.read(bais, VERTS_PER_POLYGON);
+        assertThat(readData.isDetailLoaded()).isTrue();
+        verify(readData);
+    }
+
+    public void testLazy(boolean cCompatibility, ByteOrder order) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        MeshDataWriter writer = new MeshDataWriter();
+        writer.write(os, meshData, order, cCompatibility);
+        byte[] bytes = os.toByteArray();
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+        buf.put(bytes).flip();
+        MeshDataReader reader = new MeshDataReader();
+        MeshData readData = reader.readLazy(buf, VERTS_PER_POLYGON);
+        assertThat(buf.remaining()).isEqualTo(0);
+        assertThat(readData.isDetailLoaded()).isFalse();
+        assertThat(readData.detailMeshes).isNull();
+        verify(readData);
+        assertThat(readData.isDetailLoaded()).isTrue();
+    }
 
+    private void verify(MeshData readData) {
         assertThat(readData.header.vertCount).isEqualTo(meshData.header.vertCount);
         assertThat(readData.header.polyCount).isEqualTo(meshData.header.polyCount);
         assertThat(readData.header.detailMeshCount).isEqualTo(meshData.header.detailMeshCount);
@@ -87,16 +118,16 @@ public class MeshDataReaderWriterTest {
             }
         }
         for (int i = 0; i < meshData.header.detailMeshCount; i++) {
-            assertThat(readData.detailMeshes[i].vertBase).isEqualTo(meshData.detailMeshes[i].vertBase);
-            assertThat(readData.detailMeshes[i].vertCount).isEqualTo(meshData.detailMeshes[i].vertCount);
-            assertThat(readData.detailMeshes[i].triBase).isEqualTo(meshData.detailMeshes[i].triBase);
-            assertThat(readData.detailMeshes[i].triCount).isEqualTo(meshData.detailMeshes[i].triCount);
+            assertThat(readData.getDetailMeshes()[i].vertBase).isEqualTo(meshData.detailMeshes[i].vertBase);
+            assertThat(readData.getDetailMeshes()[i].vertCount).isEqualTo(meshData.detailMeshes[i].vertCount);
+            assertThat(readData.getDetailMeshes()[i].triBase).isEqualTo(meshData.detailMeshes[i].triBase);
+            assertThat(readData.getDetailMeshes()[i].triCount).isEqualTo(meshData.detailMeshes[i].triCount);
         }
         for (int i = 0; i < meshData.header.detailVertCount; i++) {
-            assertThat(readData.detailVerts[i]).isEqualTo(meshData.detailVerts[i]);
+            assertThat(readData.getDetailVerts()[i]).isEqualTo(meshData.detailVerts[i]);
         }
         for (int i = 0; i < meshData.header.detailTriCount; i++) {
-            assertThat(readData.detailTris[i]).isEqualTo(meshData.detailTris[i]);
+            assertThat(readData.getDetailTris()[i]).isEqualTo(meshData.detailTris[i]);
         }
         for (int i = 0; i < meshData.header.bvNodeCount; i++) {
             assertThat(readData.bvTree[i].i).isEqualTo(meshData.bvTree[i].i);
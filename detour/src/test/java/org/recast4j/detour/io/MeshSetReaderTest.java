@@ -23,6 +23,8 @@ import static org.assertj.core.api.Assertions.offset;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 import org.recast4j.detour.MeshTile;
@@ -106,4 +108,31 @@ public class MeshSetReaderTest {
         assertThat(tiles.get(0).data.polys).hasSize(5);
         assertThat(tiles.get(0).data.verts).hasSize(17 * 3);
     }
+
+    @Test
+    public void testDungeonConcurrently() throws IOException {
+        NavMesh expected = reader
+                .read32Bit(getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh_32bit.bin"), 6);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            InputStream is = getClass().getClassLoader().getResourceAsStream("dungeon_all_tiles_navmesh_32bit.bin");
+            NavMesh mesh = reader.read32Bit(is, 6, executor);
+            assertThat(mesh.getMaxTiles()).isEqualTo(expected.getMaxTiles());
+            for (int i = 0; i < expected.getMaxTiles(); i++) {
+                MeshTile expectedTile = expected.getTile(i);
+                MeshTile tile = mesh.getTile(i);
+                assertThat(mesh.getTileRef(tile)).isEqualTo(expected.getTileRef(expectedTile));
+                if (expectedTile.data == null) {
+                    assertThat(tile.data).isNull();
+                    continue;
+                }
+                assertThat(tile.data.verts).containsExactly(expectedTile.data.verts);
+                assertThat(tile.data.polys).hasSize(expectedTile.data.polys.length);
+                assertThat(tile.data.detailVerts).containsExactly(expectedTile.data.detailVerts);
+                assertThat(tile.data.detailTris).containsExactly(expectedTile.data.detailTris);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
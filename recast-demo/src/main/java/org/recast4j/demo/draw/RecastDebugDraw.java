@@ -208,20 +208,20 @@ public class RecastDebugDraw extends DebugDraw {
 
     private void drawPoly(MeshTile tile, int index, int col) {
         Poly p = tile.data.polys[index];
-        if (tile.data.detailMeshes != null) {
-            PolyDetail pd = tile.data.detailMeshes[index];
+        if (tile.data.getDetailMeshes() != null) {
+            PolyDetail pd = tile.data.getDetailMeshes()[index];
             if (pd != null) {
                 for (int j = 0; j < pd.triCount; ++j) {
                     int t = (pd.triBase + j) * 4;
                     for (int k = 0; k < 3; ++k) {
-                        int v = tile.data.detailTris[t + k];
+                        int v = tile.data.getDetailTris()[t + k];
                         if (v < p.vertCount) {
                             vertex(tile.data.verts[p.verts[v] * 3], tile.data.verts[p.verts[v] * 3 + 1],
                                     tile.data.verts[p.verts[v] * 3 + 2], col);
                         } else {
-                            vertex(tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3],
-                                    tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3 + 1],
-                                    tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3 + 2], col);
+                            vertex(tile.data.getDetailVerts()[(pd.vertBase + v - p.vertCount) * 3],
+                                    tile.data.getDetailVerts()[(pd.vertBase + v - p.vertCount) * 3 + 1],
+                                    tile.data.getDetailVerts()[(pd.vertBase + v - p.vertCount) * 3 + 2], col);
                         }
                     }
                 }
@@ -286,27 +286,27 @@ public class RecastDebugDraw extends DebugDraw {
 
                 // Draw detail mesh edges which align with the actual poly edge.
                 // This is really slow.
-                if (tile.data.detailMeshes != null) {
-                    PolyDetail pd = tile.data.detailMeshes[i];
+                if (tile.data.getDetailMeshes() != null) {
+                    PolyDetail pd = tile.data.getDetailMeshes()[i];
                     for (int k = 0; k < pd.triCount; ++k) {
                         int t = (pd.triBase + k) * 4;
                         float[][] tv = new float[3][];
                         for (int m = 0; m < 3; ++m) {
-                            int v = tile.data.detailTris[t + m];
+                            int v = tile.data.getDetailTris()[t + m];
                             if (v < p.vertCount) {
                                 tv[m] = new float[] { tile.data.verts[p.verts[v] * 3], tile.data.verts[p.verts[v] * 3 + 1],
                                         tile.data.verts[p.verts[v] * 3 + 2] };
                             } else {
-                                tv[m] = new float[] { tile.data.detailVerts[(pd.vertBase + (v - p.vertCount)) * 3],
-                                        tile.data.detailVerts[(pd.vertBase + (v - p.vertCount)) * 3 + 1],
-                                        tile.data.detailVerts[(pd.vertBase + (v - p.vertCount)) * 3 + 2] };
+                                tv[m] = new float[] { tile.data.getDetailVerts()[(pd.vertBase + (v - p.vertCount)) * 3],
+                                        tile.data.getDetailVerts()[(pd.vertBase + (v - p.vertCount)) * 3 + 1],
+                                        tile.data.getDetailVerts()[(pd.vertBase + (v - p.vertCount)) * 3 + 2] };
                             }
                         }
                         for (int m = 0, n = 2; m < 3; n = m++) {
-                            if ((NavMesh.getDetailTriEdgeFlags(tile.data.detailTris[t + 3], n) & NavMesh.DT_DETAIL_EDGE_BOUNDARY) == 0)
+                            if ((NavMesh.getDetailTriEdgeFlags(tile.data.getDetailTris()[t + 3], n) & NavMesh.DT_DETAIL_EDGE_BOUNDARY) == 0)
                                 continue;
 
-                            if (((tile.data.detailTris[t + 3] >> (n * 2)) & 0x3) == 0) {
+                            if (((tile.data.getDetailTris()[t + 3] >> (n * 2)) & 0x3) == 0) {
                                 continue; // Skip inner detail edges.
                             }
                             if (distancePtLine2d(tv[n], v0, v1) < thr && distancePtLine2d(tv[m], v0, v1) < thr) {
@@ -376,10 +376,9 @@ public class RecastDebugDraw extends DebugDraw {
             for (int x = 0; x < chf.width; ++x) {
                 float fx = chf.bmin[0] + x * cs;
                 float fz = chf.bmin[2] + y * cs;
-                CompactCell c = chf.cells[x + y * chf.width];
+                int c = x + y * chf.width;
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
 
                     int area = chf.areas[i];
                     int color;
@@ -391,7 +390,7 @@ public class RecastDebugDraw extends DebugDraw {
                         color = areaToCol(area);
                     }
 
-                    float fy = chf.bmin[1] + (s.y + 1) * ch;
+                    float fy = chf.bmin[1] + (chf.spanY[i] + 1) * ch;
                     vertex(fx, fy, fz, color);
                     vertex(fx, fy, fz + cs, color);
                     vertex(fx + cs, fy, fz + cs, color);
@@ -631,10 +630,11 @@ public class RecastDebugDraw extends DebugDraw {
             for (int x = 0; x < w; ++x) {
                 float fx = orig[0] + x * cs;
                 float fz = orig[2] + y * cs;
-                Span s = hf.spans[x + y * w];
-                while (s != null) {
-                    appendBox(fx, orig[1] + s.smin * ch, fz, fx + cs, orig[1] + s.smax * ch, fz + cs, fcol);
-                    s = s.next;
+                int s = hf.spans[x + y * w];
+                while (s != Heightfield.NULL_SPAN) {
+                    appendBox(fx, orig[1] + hf.getSpanMin(s) * ch, fz, fx + cs, orig[1] + hf.getSpanMax(s) * ch, fz + cs,
+                            fcol);
+                    s = hf.getNextSpan(s);
                 }
             }
         }
@@ -658,18 +658,20 @@ public class RecastDebugDraw extends DebugDraw {
             for (int x = 0; x < w; ++x) {
                 float fx = orig[0] + x * cs;
                 float fz = orig[2] + y * cs;
-                Span s = hf.spans[x + y * w];
-                while (s != null) {
-                    if (s.area == SampleAreaModifications.SAMPLE_POLYAREA_TYPE_WALKABLE) {
+                int s = hf.spans[x + y * w];
+                while (s != Heightfield.NULL_SPAN) {
+                    int area = hf.getSpanArea(s);
+                    if (area == SampleAreaModifications.SAMPLE_POLYAREA_TYPE_WALKABLE) {
                         fcol[0] = duRGBA(64, 128, 160, 255);
-                    } else if (s.area == RC_NULL_AREA) {
+                    } else if (area == RC_NULL_AREA) {
                         fcol[0] = duRGBA(64, 64, 64, 255);
                     } else {
-                        fcol[0] = duMultCol(areaToCol(s.area), 200);
+                        fcol[0] = duMultCol(areaToCol(area), 200);
                     }
 
-                    appendBox(fx, orig[1] + s.smin * ch, fz, fx + cs, orig[1] + s.smax * ch, fz + cs, fcol);
-                    s = s.next;
+                    appendBox(fx, orig[1] + hf.getSpanMin(s) * ch, fz, fx + cs, orig[1] + hf.getSpanMax(s) * ch, fz + cs,
+                            fcol);
+                    s = hf.getNextSpan(s);
                 }
             }
         }
@@ -687,14 +689,13 @@ public class RecastDebugDraw extends DebugDraw {
             for (int x = 0; x < chf.width; ++x) {
                 float fx = chf.bmin[0] + x * cs;
                 float fz = chf.bmin[2] + y * cs;
-                CompactCell c = chf.cells[x + y * chf.width];
+                int c = x + y * chf.width;
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
-                    float fy = chf.bmin[1] + (s.y) * ch;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                    float fy = chf.bmin[1] + (chf.spanY[i]) * ch;
                     int color;
-                    if (s.reg != 0) {
-                        color = duIntToCol(s.reg, 192);
+                    if (chf.spanReg[i] != 0) {
+                        color = duIntToCol(chf.spanReg[i], 192);
                     } else {
                         color = duRGBA(0, 0, 0, 64);
                     }
@@ -730,11 +731,10 @@ public class RecastDebugDraw extends DebugDraw {
             for (int x = 0; x < chf.width; ++x) {
                 float fx = chf.bmin[0] + x * cs;
                 float fz = chf.bmin[2] + y * cs;
-                CompactCell c = chf.cells[x + y * chf.width];
+                int c = x + y * chf.width;
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
-                    float fy = chf.bmin[1] + (s.y + 1) * ch;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                    float fy = chf.bmin[1] + (chf.spanY[i] + 1) * ch;
                     char cd = (char) (chf.dist[i] * dscale);
                     int color = duRGBA(cd, cd, cd, 255);
                     vertex(fx, fy, fz, color);
@@ -49,22 +49,22 @@ public class NavMeshRaycast {
             if (p.getType() == Poly.DT_POLYTYPE_OFFMESH_CONNECTION) {
                 continue;
             }
-            PolyDetail pd = tile.data.detailMeshes[i];
+            PolyDetail pd = tile.data.getDetailMeshes()[i];
 
             if (pd != null) {
                 float verts[][] = new float[3][3];
                 for (int j = 0; j < pd.triCount; ++j) {
                     int t = (pd.triBase + j) * 4;
                     for (int k = 0; k < 3; ++k) {
-                        int v = tile.data.detailTris[t + k];
+                        int v = tile.data.getDetailTris()[t + k];
                         if (v < p.vertCount) {
                             verts[k][0] = tile.data.verts[p.verts[v] * 3];
                             verts[k][1] = tile.data.verts[p.verts[v] * 3 + 1];
                             verts[k][2] = tile.data.verts[p.verts[v] * 3 + 2];
                         } else {
-                            verts[k][0] = tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3];
-                            verts[k][1] = tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3 + 1];
-                            verts[k][2] = tile.data.detailVerts[(pd.vertBase + v - p.vertCount) * 3 + 2];
+                            verts[k][0] = tile.data.getDetailVerts()[(pd.vertBase + v - p.vertCount) * 3];
+                            verts[k][1] = tile.data.getDetailVerts()[(pd.vertBase + v - p.vertCount) * 3 + 1];
+                            verts[k][2] = tile.data.getDetailVerts()[(pd.vertBase + v - p.vertCount) * 3 + 2];
                         }
                     }
                     Optional<Float> intersection = Intersections.intersectSegmentTriangle(sp, sq, verts[0], verts[1], verts[2]);
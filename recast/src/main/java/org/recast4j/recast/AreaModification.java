@@ -52,6 +52,14 @@ public class AreaModification {
         mask = other.mask;
     }
 
+    public int getValue() {
+        return value;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
     public int getMaskedValue() {
         return value & mask;
     }
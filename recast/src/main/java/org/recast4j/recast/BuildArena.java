@@ -0,0 +1,163 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import java.util.Arrays;
+
+/**
+ * Scratch buffers handed from one build stage to the next, so a build does not allocate a fresh work array for every
+ * stage. The contents of a buffer are undefined when it is handed out. An arena is not thread safe: keep one per build
+ * or per worker thread. RecastBuilder keeps one per thread building tiles, so the buffers of a tile are recycled by the
+ * next tile built on the same thread.
+ */
+public class BuildArena {
+
+    /** Distance of the spans: erosion distance, then the raw distance field, reused as watershed distance scratch. */
+    static final int DISTANCE = 0;
+    /** Region ids of the spans while the regions are built. */
+    static final int REGIONS = 1;
+    /** Watershed: cell of each span. */
+    static final int SPAN_CELL = 2;
+    /** Watershed: start of each distance level bucket. */
+    static final int BUCKET_START = 3;
+    /** Watershed: unassigned spans sorted by distance level. */
+    static final int BUCKET_SPANS = 4;
+    /** Watershed: spans of the current level and the left overs above. */
+    static final int FRONTIER = 5;
+    /** Watershed: next frontier. */
+    static final int FRONTIER_NEXT = 6;
+    /** Watershed: spans changed by an expansion pass. */
+    static final int DIRTY = 7;
+    /** Contours: non connected edges of each span. */
+    static final int CONTOUR_FLAGS = 8;
+    /** Voxelization: chunks overlapping the tile. */
+    static final int CHUNK_IDS = 9;
+    /** Voxelization: triangles of the overlapping chunks. */
+    static final int TRIS = 10;
+    /** Voxelization: area ids of the triangles. */
+    static final int TRI_AREAS = 11;
+    /** Poly mesh: vertices to be removed. */
+    static final int VERT_FLAGS = 12;
+    /** Poly mesh: vertex hash chains. */
+    static final int NEXT_VERT = 13;
+    /** Poly mesh: vertex hash buckets. */
+    static final int FIRST_VERT = 14;
+    /** Poly mesh: vertex indices of the contour being triangulated. */
+    static final int CONTOUR_INDICES = 15;
+    /** Poly mesh: triangles of the contour. */
+    static final int CONTOUR_TRIS = 16;
+    /** Poly mesh: polygons of the contour being merged. */
+    static final int CONTOUR_POLYS = 17;
+    private static final int INT_BUFFERS = 18;
+
+    private final int[][] ints = new int[INT_BUFFERS][];
+    /** Raw contour being traced. */
+    final IntArray contourVerts = new IntArray(256);
+    /** Simplified contour being traced. */
+    final IntArray simplifiedContour = new IntArray(64);
+    private RecastMeshDetail.DetailBuffers detailBuffers;
+
+    /** Storage of a dropped heightfield and compact heightfield, taken over by the next ones. */
+    private int[] columns;
+    private int[] spanPool;
+    private int[] cellIndex;
+    private int[] cellCount;
+
+    /** Returns the int buffer of the given slot with room for at least size elements. */
+    int[] ints(int slot, int size) {
+        int[] a = ints[slot];
+        if (a == null || a.length < size) {
+            a = new int[size];
+            ints[slot] = a;
+        }
+        return a;
+    }
+
+    /** Returns the int buffer of the given slot with the first size elements set to zero. */
+    int[] zeroInts(int slot, int size) {
+        int[] a = ints[slot];
+        if (a == null || a.length < size) {
+            a = new int[size];
+            ints[slot] = a;
+        } else {
+            Arrays.fill(a, 0, size, 0);
+        }
+        return a;
+    }
+
+    /** Returns the detail mesh work buffers, with room for polygons of nvp vertices and height patches of patchSize. */
+    RecastMeshDetail.DetailBuffers detailBuffers(int nvp, int patchSize) {
+        if (detailBuffers == null) {
+            detailBuffers = new RecastMeshDetail.DetailBuffers(nvp, patchSize);
+        } else {
+            detailBuffers.reserve(nvp, patchSize);
+        }
+        return detailBuffers;
+    }
+
+    /**
+     * Hands the storage of a heightfield and a compact heightfield that are no longer used over to the next ones built
+     * with this arena. Either may be null. The caller must not touch them afterwards.
+     */
+    void recycle(Heightfield solid, CompactHeightfield chf) {
+        if (solid != null) {
+            columns = solid.spans;
+            spanPool = solid.spanPool();
+        }
+        if (chf != null) {
+            cellIndex = chf.cellIndex;
+            cellCount = chf.cellCount;
+        }
+    }
+
+    /** Returns the span columns of a heightfield, width*height elements, contents undefined. */
+    int[] takeColumns(int size) {
+        int[] a = columns != null && columns.length == size ? columns : new int[size];
+        columns = null;
+        return a;
+    }
+
+    /** Returns a span pool of at least size elements, contents undefined. */
+    int[] takeSpanPool(int size) {
+        int[] a = spanPool != null && spanPool.length >= size ? spanPool : new int[size];
+        spanPool = null;
+        return a;
+    }
+
+    /** Returns the zeroed cell index array of a compact heightfield, width*height elements. */
+    int[] takeCellIndex(int size) {
+        int[] a = take(cellIndex, size);
+        cellIndex = null;
+        return a;
+    }
+
+    /** Returns the zeroed cell count array of a compact heightfield, width*height elements. */
+    int[] takeCellCount(int size) {
+        int[] a = take(cellCount, size);
+        cellCount = null;
+        return a;
+    }
+
+    private static int[] take(int[] a, int size) {
+        if (a == null || a.length != size) {
+            return new int[size];
+        }
+        Arrays.fill(a, 0);
+        return a;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+/** Build stages timed by {@link Telemetry} (rcTimerLabel). */
+public enum BuildStage {
+
+    /** Whole build of a tile or solo mesh. */
+    TOTAL,
+    RASTERIZE_TRIANGLES,
+    RASTERIZE_BOX,
+    RASTERIZE_CAPSULE,
+    RASTERIZE_CONVEX,
+    RASTERIZE_CYLINDER,
+    RASTERIZE_SPHERE,
+    FILTER_LOW_OBSTACLES,
+    FILTER_LEDGE,
+    FILTER_WALKABLE,
+    BUILD_COMPACTHEIGHTFIELD,
+    ERODE_AREA,
+    MEDIAN_AREA,
+    MARK_BOX_AREA,
+    MARK_CONVEXPOLY_AREA,
+    MARK_CYLINDER_AREA,
+    DISTANCEFIELD,
+    DISTANCEFIELD_DIST,
+    DISTANCEFIELD_BLUR,
+    REGIONS,
+    REGIONS_WATERSHED,
+    REGIONS_EXPAND,
+    REGIONS_FLOOD,
+    REGIONS_FILTER,
+    BUILD_LAYERS,
+    CONTOURS,
+    CONTOURS_TRACE,
+    CONTOURS_WALK,
+    CONTOURS_SIMPLIFY,
+    POLYMESH,
+    MERGE_POLYMESH,
+    POLYMESHDETAIL,
+    MERGE_POLYMESHDETAIL
+}
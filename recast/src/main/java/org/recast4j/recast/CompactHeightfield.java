@@ -45,10 +45,18 @@ public class CompactHeightfield {
     public float cs;
     /** The height of each cell. (The minimum increment along the y-axis.) */
     public float ch;
-    /** Array of cells. [Size: #width*#height] */
-    public CompactCell[] cells;
-    /** Array of spans. [Size: #spanCount] */
-    public CompactSpan[] spans;
+    /** Index to the first span in each cell column. [Size: #width*#height] */
+    public int[] cellIndex;
+    /** Number of spans in each cell column. [Size: #width*#height] */
+    public int[] cellCount;
+    /** The lower extent of each span. (Measured from the heightfield's base.) [Size: #spanCount] */
+    public int[] spanY;
+    /** The id of the region each span belongs to. (Or zero if not in a region.) [Size: #spanCount] */
+    public int[] spanReg;
+    /** Packed neighbor connection data of each span. [Size: #spanCount] */
+    public int[] spanCon;
+    /** The height of each span. (Measured from #spanY.) [Size: #spanCount] */
+    public int[] spanH;
     /** Array containing border distance data. [Size: #spanCount] */
     public int[] dist;
     /** Array containing area id data. [Size: #spanCount] */
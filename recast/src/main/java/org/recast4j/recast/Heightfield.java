@@ -18,9 +18,22 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
+import java.util.Arrays;
+
 /** Represents a heightfield layer within a layer set. */
 public class Heightfield {
 
+    /** Span index marking an empty column or the end of a column. */
+    public static final int NULL_SPAN = -1;
+
+    /** Number of ints per span in the pool: smin, smax, area, next. */
+    private static final int SPAN_STRIDE = 4;
+    private static final int SPAN_SMIN = 0;
+    private static final int SPAN_SMAX = 1;
+    private static final int SPAN_AREA = 2;
+    private static final int SPAN_NEXT = 3;
+    private static final int MIN_POOL_SPANS = 1024;
+
     /** The width of the heightfield. (Along the x-axis in cell units.) */
     public final int width;
     /** The height of the heightfield. (Along the z-axis in cell units.) */
@@ -33,12 +46,28 @@ public class Heightfield {
     public final float cs;
     /** The height of each cell. (The minimum increment along the y-axis.) */
     public final float ch;
-    /** Heightfield of spans (width*height). */
-    public final Span[] spans;
+    /** Index of the lowest span of each column (width*height), {@link #NULL_SPAN} if the column is empty. */
+    public final int[] spans;
     /** Border size in cell units */
     public final int borderSize;
 
+    /** Span pool, {@link #SPAN_STRIDE} ints per span. Replaces one object per span (rcSpanPool). */
+    private int[] pool;
+    /** Number of pool slots handed out so far, including freed ones. */
+    private int poolUsed;
+    /** Head of the list of freed spans linked through their next field. */
+    private int freelist = NULL_SPAN;
+    /** Number of spans currently in use. */
+    private int spanCount;
+    int triangleCount;
+
     public Heightfield(int width, int height, float[] bmin, float[] bmax, float cs, float ch, int borderSize) {
+        this(width, height, bmin, bmax, cs, ch, borderSize, new BuildArena());
+    }
+
+    /** Heightfield that takes over the storage of a heightfield recycled by the arena, if any. */
+    Heightfield(int width, int height, float[] bmin, float[] bmax, float cs, float ch, int borderSize,
+            BuildArena arena) {
         this.width = width;
         this.height = height;
         this.bmin = bmin;
@@ -46,6 +75,117 @@ public class Heightfield {
         this.cs = cs;
         this.ch = ch;
         this.borderSize = borderSize;
-        spans = new Span[width * height];
+        spans = arena.takeColumns(width * height);
+        Arrays.fill(spans, NULL_SPAN);
+        pool = arena.takeSpanPool(Math.max(MIN_POOL_SPANS, width * height) * SPAN_STRIDE);
+    }
+
+    /**
+     * Allocates a span from the pool, reusing freed spans first.
+     *
+     * @return the index of the new span
+     */
+    public int allocSpan(int smin, int smax, int area, int next) {
+        int s;
+        if (freelist != NULL_SPAN) {
+            s = freelist;
+            freelist = pool[s * SPAN_STRIDE + SPAN_NEXT];
+        } else {
+            s = poolUsed++;
+            if (poolUsed * SPAN_STRIDE > pool.length) {
+                pool = Arrays.copyOf(pool, pool.length * 2);
+            }
+        }
+        int p = s * SPAN_STRIDE;
+        pool[p + SPAN_SMIN] = smin;
+        pool[p + SPAN_SMAX] = smax;
+        pool[p + SPAN_AREA] = area;
+        pool[p + SPAN_NEXT] = next;
+        spanCount++;
+        return s;
+    }
+
+    /** Returns a span to the pool. The caller is responsible for unlinking it from its column. */
+    public void freeSpan(int s) {
+        pool[s * SPAN_STRIDE + SPAN_NEXT] = freelist;
+        freelist = s;
+        spanCount--;
+    }
+
+    /** The lower limit of the span. [Limit: &lt; smax] */
+    public int getSpanMin(int s) {
+        return pool[s * SPAN_STRIDE + SPAN_SMIN];
+    }
+
+    public void setSpanMin(int s, int smin) {
+        pool[s * SPAN_STRIDE + SPAN_SMIN] = smin;
+    }
+
+    /** The upper limit of the span. [Limit: &lt;= SPAN_MAX_HEIGHT] */
+    public int getSpanMax(int s) {
+        return pool[s * SPAN_STRIDE + SPAN_SMAX];
+    }
+
+    public void setSpanMax(int s, int smax) {
+        pool[s * SPAN_STRIDE + SPAN_SMAX] = smax;
+    }
+
+    /** The area id assigned to the span. */
+    public int getSpanArea(int s) {
+        return pool[s * SPAN_STRIDE + SPAN_AREA];
+    }
+
+    public void setSpanArea(int s, int area) {
+        pool[s * SPAN_STRIDE + SPAN_AREA] = area;
+    }
+
+    /** The next span higher up in column, {@link #NULL_SPAN} if this is the topmost one. */
+    public int getNextSpan(int s) {
+        return pool[s * SPAN_STRIDE + SPAN_NEXT];
+    }
+
+    public void setNextSpan(int s, int next) {
+        pool[s * SPAN_STRIDE + SPAN_NEXT] = next;
+    }
+
+    /**
+     * Replaces the span columns of rows [dstRow, dstRow + rows) with copies of the columns of rows [srcRow, srcRow +
+     * rows) of src. Both heightfields must have the same width.
+     */
+    void copyRows(Heightfield src, int srcRow, int dstRow, int rows) {
+        for (int i = 0, n = rows * width; i < n; ++i) {
+            int d = dstRow * width + i;
+            for (int s = spans[d]; s != NULL_SPAN;) {
+                int next = getNextSpan(s);
+                freeSpan(s);
+                s = next;
+            }
+            spans[d] = NULL_SPAN;
+            int prev = NULL_SPAN;
+            for (int s = src.spans[srcRow * width + i]; s != NULL_SPAN; s = src.getNextSpan(s)) {
+                int copy = allocSpan(src.getSpanMin(s), src.getSpanMax(s), src.getSpanArea(s), NULL_SPAN);
+                if (prev == NULL_SPAN) {
+                    spans[d] = copy;
+                } else {
+                    setNextSpan(prev, copy);
+                }
+                prev = copy;
+            }
+        }
+    }
+
+    /** The span pool, handed back to the arena once the heightfield is no longer used. */
+    int[] spanPool() {
+        return pool;
+    }
+
+    /** Number of spans currently stored in the heightfield. */
+    public int getSpanCount() {
+        return spanCount;
+    }
+
+    /** Number of input triangles rasterized by {@link RecastVoxelization}, 0 if rasterized by the caller. */
+    public int getTriangleCount() {
+        return triangleCount;
     }
 }
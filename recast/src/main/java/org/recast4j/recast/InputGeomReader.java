@@ -1,5 +1,526 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
 package org.recast4j.recast;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import org.recast4j.recast.geom.SimpleInputGeomProvider;
+
+/**
+ * Reads input geometry from Wavefront OBJ files and from a binary cache format.
+ *
+ * OBJ files are split into chunks at line boundaries that are parsed concurrently if an executor is given. A first
+ * pass counts the vertices and triangles of each chunk, so that the second pass can parse every chunk directly into
+ * its part of the vertex and face arrays. Only vertex positions and faces are read, polygons are triangulated as fans.
+ *
+ * The cache stores the vertex and face arrays as they are in memory, little endian, together with the size and
+ * modification time of the OBJ file it was created from:
+ *
+ * <pre>
+ * magic, version, source size (long), source modification time (long), vertex count * 3, face count * 3
+ * vertices [(x, y, z) * vertex count]
+ * faces [(vertA, vertB, vertC) * face count]
+ * </pre>
+ */
 public class InputGeomReader {
 
+    private static final int MAGIC = 'R' << 24 | 'C' << 16 | 'G' << 8 | 'C';
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+    /** Nominal size of the chunks an OBJ file is split into. */
+    static final int OBJ_CHUNK_SIZE = 4 << 20;
+    /** Largest region mapped at once, a multiple of 4 below the 2GB mapping limit. */
+    private static final int MAX_MAP_SIZE = 1 << 30;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    /** Powers of ten that are exact doubles. */
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public static SimpleInputGeomProvider readObj(InputStream is) {
+        try {
+            byte[] data = is.readAllBytes();
+            return readObj(new ArraySource(data), Optional.empty(), OBJ_CHUNK_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static SimpleInputGeomProvider readObj(Path file, Optional<Executor> executor) throws IOException {
+        return readObj(file, executor, OBJ_CHUNK_SIZE);
+    }
+
+    static SimpleInputGeomProvider readObj(Path file, Optional<Executor> executor, int chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readObj(new FileSource(channel), executor, chunkSize);
+        }
+    }
+
+    /**
+     * Reads the geometry from the cache file if it was created from the current version of the OBJ file, otherwise
+     * parses the OBJ file and writes the cache.
+     */
+    public static SimpleInputGeomProvider load(Path obj, Path cache, Optional<Executor> executor) throws IOException {
+        long size = Files.size(obj);
+        long modified = Files.getLastModifiedTime(obj).toMillis();
+        if (Files.exists(cache)) {
+            try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+                ByteBuffer header = readHeader(channel);
+                if (header != null && header.getLong(8) == size && header.getLong(16) == modified) {
+                    return readCache(channel, header);
+                }
+            }
+        }
+        SimpleInputGeomProvider geom = readObj(obj, executor);
+        Path tmp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        writeCache(geom, tmp, size, modified);
+        Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING);
+        return geom;
+    }
+
+    public static void writeCache(SimpleInputGeomProvider geom, Path file) throws IOException {
+        writeCache(geom, file, -1, -1);
+    }
+
+    private static void writeCache(SimpleInputGeomProvider geom, Path file, long sourceSize, long sourceModified)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified);
+            buf.putInt(geom.vertices.length).putInt(geom.faces.length);
+            for (int i = 0; i < geom.vertices.length;) {
+                int n = Math.min(buf.remaining() / 4, geom.vertices.length - i);
+                buf.asFloatBuffer().put(geom.vertices, i, n);
+                buf.position(buf.position() + n * 4);
+                i += n;
+                flush(channel, buf);
+            }
+            for (int i = 0; i < geom.faces.length;) {
+                int n = Math.min(buf.remaining() / 4, geom.faces.length - i);
+                buf.asIntBuffer().put(geom.faces, i, n);
+                buf.position(buf.position() + n * 4);
+                i += n;
+                flush(channel, buf);
+            }
+            flush(channel, buf);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Reads a cache file written by {@link #writeCache(SimpleInputGeomProvider, Path)} or
+     * {@link #load(Path, Path, Optional)}. The arrays are copied from memory mapped regions of the file.
+     */
+    public static SimpleInputGeomProvider readCache(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null) {
+                throw new IOException("Invalid geometry cache " + file);
+            }
+            return readCache(channel, header);
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                return null;
+            }
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return null;
+        }
+        return header;
+    }
+
+    private static SimpleInputGeomProvider readCache(FileChannel channel, ByteBuffer header) throws IOException {
+        float[] vertices = new float[header.getInt(24)];
+        int[] faces = new int[header.getInt(28)];
+        long expected = HEADER_SIZE + 4L * vertices.length + 4L * faces.length;
+        if (channel.size() != expected) {
+            throw new IOException("Invalid geometry cache size " + channel.size() + ", expected " + expected);
+        }
+        long position = HEADER_SIZE;
+        for (int i = 0; i < vertices.length;) {
+            int n = Math.min(MAX_MAP_SIZE / 4, vertices.length - i);
+            map(channel, position, n).asFloatBuffer().get(vertices, i, n);
+            position += n * 4L;
+            i += n;
+        }
+        for (int i = 0; i < faces.length;) {
+            int n = Math.min(MAX_MAP_SIZE / 4, faces.length - i);
+            map(channel, position, n).asIntBuffer().get(faces, i, n);
+            position += n * 4L;
+            i += n;
+        }
+        return new SimpleInputGeomProvider(vertices, faces);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, int count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, count * 4L).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private interface Source {
+        long size() throws IOException;
+
+        /** Returns the bytes [start, end) of the source, starting at index 0 of the buffer. */
+        ByteBuffer slice(long start, long end) throws IOException;
+    }
+
+    private static class ArraySource implements Source {
+        private final byte[] data;
+
+        ArraySource(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public ByteBuffer slice(long start, long end) {
+            return ByteBuffer.wrap(data, (int) start, (int) (end - start)).slice();
+        }
+    }
+
+    private static class FileSource implements Source {
+        private final FileChannel channel;
+
+        FileSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public ByteBuffer slice(long start, long end) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+    }
+
+    private static SimpleInputGeomProvider readObj(Source source, Optional<Executor> executor, int chunkSize)
+            throws IOException {
+        long size = source.size();
+        int nchunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        // Move the chunk boundaries to line starts.
+        long[] bounds = new long[nchunks + 1];
+        bounds[nchunks] = size;
+        for (int i = 1; i < nchunks; i++) {
+            bounds[i] = Math.max(bounds[i - 1], nextLine(source, (long) i * chunkSize, size));
+        }
+        ObjChunk[] chunks = new ObjChunk[nchunks];
+        forEachChunk(executor, nchunks, c -> {
+            chunks[c] = new ObjChunk(source.slice(bounds[c], bounds[c + 1]), bounds[c]);
+            chunks[c].parse(null, null);
+        });
+        int nverts = 0;
+        int nindices = 0;
+        for (ObjChunk chunk : chunks) {
+            chunk.vertexOffset = nverts;
+            chunk.indexOffset = nindices;
+            nverts = Math.addExact(nverts, chunk.nverts);
+            nindices = Math.addExact(nindices, chunk.nindices);
+        }
+        float[] vertices = new float[Math.multiplyExact(nverts, 3)];
+        int[] faces = new int[nindices];
+        forEachChunk(executor, nchunks, c -> chunks[c].parse(vertices, faces));
+        for (int i = 0; i < faces.length; i++) {
+            if (faces[i] < 0 || faces[i] >= nverts) {
+                throw new RuntimeException("Invalid vertex index " + (faces[i] + 1) + ", found " + nverts + " vertices");
+            }
+        }
+        return new SimpleInputGeomProvider(vertices, faces);
+    }
+
+    private interface ChunkTask {
+        void run(int chunk) throws IOException;
+    }
+
+    private static void forEachChunk(Optional<Executor> executor, int nchunks, ChunkTask task) throws IOException {
+        try {
+            if (executor.isPresent()) {
+                RecastParallel.forEachBand(executor.get(), nchunks, nchunks, (band, start, end) -> {
+                    try {
+                        task.run(band);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } else {
+                for (int c = 0; c < nchunks; c++) {
+                    task.run(c);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long nextLine(Source source, long position, long size) throws IOException {
+        while (position < size) {
+            long end = Math.min(size, position + 4096);
+            ByteBuffer buf = source.slice(position, end);
+            for (int i = 0; i < buf.limit(); i++) {
+                if (buf.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position = end;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines of a chunk. Without output arrays it only counts the vertices and face indices, with them it
+     * writes the vertices and faces at the offsets of the chunk.
+     */
+    private static class ObjChunk {
+        private final ByteBuffer buf;
+        private final long start;
+        private int pos;
+        private int lineEnd;
+        int nverts;
+        int nindices;
+        int vertexOffset;
+        int indexOffset;
+
+        ObjChunk(ByteBuffer buf, long start) {
+            this.buf = buf;
+            this.start = start;
+        }
+
+        void parse(float[] vertices, int[] faces) {
+            int end = buf.limit();
+            int v = vertexOffset * 3;
+            int f = indexOffset;
+            int vertexCount = vertexOffset;
+            for (pos = 0; pos < end; pos = lineEnd + 1) {
+                lineEnd = pos;
+                while (lineEnd < end && buf.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                skipWhitespace();
+                if (pos + 1 >= lineEnd || !isWhitespace(buf.get(pos + 1))) {
+                    continue;
+                }
+                byte type = buf.get(pos);
+                if (type == 'v') {
+                    pos++;
+                    if (vertices == null) {
+                        nverts++;
+                        continue;
+                    }
+                    for (int i = 0; i < 3; i++) {
+                        skipWhitespace();
+                        if (pos >= lineEnd) {
+                            throw error("Invalid vector, expected 3 coordinates, found " + i);
+                        }
+                        vertices[v++] = parseFloat();
+                    }
+                    vertexCount++;
+                } else if (type == 'f') {
+                    pos++;
+                    int first = 0;
+                    int prev = 0;
+                    int n = 0;
+                    for (skipWhitespace(); pos < lineEnd; skipWhitespace()) {
+                        if (faces == null) {
+                            skipToken();
+                        } else {
+                            int index = parseInt();
+                            if (index > 0) {
+                                index--;
+                            } else if (index < 0) {
+                                index = vertexCount + index;
+                            } else {
+                                throw error("0 vertex index");
+                            }
+                            // Skip texture and normal indices.
+                            skipToken();
+                            if (n == 0) {
+                                first = index;
+                            } else if (n >= 2) {
+                                faces[f++] = first;
+                                faces[f++] = prev;
+                                faces[f++] = index;
+                            }
+                            prev = index;
+                        }
+                        n++;
+                    }
+                    if (n < 3) {
+                        throw error("Invalid number of face vertices: 3 coordinates expected, found " + n);
+                    }
+                    if (faces == null) {
+                        nindices = Math.addExact(nindices, (n - 2) * 3);
+                    }
+                }
+            }
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r' || b == '\f';
+        }
+
+        private void skipWhitespace() {
+            while (pos < lineEnd && isWhitespace(buf.get(pos))) {
+                pos++;
+            }
+        }
+
+        private void skipToken() {
+            while (pos < lineEnd && !isWhitespace(buf.get(pos))) {
+                pos++;
+            }
+        }
+
+        private int parseInt() {
+            boolean negative = false;
+            if (pos < lineEnd && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+                negative = buf.get(pos++) == '-';
+            }
+            int digits = pos;
+            long value = 0;
+            while (pos < lineEnd && buf.get(pos) >= '0' && buf.get(pos) <= '9') {
+                value = value * 10 + (buf.get(pos++) - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw error("Vertex index out of range");
+                }
+            }
+            if (pos == digits) {
+                throw error("Invalid vertex index");
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        /**
+         * Parses a decimal number. Numbers with up to 15 significant digits and a small exponent are computed exactly
+         * enough from a double, anything else falls back to {@link Float#parseFloat(String)}. The result is always the
+         * same as the one of {@link Float#parseFloat(String)}.
+         */
+        private float parseFloat() {
+            int tokenStart = pos;
+            boolean negative = false;
+            if (buf.get(pos) == '-' || buf.get(pos) == '+') {
+                negative = buf.get(pos++) == '-';
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean valid = false;
+            byte b;
+            while (pos < lineEnd && (b = buf.get(pos)) >= '0' && b <= '9') {
+                if (digits > 0 || b != '0') {
+                    digits++;
+                    mantissa = digits <= 18 ? mantissa * 10 + (b - '0') : mantissa;
+                    exponent += digits <= 18 ? 0 : 1;
+                }
+                valid = true;
+                pos++;
+            }
+            if (pos < lineEnd && buf.get(pos) == '.') {
+                pos++;
+                while (pos < lineEnd && (b = buf.get(pos)) >= '0' && b <= '9') {
+                    if (digits > 0 || b != '0') {
+                        digits++;
+                        if (digits <= 18) {
+                            mantissa = mantissa * 10 + (b - '0');
+                            exponent--;
+                        }
+                    } else {
+                        exponent--;
+                    }
+                    valid = true;
+                    pos++;
+                }
+            }
+            if (valid && pos < lineEnd && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+                pos++;
+                boolean negativeExp = false;
+                if (pos < lineEnd && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+                    negativeExp = buf.get(pos++) == '-';
+                }
+                int e = 0;
+                valid = false;
+                while (pos < lineEnd && (b = buf.get(pos)) >= '0' && b <= '9') {
+                    e = Math.min(e * 10 + (b - '0'), 100000);
+                    valid = true;
+                    pos++;
+                }
+                exponent += negativeExp ? -e : e;
+            }
+            if (valid && (pos >= lineEnd || isWhitespace(buf.get(pos))) && digits <= 15 && exponent >= -22
+                    && exponent <= 22) {
+                // Both operands are exact, so the double is correctly rounded.
+                double d = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+                // Rounding to float again is only wrong if the double lies exactly halfway between two floats.
+                long bits = Double.doubleToRawLongBits(d);
+                if (d == 0 || (d >= Float.MIN_NORMAL && d <= Float.MAX_VALUE
+                        && (bits & ((1L << 29) - 1)) != 1L << 28)) {
+                    return negative ? (float) -d : (float) d;
+                }
+            }
+            skipToken();
+            byte[] bytes = new byte[pos - tokenStart];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buf.get(tokenStart + i);
+            }
+            String token = new String(bytes, StandardCharsets.US_ASCII);
+            try {
+                return Float.parseFloat(token);
+            } catch (NumberFormatException e) {
+                throw error("Invalid number " + token);
+            }
+        }
+
+        private RuntimeException error(String message) {
+            return new RuntimeException(message + " at offset " + (start + pos));
+        }
+    }
+
 }
@@ -0,0 +1,127 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints used as work buffer by the build stages (rcIntArray). Follows the {@code List}
+ * method names so the stages read the same, without boxing every element.
+ */
+class IntArray {
+
+    private int[] data;
+    private int size;
+
+    IntArray() {
+        this(16);
+    }
+
+    IntArray(int capacity) {
+        data = new int[Math.max(1, capacity)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        return data[i];
+    }
+
+    void set(int i, int v) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        data[i] = v;
+    }
+
+    void add(int v) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = v;
+    }
+
+    /** Inserts v at index i, shifting the following elements up. */
+    void add(int i, int v) {
+        if (i > size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        System.arraycopy(data, i, data, i + 1, size - i);
+        data[i] = v;
+        size++;
+    }
+
+    void addAll(IntArray a) {
+        if (size + a.size > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + a.size));
+        }
+        System.arraycopy(a.data, 0, data, size, a.size);
+        size += a.size;
+    }
+
+    /** Removes the element at index i, shifting the following elements down, and returns it. */
+    int remove(int i) {
+        int v = get(i);
+        System.arraycopy(data, i + 1, data, i, size - i - 1);
+        size--;
+        return v;
+    }
+
+    /** Removes the elements in [from, to), shifting the following elements down. */
+    void removeRange(int from, int to) {
+        System.arraycopy(data, to, data, from, size - to);
+        size -= to - from;
+    }
+
+    /** Removes and returns the last element. */
+    int pop() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("Index -1 out of bounds for length 0");
+        }
+        return data[--size];
+    }
+
+    boolean contains(int v) {
+        for (int i = 0; i < size; i++) {
+            if (data[i] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
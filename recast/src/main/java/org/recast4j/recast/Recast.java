@@ -59,24 +59,45 @@ public class Recast {
     public static int[] markWalkableTriangles(Telemetry ctx, float walkableSlopeAngle, float[] verts, int[] tris, int nt,
             AreaModification areaMod) {
         int[] areas = new int[nt];
+        markWalkableTriangles(walkableSlopeAngle, verts, tris, nt, areaMod, areas);
+        return areas;
+    }
+
+    /**
+     * Applies the area modification to the areas of the walkable triangles like
+     * {@link #markWalkableTriangles(Telemetry, float, float[], int[], int, AreaModification)}, but into an existing
+     * area array [Size: &gt;= nt].
+     */
+    public static void markWalkableTriangles(float walkableSlopeAngle, float[] verts, int[] tris, int nt,
+            AreaModification areaMod, int[] areas) {
         float walkableThr = (float) Math.cos(walkableSlopeAngle / 180.0f * Math.PI);
-        float norm[] = new float[3];
         for (int i = 0; i < nt; ++i) {
             int tri = i * 3;
-            calcTriNormal(verts, tris[tri], tris[tri + 1], tris[tri + 2], norm);
             // Check if the face is walkable.
-            if (norm[1] > walkableThr)
+            if (calcTriNormalY(verts, tris[tri], tris[tri + 1], tris[tri + 2]) > walkableThr)
                 areas[i] = areaMod.apply(areas[i]);
         }
-        return areas;
     }
 
-    static void calcTriNormal(float[] verts, int v0, int v1, int v2, float[] norm) {
-        float e0[] = new float[3], e1[] = new float[3];
-        RecastVectors.sub(e0, verts, v1 * 3, v0 * 3);
-        RecastVectors.sub(e1, verts, v2 * 3, v0 * 3);
-        RecastVectors.cross(norm, e0, e1);
-        RecastVectors.normalize(norm);
+    /**
+     * Returns the y component of the normalized triangle normal. Same float operations as RecastVectors.cross and
+     * RecastVectors.normalize, without temporary arrays.
+     */
+    private static float calcTriNormalY(float[] verts, int v0, int v1, int v2) {
+        v0 *= 3;
+        v1 *= 3;
+        v2 *= 3;
+        float e0x = verts[v1] - verts[v0];
+        float e0y = verts[v1 + 1] - verts[v0 + 1];
+        float e0z = verts[v1 + 2] - verts[v0 + 2];
+        float e1x = verts[v2] - verts[v0];
+        float e1y = verts[v2 + 1] - verts[v0 + 1];
+        float e1z = verts[v2 + 2] - verts[v0 + 2];
+        float nx = e0y * e1z - e0z * e1y;
+        float ny = e0z * e1x - e0x * e1z;
+        float nz = e0x * e1y - e0y * e1x;
+        float d = (float) (1.0f / Math.sqrt(nx * nx + ny * ny + nz * nz));
+        return ny * d;
     }
 
     /// @par
@@ -91,13 +112,10 @@ public class Recast {
             int[] tris, int nt, int[] areas) {
         float walkableThr = (float) Math.cos(walkableSlopeAngle / 180.0f * Math.PI);
 
-        float norm[] = new float[3];
-
         for (int i = 0; i < nt; ++i) {
             int tri = i * 3;
-            calcTriNormal(verts, tris[tri], tris[tri + 1], tris[tri + 2], norm);
             // Check if the face is walkable.
-            if (norm[1] <= walkableThr)
+            if (calcTriNormalY(verts, tris[tri], tris[tri + 1], tris[tri + 2]) <= walkableThr)
                 areas[i] = RC_NULL_AREA;
         }
     }
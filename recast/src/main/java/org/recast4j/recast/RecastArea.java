@@ -34,27 +34,31 @@ public class RecastArea {
     ///
     /// @see rcCompactHeightfield, rcBuildCompactHeightfield, rcConfig::walkableRadius
     public static void erodeWalkableArea(Telemetry ctx, int radius, CompactHeightfield chf) {
+        erodeWalkableArea(ctx, radius, chf, new BuildArena());
+    }
+
+    /** Same as {@link #erodeWalkableArea(Telemetry, int, CompactHeightfield)}, with scratch buffers from the arena. */
+    public static void erodeWalkableArea(Telemetry ctx, int radius, CompactHeightfield chf, BuildArena arena) {
         int w = chf.width;
         int h = chf.height;
-        ctx.startTimer("ERODE_AREA");
+        ctx.startTimer(BuildStage.ERODE_AREA);
 
-        int[] dist = new int[chf.spanCount];
-        Arrays.fill(dist, 255);
+        int[] dist = arena.ints(BuildArena.DISTANCE, chf.spanCount);
+        Arrays.fill(dist, 0, chf.spanCount, 255);
         // Mark boundary cells.
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (chf.areas[i] == RC_NULL_AREA) {
                         dist[i] = 0;
                     } else {
-                        CompactSpan s = chf.spans[i];
                         int nc = 0;
                         for (int dir = 0; dir < 4; ++dir) {
-                            if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                            if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                                 int nx = x + RecastCommon.GetDirOffsetX(dir);
                                 int ny = y + RecastCommon.GetDirOffsetY(dir);
-                                int nidx = chf.cells[nx + ny * w].index + RecastCommon.GetCon(s, dir);
+                                int nidx = chf.cellIndex[nx + ny * w] + RecastCommon.GetCon(chf, i, dir);
                                 if (chf.areas[nidx] != RC_NULL_AREA) {
                                     nc++;
                                 }
@@ -73,45 +77,42 @@ public class RecastArea {
         // Pass 1
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
 
-                    if (RecastCommon.GetCon(s, 0) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 0) != RC_NOT_CONNECTED) {
                         // (-1,0)
                         int ax = x + RecastCommon.GetDirOffsetX(0);
                         int ay = y + RecastCommon.GetDirOffsetY(0);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 0);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 0);
                         nd = Math.min(dist[ai] + 2, 255);
                         if (nd < dist[i])
                             dist[i] = nd;
 
                         // (-1,-1)
-                        if (RecastCommon.GetCon(as, 3) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 3) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(3);
                             int aay = ay + RecastCommon.GetDirOffsetY(3);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 3);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 3);
                             nd = Math.min(dist[aai] + 3, 255);
                             if (nd < dist[i])
                                 dist[i] = nd;
                         }
                     }
-                    if (RecastCommon.GetCon(s, 3) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 3) != RC_NOT_CONNECTED) {
                         // (0,-1)
                         int ax = x + RecastCommon.GetDirOffsetX(3);
                         int ay = y + RecastCommon.GetDirOffsetY(3);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 3);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 3);
                         nd = Math.min(dist[ai] + 2, 255);
                         if (nd < dist[i])
                             dist[i] = nd;
 
                         // (1,-1)
-                        if (RecastCommon.GetCon(as, 2) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 2) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(2);
                             int aay = ay + RecastCommon.GetDirOffsetY(2);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 2);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 2);
                             nd = Math.min(dist[aai] + 3, 255);
                             if (nd < dist[i])
                                 dist[i] = nd;
@@ -124,45 +125,42 @@ public class RecastArea {
         // Pass 2
         for (int y = h - 1; y >= 0; --y) {
             for (int x = w - 1; x >= 0; --x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
 
-                    if (RecastCommon.GetCon(s, 2) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 2) != RC_NOT_CONNECTED) {
                         // (1,0)
                         int ax = x + RecastCommon.GetDirOffsetX(2);
                         int ay = y + RecastCommon.GetDirOffsetY(2);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 2);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 2);
                         nd = Math.min(dist[ai] + 2, 255);
                         if (nd < dist[i])
                             dist[i] = nd;
 
                         // (1,1)
-                        if (RecastCommon.GetCon(as, 1) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 1) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(1);
                             int aay = ay + RecastCommon.GetDirOffsetY(1);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 1);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 1);
                             nd = Math.min(dist[aai] + 3, 255);
                             if (nd < dist[i])
                                 dist[i] = nd;
                         }
                     }
-                    if (RecastCommon.GetCon(s, 1) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 1) != RC_NOT_CONNECTED) {
                         // (0,1)
                         int ax = x + RecastCommon.GetDirOffsetX(1);
                         int ay = y + RecastCommon.GetDirOffsetY(1);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 1);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 1);
                         nd = Math.min(dist[ai] + 2, 255);
                         if (nd < dist[i])
                             dist[i] = nd;
 
                         // (-1,1)
-                        if (RecastCommon.GetCon(as, 0) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 0) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(0);
                             int aay = ay + RecastCommon.GetDirOffsetY(0);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 0);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 0);
                             nd = Math.min(dist[aai] + 3, 255);
                             if (nd < dist[i])
                                 dist[i] = nd;
@@ -177,7 +175,7 @@ public class RecastArea {
             if (dist[i] < thr)
                 chf.areas[i] = RC_NULL_AREA;
 
-        ctx.stopTimer("ERODE_AREA");
+        ctx.stopTimer(BuildStage.ERODE_AREA);
     }
 
     /// @par
@@ -191,15 +189,14 @@ public class RecastArea {
         int w = chf.width;
         int h = chf.height;
 
-        ctx.startTimer("MEDIAN_AREA");
+        ctx.startTimer(BuildStage.MEDIAN_AREA);
 
         int[] areas = new int[chf.spanCount];
 
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (chf.areas[i] == RC_NULL_AREA) {
                         areas[i] = chf.areas[i];
                         continue;
@@ -210,19 +207,18 @@ public class RecastArea {
                         nei[j] = chf.areas[i];
 
                     for (int dir = 0; dir < 4; ++dir) {
-                        if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                             int ax = x + RecastCommon.GetDirOffsetX(dir);
                             int ay = y + RecastCommon.GetDirOffsetY(dir);
-                            int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, dir);
+                            int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, dir);
                             if (chf.areas[ai] != RC_NULL_AREA)
                                 nei[dir * 2 + 0] = chf.areas[ai];
 
-                            CompactSpan as = chf.spans[ai];
                             int dir2 = (dir + 1) & 0x3;
-                            if (RecastCommon.GetCon(as, dir2) != RC_NOT_CONNECTED) {
+                            if (RecastCommon.GetCon(chf, ai, dir2) != RC_NOT_CONNECTED) {
                                 int ax2 = ax + RecastCommon.GetDirOffsetX(dir2);
                                 int ay2 = ay + RecastCommon.GetDirOffsetY(dir2);
-                                int ai2 = chf.cells[ax2 + ay2 * w].index + RecastCommon.GetCon(as, dir2);
+                                int ai2 = chf.cellIndex[ax2 + ay2 * w] + RecastCommon.GetCon(chf, ai, dir2);
                                 if (chf.areas[ai2] != RC_NULL_AREA)
                                     nei[dir * 2 + 1] = chf.areas[ai2];
                             }
@@ -235,7 +231,7 @@ public class RecastArea {
         }
         chf.areas = areas;
 
-        ctx.stopTimer("MEDIAN_AREA");
+        ctx.stopTimer(BuildStage.MEDIAN_AREA);
 
         return true;
     }
@@ -246,7 +242,7 @@ public class RecastArea {
     ///
     /// @see rcCompactHeightfield, rcMedianFilterWalkableArea
     public void markBoxArea(Telemetry ctx, float[] bmin, float[] bmax, AreaModification areaMod, CompactHeightfield chf) {
-        ctx.startTimer("MARK_BOX_AREA");
+        ctx.startTimer(BuildStage.MARK_BOX_AREA);
 
         int minx = (int) ((bmin[0] - chf.bmin[0]) / chf.cs);
         int miny = (int) ((bmin[1] - chf.bmin[1]) / chf.ch);
@@ -275,10 +271,9 @@ public class RecastArea {
 
         for (int z = minz; z <= maxz; ++z) {
             for (int x = minx; x <= maxx; ++x) {
-                CompactCell c = chf.cells[x + z * chf.width];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
-                    if (s.y >= miny && s.y <= maxy) {
+                int c = x + z * chf.width;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                    if (chf.spanY[i] >= miny && chf.spanY[i] <= maxy) {
                         if (chf.areas[i] != RC_NULL_AREA)
                             chf.areas[i] = areaMod.apply(chf.areas[i]);
                     }
@@ -286,7 +281,7 @@ public class RecastArea {
             }
         }
 
-        ctx.stopTimer("MARK_BOX_AREA");
+        ctx.stopTimer(BuildStage.MARK_BOX_AREA);
 
     }
 
@@ -314,7 +309,7 @@ public class RecastArea {
     /// @see rcCompactHeightfield, rcMedianFilterWalkableArea
     public static void markConvexPolyArea(Telemetry ctx, float[] verts, float hmin, float hmax, AreaModification areaMod,
             CompactHeightfield chf) {
-        ctx.startTimer("MARK_CONVEXPOLY_AREA");
+        ctx.startTimer(BuildStage.MARK_CONVEXPOLY_AREA);
 
         float bmin[] = new float[3], bmax[] = new float[3];
         RecastVectors.copy(bmin, verts, 0);
@@ -354,12 +349,11 @@ public class RecastArea {
         // TODO: Optimize.
         for (int z = minz; z <= maxz; ++z) {
             for (int x = minx; x <= maxx; ++x) {
-                CompactCell c = chf.cells[x + z * chf.width];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + z * chf.width;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (chf.areas[i] == RC_NULL_AREA)
                         continue;
-                    if (s.y >= miny && s.y <= maxy) {
+                    if (chf.spanY[i] >= miny && chf.spanY[i] <= maxy) {
                         float p[] = new float[3];
                         p[0] = chf.bmin[0] + (x + 0.5f) * chf.cs;
                         p[1] = 0;
@@ -373,7 +367,7 @@ public class RecastArea {
             }
         }
 
-        ctx.stopTimer("MARK_CONVEXPOLY_AREA");
+        ctx.stopTimer(BuildStage.MARK_CONVEXPOLY_AREA);
     }
 
     int offsetPoly(float[] verts, int nverts, float offset, float[] outVerts, int maxOutVerts) {
@@ -452,7 +446,7 @@ public class RecastArea {
     public void markCylinderArea(Telemetry ctx, float[] pos, float r, float h, AreaModification areaMod,
             CompactHeightfield chf) {
 
-        ctx.startTimer("MARK_CYLINDER_AREA");
+        ctx.startTimer(BuildStage.MARK_CYLINDER_AREA);
 
         float bmin[] = new float[3], bmax[] = new float[3];
         bmin[0] = pos[0] - r;
@@ -490,14 +484,13 @@ public class RecastArea {
 
         for (int z = minz; z <= maxz; ++z) {
             for (int x = minx; x <= maxx; ++x) {
-                CompactCell c = chf.cells[x + z * chf.width];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + z * chf.width;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
 
                     if (chf.areas[i] == RC_NULL_AREA)
                         continue;
 
-                    if (s.y >= miny && s.y <= maxy) {
+                    if (chf.spanY[i] >= miny && chf.spanY[i] <= maxy) {
                         float sx = chf.bmin[0] + (x + 0.5f) * chf.cs;
                         float sz = chf.bmin[2] + (z + 0.5f) * chf.cs;
                         float dx = sx - pos[0];
@@ -510,7 +503,7 @@ public class RecastArea {
                 }
             }
         }
-        ctx.stopTimer("MARK_CYLINDER_AREA");
+        ctx.stopTimer(BuildStage.MARK_CYLINDER_AREA);
     }
 
 }
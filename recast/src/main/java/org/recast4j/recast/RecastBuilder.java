@@ -18,12 +18,21 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.recast4j.recast.RecastConstants.PartitionType;
 import org.recast4j.recast.geom.ConvexVolumeProvider;
@@ -36,13 +45,25 @@ public class RecastBuilder {
     }
 
     private final RecastBuilderProgressListener progressListener;
+    private final Telemetry telemetry;
+    /** Scratch buffers of the threads building with this builder, recycled from one tile to the next. */
+    private final ThreadLocal<BuildArena> arenas = new ThreadLocal<>();
 
     public RecastBuilder() {
-        progressListener = null;
+        this(null, null);
     }
 
     public RecastBuilder(RecastBuilderProgressListener progressListener) {
+        this(progressListener, null);
+    }
+
+    /**
+     * Builder that reports all builds to the given telemetry instead of a new one per build, so the stage timings and
+     * tile statistics of a whole tiled build end up in one place. The telemetry is shared by tiles built concurrently.
+     */
+    public RecastBuilder(RecastBuilderProgressListener progressListener, Telemetry telemetry) {
         this.progressListener = progressListener;
+        this.telemetry = telemetry;
     }
 
     public static class RecastBuilderResult {
@@ -91,6 +112,14 @@ public class RecastBuilder {
             return telemetry;
         }
 
+        /**
+         * Returns a copy that only references the poly mesh and detail mesh, so the heightfields and contours can be
+         * garbage collected.
+         */
+        public RecastBuilderResult withoutIntermediates() {
+            return new RecastBuilderResult(tileX, tileZ, null, null, null, pmesh, dmesh, telemetry);
+        }
+
     }
 
     public List<RecastBuilderResult> buildTiles(InputGeomProvider geom, RecastConfig cfg, Optional<Executor> executor) {
@@ -108,6 +137,187 @@ public class RecastBuilder {
         return result;
     }
 
+    /**
+     * Builds all tiles and hands each one to the sink as soon as it is finished instead of collecting them, so memory
+     * use does not grow with the number of tiles. The converter runs on the build thread, e.g. to create the detour
+     * MeshData of the tile, and tiles it converts to null are skipped. Calls to the sink are serialized, so it can add
+     * tiles to a NavMesh or write them out directly. At most maxInFlight tiles are being built or waiting for the sink
+     * at any time, further tiles are not submitted until a slot is free. Unless keepIntermediates is set, the
+     * heightfields and contours are dropped before the converter is called. The first failure stops submission of
+     * further tiles and is rethrown once the tiles in flight are done.
+     */
+    public <T> void buildTiles(InputGeomProvider geom, RecastConfig cfg, Optional<Executor> executor, int maxInFlight,
+            boolean keepIntermediates, Function<RecastBuilderResult, T> converter, Consumer<T> sink) {
+        float[] bmin = geom.getMeshBoundsMin();
+        float[] bmax = geom.getMeshBoundsMax();
+        AtomicInteger counter = new AtomicInteger();
+        stream(geom, cfg, executor, maxInFlight, sink, (tx, ty, total) -> buildTile(geom, cfg, bmin, bmax, tx, ty,
+                counter, total, keepIntermediates, converter));
+    }
+
+    /**
+     * Streaming build backed by a tile cache. Tiles whose input hash (see RecastTileHash) combined with the codec
+     * version is found in the cache are decoded instead of built, other tiles are built, converted, encoded and
+     * stored in the cache. Tiles converted to null are cached as empty and skipped. Otherwise works like the streaming
+     * build above, without intermediates.
+     */
+    public <T> void buildTiles(InputGeomProvider geom, RecastConfig cfg, Optional<Executor> executor, int maxInFlight,
+            TileBuildCache cache, TileBuildCache.Codec<T> codec, Function<RecastBuilderResult, T> converter,
+            Consumer<T> sink) {
+        float[] bmin = geom.getMeshBoundsMin();
+        float[] bmax = geom.getMeshBoundsMax();
+        AtomicInteger counter = new AtomicInteger();
+        stream(geom, cfg, executor, maxInFlight, sink, (tx, ty, total) -> {
+            RecastBuilderConfig builderCfg = new RecastBuilderConfig(cfg, bmin, bmax, tx, ty);
+            long key = TileBuildCache.key(RecastTileHash.hash(geom, builderCfg), codec.version());
+            Optional<byte[]> cached = cache.get(key);
+            if (cached.isPresent()) {
+                try {
+                    T tile = cached.get().length > 0 ? codec.decode(cached.get()) : null;
+                    if (progressListener != null) {
+                        progressListener.onProgress(counter.incrementAndGet(), total);
+                    }
+                    return tile;
+                } catch (IOException e) {
+                    // corrupt entry, rebuild the tile and overwrite it
+                }
+            }
+            T tile = buildTile(geom, cfg, bmin, bmax, tx, ty, counter, total, false, converter);
+            try {
+                cache.put(key, tile != null ? codec.encode(tile) : new byte[0]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return tile;
+        });
+    }
+
+    private interface TileTask<T> {
+        T build(int tx, int ty, int total);
+    }
+
+    private <T> void stream(InputGeomProvider geom, RecastConfig cfg, Optional<Executor> executor, int maxInFlight,
+            Consumer<T> sink, TileTask<T> task) {
+        int[] twh = Recast.calcTileCount(geom.getMeshBoundsMin(), geom.getMeshBoundsMax(), cfg.cs, cfg.tileSizeX,
+                cfg.tileSizeZ);
+        int tw = twh[0];
+        int th = twh[1];
+        if (executor.isPresent()) {
+            streamMultiThread(tw, th, executor.get(), Math.max(1, maxInFlight), sink, task);
+        } else {
+            streamSingleThread(tw, th, sink, task);
+        }
+    }
+
+    private <T> void streamSingleThread(int tw, int th, Consumer<T> sink, TileTask<T> task) {
+        for (int y = 0; y < th; ++y) {
+            for (int x = 0; x < tw; ++x) {
+                T tile = task.build(x, y, tw * th);
+                if (tile != null) {
+                    sink.accept(tile);
+                }
+            }
+        }
+    }
+
+    private <T> void streamMultiThread(int tw, int th, Executor executor, int maxInFlight, Consumer<T> sink,
+            TileTask<T> task) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        submit: for (int y = 0; y < th; ++y) {
+            for (int x = 0; x < tw; ++x) {
+                inFlight.acquireUninterruptibly();
+                if (failure.get() != null) {
+                    inFlight.release();
+                    break submit;
+                }
+                final int tx = x;
+                final int ty = y;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            T tile = task.build(tx, ty, tw * th);
+                            if (tile != null) {
+                                synchronized (sink) {
+                                    if (failure.get() == null) {
+                                        sink.accept(tile);
+                                    }
+                                }
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    failure.compareAndSet(null, e);
+                    break submit;
+                }
+            }
+        }
+        // Wait for the tiles in flight.
+        inFlight.acquireUninterruptibly(maxInFlight);
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Rebuilds the tiles whose input changed since a previous build. tileHashes holds the hashes of the previous build
+     * (see RecastTileHash), one per tile ordered by tile z and then tile x, and is updated in place with the hashes of
+     * the current input. Pass a new array to build all tiles. Only the tiles whose hash changed are built and returned,
+     * in the same order; a rebuilt tile with no polygons means the tile should be removed from the nav mesh.
+     *
+     * @throws IllegalArgumentException
+     *             if the tile grid of the input does not match the size of tileHashes.
+     */
+    public List<RecastBuilderResult> buildChangedTiles(InputGeomProvider geom, RecastConfig cfg, long[] tileHashes,
+            Optional<Executor> executor) {
+        float[] bmin = geom.getMeshBoundsMin();
+        float[] bmax = geom.getMeshBoundsMax();
+        int[] twh = Recast.calcTileCount(bmin, bmax, cfg.cs, cfg.tileSizeX, cfg.tileSizeZ);
+        int tw = twh[0];
+        int th = twh[1];
+        if (tileHashes.length != tw * th) {
+            throw new IllegalArgumentException("Expected " + tw * th + " tile hashes, got " + tileHashes.length);
+        }
+        long[] hashes = new long[tw * th];
+        List<RecastBuilderConfig> changed = new ArrayList<>();
+        for (int y = 0; y < th; ++y) {
+            for (int x = 0; x < tw; ++x) {
+                RecastBuilderConfig builderCfg = new RecastBuilderConfig(cfg, bmin, bmax, x, y);
+                hashes[y * tw + x] = RecastTileHash.hash(geom, builderCfg);
+                if (hashes[y * tw + x] != tileHashes[y * tw + x]) {
+                    changed.add(builderCfg);
+                }
+            }
+        }
+        List<RecastBuilderResult> result = new ArrayList<>(changed.size());
+        AtomicInteger counter = new AtomicInteger();
+        if (executor.isPresent()) {
+            List<CompletableFuture<RecastBuilderResult>> tiles = new ArrayList<>(changed.size());
+            for (RecastBuilderConfig builderCfg : changed) {
+                tiles.add(CompletableFuture.supplyAsync(() -> buildTile(geom, cfg, bmin, bmax, builderCfg.tileX,
+                        builderCfg.tileZ, counter, changed.size()), executor.get()));
+            }
+            tiles.forEach(tile -> result.add(tile.join()));
+        } else {
+            for (RecastBuilderConfig builderCfg : changed) {
+                result.add(buildTile(geom, cfg, bmin, bmax, builderCfg.tileX, builderCfg.tileZ, counter, changed.size()));
+            }
+        }
+        // Only record the new hashes once the tiles have been built.
+        System.arraycopy(hashes, 0, tileHashes, 0, hashes.length);
+        return result;
+    }
+
     private List<RecastBuilderResult> buildSingleThread(InputGeomProvider geom, RecastConfig cfg, float[] bmin, float[] bmax,
             int tw, int th) {
         List<RecastBuilderResult> result = new ArrayList<>(tw * th);
@@ -122,31 +332,101 @@ public class RecastBuilder {
 
     private List<RecastBuilderResult> buildMultiThread(InputGeomProvider geom, RecastConfig cfg, float[] bmin, float[] bmax,
             int tw, int th, Executor executor) {
-        List<RecastBuilderResult> result = new ArrayList<>(tw * th);
+        List<CompletableFuture<RecastBuilderResult>> tiles = buildTilesAsync(geom, cfg, bmin, bmax, tw, th, executor);
+        // Fail fast: the first failure cancels the tiles that have not been built yet.
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (CompletableFuture<RecastBuilderResult> tile : tiles) {
+            tile.whenComplete((r, e) -> {
+                if (e != null && !(e instanceof CancellationException) && failure.compareAndSet(null, e)) {
+                    tiles.forEach(t -> t.cancel(false));
+                }
+            });
+        }
+        List<RecastBuilderResult> result = new ArrayList<>(tiles.size());
+        try {
+            for (CompletableFuture<RecastBuilderResult> tile : tiles) {
+                result.add(tile.join());
+            }
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = failure.get() != null ? failure.get() : e;
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        return result;
+    }
+
+    /**
+     * Starts building all tiles on the executor and returns one future per tile, ordered by tile z and then tile x
+     * regardless of the order in which the tiles complete. Tiles are submitted heaviest first, estimated by the number
+     * of input triangles overlapping each tile, so expensive tiles do not end up at the tail of the build. A
+     * ForkJoinPool executor balances the remaining work by work stealing. A tile that fails completes its future
+     * exceptionally, other tiles are not affected. Cancelling a future skips the tile if it has not started yet.
+     */
+    public List<CompletableFuture<RecastBuilderResult>> buildTilesAsync(InputGeomProvider geom, RecastConfig cfg,
+            Executor executor) {
+        float[] bmin = geom.getMeshBoundsMin();
+        float[] bmax = geom.getMeshBoundsMax();
+        int[] twh = Recast.calcTileCount(bmin, bmax, cfg.cs, cfg.tileSizeX, cfg.tileSizeZ);
+        return buildTilesAsync(geom, cfg, bmin, bmax, twh[0], twh[1], executor);
+    }
+
+    private List<CompletableFuture<RecastBuilderResult>> buildTilesAsync(InputGeomProvider geom, RecastConfig cfg,
+            float[] bmin, float[] bmax, int tw, int th, Executor executor) {
+        List<CompletableFuture<RecastBuilderResult>> tiles = new ArrayList<>(tw * th);
+        long[] costs = new long[tw * th];
+        Integer[] order = new Integer[tw * th];
+        for (int y = 0; y < th; ++y) {
+            for (int x = 0; x < tw; ++x) {
+                int i = y * tw + x;
+                tiles.add(new CompletableFuture<>());
+                costs[i] = estimateTileCost(geom, new RecastBuilderConfig(cfg, bmin, bmax, x, y));
+                order[i] = i;
+            }
+        }
+        // Stable sort, tiles with equal cost keep the row order.
+        Arrays.sort(order, (a, b) -> Long.compare(costs[b], costs[a]));
         AtomicInteger counter = new AtomicInteger();
-        CountDownLatch latch = new CountDownLatch(tw * th);
-        for (int x = 0; x < tw; ++x) {
-            for (int y = 0; y < th; ++y) {
-                final int tx = x;
-                final int ty = y;
+        for (int i : order) {
+            CompletableFuture<RecastBuilderResult> tile = tiles.get(i);
+            int tx = i % tw;
+            int ty = i / tw;
+            try {
                 executor.execute(() -> {
+                    if (tile.isDone()) {
+                        return;
+                    }
                     try {
-                        RecastBuilderResult tile = buildTile(geom, cfg, bmin, bmax, tx, ty, counter, tw * th);
-                        synchronized (result) {
-                            result.add(tile);
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
+                        tile.complete(buildTile(geom, cfg, bmin, bmax, tx, ty, counter, tw * th));
+                    } catch (Throwable e) {
+                        tile.completeExceptionally(e);
                     }
-                    latch.countDown();
                 });
+            } catch (RuntimeException e) {
+                tile.completeExceptionally(e);
             }
         }
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
+        return tiles;
+    }
+
+    /**
+     * Estimates the cost of building a tile as the number of input triangles overlapping the tile, as reported by the
+     * provider without loading geometry where it supports that.
+     */
+    private long estimateTileCost(InputGeomProvider geom, RecastBuilderConfig builderCfg) {
+        if (!builderCfg.cfg.useTiles) {
+            // Every tile rasterizes the whole geometry.
+            return 0;
         }
-        return result;
+        float[] tbmin = new float[] { builderCfg.bmin[0], builderCfg.bmin[2] };
+        float[] tbmax = new float[] { builderCfg.bmax[0], builderCfg.bmax[2] };
+        return geom.estimateTriangleCount(tbmin, tbmax);
     }
 
     private RecastBuilderResult buildTile(InputGeomProvider geom, RecastConfig cfg, float[] bmin, float[] bmax, final int tx,
@@ -158,21 +438,104 @@ public class RecastBuilder {
         return result;
     }
 
+    /**
+     * Builds and converts a tile of a streaming build. Unless the intermediates are kept, the converter only gets the
+     * meshes and the heightfields are recycled by the arena of the thread once the tile is converted.
+     */
+    private <T> T buildTile(InputGeomProvider geom, RecastConfig cfg, float[] bmin, float[] bmax, int tx, int ty,
+            AtomicInteger counter, int total, boolean keepIntermediates, Function<RecastBuilderResult, T> converter) {
+        BuildArena arena = acquireArena();
+        try {
+            RecastBuilderResult result = build(geom, new RecastBuilderConfig(cfg, bmin, bmax, tx, ty), Optional.empty(),
+                    arena);
+            if (progressListener != null) {
+                progressListener.onProgress(counter.incrementAndGet(), total);
+            }
+            if (keepIntermediates) {
+                return converter.apply(result);
+            }
+            T tile = converter.apply(result.withoutIntermediates());
+            arena.recycle(result.getSolidHeightfield(), result.getCompactHeightfield());
+            return tile;
+        } finally {
+            releaseArena(arena);
+        }
+    }
+
+    /**
+     * Takes the arena of the calling thread. A build started on a thread that is already building, e.g. by a
+     * ForkJoinPool worker running other tasks while it waits, gets a new arena instead.
+     */
+    private BuildArena acquireArena() {
+        BuildArena arena = arenas.get();
+        if (arena == null) {
+            return new BuildArena();
+        }
+        arenas.set(null);
+        return arena;
+    }
+
+    private void releaseArena(BuildArena arena) {
+        arenas.set(arena);
+    }
+
     public RecastBuilderResult build(InputGeomProvider geom, RecastBuilderConfig builderCfg) {
+        return build(geom, builderCfg, Optional.empty());
+    }
+
+    /**
+     * Builds a single (solo) mesh and runs rasterization, heightfield filtering and detail mesh building in parallel on
+     * the executor. The result is identical to the sequential build.
+     */
+    public RecastBuilderResult build(InputGeomProvider geom, RecastBuilderConfig builderCfg, Executor executor) {
+        return build(geom, builderCfg, Optional.of(executor));
+    }
+
+    private RecastBuilderResult build(InputGeomProvider geom, RecastBuilderConfig builderCfg, Optional<Executor> executor) {
+        BuildArena arena = acquireArena();
+        try {
+            return build(geom, builderCfg, executor, arena);
+        } finally {
+            releaseArena(arena);
+        }
+    }
+
+    private RecastBuilderResult build(InputGeomProvider geom, RecastBuilderConfig builderCfg, Optional<Executor> executor,
+            BuildArena arena) {
 
         RecastConfig cfg = builderCfg.cfg;
-        Telemetry ctx = new Telemetry();
+        Telemetry ctx = newTelemetry();
+        ctx.startTimer(BuildStage.TOTAL);
         //
         // Step 1. Rasterize input polygon soup.
         //
-        Heightfield solid = RecastVoxelization.buildSolidHeightfield(geom, builderCfg, ctx);
-        return build(builderCfg.tileX, builderCfg.tileZ, geom, cfg, solid, ctx);
+        Heightfield solid = RecastVoxelization.buildSolidHeightfield(geom, builderCfg, ctx, arena, executor);
+        return build(builderCfg.tileX, builderCfg.tileZ, geom, cfg, solid, ctx, executor, arena);
     }
 
+    /**
+     * Builds a tile from a heightfield rasterized by the caller. The tile is reported to the telemetry with the input
+     * triangles counted by {@link Heightfield#getTriangleCount()}.
+     */
     public RecastBuilderResult build(int tileX, int tileZ, ConvexVolumeProvider geom, RecastConfig cfg, Heightfield solid,
             Telemetry ctx) {
-        filterHeightfield(solid, cfg, ctx);
-        CompactHeightfield chf = buildCompactHeightfield(geom, cfg, ctx, solid);
+        ctx.startTimer(BuildStage.TOTAL);
+        BuildArena arena = acquireArena();
+        try {
+            return build(tileX, tileZ, geom, cfg, solid, ctx, Optional.empty(), arena);
+        } finally {
+            releaseArena(arena);
+        }
+    }
+
+    private Telemetry newTelemetry() {
+        return telemetry != null ? telemetry : new Telemetry();
+    }
+
+    private RecastBuilderResult build(int tileX, int tileZ, ConvexVolumeProvider geom, RecastConfig cfg, Heightfield solid,
+            Telemetry ctx, Optional<Executor> executor, BuildArena arena) {
+        filterHeightfield(solid, cfg, ctx, executor);
+        CompactHeightfield chf = buildCompactHeightfield(geom, cfg, ctx, solid, arena);
 
         // Partition the heightfield so that we can use simple algorithm later
         // to triangulate the walkable areas.
@@ -215,16 +578,16 @@ public class RecastBuilder {
         if (cfg.partitionType == PartitionType.WATERSHED) {
             // Prepare for region partitioning, by calculating distance field
             // along the walkable surface.
-            RecastRegion.buildDistanceField(ctx, chf);
+            RecastRegion.buildDistanceField(ctx, chf, arena, executor);
             // Partition the walkable surface into simple regions without holes.
-            RecastRegion.buildRegions(ctx, chf, cfg.minRegionArea, cfg.mergeRegionArea);
+            RecastRegion.buildRegions(ctx, chf, cfg.minRegionArea, cfg.mergeRegionArea, arena);
         } else if (cfg.partitionType == PartitionType.MONOTONE) {
             // Partition the walkable surface into simple regions without holes.
             // Monotone partitioning does not need distancefield.
-            RecastRegion.buildRegionsMonotone(ctx, chf, cfg.minRegionArea, cfg.mergeRegionArea);
+            RecastRegion.buildRegionsMonotone(ctx, chf, cfg.minRegionArea, cfg.mergeRegionArea, arena, executor);
         } else {
             // Partition the walkable surface into simple regions without holes.
-            RecastRegion.buildLayerRegions(ctx, chf, cfg.minRegionArea);
+            RecastRegion.buildLayerRegions(ctx, chf, cfg.minRegionArea, arena, executor);
         }
 
         //
@@ -233,21 +596,25 @@ public class RecastBuilder {
 
         // Create contours.
         ContourSet cset = RecastContour.buildContours(ctx, chf, cfg.maxSimplificationError, cfg.maxEdgeLen,
-                RecastConstants.RC_CONTOUR_TESS_WALL_EDGES);
+                RecastConstants.RC_CONTOUR_TESS_WALL_EDGES, arena);
 
         //
         // Step 6. Build polygons mesh from contours.
         //
 
-        PolyMesh pmesh = RecastMesh.buildPolyMesh(ctx, cset, cfg.maxVertsPerPoly);
+        PolyMesh pmesh = RecastMesh.buildPolyMesh(ctx, cset, cfg.maxVertsPerPoly, arena);
 
         //
         // Step 7. Create detail mesh which allows to access approximate height
         // on each polygon.
         //
-        PolyMeshDetail dmesh = cfg.buildMeshDetail
-                ? RecastMeshDetail.buildPolyMeshDetail(ctx, pmesh, chf, cfg.detailSampleDist, cfg.detailSampleMaxError)
-                : null;
+        PolyMeshDetail dmesh = null;
+        if (cfg.buildMeshDetail) {
+            dmesh = RecastMeshDetail.buildPolyMeshDetail(ctx, pmesh, chf, cfg.detailSampleDist, cfg.detailSampleMaxError,
+                    arena, executor);
+        }
+        long time = ctx.stopTimer(BuildStage.TOTAL);
+        ctx.tileCompleted(tileX, tileZ, solid.getTriangleCount(), solid.getSpanCount(), chf.maxRegions, pmesh.npolys, time);
         return new RecastBuilderResult(tileX, tileZ, solid, chf, cset, pmesh, dmesh, ctx);
     }
 
@@ -255,17 +622,33 @@ public class RecastBuilder {
      * Step 2. Filter walkable surfaces.
      */
     private void filterHeightfield(Heightfield solid, RecastConfig cfg, Telemetry ctx) {
+        filterHeightfield(solid, cfg, ctx, Optional.empty());
+    }
+
+    private void filterHeightfield(Heightfield solid, RecastConfig cfg, Telemetry ctx, Optional<Executor> executor) {
         // Once all geometry is rasterized, we do initial pass of filtering to
         // remove unwanted overhangs caused by the conservative rasterization
         // as well as filter spans where the character cannot possibly stand.
         if (cfg.filterLowHangingObstacles) {
-            RecastFilter.filterLowHangingWalkableObstacles(ctx, cfg.walkableClimb, solid);
+            if (executor.isPresent()) {
+                RecastFilter.filterLowHangingWalkableObstacles(ctx, cfg.walkableClimb, solid, executor.get());
+            } else {
+                RecastFilter.filterLowHangingWalkableObstacles(ctx, cfg.walkableClimb, solid);
+            }
         }
         if (cfg.filterLedgeSpans) {
-            RecastFilter.filterLedgeSpans(ctx, cfg.walkableHeight, cfg.walkableClimb, solid);
+            if (executor.isPresent()) {
+                RecastFilter.filterLedgeSpans(ctx, cfg.walkableHeight, cfg.walkableClimb, solid, executor.get());
+            } else {
+                RecastFilter.filterLedgeSpans(ctx, cfg.walkableHeight, cfg.walkableClimb, solid);
+            }
         }
         if (cfg.filterWalkableLowHeightSpans) {
-            RecastFilter.filterWalkableLowHeightSpans(ctx, cfg.walkableHeight, solid);
+            if (executor.isPresent()) {
+                RecastFilter.filterWalkableLowHeightSpans(ctx, cfg.walkableHeight, solid, executor.get());
+            } else {
+                RecastFilter.filterWalkableLowHeightSpans(ctx, cfg.walkableHeight, solid);
+            }
         }
     }
 
@@ -273,14 +656,15 @@ public class RecastBuilder {
      * Step 3. Partition walkable surface to simple regions.
      */
     private CompactHeightfield buildCompactHeightfield(ConvexVolumeProvider volumeProvider, RecastConfig cfg, Telemetry ctx,
-            Heightfield solid) {
+            Heightfield solid, BuildArena arena) {
         // Compact the heightfield so that it is faster to handle from now on.
         // This will result more cache coherent data as well as the neighbours
         // between walkable cells will be calculated.
-        CompactHeightfield chf = RecastCompact.buildCompactHeightfield(ctx, cfg.walkableHeight, cfg.walkableClimb, solid);
+        CompactHeightfield chf = RecastCompact.buildCompactHeightfield(ctx, cfg.walkableHeight, cfg.walkableClimb, solid,
+                arena);
 
         // Erode the walkable area by agent radius.
-        RecastArea.erodeWalkableArea(ctx, cfg.walkableRadius, chf);
+        RecastArea.erodeWalkableArea(ctx, cfg.walkableRadius, chf, arena);
         // (Optional) Mark areas.
         if (volumeProvider != null) {
             for (ConvexVolume vol : volumeProvider.convexVolumes()) {
@@ -291,11 +675,19 @@ public class RecastBuilder {
     }
 
     public HeightfieldLayerSet buildLayers(InputGeomProvider geom, RecastBuilderConfig builderCfg) {
-        Telemetry ctx = new Telemetry();
-        Heightfield solid = RecastVoxelization.buildSolidHeightfield(geom, builderCfg, ctx);
-        filterHeightfield(solid, builderCfg.cfg, ctx);
-        CompactHeightfield chf = buildCompactHeightfield(geom, builderCfg.cfg, ctx, solid);
-        return RecastLayers.buildHeightfieldLayers(ctx, chf, builderCfg.cfg.walkableHeight);
+        Telemetry ctx = newTelemetry();
+        BuildArena arena = acquireArena();
+        try {
+            Heightfield solid = RecastVoxelization.buildSolidHeightfield(geom, builderCfg, ctx, arena, Optional.empty());
+            filterHeightfield(solid, builderCfg.cfg, ctx);
+            CompactHeightfield chf = buildCompactHeightfield(geom, builderCfg.cfg, ctx, solid, arena);
+            HeightfieldLayerSet lset = RecastLayers.buildHeightfieldLayers(ctx, chf, builderCfg.cfg.walkableHeight);
+            // The layers are copies, the heightfields are not used any more.
+            arena.recycle(solid, chf);
+            return lset;
+        } finally {
+            releaseArena(arena);
+        }
     }
 
 }
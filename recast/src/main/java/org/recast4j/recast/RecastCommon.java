@@ -20,14 +20,19 @@ package org.recast4j.recast;
 
 public class RecastCommon {
 
+    private static final int[] DIR_OFFSET_X = { -1, 0, 1, 0, };
+    private static final int[] DIR_OFFSET_Y = { 0, 1, 0, -1 };
+    private static final int[] DIR_FOR_OFFSET = { 3, 0, -1, 2, 1 };
+
     /// Gets neighbor connection data for the specified direction.
-    /// @param[in] s The span to check.
+    /// @param[in] chf The compact heightfield.
+    /// @param[in] i The index of the span to check.
     /// @param[in] dir The direction to check. [Limits: 0 <= value < 4]
     /// @return The neighbor connection data for the specified direction,
     /// or #RC_NOT_CONNECTED if there is no connection.
-    static int GetCon(CompactSpan s, int dir) {
+    static int GetCon(CompactHeightfield chf, int i, int dir) {
         int shift = dir * 6;
-        return (s.con >> shift) & 0x3f;
+        return (chf.spanCon[i] >> shift) & 0x3f;
     }
 
     /// Gets the standard width (x-axis) offset for the specified direction.
@@ -35,8 +40,7 @@ public class RecastCommon {
     /// @return The width offset to apply to the current cell position to move
     /// in the direction.
     static int GetDirOffsetX(int dir) {
-        int offset[] = { -1, 0, 1, 0, };
-        return offset[dir & 0x03];
+        return DIR_OFFSET_X[dir & 0x03];
     }
 
     /// Gets the standard height (z-axis) offset for the specified direction.
@@ -44,8 +48,7 @@ public class RecastCommon {
     /// @return The height offset to apply to the current cell position to move
     /// in the direction.
     static int GetDirOffsetY(int dir) {
-        int offset[] = { 0, 1, 0, -1 };
-        return offset[dir & 0x03];
+        return DIR_OFFSET_Y[dir & 0x03];
     }
 
     /// Gets the direction for the specified offset. One of x and y should be 0.
@@ -53,18 +56,18 @@ public class RecastCommon {
     /// @param[in] y The y offset. [Limits: -1 <= value <= 1]
     /// @return The direction that represents the offset.
     static int rcGetDirForOffset(int x, int y) {
-        int dirs[] = { 3, 0, -1, 2, 1 };
-        return dirs[((y + 1) << 1) + x];
+        return DIR_FOR_OFFSET[((y + 1) << 1) + x];
     }
 
     /// Sets the neighbor connection data for the specified direction.
-    /// @param[in] s The span to update.
+    /// @param[in] chf The compact heightfield.
+    /// @param[in] i The index of the span to update.
     /// @param[in] dir The direction to set. [Limits: 0 <= value < 4]
-    /// @param[in] i The index of the neighbor span.
-    public static void SetCon(CompactSpan s, int dir, int i) {
+    /// @param[in] ni The index of the neighbor span.
+    public static void SetCon(CompactHeightfield chf, int i, int dir, int ni) {
         int shift = dir * 6;
-        int con = s.con;
-        s.con = (con & ~(0x3f << shift)) | ((i & 0x3f) << shift);
+        int con = chf.spanCon[i];
+        chf.spanCon[i] = (con & ~(0x3f << shift)) | ((ni & 0x3f) << shift);
     }
 
     public static int clamp(int v, int min, int max) {
@@ -18,6 +18,7 @@ freely, subject to the following restrictions:
 
 package org.recast4j.recast;
 
+import static org.recast4j.recast.Heightfield.NULL_SPAN;
 import static org.recast4j.recast.RecastConstants.RC_NOT_CONNECTED;
 import static org.recast4j.recast.RecastConstants.RC_NULL_AREA;
 import static org.recast4j.recast.RecastVectors.copy;
@@ -39,8 +40,17 @@ public class RecastCompact {
 
     public static CompactHeightfield buildCompactHeightfield(Telemetry ctx, int walkableHeight, int walkableClimb,
             Heightfield hf) {
+        return buildCompactHeightfield(ctx, walkableHeight, walkableClimb, hf, new BuildArena());
+    }
+
+    /**
+     * Same as {@link #buildCompactHeightfield(Telemetry, int, int, Heightfield)}, taking over the cell arrays of a
+     * compact heightfield recycled by the arena, if any.
+     */
+    public static CompactHeightfield buildCompactHeightfield(Telemetry ctx, int walkableHeight, int walkableClimb,
+            Heightfield hf, BuildArena arena) {
 
-        ctx.startTimer("BUILD_COMPACTHEIGHTFIELD");
+        ctx.startTimer(BuildStage.BUILD_COMPACTHEIGHTFIELD);
 
         CompactHeightfield chf = new CompactHeightfield();
         int w = hf.width;
@@ -60,37 +70,36 @@ public class RecastCompact {
         chf.bmax[1] += walkableHeight * hf.ch;
         chf.cs = hf.cs;
         chf.ch = hf.ch;
-        chf.cells = new CompactCell[w * h];
-        chf.spans = new CompactSpan[spanCount];
+        chf.cellIndex = arena.takeCellIndex(w * h);
+        chf.cellCount = arena.takeCellCount(w * h);
+        chf.spanY = new int[spanCount];
+        chf.spanReg = new int[spanCount];
+        chf.spanCon = new int[spanCount];
+        chf.spanH = new int[spanCount];
         chf.areas = new int[spanCount];
-        for (int i = 0; i < chf.cells.length; i++) {
-            chf.cells[i] = new CompactCell();
-        }
-        for (int i = 0; i < chf.spans.length; i++) {
-            chf.spans[i] = new CompactSpan();
-        }
         // Fill in cells and spans.
         int idx = 0;
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                Span s = hf.spans[x + y * w];
+                int s = hf.spans[x + y * w];
                 // If there are no spans at this cell, just leave the data to index=0, count=0.
-                if (s == null)
+                if (s == NULL_SPAN)
                     continue;
-                CompactCell c = chf.cells[x + y * w];
-                c.index = idx;
-                c.count = 0;
-                while (s != null) {
-                    if (s.area != RC_NULL_AREA) {
-                        int bot = s.smax;
-                        int top = s.next != null ? (int) s.next.smin : MAX_HEIGHT;
-                        chf.spans[idx].y = RecastCommon.clamp(bot, 0, MAX_HEIGHT);
-                        chf.spans[idx].h = RecastCommon.clamp(top - bot, 0, MAX_HEIGHT);
-                        chf.areas[idx] = s.area;
+                int c = x + y * w;
+                chf.cellIndex[c] = idx;
+                chf.cellCount[c] = 0;
+                while (s != NULL_SPAN) {
+                    int next = hf.getNextSpan(s);
+                    if (hf.getSpanArea(s) != RC_NULL_AREA) {
+                        int bot = hf.getSpanMax(s);
+                        int top = next != NULL_SPAN ? hf.getSpanMin(next) : MAX_HEIGHT;
+                        chf.spanY[idx] = RecastCommon.clamp(bot, 0, MAX_HEIGHT);
+                        chf.spanH[idx] = RecastCommon.clamp(top - bot, 0, MAX_HEIGHT);
+                        chf.areas[idx] = hf.getSpanArea(s);
                         idx++;
-                        c.count++;
+                        chf.cellCount[c]++;
                     }
-                    s = s.next;
+                    s = next;
                 }
             }
         }
@@ -99,12 +108,11 @@ public class RecastCompact {
         int tooHighNeighbour = 0;
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
 
                     for (int dir = 0; dir < 4; ++dir) {
-                        RecastCommon.SetCon(s, dir, RC_NOT_CONNECTED);
+                        RecastCommon.SetCon(chf, i, dir, RC_NOT_CONNECTED);
                         int nx = x + RecastCommon.GetDirOffsetX(dir);
                         int ny = y + RecastCommon.GetDirOffsetY(dir);
                         // First check that the neighbour cell is in bounds.
@@ -113,22 +121,21 @@ public class RecastCompact {
 
                         // Iterate over all neighbour spans and check if any of the is
                         // accessible from current cell.
-                        CompactCell nc = chf.cells[nx + ny * w];
-                        for (int k = nc.index, nk = nc.index + nc.count; k < nk; ++k) {
-                            CompactSpan ns = chf.spans[k];
-                            int bot = Math.max(s.y, ns.y);
-                            int top = Math.min(s.y + s.h, ns.y + ns.h);
+                        int nc = nx + ny * w;
+                        for (int k = chf.cellIndex[nc], nk = chf.cellIndex[nc] + chf.cellCount[nc]; k < nk; ++k) {
+                            int bot = Math.max(chf.spanY[i], chf.spanY[k]);
+                            int top = Math.min(chf.spanY[i] + chf.spanH[i], chf.spanY[k] + chf.spanH[k]);
 
                             // Check that the gap between the spans is walkable,
                             // and that the climb height between the gaps is not too high.
-                            if ((top - bot) >= walkableHeight && Math.abs(ns.y - s.y) <= walkableClimb) {
+                            if ((top - bot) >= walkableHeight && Math.abs(chf.spanY[k] - chf.spanY[i]) <= walkableClimb) {
                                 // Mark direction as walkable.
-                                int lidx = k - nc.index;
+                                int lidx = k - chf.cellIndex[nc];
                                 if (lidx < 0 || lidx > MAX_LAYERS) {
                                     tooHighNeighbour = Math.max(tooHighNeighbour, lidx);
                                     continue;
                                 }
-                                RecastCommon.SetCon(s, dir, lidx);
+                                RecastCommon.SetCon(chf, i, dir, lidx);
                                 break;
                             }
                         }
@@ -142,7 +149,7 @@ public class RecastCompact {
             throw new RuntimeException("rcBuildCompactHeightfield: Heightfield has too many layers " + tooHighNeighbour
                     + " (max: " + MAX_LAYERS + ")");
         }
-        ctx.stopTimer("BUILD_COMPACTHEIGHTFIELD");
+        ctx.stopTimer(BuildStage.BUILD_COMPACTHEIGHTFIELD);
         return chf;
     }
 
@@ -152,8 +159,8 @@ public class RecastCompact {
         int spanCount = 0;
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                for (Span s = hf.spans[x + y * w]; s != null; s = s.next) {
-                    if (s.area != RC_NULL_AREA)
+                for (int s = hf.spans[x + y * w]; s != NULL_SPAN; s = hf.getNextSpan(s)) {
+                    if (hf.getSpanArea(s) != RC_NULL_AREA)
                         spanCount++;
                 }
             }
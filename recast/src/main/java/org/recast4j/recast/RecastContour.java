@@ -26,10 +26,8 @@ import static org.recast4j.recast.RecastConstants.RC_CONTOUR_TESS_AREA_EDGES;
 import static org.recast4j.recast.RecastConstants.RC_CONTOUR_TESS_WALL_EDGES;
 import static org.recast4j.recast.RecastConstants.RC_NOT_CONNECTED;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.List;
 
 public class RecastContour {
 
@@ -64,46 +62,41 @@ public class RecastContour {
 
     private static CornerHeight getCornerHeight(int x, int y, int i, int dir, CompactHeightfield chf) {
         boolean isBorderVertex = false;
-        CompactSpan s = chf.spans[i];
-        int ch = s.y;
+        int ch = chf.spanY[i];
         int dirp = (dir + 1) & 0x3;
 
         int regs[] = { 0, 0, 0, 0 };
 
         // Combine region and area codes in order to prevent
         // border vertices which are in between two areas to be removed.
-        regs[0] = chf.spans[i].reg | (chf.areas[i] << 16);
+        regs[0] = chf.spanReg[i] | (chf.areas[i] << 16);
 
-        if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
             int ax = x + RecastCommon.GetDirOffsetX(dir);
             int ay = y + RecastCommon.GetDirOffsetY(dir);
-            int ai = chf.cells[ax + ay * chf.width].index + RecastCommon.GetCon(s, dir);
-            CompactSpan as = chf.spans[ai];
-            ch = Math.max(ch, as.y);
-            regs[1] = chf.spans[ai].reg | (chf.areas[ai] << 16);
-            if (RecastCommon.GetCon(as, dirp) != RC_NOT_CONNECTED) {
+            int ai = chf.cellIndex[ax + ay * chf.width] + RecastCommon.GetCon(chf, i, dir);
+            ch = Math.max(ch, chf.spanY[ai]);
+            regs[1] = chf.spanReg[ai] | (chf.areas[ai] << 16);
+            if (RecastCommon.GetCon(chf, ai, dirp) != RC_NOT_CONNECTED) {
                 int ax2 = ax + RecastCommon.GetDirOffsetX(dirp);
                 int ay2 = ay + RecastCommon.GetDirOffsetY(dirp);
-                int ai2 = chf.cells[ax2 + ay2 * chf.width].index + RecastCommon.GetCon(as, dirp);
-                CompactSpan as2 = chf.spans[ai2];
-                ch = Math.max(ch, as2.y);
-                regs[2] = chf.spans[ai2].reg | (chf.areas[ai2] << 16);
+                int ai2 = chf.cellIndex[ax2 + ay2 * chf.width] + RecastCommon.GetCon(chf, ai, dirp);
+                ch = Math.max(ch, chf.spanY[ai2]);
+                regs[2] = chf.spanReg[ai2] | (chf.areas[ai2] << 16);
             }
         }
-        if (RecastCommon.GetCon(s, dirp) != RC_NOT_CONNECTED) {
+        if (RecastCommon.GetCon(chf, i, dirp) != RC_NOT_CONNECTED) {
             int ax = x + RecastCommon.GetDirOffsetX(dirp);
             int ay = y + RecastCommon.GetDirOffsetY(dirp);
-            int ai = chf.cells[ax + ay * chf.width].index + RecastCommon.GetCon(s, dirp);
-            CompactSpan as = chf.spans[ai];
-            ch = Math.max(ch, as.y);
-            regs[3] = chf.spans[ai].reg | (chf.areas[ai] << 16);
-            if (RecastCommon.GetCon(as, dir) != RC_NOT_CONNECTED) {
+            int ai = chf.cellIndex[ax + ay * chf.width] + RecastCommon.GetCon(chf, i, dirp);
+            ch = Math.max(ch, chf.spanY[ai]);
+            regs[3] = chf.spanReg[ai] | (chf.areas[ai] << 16);
+            if (RecastCommon.GetCon(chf, ai, dir) != RC_NOT_CONNECTED) {
                 int ax2 = ax + RecastCommon.GetDirOffsetX(dir);
                 int ay2 = ay + RecastCommon.GetDirOffsetY(dir);
-                int ai2 = chf.cells[ax2 + ay2 * chf.width].index + RecastCommon.GetCon(as, dir);
-                CompactSpan as2 = chf.spans[ai2];
-                ch = Math.max(ch, as2.y);
-                regs[2] = chf.spans[ai2].reg | (chf.areas[ai2] << 16);
+                int ai2 = chf.cellIndex[ax2 + ay2 * chf.width] + RecastCommon.GetCon(chf, ai, dir);
+                ch = Math.max(ch, chf.spanY[ai2]);
+                regs[2] = chf.spanReg[ai2] | (chf.areas[ai2] << 16);
             }
         }
 
@@ -129,7 +122,7 @@ public class RecastContour {
         return new CornerHeight(ch, isBorderVertex);
     }
 
-    private static void walkContour(int x, int y, int i, CompactHeightfield chf, int[] flags, List<Integer> points) {
+    private static void walkContour(int x, int y, int i, CompactHeightfield chf, int[] flags, IntArray points) {
         // Choose the first non-connected edge
         int dir = 0;
         while ((flags[i] & (1 << dir)) == 0)
@@ -163,12 +156,11 @@ public class RecastContour {
                     break;
                 }
                 int r = 0;
-                CompactSpan s = chf.spans[i];
-                if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                     int ax = x + RecastCommon.GetDirOffsetX(dir);
                     int ay = y + RecastCommon.GetDirOffsetY(dir);
-                    int ai = chf.cells[ax + ay * chf.width].index + RecastCommon.GetCon(s, dir);
-                    r = chf.spans[ai].reg;
+                    int ai = chf.cellIndex[ax + ay * chf.width] + RecastCommon.GetCon(chf, i, dir);
+                    r = chf.spanReg[ai];
                     if (area != chf.areas[ai])
                         isAreaBorder = true;
                 }
@@ -187,10 +179,9 @@ public class RecastContour {
                 int ni = -1;
                 int nx = x + RecastCommon.GetDirOffsetX(dir);
                 int ny = y + RecastCommon.GetDirOffsetY(dir);
-                CompactSpan s = chf.spans[i];
-                if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
-                    CompactCell nc = chf.cells[nx + ny * chf.width];
-                    ni = nc.index + RecastCommon.GetCon(s, dir);
+                if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
+                    int nc = nx + ny * chf.width;
+                    ni = chf.cellIndex[nc] + RecastCommon.GetCon(chf, i, dir);
                 }
                 if (ni == -1) {
                     // Should not happen.
@@ -228,7 +219,7 @@ public class RecastContour {
         return dx * dx + dz * dz;
     }
 
-    private static void simplifyContour(List<Integer> points, List<Integer> simplified, float maxError, int maxEdgeLen,
+    private static void simplifyContour(IntArray points, IntArray simplified, float maxError, int maxEdgeLen,
             int buildFlags) {
         // Add initial points.
         boolean hasConnections = false;
@@ -490,7 +481,7 @@ public class RecastContour {
         return !(RecastMesh.leftOn(pverts, pi, pj, pi1) && RecastMesh.leftOn(pverts, pj, pi, pin1));
     }
 
-    private static void removeDegenerateSegments(List<Integer> simplified) {
+    private static void removeDegenerateSegments(IntArray simplified) {
         // Remove adjacent vertices which are equal on xz-plane,
         // or else the triangulator will get confused.
         int npts = simplified.size() / 4;
@@ -679,13 +670,22 @@ public class RecastContour {
     /// @see rcAllocContourSet, rcCompactHeightfield, rcContourSet, rcConfig
     public static ContourSet buildContours(Telemetry ctx, CompactHeightfield chf, float maxError, int maxEdgeLen,
             int buildFlags) {
+        return buildContours(ctx, chf, maxError, maxEdgeLen, buildFlags, new BuildArena());
+    }
+
+    /**
+     * Same as {@link #buildContours(Telemetry, CompactHeightfield, float, int, int)}, with scratch buffers from the
+     * arena.
+     */
+    public static ContourSet buildContours(Telemetry ctx, CompactHeightfield chf, float maxError, int maxEdgeLen,
+            int buildFlags, BuildArena arena) {
 
         int w = chf.width;
         int h = chf.height;
         int borderSize = chf.borderSize;
         ContourSet cset = new ContourSet();
 
-        ctx.startTimer("CONTOURS");
+        ctx.startTimer(BuildStage.CONTOURS);
         RecastVectors.copy(cset.bmin, chf.bmin, 0);
         RecastVectors.copy(cset.bmax, chf.bmax, 0);
         if (borderSize > 0) {
@@ -703,30 +703,29 @@ public class RecastContour {
         cset.borderSize = chf.borderSize;
         cset.maxError = maxError;
 
-        int[] flags = new int[chf.spanCount];
+        int[] flags = arena.ints(BuildArena.CONTOUR_FLAGS, chf.spanCount);
 
-        ctx.startTimer("CONTOURS_TRACE");
+        ctx.startTimer(BuildStage.CONTOURS_TRACE);
 
         // Mark boundaries.
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     int res = 0;
-                    CompactSpan s = chf.spans[i];
-                    if (chf.spans[i].reg == 0 || (chf.spans[i].reg & RC_BORDER_REG) != 0) {
+                    if (chf.spanReg[i] == 0 || (chf.spanReg[i] & RC_BORDER_REG) != 0) {
                         flags[i] = 0;
                         continue;
                     }
                     for (int dir = 0; dir < 4; ++dir) {
                         int r = 0;
-                        if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                             int ax = x + RecastCommon.GetDirOffsetX(dir);
                             int ay = y + RecastCommon.GetDirOffsetY(dir);
-                            int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, dir);
-                            r = chf.spans[ai].reg;
+                            int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, dir);
+                            r = chf.spanReg[ai];
                         }
-                        if (r == chf.spans[i].reg)
+                        if (r == chf.spanReg[i])
                             res |= (1 << dir);
                     }
                     flags[i] = res ^ 0xf; // Inverse, mark non connected edges.
@@ -734,20 +733,20 @@ public class RecastContour {
             }
         }
 
-        ctx.stopTimer("CONTOURS_TRACE");
+        ctx.stopTimer(BuildStage.CONTOURS_TRACE);
 
-        List<Integer> verts = new ArrayList<>(256);
-        List<Integer> simplified = new ArrayList<>(64);
+        IntArray verts = arena.contourVerts;
+        IntArray simplified = arena.simplifiedContour;
 
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (flags[i] == 0 || flags[i] == 0xf) {
                         flags[i] = 0;
                         continue;
                     }
-                    int reg = chf.spans[i].reg;
+                    int reg = chf.spanReg[i];
                     if (reg == 0 || (reg & RC_BORDER_REG) != 0)
                         continue;
                     int area = chf.areas[i];
@@ -755,14 +754,14 @@ public class RecastContour {
                     verts.clear();
                     simplified.clear();
 
-                    ctx.startTimer("CONTOURS_WALK");
+                    ctx.startTimer(BuildStage.CONTOURS_WALK);
                     walkContour(x, y, i, chf, flags, verts);
-                    ctx.stopTimer("CONTOURS_WALK");
+                    ctx.stopTimer(BuildStage.CONTOURS_WALK);
 
-                    ctx.startTimer("CONTOURS_SIMPLIFY");
+                    ctx.startTimer(BuildStage.CONTOURS_SIMPLIFY);
                     simplifyContour(verts, simplified, maxError, maxEdgeLen, buildFlags);
                     removeDegenerateSegments(simplified);
-                    ctx.stopTimer("CONTOURS_SIMPLIFY");
+                    ctx.stopTimer(BuildStage.CONTOURS_SIMPLIFY);
 
                     // Store region->contour remap info.
                     // Create contour.
@@ -772,10 +771,7 @@ public class RecastContour {
                         cset.conts.add(cont);
 
                         cont.nverts = simplified.size() / 4;
-                        cont.verts = new int[simplified.size()];
-                        for (int l = 0; l < cont.verts.length; l++) {
-                            cont.verts[l] = simplified.get(l);
-                        }
+                        cont.verts = simplified.toArray();
 
                         if (borderSize > 0) {
                             // If the heightfield was build with bordersize, remove the offset.
@@ -786,10 +782,7 @@ public class RecastContour {
                         }
 
                         cont.nrverts = verts.size() / 4;
-                        cont.rverts = new int[verts.size()];
-                        for (int l = 0; l < cont.rverts.length; l++) {
-                            cont.rverts[l] = verts.get(l);
-                        }
+                        cont.rverts = verts.toArray();
                         if (borderSize > 0) {
                             // If the heightfield was build with bordersize, remove the offset.
                             for (int j = 0; j < cont.nrverts; ++j) {
@@ -874,7 +867,7 @@ public class RecastContour {
                 }
             }
         }
-        ctx.stopTimer("CONTOURS");
+        ctx.stopTimer(BuildStage.CONTOURS);
         return cset;
     }
 }
@@ -30,42 +30,42 @@ public class RecastFilledVolumeRasterization {
     private static final int[] BOX_EDGES = { 0, 1, 0, 2, 0, 4, 1, 3, 1, 5, 2, 3, 2, 6, 3, 7, 4, 5, 4, 6, 5, 7, 6, 7 };
 
     public static void rasterizeSphere(Heightfield hf, float[] center, float radius, int area, int flagMergeThr, Telemetry ctx) {
-        ctx.startTimer("RASTERIZE_SPHERE");
+        ctx.startTimer(BuildStage.RASTERIZE_SPHERE);
         float[] bounds = { center[0] - radius, center[1] - radius, center[2] - radius, center[0] + radius, center[1] + radius,
                 center[2] + radius };
         rasterizationFilledShape(hf, bounds, area, flagMergeThr,
                 rectangle -> intersectSphere(rectangle, center, radius * radius));
-        ctx.stopTimer("RASTERIZE_SPHERE");
+        ctx.stopTimer(BuildStage.RASTERIZE_SPHERE);
     }
 
     public static void rasterizeCapsule(Heightfield hf, float[] start, float[] end, float radius, int area, int flagMergeThr,
             Telemetry ctx) {
-        ctx.startTimer("RASTERIZE_CAPSULE");
+        ctx.startTimer(BuildStage.RASTERIZE_CAPSULE);
         float[] bounds = { Math.min(start[0], end[0]) - radius, Math.min(start[1], end[1]) - radius,
                 Math.min(start[2], end[2]) - radius, Math.max(start[0], end[0]) + radius, Math.max(start[1], end[1]) + radius,
                 Math.max(start[2], end[2]) + radius };
         float[] axis = { end[0] - start[0], end[1] - start[1], end[2] - start[2] };
         rasterizationFilledShape(hf, bounds, area, flagMergeThr,
                 rectangle -> intersectCapsule(rectangle, start, end, axis, radius * radius));
-        ctx.stopTimer("RASTERIZE_CAPSULE");
+        ctx.stopTimer(BuildStage.RASTERIZE_CAPSULE);
     }
 
     public static void rasterizeCylinder(Heightfield hf, float[] start, float[] end, float radius, int area, int flagMergeThr,
             Telemetry ctx) {
-        ctx.startTimer("RASTERIZE_CYLINDER");
+        ctx.startTimer(BuildStage.RASTERIZE_CYLINDER);
         float[] bounds = { Math.min(start[0], end[0]) - radius, Math.min(start[1], end[1]) - radius,
                 Math.min(start[2], end[2]) - radius, Math.max(start[0], end[0]) + radius, Math.max(start[1], end[1]) + radius,
                 Math.max(start[2], end[2]) + radius };
         float[] axis = { end[0] - start[0], end[1] - start[1], end[2] - start[2] };
         rasterizationFilledShape(hf, bounds, area, flagMergeThr,
                 rectangle -> intersectCylinder(rectangle, start, end, axis, radius * radius));
-        ctx.stopTimer("RASTERIZE_CYLINDER");
+        ctx.stopTimer(BuildStage.RASTERIZE_CYLINDER);
     }
 
     public static void rasterizeBox(Heightfield hf, float[] center, float[][] halfEdges, int area, int flagMergeThr,
             Telemetry ctx) {
 
-        ctx.startTimer("RASTERIZE_BOX");
+        ctx.startTimer(BuildStage.RASTERIZE_BOX);
         float[][] normals = { { halfEdges[0][0], halfEdges[0][1], halfEdges[0][2] },
                 { halfEdges[1][0], halfEdges[1][1], halfEdges[1][2] }, { halfEdges[2][0], halfEdges[2][1], halfEdges[2][2] } };
         normalize(normals[0]);
@@ -100,13 +100,13 @@ public class RecastFilledVolumeRasterization {
                     + vertices[vi * 3 + 2] * planes[i][2];
         }
         rasterizationFilledShape(hf, bounds, area, flagMergeThr, rectangle -> intersectBox(rectangle, vertices, planes));
-        ctx.stopTimer("RASTERIZE_BOX");
+        ctx.stopTimer(BuildStage.RASTERIZE_BOX);
     }
 
     public static void rasterizeConvex(Heightfield hf, float[] vertices, int[] triangles, int area, int flagMergeThr,
             Telemetry ctx) {
 
-        ctx.startTimer("RASTERIZE_CONVEX");
+        ctx.startTimer(BuildStage.RASTERIZE_CONVEX);
         float[] bounds = new float[] { vertices[0], vertices[1], vertices[2], vertices[0], vertices[1], vertices[2] };
         for (int i = 0; i < vertices.length; i += 3) {
             bounds[0] = Math.min(bounds[0], vertices[i + 0]);
@@ -152,7 +152,7 @@ public class RecastFilledVolumeRasterization {
         }
         rasterizationFilledShape(hf, bounds, area, flagMergeThr,
                 rectangle -> intersectConvex(rectangle, triangles, vertices, planes, triBounds));
-        ctx.stopTimer("RASTERIZE_CONVEX");
+        ctx.stopTimer(BuildStage.RASTERIZE_CONVEX);
     }
 
     private static void plane(float[][] planes, int p, float[] v1, float[] v2, float[] vertices, int vert) {
@@ -18,11 +18,17 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
+import static org.recast4j.recast.Heightfield.NULL_SPAN;
 import static org.recast4j.recast.RecastConstants.RC_NULL_AREA;
 import static org.recast4j.recast.RecastConstants.SPAN_MAX_HEIGHT;
 
+import java.util.concurrent.Executor;
+
 public class RecastFilter {
 
+    /** Minimum number of heightfield rows filtered by one band in a parallel build. */
+    private static final int MIN_BAND_ROWS = 16;
+
     /// @par
     ///
     /// Allows the formation of walkable regions that will flow over low lying
@@ -36,34 +42,48 @@ public class RecastFilter {
     /// @see rcHeightfield, rcConfig
     public static void filterLowHangingWalkableObstacles(Telemetry ctx, int walkableClimb, Heightfield heightfield) {
 
-        ctx.startTimer("FILTER_LOW_OBSTACLES");
+        ctx.startTimer(BuildStage.FILTER_LOW_OBSTACLES);
+        filterLowHangingWalkableObstacles(walkableClimb, heightfield, 0, heightfield.height);
+        ctx.stopTimer(BuildStage.FILTER_LOW_OBSTACLES);
+    }
+
+    /// Runs #rcFilterLowHangingWalkableObstacles on bands of rows concurrently. Columns are independent,
+    /// so the result is identical to the sequential filter.
+    public static void filterLowHangingWalkableObstacles(Telemetry ctx, int walkableClimb, Heightfield heightfield,
+            Executor executor) {
 
+        ctx.startTimer(BuildStage.FILTER_LOW_OBSTACLES);
+        int bands = RecastParallel.bandCount(executor, heightfield.height, MIN_BAND_ROWS, 1);
+        RecastParallel.forEachBand(executor, heightfield.height, bands,
+                (band, zMin, zEnd) -> filterLowHangingWalkableObstacles(walkableClimb, heightfield, zMin, zEnd));
+        ctx.stopTimer(BuildStage.FILTER_LOW_OBSTACLES);
+    }
+
+    private static void filterLowHangingWalkableObstacles(int walkableClimb, Heightfield heightfield, int zMin, int zEnd) {
         int xSize = heightfield.width;
-        int zSize = heightfield.height;
 
-        for (int z = 0; z < zSize; ++z) {
+        for (int z = zMin; z < zEnd; ++z) {
             for (int x = 0; x < xSize; ++x) {
-                Span previousSpan = null;
+                int previousSpan = NULL_SPAN;
                 boolean previousWasWalkable = false;
                 int previousArea = RC_NULL_AREA;
 
-                for (Span span = heightfield.spans[x + z * xSize]; span != null; previousSpan = span, span = span.next) {
-                    boolean walkable = span.area != RC_NULL_AREA;
+                for (int span = heightfield.spans[x + z * xSize]; span != NULL_SPAN; previousSpan = span, span = heightfield
+                        .getNextSpan(span)) {
+                    boolean walkable = heightfield.getSpanArea(span) != RC_NULL_AREA;
                     // If current span is not walkable, but there is walkable
                     // span just below it, mark the span above it walkable too.
                     if (!walkable && previousWasWalkable) {
-                        if (Math.abs(span.smax - previousSpan.smax) <= walkableClimb)
-                            span.area = previousArea;
+                        if (Math.abs(heightfield.getSpanMax(span) - heightfield.getSpanMax(previousSpan)) <= walkableClimb)
+                            heightfield.setSpanArea(span, previousArea);
                     }
                     // Copy walkable flag so that it cannot propagate
                     // past multiple non-walkable objects.
                     previousWasWalkable = walkable;
-                    previousArea = span.area;
+                    previousArea = heightfield.getSpanArea(span);
                 }
             }
         }
-
-        ctx.stopTimer("FILTER_LOW_OBSTACLES");
     }
 
     /// @par
@@ -77,28 +97,45 @@ public class RecastFilter {
     ///
     /// @see rcHeightfield, rcConfig
     public static void filterLedgeSpans(Telemetry ctx, int walkableHeight, int walkableClimb, Heightfield heightfield) {
-        ctx.startTimer("FILTER_LEDGE");
+        ctx.startTimer(BuildStage.FILTER_LEDGE);
+        filterLedgeSpans(walkableHeight, walkableClimb, heightfield, 0, heightfield.height);
+        ctx.stopTimer(BuildStage.FILTER_LEDGE);
+    }
+
+    /// Runs #rcFilterLedgeSpans on bands of rows concurrently. The filter reads the heights of neighbour
+    /// columns but only changes the area of the span being tested, so the result is identical to the sequential filter.
+    public static void filterLedgeSpans(Telemetry ctx, int walkableHeight, int walkableClimb, Heightfield heightfield,
+            Executor executor) {
+        ctx.startTimer(BuildStage.FILTER_LEDGE);
+        int bands = RecastParallel.bandCount(executor, heightfield.height, MIN_BAND_ROWS, 1);
+        RecastParallel.forEachBand(executor, heightfield.height, bands,
+                (band, zMin, zEnd) -> filterLedgeSpans(walkableHeight, walkableClimb, heightfield, zMin, zEnd));
+        ctx.stopTimer(BuildStage.FILTER_LEDGE);
+    }
 
+    private static void filterLedgeSpans(int walkableHeight, int walkableClimb, Heightfield heightfield, int zMin,
+            int zEnd) {
         int xSize = heightfield.width;
         int zSize = heightfield.height;
 
         // Mark border spans.
-        for (int z = 0; z < zSize; ++z) {
+        for (int z = zMin; z < zEnd; ++z) {
             for (int x = 0; x < xSize; ++x) {
-                for (Span span = heightfield.spans[x + z * xSize]; span != null; span = span.next) {
+                for (int span = heightfield.spans[x + z * xSize]; span != NULL_SPAN; span = heightfield.getNextSpan(span)) {
                     // Skip non walkable spans.
-                    if (span.area == RC_NULL_AREA)
+                    if (heightfield.getSpanArea(span) == RC_NULL_AREA)
                         continue;
 
-                    int bot = (span.smax);
-                    int top = span.next != null ? span.next.smin : SPAN_MAX_HEIGHT;
+                    int bot = heightfield.getSpanMax(span);
+                    int next = heightfield.getNextSpan(span);
+                    int top = next != NULL_SPAN ? heightfield.getSpanMin(next) : SPAN_MAX_HEIGHT;
 
                     // Find neighbours minimum height.
                     int minNeighborHeight = SPAN_MAX_HEIGHT;
 
                     // Min and max height of accessible neighbours.
-                    int accessibleNeighborMinHeight = span.smax;
-                    int accessibleNeighborMaxHeight = span.smax;
+                    int accessibleNeighborMinHeight = bot;
+                    int accessibleNeighborMaxHeight = bot;
 
                     for (int direction = 0; direction < 4; ++direction) {
                         int dx = x + RecastCommon.GetDirOffsetX(direction);
@@ -110,8 +147,8 @@ public class RecastFilter {
                         }
 
                         // From minus infinity to the first span.
-                        Span neighborSpan = heightfield.spans[dx + dz * xSize];
-                        int neighborTop = neighborSpan != null ? neighborSpan.smin : SPAN_MAX_HEIGHT;
+                        int neighborSpan = heightfield.spans[dx + dz * xSize];
+                        int neighborTop = neighborSpan != NULL_SPAN ? heightfield.getSpanMin(neighborSpan) : SPAN_MAX_HEIGHT;
                         // Skip neightbour if the gap between the spans is too small.
                         if (Math.min(top, neighborTop) - bot >= walkableHeight) {
                             minNeighborHeight = -walkableClimb - 1;
@@ -119,9 +156,10 @@ public class RecastFilter {
                         }
 
                         // Rest of the spans.
-                        for (neighborSpan = heightfield.spans[dx + dz * xSize]; neighborSpan != null; neighborSpan = neighborSpan.next) {
-                            int neighborBot = neighborSpan.smax;
-                            neighborTop = neighborSpan.next != null ? neighborSpan.next.smin : SPAN_MAX_HEIGHT;
+                        for (; neighborSpan != NULL_SPAN; neighborSpan = heightfield.getNextSpan(neighborSpan)) {
+                            int neighborBot = heightfield.getSpanMax(neighborSpan);
+                            int neighborNext = heightfield.getNextSpan(neighborSpan);
+                            neighborTop = neighborNext != NULL_SPAN ? heightfield.getSpanMin(neighborNext) : SPAN_MAX_HEIGHT;
                             // Skip neightbour if the gap between the spans is too small.
                             if (Math.min(top, neighborTop) - Math.max(bot, neighborBot) >= walkableHeight) {
                                 int accessibleNeighbourHeight = neighborBot - bot;
@@ -144,18 +182,16 @@ public class RecastFilter {
                     // The current span is close to a ledge if the drop to any
                     // neighbour span is less than the walkableClimb.
                     if (minNeighborHeight < -walkableClimb)
-                        span.area = RC_NULL_AREA;
+                        heightfield.setSpanArea(span, RC_NULL_AREA);
 
                     // If the difference between all neighbours is too large,
                     // we are at steep slope, mark the span as ledge.
                     if ((accessibleNeighborMaxHeight - accessibleNeighborMinHeight) > walkableClimb) {
-                        span.area = RC_NULL_AREA;
+                        heightfield.setSpanArea(span, RC_NULL_AREA);
                     }
                 }
             }
         }
-
-        ctx.stopTimer("FILTER_LEDGE");
     }
 
     /// @par
@@ -165,23 +201,37 @@ public class RecastFilter {
     ///
     /// @see rcHeightfield, rcConfig
     public static void filterWalkableLowHeightSpans(Telemetry ctx, int walkableHeight, Heightfield heightfield) {
-        ctx.startTimer("FILTER_WALKABLE");
+        ctx.startTimer(BuildStage.FILTER_WALKABLE);
+        filterWalkableLowHeightSpans(walkableHeight, heightfield, 0, heightfield.height);
+        ctx.stopTimer(BuildStage.FILTER_WALKABLE);
+    }
+
+    /// Runs #rcFilterWalkableLowHeightSpans on bands of rows concurrently. Columns are independent,
+    /// so the result is identical to the sequential filter.
+    public static void filterWalkableLowHeightSpans(Telemetry ctx, int walkableHeight, Heightfield heightfield,
+            Executor executor) {
+        ctx.startTimer(BuildStage.FILTER_WALKABLE);
+        int bands = RecastParallel.bandCount(executor, heightfield.height, MIN_BAND_ROWS, 1);
+        RecastParallel.forEachBand(executor, heightfield.height, bands,
+                (band, zMin, zEnd) -> filterWalkableLowHeightSpans(walkableHeight, heightfield, zMin, zEnd));
+        ctx.stopTimer(BuildStage.FILTER_WALKABLE);
+    }
 
+    private static void filterWalkableLowHeightSpans(int walkableHeight, Heightfield heightfield, int zMin, int zEnd) {
         int xSize = heightfield.width;
-        int zSize = heightfield.height;
 
         // Remove walkable flag from spans which do not have enough
         // space above them for the agent to stand there.
-        for (int z = 0; z < zSize; ++z) {
+        for (int z = zMin; z < zEnd; ++z) {
             for (int x = 0; x < xSize; ++x) {
-                for (Span span = heightfield.spans[x + z * xSize]; span != null; span = span.next) {
-                    int bot = (span.smax);
-                    int top = span.next != null ? span.next.smin : SPAN_MAX_HEIGHT;
+                for (int span = heightfield.spans[x + z * xSize]; span != NULL_SPAN; span = heightfield.getNextSpan(span)) {
+                    int bot = heightfield.getSpanMax(span);
+                    int next = heightfield.getNextSpan(span);
+                    int top = next != NULL_SPAN ? heightfield.getSpanMin(next) : SPAN_MAX_HEIGHT;
                     if ((top - bot) < walkableHeight)
-                        span.area = RC_NULL_AREA;
+                        heightfield.setSpanArea(span, RC_NULL_AREA);
                 }
             }
         }
-        ctx.stopTimer("FILTER_WALKABLE");
     }
 }
@@ -25,9 +25,7 @@ import static org.recast4j.recast.RecastConstants.RC_NOT_CONNECTED;
 import static org.recast4j.recast.RecastConstants.RC_NULL_AREA;
 import static org.recast4j.recast.RecastVectors.copy;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import org.recast4j.recast.HeightfieldLayerSet.HeightfieldLayer;
 import org.recast4j.recast.RecastRegion.SweepSpan;
@@ -42,26 +40,26 @@ public class RecastLayers {
         int layerId;
         boolean base;
         int ymin, ymax;
-        List<Integer> layers;
-        List<Integer> neis;
+        IntArray layers;
+        IntArray neis;
 
         LayerRegion(int i) {
             id = i;
             ymin = 0xFFFF;
             layerId = 0xff;
-            layers = new ArrayList<>();
-            neis = new ArrayList<>();
+            layers = new IntArray();
+            neis = new IntArray();
         }
 
     };
 
-    private static void addUnique(List<Integer> a, int v) {
+    private static void addUnique(IntArray a, int v) {
         if (!a.contains(v)) {
             a.add(v);
         }
     }
 
-    private static boolean contains(List<Integer> a, int v) {
+    private static boolean contains(IntArray a, int v) {
         return a.contains(v);
     }
 
@@ -71,7 +69,7 @@ public class RecastLayers {
 
     public static HeightfieldLayerSet buildHeightfieldLayers(Telemetry ctx, CompactHeightfield chf, int walkableHeight) {
 
-        ctx.startTimer("RC_TIMER_BUILD_LAYERS");
+        ctx.startTimer(BuildStage.BUILD_LAYERS);
         int w = chf.width;
         int h = chf.height;
         int borderSize = chf.borderSize;
@@ -92,19 +90,18 @@ public class RecastLayers {
             int sweepId = 0;
 
             for (int x = borderSize; x < w - borderSize; ++x) {
-                CompactCell c = chf.cells[x + y * w];
+                int c = x + y * w;
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (chf.areas[i] == RC_NULL_AREA)
                         continue;
                     int sid = 0xFF;
                     // -x
 
-                    if (GetCon(s, 0) != RC_NOT_CONNECTED) {
+                    if (GetCon(chf, i, 0) != RC_NOT_CONNECTED) {
                         int ax = x + GetDirOffsetX(0);
                         int ay = y + GetDirOffsetY(0);
-                        int ai = chf.cells[ax + ay * w].index + GetCon(s, 0);
+                        int ai = chf.cellIndex[ax + ay * w] + GetCon(chf, i, 0);
                         if (chf.areas[ai] != RC_NULL_AREA && srcReg[ai] != 0xff)
                             sid = srcReg[ai];
                     }
@@ -116,10 +113,10 @@ public class RecastLayers {
                     }
 
                     // -y
-                    if (GetCon(s, 3) != RC_NOT_CONNECTED) {
+                    if (GetCon(chf, i, 3) != RC_NOT_CONNECTED) {
                         int ax = x + GetDirOffsetX(3);
                         int ay = y + GetDirOffsetY(3);
-                        int ai = chf.cells[ax + ay * w].index + GetCon(s, 3);
+                        int ai = chf.cellIndex[ax + ay * w] + GetCon(chf, i, 3);
                         int nr = srcReg[ai];
                         if (nr != 0xff) {
                             // Set neighbour when first valid neighbour is
@@ -162,8 +159,8 @@ public class RecastLayers {
 
             // Remap local sweep ids to region ids.
             for (int x = borderSize; x < w - borderSize; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (srcReg[i] != 0xff)
                         srcReg[i] = sweeps[srcReg[i]].id;
                 }
@@ -178,31 +175,30 @@ public class RecastLayers {
         }
 
         // Find region neighbours and overlapping regions.
-        List<Integer> lregs = new ArrayList<>();
+        IntArray lregs = new IntArray();
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
+                int c = x + y * w;
 
                 lregs.clear();
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     int ri = srcReg[i];
                     if (ri == 0xff)
                         continue;
 
-                    regs[ri].ymin = Math.min(regs[ri].ymin, s.y);
-                    regs[ri].ymax = Math.max(regs[ri].ymax, s.y);
+                    regs[ri].ymin = Math.min(regs[ri].ymin, chf.spanY[i]);
+                    regs[ri].ymax = Math.max(regs[ri].ymax, chf.spanY[i]);
 
                     // Collect all region layers.
                     lregs.add(ri);
 
                     // Update neighbours
                     for (int dir = 0; dir < 4; ++dir) {
-                        if (GetCon(s, dir) != RC_NOT_CONNECTED) {
+                        if (GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                             int ax = x + GetDirOffsetX(dir);
                             int ay = y + GetDirOffsetY(dir);
-                            int ai = chf.cells[ax + ay * w].index + GetCon(s, dir);
+                            int ai = chf.cellIndex[ax + ay * w] + GetCon(chf, i, dir);
                             int rai = srcReg[ai];
                             if (rai != 0xff && rai != ri)
                                 addUnique(regs[ri].neis, rai);
@@ -214,7 +210,7 @@ public class RecastLayers {
                 // Update overlapping regions.
                 for (int i = 0; i < lregs.size() - 1; ++i) {
                     for (int j = i + 1; j < lregs.size(); ++j) {
-                        if (lregs.get(i).intValue() != lregs.get(j).intValue()) {
+                        if (lregs.get(i) != lregs.get(j)) {
                             LayerRegion ri = regs[lregs.get(i)];
                             LayerRegion rj = regs[lregs.get(j)];
                             addUnique(ri.layers, lregs.get(j));
@@ -229,7 +225,7 @@ public class RecastLayers {
         // Create 2D layers from regions.
         int layerId = 0;
 
-        List<Integer> stack = new ArrayList<>();
+        IntArray stack = new IntArray();
 
         for (int i = 0; i < nregs; ++i) {
             LayerRegion root = regs[i];
@@ -247,7 +243,8 @@ public class RecastLayers {
                 // Pop front
                 LayerRegion reg = regs[stack.remove(0)];
 
-                for (int nei : reg.neis) {
+                for (int j = 0; j < reg.neis.size(); ++j) {
+                    int nei = reg.neis.get(j);
                     LayerRegion regn = regs[nei];
                     // Skip already visited.
                     if (regn.layerId != 0xff)
@@ -267,8 +264,8 @@ public class RecastLayers {
                     // Mark layer id
                     regn.layerId = layerId;
                     // Merge current layers to root.
-                    for (int layer : regn.layers)
-                        addUnique(root.layers, layer);
+                    for (int k = 0; k < regn.layers.size(); ++k)
+                        addUnique(root.layers, regn.layers.get(k));
                     root.ymin = Math.min(root.ymin, regn.ymin);
                     root.ymax = Math.max(root.ymax, regn.ymax);
                 }
@@ -342,8 +339,8 @@ public class RecastLayers {
                         // Remap layerIds.
                         rj.layerId = newId;
                         // Add overlaid layers from 'rj' to 'ri'.
-                        for (int layer : rj.layers)
-                            addUnique(ri.layers, layer);
+                        for (int k = 0; k < rj.layers.size(); ++k)
+                            addUnique(ri.layers, rj.layers.get(k));
                         // Update height bounds.
                         ri.ymin = Math.min(ri.ymin, rj.ymin);
                         ri.ymax = Math.max(ri.ymax, rj.ymax);
@@ -371,7 +368,7 @@ public class RecastLayers {
 
         // No layers, return empty.
         if (layerId == 0) {
-            // ctx.stopTimer(RC_TIMER_BUILD_LAYERS);
+            ctx.stopTimer(BuildStage.BUILD_LAYERS);
             return null;
         }
 
@@ -443,9 +440,8 @@ public class RecastLayers {
                 for (int x = 0; x < lw; ++x) {
                     int cx = borderSize + x;
                     int cy = borderSize + y;
-                    CompactCell c = chf.cells[cx + cy * w];
-                    for (int j = c.index, nj = c.index + c.count; j < nj; ++j) {
-                        CompactSpan s = chf.spans[j];
+                    int c = cx + cy * w;
+                    for (int j = chf.cellIndex[c], nj = chf.cellIndex[c] + chf.cellCount[c]; j < nj; ++j) {
                         // Skip unassigned regions.
                         if (srcReg[j] == 0xff)
                             continue;
@@ -462,26 +458,25 @@ public class RecastLayers {
 
                         // Store height and area type.
                         int idx = x + y * lw;
-                        layer.heights[idx] = (char) (s.y - hmin);
+                        layer.heights[idx] = (char) (chf.spanY[j] - hmin);
                         layer.areas[idx] = chf.areas[j];
 
                         // Check connection.
                         char portal = 0;
                         char con = 0;
                         for (int dir = 0; dir < 4; ++dir) {
-                            if (GetCon(s, dir) != RC_NOT_CONNECTED) {
+                            if (GetCon(chf, j, dir) != RC_NOT_CONNECTED) {
                                 int ax = cx + GetDirOffsetX(dir);
                                 int ay = cy + GetDirOffsetY(dir);
-                                int ai = chf.cells[ax + ay * w].index + GetCon(s, dir);
+                                int ai = chf.cellIndex[ax + ay * w] + GetCon(chf, j, dir);
                                 int alid = srcReg[ai] != 0xff ? regs[srcReg[ai]].layerId : 0xff;
                                 // Portal mask
                                 if (chf.areas[ai] != RC_NULL_AREA && lid != alid) {
                                     portal |= (1 << dir);
                                     // Update height so that it matches on both
                                     // sides of the portal.
-                                    CompactSpan as = chf.spans[ai];
-                                    if (as.y > hmin)
-                                        layer.heights[idx] = Math.max(layer.heights[idx], (char) (as.y - hmin));
+                                    if (chf.spanY[ai] > hmin)
+                                        layer.heights[idx] = Math.max(layer.heights[idx], (char) (chf.spanY[ai] - hmin));
                                 }
                                 // Valid connection mask
                                 if (chf.areas[ai] != RC_NULL_AREA && lid == alid) {
@@ -503,7 +498,7 @@ public class RecastLayers {
                 layer.miny = layer.maxy = 0;
         }
 
-        // ctx->stopTimer(RC_TIMER_BUILD_LAYERS);
+        ctx.stopTimer(BuildStage.BUILD_LAYERS);
         return lset;
     }
 }
@@ -23,18 +23,17 @@ import static org.recast4j.recast.RecastConstants.RC_MESH_NULL_IDX;
 import static org.recast4j.recast.RecastConstants.RC_MULTIPLE_REGS;
 
 import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 
 public class RecastMesh {
 
     private static final int MAX_MESH_VERTS_POLY = 0xffff;
+    /** Minimum number of vertex hash buckets, see {@link #vertexBucketCount(int)}. */
     static int VERTEX_BUCKET_COUNT = (1 << 12);
 
-    private static class Edge {
-        int vert[] = new int[2];
-        int polyEdge[] = new int[2];
-        int poly[] = new int[2];
-
-    }
+    /** Ints per edge in buildMeshAdjacency: second vertex, then polygon and edge index on both sides. */
+    private static final int EDGE_STRIDE = 5;
 
     private static void buildMeshAdjacency(int[] polys, int npolys, int nverts, int vertsPerPoly) {
         // Based on code by Eric Lengyel from:
@@ -45,7 +44,8 @@ public class RecastMesh {
         int nextEdge = nverts;
         int edgeCount = 0;
 
-        Edge[] edges = new Edge[maxEdgeCount];
+        // vert[1], poly[0], polyEdge[0], poly[1], polyEdge[1] of each edge
+        int[] edges = new int[maxEdgeCount * EDGE_STRIDE];
 
         for (int i = 0; i < nverts; i++)
             firstEdge[i] = RC_MESH_NULL_IDX;
@@ -59,14 +59,12 @@ public class RecastMesh {
                 int v1 = (j + 1 >= vertsPerPoly || polys[t + j + 1] == RC_MESH_NULL_IDX) ? polys[t + 0]
                         : polys[t + j + 1];
                 if (v0 < v1) {
-                    Edge edge = new Edge();
-                    edges[edgeCount] = edge;
-                    edge.vert[0] = v0;
-                    edge.vert[1] = v1;
-                    edge.poly[0] = i;
-                    edge.polyEdge[0] = j;
-                    edge.poly[1] = i;
-                    edge.polyEdge[1] = 0;
+                    int edge = edgeCount * EDGE_STRIDE;
+                    edges[edge + 0] = v1;
+                    edges[edge + 1] = i;
+                    edges[edge + 2] = j;
+                    edges[edge + 3] = i;
+                    edges[edge + 4] = 0;
                     // Insert edge
                     firstEdge[nextEdge + edgeCount] = firstEdge[v0];
                     firstEdge[v0] = edgeCount;
@@ -85,10 +83,10 @@ public class RecastMesh {
                         : polys[t + j + 1];
                 if (v0 > v1) {
                     for (int e = firstEdge[v1]; e != RC_MESH_NULL_IDX; e = firstEdge[nextEdge + e]) {
-                        Edge edge = edges[e];
-                        if (edge.vert[1] == v0 && edge.poly[0] == edge.poly[1]) {
-                            edge.poly[1] = i;
-                            edge.polyEdge[1] = j;
+                        int edge = e * EDGE_STRIDE;
+                        if (edges[edge + 0] == v0 && edges[edge + 1] == edges[edge + 3]) {
+                            edges[edge + 3] = i;
+                            edges[edge + 4] = j;
                             break;
                         }
                     }
@@ -98,39 +96,51 @@ public class RecastMesh {
 
         // Store adjacency
         for (int i = 0; i < edgeCount; ++i) {
-            Edge e = edges[i];
-            if (e.poly[0] != e.poly[1]) {
-                int p0 = e.poly[0] * vertsPerPoly * 2;
-                int p1 = e.poly[1] * vertsPerPoly * 2;
-                polys[p0 + vertsPerPoly + e.polyEdge[0]] = e.poly[1];
-                polys[p1 + vertsPerPoly + e.polyEdge[1]] = e.poly[0];
+            int edge = i * EDGE_STRIDE;
+            if (edges[edge + 1] != edges[edge + 3]) {
+                int p0 = edges[edge + 1] * vertsPerPoly * 2;
+                int p1 = edges[edge + 3] * vertsPerPoly * 2;
+                polys[p0 + vertsPerPoly + edges[edge + 2]] = edges[edge + 3];
+                polys[p1 + vertsPerPoly + edges[edge + 4]] = edges[edge + 1];
             }
         }
 
     }
 
-    private static int computeVertexHash(int x, int y, int z) {
+    /**
+     * Returns the number of vertex hash buckets for up to nverts vertices: a power of two with at least one bucket per
+     * vertex, so the chains stay short on big meshes.
+     */
+    static int vertexBucketCount(int nverts) {
+        return Math.max(VERTEX_BUCKET_COUNT, Integer.highestOneBit(Math.max(1, nverts)) << 1);
+    }
+
+    private static int computeVertexHash(int x, int y, int z, int buckets) {
         int h1 = 0x8da6b343; // Large multiplicative constants;
         int h2 = 0xd8163841; // here arbitrarily chosen primes
         int h3 = 0xcb1ab31f;
         int n = h1 * x + h2 * y + h3 * z;
-        return n & (VERTEX_BUCKET_COUNT - 1);
+        // Fold the high bits in, the low bits of the products only depend on the low bits of the coordinates.
+        return (n ^ (n >>> 16)) & (buckets - 1);
     }
 
-    private static int[] addVertex(int x, int y, int z, int[] verts, int[] firstVert, int[] nextVert, int nv) {
-        int bucket = computeVertexHash(x, 0, z);
+    /**
+     * Returns the index of the vertex within 2 units of height of (x, y, z), adding it as vertex nv if there is none.
+     * Vertices that differ in x or z are never welded, so the hash ignores y.
+     */
+    private static int addVertex(int x, int y, int z, int[] verts, int[] firstVert, int[] nextVert, int nv, int buckets) {
+        int bucket = computeVertexHash(x, 0, z, buckets);
         int i = firstVert[bucket];
 
         while (i != -1) {
             int v = i * 3;
             if (verts[v + 0] == x && (Math.abs(verts[v + 1] - y) <= 2) && verts[v + 2] == z)
-                return new int[] { i, nv };
+                return i;
             i = nextVert[i]; // next
         }
 
         // Could not find, create new.
         i = nv;
-        nv++;
         int v = i * 3;
         verts[v + 0] = x;
         verts[v + 1] = y;
@@ -138,7 +148,7 @@ public class RecastMesh {
         nextVert[i] = firstVert[bucket];
         firstVert[bucket] = i;
 
-        return new int[] { i, nv };
+        return i;
     }
 
     static int prev(int i, int n) {
@@ -408,7 +418,11 @@ public class RecastMesh {
                 - (verts[c + 0] - verts[a + 0]) * (verts[b + 2] - verts[a + 2]) < 0;
     }
 
-    private static int[] getPolyMergeValue(int[] polys, int pa, int pb, int[] verts, int nvp) {
+    /**
+     * Returns the squared length of the edge shared by polygons pa and pb, stored in eaeb, or -1 if they share no edge
+     * or merging them would not give a convex polygon of at most nvp vertices.
+     */
+    private static int getPolyMergeValue(int[] polys, int pa, int pb, int[] verts, int nvp, int[] eaeb) {
         int ea = -1;
         int eb = -1;
         int na = countPolyVerts(polys, pa, nvp);
@@ -416,7 +430,7 @@ public class RecastMesh {
 
         // If the merged polygon would be too big, do not merge.
         if (na + nb - 2 > nvp)
-            return new int[] { -1, ea, eb };
+            return -1;
 
         // Check if the polygons share an edge.
 
@@ -446,7 +460,7 @@ public class RecastMesh {
 
         // No common edge, cannot merge.
         if (ea == -1 || eb == -1)
-            return new int[] { -1, ea, eb };
+            return -1;
 
         // Check to see if the merged polygon would be convex.
         int va, vb, vc;
@@ -455,13 +469,13 @@ public class RecastMesh {
         vb = polys[pa + ea];
         vc = polys[pb + (eb + 2) % nb];
         if (!uleft(verts, va * 3, vb * 3, vc * 3))
-            return new int[] { -1, ea, eb };
+            return -1;
 
         va = polys[pb + (eb + nb - 1) % nb];
         vb = polys[pb + eb];
         vc = polys[pa + (ea + 2) % na];
         if (!uleft(verts, va * 3, vb * 3, vc * 3))
-            return new int[] { -1, ea, eb };
+            return -1;
 
         va = polys[pa + ea];
         vb = polys[pa + (ea + 1) % na];
@@ -469,7 +483,235 @@ public class RecastMesh {
         int dx = verts[va * 3 + 0] - verts[vb * 3 + 0];
         int dy = verts[va * 3 + 2] - verts[vb * 3 + 2];
 
-        return new int[] { dx * dx + dy * dy, ea, eb };
+        eaeb[0] = ea;
+        eaeb[1] = eb;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Merges the polygons of a contour or of a hole left by a removed vertex. Repeatedly merges the pair of polygons
+     * with the longest shared edge that gives a convex polygon of at most nvp vertices, ties going to the pair with
+     * the lowest indices, like a scan over all pairs would. The candidate pairs are kept in a heap and neighbours are
+     * found through an index of the polygon edges, so a merge only evaluates the pairs of the polygons it changed.
+     */
+    private static class PolyMerger {
+
+        /** Ints per candidate: merge value, polygon slots a &lt; b, their versions, shared edge in a and b. */
+        private static final int CANDIDATE_STRIDE = 7;
+        /** Ints per indexed edge: lower and higher vertex, polygon slot, next edge in the bucket. */
+        private static final int EDGE_STRIDE = 4;
+
+        private final int[] eaeb = new int[2];
+        /** Incremented whenever the polygon in a slot changes, which invalidates its candidates. */
+        private int[] version = new int[64];
+        private int[] edges = new int[64 * EDGE_STRIDE];
+        private int[] firstEdge = new int[64];
+        private int edgeMask;
+        private int[] candidates = new int[64 * CANDIDATE_STRIDE];
+        private int ncandidates;
+        private int[] heap = new int[64];
+        private int nheap;
+
+        /**
+         * Merges polys [0, npolys) in place, tmp is the offset of a scratch polygon. If pregs is given, the region and
+         * area of merged and moved polygons are updated as well.
+         *
+         * @return the number of polygons left
+         */
+        int merge(int[] polys, int npolys, int[] verts, int nvp, int tmp, int[] pregs, int[] pareas) {
+            if (npolys < 2) {
+                return npolys;
+            }
+            indexEdges(polys, npolys, nvp);
+            if (version.length < npolys) {
+                version = new int[npolys];
+            }
+            Arrays.fill(version, 0, npolys, 0);
+            ncandidates = 0;
+            nheap = 0;
+            for (int p = 0; p < npolys; ++p) {
+                addCandidates(polys, p, verts, nvp, true);
+            }
+            while (nheap > 0) {
+                int c = pop() * CANDIDATE_STRIDE;
+                int a = candidates[c + 1];
+                int b = candidates[c + 2];
+                if (version[a] != candidates[c + 3] || version[b] != candidates[c + 4]) {
+                    continue;
+                }
+                // Found best, merge.
+                moveEdges(polys, b * nvp, b, a, nvp);
+                mergePolyVerts(polys, a * nvp, b * nvp, candidates[c + 5], candidates[c + 6], tmp, nvp);
+                if (pregs != null && pregs[a] != pregs[b]) {
+                    pregs[a] = RC_MULTIPLE_REGS;
+                }
+                int last = npolys - 1;
+                if (b != last) {
+                    System.arraycopy(polys, last * nvp, polys, b * nvp, nvp);
+                    moveEdges(polys, b * nvp, last, b, nvp);
+                }
+                if (pregs != null) {
+                    pregs[b] = pregs[last];
+                    pareas[b] = pareas[last];
+                }
+                npolys--;
+                version[a]++;
+                version[b]++;
+                version[last]++;
+                addCandidates(polys, a, verts, nvp, false);
+                if (b != last) {
+                    addCandidates(polys, b, verts, nvp, false);
+                }
+            }
+            return npolys;
+        }
+
+        /** Adds the edges of all polygons to the edge index. */
+        private void indexEdges(int[] polys, int npolys, int nvp) {
+            int nedges = 0;
+            for (int p = 0; p < npolys; ++p) {
+                nedges += countPolyVerts(polys, p * nvp, nvp);
+            }
+            int buckets = Integer.highestOneBit(Math.max(1, nedges)) << 1;
+            if (firstEdge.length < buckets) {
+                firstEdge = new int[buckets];
+            }
+            Arrays.fill(firstEdge, 0, buckets, -1);
+            edgeMask = buckets - 1;
+            if (edges.length < nedges * EDGE_STRIDE) {
+                edges = new int[nedges * EDGE_STRIDE];
+            }
+            int e = 0;
+            for (int p = 0; p < npolys; ++p) {
+                int n = countPolyVerts(polys, p * nvp, nvp);
+                for (int i = 0; i < n; ++i) {
+                    int va = polys[p * nvp + i];
+                    int vb = polys[p * nvp + (i + 1) % n];
+                    int v0 = Math.min(va, vb);
+                    int v1 = Math.max(va, vb);
+                    int bucket = edgeHash(v0, v1);
+                    edges[e * EDGE_STRIDE + 0] = v0;
+                    edges[e * EDGE_STRIDE + 1] = v1;
+                    edges[e * EDGE_STRIDE + 2] = p;
+                    edges[e * EDGE_STRIDE + 3] = firstEdge[bucket];
+                    firstEdge[bucket] = e;
+                    e++;
+                }
+            }
+        }
+
+        private int edgeHash(int v0, int v1) {
+            int n = 0x8da6b343 * v0 + 0xcb1ab31f * v1;
+            return (n ^ (n >>> 16)) & edgeMask;
+        }
+
+        /** Hands the indexed edges of the polygon stored at offset p over from slot from to slot to. */
+        private void moveEdges(int[] polys, int p, int from, int to, int nvp) {
+            int n = countPolyVerts(polys, p, nvp);
+            for (int i = 0; i < n; ++i) {
+                int va = polys[p + i];
+                int vb = polys[p + (i + 1) % n];
+                int v0 = Math.min(va, vb);
+                int v1 = Math.max(va, vb);
+                for (int e = firstEdge[edgeHash(v0, v1)]; e != -1; e = edges[e * EDGE_STRIDE + 3]) {
+                    if (edges[e * EDGE_STRIDE + 2] == from && edges[e * EDGE_STRIDE] == v0
+                            && edges[e * EDGE_STRIDE + 1] == v1) {
+                        edges[e * EDGE_STRIDE + 2] = to;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the mergeable pairs of polygon p and the polygons sharing an edge with it, only those with a higher slot
+         * if higherOnly is set.
+         */
+        private void addCandidates(int[] polys, int p, int[] verts, int nvp, boolean higherOnly) {
+            int n = countPolyVerts(polys, p * nvp, nvp);
+            for (int i = 0; i < n; ++i) {
+                int va = polys[p * nvp + i];
+                int vb = polys[p * nvp + (i + 1) % n];
+                int v0 = Math.min(va, vb);
+                int v1 = Math.max(va, vb);
+                for (int e = firstEdge[edgeHash(v0, v1)]; e != -1; e = edges[e * EDGE_STRIDE + 3]) {
+                    int q = edges[e * EDGE_STRIDE + 2];
+                    if (q == p || (higherOnly && q < p) || edges[e * EDGE_STRIDE] != v0
+                            || edges[e * EDGE_STRIDE + 1] != v1) {
+                        continue;
+                    }
+                    int a = Math.min(p, q);
+                    int b = Math.max(p, q);
+                    int v = getPolyMergeValue(polys, a * nvp, b * nvp, verts, nvp, eaeb);
+                    if (v > 0) {
+                        push(v, a, b);
+                    }
+                }
+            }
+        }
+
+        private void push(int value, int a, int b) {
+            if ((ncandidates + 1) * CANDIDATE_STRIDE > candidates.length) {
+                candidates = Arrays.copyOf(candidates, candidates.length * 2);
+            }
+            int c = ncandidates * CANDIDATE_STRIDE;
+            candidates[c + 0] = value;
+            candidates[c + 1] = a;
+            candidates[c + 2] = b;
+            candidates[c + 3] = version[a];
+            candidates[c + 4] = version[b];
+            candidates[c + 5] = eaeb[0];
+            candidates[c + 6] = eaeb[1];
+            if (nheap == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+            // Sift up.
+            int i = nheap++;
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (!before(ncandidates, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = ncandidates++;
+        }
+
+        private int pop() {
+            int top = heap[0];
+            int c = heap[--nheap];
+            // Sift down.
+            int i = 0;
+            for (;;) {
+                int child = 2 * i + 1;
+                if (child >= nheap) {
+                    break;
+                }
+                if (child + 1 < nheap && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], c)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = c;
+            return top;
+        }
+
+        /** Higher merge value first, then lower slots, the order in which a scan over all pairs finds them. */
+        private boolean before(int x, int y) {
+            int cx = x * CANDIDATE_STRIDE;
+            int cy = y * CANDIDATE_STRIDE;
+            if (candidates[cx] != candidates[cy]) {
+                return candidates[cx] > candidates[cy];
+            }
+            if (candidates[cx + 1] != candidates[cy + 1]) {
+                return candidates[cx + 1] < candidates[cy + 1];
+            }
+            return candidates[cx + 2] < candidates[cy + 2];
+        }
     }
 
     private static void mergePolyVerts(int[] polys, int pa, int pb, int ea, int eb, int tmp, int nvp) {
@@ -590,7 +832,7 @@ public class RecastMesh {
         return true;
     }
 
-    private static void removeVertex(Telemetry ctx, PolyMesh mesh, int rem, int maxTris) {
+    private static void removeVertex(Telemetry ctx, PolyMesh mesh, int rem, int maxTris, PolyMerger merger) {
         int nvp = mesh.nvp;
 
         // Count number of polygons to remove.
@@ -774,48 +1016,7 @@ public class RecastMesh {
 
         // Merge polygons.
         if (nvp > 3) {
-            for (;;) {
-                // Find best polygons to merge.
-                int bestMergeVal = 0;
-                int bestPa = 0, bestPb = 0, bestEa = 0, bestEb = 0;
-
-                for (int j = 0; j < npolys - 1; ++j) {
-                    int pj = j * nvp;
-                    for (int k = j + 1; k < npolys; ++k) {
-                        int pk = k * nvp;
-                        int[] veaeb = getPolyMergeValue(polys, pj, pk, mesh.verts, nvp);
-                        int v = veaeb[0];
-                        int ea = veaeb[1];
-                        int eb = veaeb[2];
-                        if (v > bestMergeVal) {
-                            bestMergeVal = v;
-                            bestPa = j;
-                            bestPb = k;
-                            bestEa = ea;
-                            bestEb = eb;
-                        }
-                    }
-                }
-
-                if (bestMergeVal > 0) {
-                    // Found best, merge.
-                    int pa = bestPa * nvp;
-                    int pb = bestPb * nvp;
-                    mergePolyVerts(polys, pa, pb, bestEa, bestEb, tmpPoly, nvp);
-                    if (pregs[bestPa] != pregs[bestPb])
-                        pregs[bestPa] = RC_MULTIPLE_REGS;
-                    int last = (npolys - 1) * nvp;
-                    if (pb != last) {
-                        System.arraycopy(polys, last, polys, pb, nvp);
-                    }
-                    pregs[bestPb] = pregs[npolys - 1];
-                    pareas[bestPb] = pareas[npolys - 1];
-                    npolys--;
-                } else {
-                    // Could not merge any polygons, stop.
-                    break;
-                }
-            }
+            npolys = merger.merge(polys, npolys, mesh.verts, nvp, tmpPoly, pregs, pareas);
         }
 
         // Store polygons.
@@ -843,7 +1044,12 @@ public class RecastMesh {
     ///
     /// @see rcAllocPolyMesh, rcContourSet, rcPolyMesh, rcConfig
     public static PolyMesh buildPolyMesh(Telemetry ctx, ContourSet cset, int nvp) {
-        ctx.startTimer("POLYMESH");
+        return buildPolyMesh(ctx, cset, nvp, new BuildArena());
+    }
+
+    /** Same as {@link #buildPolyMesh(Telemetry, ContourSet, int)}, with scratch buffers from the arena. */
+    public static PolyMesh buildPolyMesh(Telemetry ctx, ContourSet cset, int nvp, BuildArena arena) {
+        ctx.startTimer(BuildStage.POLYMESH);
         PolyMesh mesh = new PolyMesh();
         RecastVectors.copy(mesh.bmin, cset.bmin, 0);
         RecastVectors.copy(mesh.bmax, cset.bmax, 0);
@@ -866,7 +1072,7 @@ public class RecastMesh {
         if (maxVertices >= 0xfffe) {
             throw new RuntimeException("rcBuildPolyMesh: Too many vertices " + maxVertices);
         }
-        int[] vflags = new int[maxVertices];
+        int[] vflags = arena.zeroInts(BuildArena.VERT_FLAGS, maxVertices);
 
         mesh.verts = new int[maxVertices * 3];
         mesh.polys = new int[maxTris * nvp * 2];
@@ -879,17 +1085,19 @@ public class RecastMesh {
         mesh.nvp = nvp;
         mesh.maxpolys = maxTris;
 
-        int[] nextVert = new int[maxVertices];
+        int[] nextVert = arena.ints(BuildArena.NEXT_VERT, maxVertices);
 
-        int[] firstVert = new int[VERTEX_BUCKET_COUNT];
-        for (int i = 0; i < VERTEX_BUCKET_COUNT; ++i)
-            firstVert[i] = -1;
+        int buckets = vertexBucketCount(maxVertices);
+        int[] firstVert = arena.ints(BuildArena.FIRST_VERT, buckets);
+        Arrays.fill(firstVert, 0, buckets, -1);
 
-        int[] indices = new int[maxVertsPerCont];
-        int[] tris = new int[maxVertsPerCont * 3];
-        int[] polys = new int[(maxVertsPerCont + 1) * nvp];
+        int[] indices = arena.ints(BuildArena.CONTOUR_INDICES, maxVertsPerCont);
+        int[] tris = arena.ints(BuildArena.CONTOUR_TRIS, maxVertsPerCont * 3);
+        int polysSize = (maxVertsPerCont + 1) * nvp;
+        int[] polys = arena.ints(BuildArena.CONTOUR_POLYS, polysSize);
 
         int tmpPoly = maxVertsPerCont * nvp;
+        PolyMerger merger = new PolyMerger();
 
         for (int i = 0; i < cset.conts.size(); ++i) {
             Contour cont = cset.conts.get(i);
@@ -911,10 +1119,11 @@ public class RecastMesh {
             // Add and merge vertices.
             for (int j = 0; j < cont.nverts; ++j) {
                 int v = j * 4;
-                int[] inv = addVertex(cont.verts[v + 0], cont.verts[v + 1], cont.verts[v + 2], mesh.verts, firstVert,
-                        nextVert, mesh.nverts);
-                indices[j] = inv[0];
-                mesh.nverts = inv[1];
+                indices[j] = addVertex(cont.verts[v + 0], cont.verts[v + 1], cont.verts[v + 2], mesh.verts, firstVert,
+                        nextVert, mesh.nverts, buckets);
+                if (indices[j] == mesh.nverts) {
+                    mesh.nverts++;
+                }
                 if ((cont.verts[v + 3] & RC_BORDER_VERTEX) != 0) {
                     // This vertex should be removed.
                     vflags[indices[j]] = 1;
@@ -923,7 +1132,7 @@ public class RecastMesh {
 
             // Build initial polygons.
             int npolys = 0;
-            Arrays.fill(polys, RC_MESH_NULL_IDX);
+            Arrays.fill(polys, 0, polysSize, RC_MESH_NULL_IDX);
             for (int j = 0; j < ntris; ++j) {
                 int t = j * 3;
                 if (tris[t + 0] != tris[t + 1] && tris[t + 0] != tris[t + 2] && tris[t + 1] != tris[t + 2]) {
@@ -938,44 +1147,7 @@ public class RecastMesh {
 
             // Merge polygons.
             if (nvp > 3) {
-                for (;;) {
-                    // Find best polygons to merge.
-                    int bestMergeVal = 0;
-                    int bestPa = 0, bestPb = 0, bestEa = 0, bestEb = 0;
-
-                    for (int j = 0; j < npolys - 1; ++j) {
-                        int pj = j * nvp;
-                        for (int k = j + 1; k < npolys; ++k) {
-                            int pk = k * nvp;
-                            int[] veaeb = getPolyMergeValue(polys, pj, pk, mesh.verts, nvp);
-                            int v = veaeb[0];
-                            int ea = veaeb[1];
-                            int eb = veaeb[2];
-                            if (v > bestMergeVal) {
-                                bestMergeVal = v;
-                                bestPa = j;
-                                bestPb = k;
-                                bestEa = ea;
-                                bestEb = eb;
-                            }
-                        }
-                    }
-
-                    if (bestMergeVal > 0) {
-                        // Found best, merge.
-                        int pa = bestPa * nvp;
-                        int pb = bestPb * nvp;
-                        mergePolyVerts(polys, pa, pb, bestEa, bestEb, tmpPoly, nvp);
-                        int lastPoly = (npolys - 1) * nvp;
-                        if (pb != lastPoly) {
-                            System.arraycopy(polys, lastPoly, polys, pb, nvp);
-                        }
-                        npolys--;
-                    } else {
-                        // Could not merge any polygons, stop.
-                        break;
-                    }
-                }
+                npolys = merger.merge(polys, npolys, mesh.verts, nvp, tmpPoly, null, null);
             }
 
             // Store polygons.
@@ -999,7 +1171,7 @@ public class RecastMesh {
             if (vflags[i] != 0) {
                 if (!canRemoveVertex(ctx, mesh, i))
                     continue;
-                removeVertex(ctx, mesh, i, maxTris);
+                removeVertex(ctx, mesh, i, maxTris, merger);
                 // Remove vertex
                 // Note: mesh.nverts is already decremented inside removeVertex()!
                 // Fixup vertex flags
@@ -1054,18 +1226,31 @@ public class RecastMesh {
                     + " (max " + MAX_MESH_VERTS_POLY + "). Data can be corrupted.");
         }
 
-        ctx.stopTimer("POLYMESH");
+        ctx.stopTimer(BuildStage.POLYMESH);
         return mesh;
 
     }
 
     /// @see rcAllocPolyMesh, rcPolyMesh
     public static PolyMesh mergePolyMeshes(Telemetry ctx, PolyMesh[] meshes, int nmeshes) {
+        return mergePolyMeshes(ctx, meshes, nmeshes, Optional.empty());
+    }
+
+    /**
+     * Merges the meshes like {@link #mergePolyMeshes(Telemetry, PolyMesh[], int)}, e.g. the tiles of a solo mesh built
+     * from tiles, copying the polygons of bands of meshes concurrently on the executor. The vertices are still welded
+     * in mesh order, so the result is identical to the sequential merge.
+     */
+    public static PolyMesh mergePolyMeshes(Telemetry ctx, PolyMesh[] meshes, int nmeshes, Executor executor) {
+        return mergePolyMeshes(ctx, meshes, nmeshes, Optional.of(executor));
+    }
+
+    private static PolyMesh mergePolyMeshes(Telemetry ctx, PolyMesh[] meshes, int nmeshes, Optional<Executor> executor) {
 
         if (nmeshes == 0 || meshes == null)
             return null;
 
-        ctx.startTimer("MERGE_POLYMESH");
+        ctx.startTimer(BuildStage.MERGE_POLYMESH);
         PolyMesh mesh = new PolyMesh();
         mesh.nvp = meshes[0].nvp;
         mesh.cs = meshes[0].cs;
@@ -1073,21 +1258,22 @@ public class RecastMesh {
         RecastVectors.copy(mesh.bmin, meshes[0].bmin, 0);
         RecastVectors.copy(mesh.bmax, meshes[0].bmax, 0);
 
-        int maxVerts = 0;
-        int maxPolys = 0;
-        int maxVertsPerMesh = 0;
+        // First vertex and polygon of each mesh in the merged mesh before welding.
+        int[] vertBase = new int[nmeshes + 1];
+        int[] polyBase = new int[nmeshes + 1];
         for (int i = 0; i < nmeshes; ++i) {
             RecastVectors.min(mesh.bmin, meshes[i].bmin, 0);
             RecastVectors.max(mesh.bmax, meshes[i].bmax, 0);
-            maxVertsPerMesh = Math.max(maxVertsPerMesh, meshes[i].nverts);
-            maxVerts += meshes[i].nverts;
-            maxPolys += meshes[i].npolys;
+            vertBase[i + 1] = vertBase[i] + meshes[i].nverts;
+            polyBase[i + 1] = polyBase[i] + meshes[i].npolys;
         }
+        int maxVerts = vertBase[nmeshes];
+        int maxPolys = polyBase[nmeshes];
 
         mesh.nverts = 0;
         mesh.verts = new int[maxVerts * 3];
 
-        mesh.npolys = 0;
+        mesh.npolys = maxPolys;
         mesh.polys = new int[maxPolys * 2 * mesh.nvp];
         Arrays.fill(mesh.polys, 0, mesh.polys.length, RC_MESH_NULL_IDX);
         mesh.regs = new int[maxPolys];
@@ -1096,11 +1282,11 @@ public class RecastMesh {
 
         int[] nextVert = new int[maxVerts];
 
-        int[] firstVert = new int[VERTEX_BUCKET_COUNT];
-        for (int i = 0; i < VERTEX_BUCKET_COUNT; ++i)
-            firstVert[i] = -1;
+        int buckets = vertexBucketCount(maxVerts);
+        int[] firstVert = new int[buckets];
+        Arrays.fill(firstVert, -1);
 
-        int[] vremap = new int[maxVertsPerMesh];
+        int[] vremap = new int[maxVerts];
 
         for (int i = 0; i < nmeshes; ++i) {
             PolyMesh pmesh = meshes[i];
@@ -1108,32 +1294,68 @@ public class RecastMesh {
             int ox = (int) Math.floor((pmesh.bmin[0] - mesh.bmin[0]) / mesh.cs + 0.5f);
             int oz = (int) Math.floor((pmesh.bmin[2] - mesh.bmin[2]) / mesh.cs + 0.5f);
 
+            for (int j = 0; j < pmesh.nverts; ++j) {
+                int v = j * 3;
+                int vert = addVertex(pmesh.verts[v + 0] + ox, pmesh.verts[v + 1], pmesh.verts[v + 2] + oz, mesh.verts,
+                        firstVert, nextVert, mesh.nverts, buckets);
+                vremap[vertBase[i] + j] = vert;
+                if (vert == mesh.nverts) {
+                    mesh.nverts++;
+                }
+            }
+        }
+
+        // The polygons of each mesh go to their own range of the merged mesh.
+        if (executor.isPresent()) {
+            int bands = RecastParallel.bandCount(executor.get(), nmeshes, 1, 4);
+            RecastParallel.forEachBand(executor.get(), nmeshes, bands,
+                    (band, start, end) -> copyPolys(mesh, meshes, start, end, vertBase, polyBase, vremap));
+        } else {
+            copyPolys(mesh, meshes, 0, nmeshes, vertBase, polyBase, vremap);
+        }
+
+        // Calculate adjacency.
+        buildMeshAdjacency(mesh.polys, mesh.npolys, mesh.nverts, mesh.nvp);
+        if (mesh.nverts > MAX_MESH_VERTS_POLY) {
+            throw new RuntimeException("rcBuildPolyMesh: The resulting mesh has too many vertices " + mesh.nverts
+                    + " (max " + MAX_MESH_VERTS_POLY + "). Data can be corrupted.");
+        }
+        if (mesh.npolys > MAX_MESH_VERTS_POLY) {
+            throw new RuntimeException("rcBuildPolyMesh: The resulting mesh has too many polygons " + mesh.npolys
+                    + " (max " + MAX_MESH_VERTS_POLY + "). Data can be corrupted.");
+        }
+
+        ctx.stopTimer(BuildStage.MERGE_POLYMESH);
+
+        return mesh;
+    }
+
+    /** Copies the polygons of meshes [start, end) to the merged mesh, keeping the portals on its outer border. */
+    private static void copyPolys(PolyMesh mesh, PolyMesh[] meshes, int start, int end, int[] vertBase, int[] polyBase,
+            int[] vremap) {
+        for (int i = start; i < end; ++i) {
+            PolyMesh pmesh = meshes[i];
+
+            int ox = (int) Math.floor((pmesh.bmin[0] - mesh.bmin[0]) / mesh.cs + 0.5f);
+            int oz = (int) Math.floor((pmesh.bmin[2] - mesh.bmin[2]) / mesh.cs + 0.5f);
+
             boolean isMinX = (ox == 0);
             boolean isMinZ = (oz == 0);
             boolean isMaxX = (Math.floor((mesh.bmax[0] - pmesh.bmax[0]) / mesh.cs + 0.5f)) == 0;
             boolean isMaxZ = (Math.floor((mesh.bmax[2] - pmesh.bmax[2]) / mesh.cs + 0.5f)) == 0;
             boolean isOnBorder = (isMinX || isMinZ || isMaxX || isMaxZ);
 
-            for (int j = 0; j < pmesh.nverts; ++j) {
-                int v = j * 3;
-                int[] inv = addVertex(pmesh.verts[v + 0] + ox, pmesh.verts[v + 1], pmesh.verts[v + 2] + oz, mesh.verts,
-                        firstVert, nextVert, mesh.nverts);
-
-                vremap[j] = inv[0];
-                mesh.nverts = inv[1];
-            }
-
             for (int j = 0; j < pmesh.npolys; ++j) {
-                int tgt = mesh.npolys * 2 * mesh.nvp;
+                int p = polyBase[i] + j;
+                int tgt = p * 2 * mesh.nvp;
                 int src = j * 2 * mesh.nvp;
-                mesh.regs[mesh.npolys] = pmesh.regs[j];
-                mesh.areas[mesh.npolys] = pmesh.areas[j];
-                mesh.flags[mesh.npolys] = pmesh.flags[j];
-                mesh.npolys++;
+                mesh.regs[p] = pmesh.regs[j];
+                mesh.areas[p] = pmesh.areas[j];
+                mesh.flags[p] = pmesh.flags[j];
                 for (int k = 0; k < mesh.nvp; ++k) {
                     if (pmesh.polys[src + k] == RC_MESH_NULL_IDX)
                         break;
-                    mesh.polys[tgt + k] = vremap[pmesh.polys[src + k]];
+                    mesh.polys[tgt + k] = vremap[vertBase[i] + pmesh.polys[src + k]];
                 }
 
                 if (isOnBorder) {
@@ -1163,21 +1385,6 @@ public class RecastMesh {
                 }
             }
         }
-
-        // Calculate adjacency.
-        buildMeshAdjacency(mesh.polys, mesh.npolys, mesh.nverts, mesh.nvp);
-        if (mesh.nverts > MAX_MESH_VERTS_POLY) {
-            throw new RuntimeException("rcBuildPolyMesh: The resulting mesh has too many vertices " + mesh.nverts
-                    + " (max " + MAX_MESH_VERTS_POLY + "). Data can be corrupted.");
-        }
-        if (mesh.npolys > MAX_MESH_VERTS_POLY) {
-            throw new RuntimeException("rcBuildPolyMesh: The resulting mesh has too many polygons " + mesh.npolys
-                    + " (max " + MAX_MESH_VERTS_POLY + "). Data can be corrupted.");
-        }
-
-        ctx.stopTimer("MERGE_POLYMESH");
-
-        return mesh;
     }
 
     public static PolyMesh copyPolyMesh(Telemetry ctx, PolyMesh src) {
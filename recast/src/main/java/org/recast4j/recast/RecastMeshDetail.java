@@ -26,9 +26,9 @@ import static org.recast4j.recast.RecastConstants.RC_MESH_NULL_IDX;
 import static org.recast4j.recast.RecastConstants.RC_MULTIPLE_REGS;
 import static org.recast4j.recast.RecastConstants.RC_NOT_CONNECTED;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class RecastMeshDetail {
@@ -42,6 +42,9 @@ public class RecastMeshDetail {
     static int EV_UNDEF = -1;
     static int EV_HULL = -2;
 
+    /** Minimum number of polygons built by one band in a parallel build. */
+    private static final int MIN_BAND_POLYS = 8;
+
     private static class HeightPatch {
         int xmin;
         int ymin;
@@ -50,6 +53,64 @@ public class RecastMeshDetail {
         int[] data;
     }
 
+    /** Work buffers of a thread building polygon detail meshes. */
+    static class DetailBuffers {
+        final HeightPatch hp = new HeightPatch();
+        final float[] verts = new float[256 * 3];
+        float[] poly;
+        final IntArray samples = new IntArray(512);
+        final IntArray queue = new IntArray(512);
+        int[] edges = new int[64 * 4];
+        int nedges;
+        int[] tris = new int[128 * 4];
+        int ntris;
+
+        DetailBuffers(int nvp, int patchSize) {
+            poly = new float[nvp * 3];
+            hp.data = new int[patchSize];
+        }
+
+        /** Grows the buffers for polygons of nvp vertices and height patches of patchSize. */
+        void reserve(int nvp, int patchSize) {
+            if (poly.length < nvp * 3) {
+                poly = new float[nvp * 3];
+            }
+            if (hp.data.length < patchSize) {
+                hp.data = new int[patchSize];
+            }
+        }
+    }
+
+    /** Detail meshes of a band of polygons built in parallel mode, stored one after another in polygon order. */
+    private static class DetailOutput {
+        float[] verts = new float[256 * 3];
+        int nverts;
+        int[] tris = new int[512 * 4];
+        int ntris;
+
+        /** Appends the detail mesh of polygon i from the buffers and records where it was stored in parts. */
+        void add(DetailBuffers buffers, int nverts, int[] parts, int i) {
+            if ((this.nverts + nverts) * 3 > verts.length) {
+                verts = Arrays.copyOf(verts, Math.max(verts.length * 2, (this.nverts + nverts) * 3));
+            }
+            if ((ntris + buffers.ntris) * 4 > tris.length) {
+                tris = Arrays.copyOf(tris, Math.max(tris.length * 2, (ntris + buffers.ntris) * 4));
+            }
+            System.arraycopy(buffers.verts, 0, verts, this.nverts * 3, nverts * 3);
+            System.arraycopy(buffers.tris, 0, tris, ntris * 4, buffers.ntris * 4);
+            parts[i * 4 + 0] = this.nverts;
+            parts[i * 4 + 1] = nverts;
+            parts[i * 4 + 2] = ntris;
+            parts[i * 4 + 3] = buffers.ntris;
+            this.nverts += nverts;
+            ntris += buffers.ntris;
+        }
+    }
+
+    private static int[] ensureCapacity(int[] a, int size) {
+        return a.length >= size ? a : Arrays.copyOf(a, Math.max(a.length * 2, size));
+    }
+
     private static float vdot2(float[] a, float[] b) {
         return a[0] * b[0] + a[2] * b[2];
     }
@@ -201,12 +262,12 @@ public class RecastMeshDetail {
         return dx * dx + dz * dz;
     }
 
-    private static float distToTriMesh(float[] p, float[] verts, int nverts, List<Integer> tris, int ntris) {
+    private static float distToTriMesh(float[] p, float[] verts, int nverts, int[] tris, int ntris) {
         float dmin = Float.MAX_VALUE;
         for (int i = 0; i < ntris; ++i) {
-            int va = tris.get(i * 4 + 0) * 3;
-            int vb = tris.get(i * 4 + 1) * 3;
-            int vc = tris.get(i * 4 + 2) * 3;
+            int va = tris[i * 4 + 0] * 3;
+            int vb = tris[i * 4 + 1] * 3;
+            int vc = tris[i * 4 + 2] * 3;
             float d = distPtTri(p, verts, va, vb, vc);
             if (d < dmin) {
                 dmin = d;
@@ -307,36 +368,39 @@ public class RecastMeshDetail {
         return h;
     }
 
-    private static int findEdge(List<Integer> edges, int s, int t) {
-        for (int i = 0; i < edges.size() / 4; i++) {
+    private static int findEdge(int[] edges, int nedges, int s, int t) {
+        for (int i = 0; i < nedges; i++) {
             int e = i * 4;
-            if ((edges.get(e + 0) == s && edges.get(e + 1) == t) || (edges.get(e + 0) == t && edges.get(e + 1) == s)) {
+            if ((edges[e + 0] == s && edges[e + 1] == t) || (edges[e + 0] == t && edges[e + 1] == s)) {
                 return i;
             }
         }
         return EV_UNDEF;
     }
 
-    private static void addEdge(Telemetry ctx, List<Integer> edges, int maxEdges, int s, int t, int l, int r) {
-        if (edges.size() / 4 >= maxEdges) {
-            throw new RuntimeException("addEdge: Too many edges (" + edges.size() / 4 + "/" + maxEdges + ").");
+    private static void addEdge(Telemetry ctx, DetailBuffers buffers, int maxEdges, int s, int t, int l, int r) {
+        if (buffers.nedges >= maxEdges) {
+            throw new RuntimeException("addEdge: Too many edges (" + buffers.nedges + "/" + maxEdges + ").");
         }
 
         // Add edge if not already in the triangulation.
-        int e = findEdge(edges, s, t);
+        int e = findEdge(buffers.edges, buffers.nedges, s, t);
         if (e == EV_UNDEF) {
-            edges.add(s);
-            edges.add(t);
-            edges.add(l);
-            edges.add(r);
+            int[] edges = buffers.edges;
+            e = buffers.nedges * 4;
+            edges[e + 0] = s;
+            edges[e + 1] = t;
+            edges[e + 2] = l;
+            edges[e + 3] = r;
+            buffers.nedges++;
         }
     }
 
-    private static void updateLeftFace(List<Integer> edges, int e, int s, int t, int f) {
-        if (edges.get(e + 0) == s && edges.get(e + 1) == t && edges.get(e + 2) == EV_UNDEF) {
-            edges.set(e + 2, f);
-        } else if (edges.get(e + 1) == s && edges.get(e + 0) == t && edges.get(e + 3) == EV_UNDEF) {
-            edges.set(e + 3, f);
+    private static void updateLeftFace(int[] edges, int e, int s, int t, int f) {
+        if (edges[e + 0] == s && edges[e + 1] == t && edges[e + 2] == EV_UNDEF) {
+            edges[e + 2] = f;
+        } else if (edges[e + 1] == s && edges[e + 0] == t && edges[e + 3] == EV_UNDEF) {
+            edges[e + 3] = f;
         }
     }
 
@@ -353,10 +417,10 @@ public class RecastMeshDetail {
         return false;
     }
 
-    private static boolean overlapEdges(float[] pts, List<Integer> edges, int s1, int t1) {
-        for (int i = 0; i < edges.size() / 4; ++i) {
-            int s0 = edges.get(i * 4 + 0);
-            int t0 = edges.get(i * 4 + 1);
+    private static boolean overlapEdges(float[] pts, int[] edges, int nedges, int s1, int t1) {
+        for (int i = 0; i < nedges; ++i) {
+            int s0 = edges[i * 4 + 0];
+            int t0 = edges[i * 4 + 1];
             // Same or connected edges do not overlap.
             if (s0 == s1 || s0 == t1 || t0 == s1 || t0 == t1) {
                 continue;
@@ -368,19 +432,21 @@ public class RecastMeshDetail {
         return false;
     }
 
-    static int completeFacet(Telemetry ctx, float[] pts, int npts, List<Integer> edges, int maxEdges, int nfaces, int e) {
+    static int completeFacet(Telemetry ctx, float[] pts, int npts, DetailBuffers buffers, int maxEdges, int nfaces,
+            int e) {
         float EPS = 1e-5f;
 
+        int[] edges = buffers.edges;
         int edge = e * 4;
 
         // Cache s and t.
         int s, t;
-        if (edges.get(edge + 2) == EV_UNDEF) {
-            s = edges.get(edge + 0);
-            t = edges.get(edge + 1);
-        } else if (edges.get(edge + 3) == EV_UNDEF) {
-            s = edges.get(edge + 1);
-            t = edges.get(edge + 0);
+        if (edges[edge + 2] == EV_UNDEF) {
+            s = edges[edge + 0];
+            t = edges[edge + 1];
+        } else if (edges[edge + 3] == EV_UNDEF) {
+            s = edges[edge + 1];
+            t = edges[edge + 0];
         } else {
             // Edge already completed.
             return nfaces;
@@ -413,10 +479,10 @@ public class RecastMeshDetail {
                 } else {
                     // Inside epsilon circum circle, do extra tests to make sure the edge is valid.
                     // s-u and t-u cannot overlap with s-pt nor t-pt if they exists.
-                    if (overlapEdges(pts, edges, s, u)) {
+                    if (overlapEdges(pts, edges, buffers.nedges, s, u)) {
                         continue;
                     }
-                    if (overlapEdges(pts, edges, t, u)) {
+                    if (overlapEdges(pts, edges, buffers.nedges, t, u)) {
                         continue;
                     }
                     // Edge is valid.
@@ -432,17 +498,17 @@ public class RecastMeshDetail {
             updateLeftFace(edges, e * 4, s, t, nfaces);
 
             // Add new edge or update face info of old edge.
-            e = findEdge(edges, pt, s);
+            e = findEdge(edges, buffers.nedges, pt, s);
             if (e == EV_UNDEF) {
-                addEdge(ctx, edges, maxEdges, pt, s, nfaces, EV_UNDEF);
+                addEdge(ctx, buffers, maxEdges, pt, s, nfaces, EV_UNDEF);
             } else {
                 updateLeftFace(edges, e * 4, pt, s, nfaces);
             }
 
             // Add new edge or update face info of old edge.
-            e = findEdge(edges, t, pt);
+            e = findEdge(edges, buffers.nedges, t, pt);
             if (e == EV_UNDEF) {
-                addEdge(ctx, edges, maxEdges, t, pt, nfaces, EV_UNDEF);
+                addEdge(ctx, buffers, maxEdges, t, pt, nfaces, EV_UNDEF);
             } else {
                 updateLeftFace(edges, e * 4, t, pt, nfaces);
             }
@@ -454,73 +520,69 @@ public class RecastMeshDetail {
         return nfaces;
     }
 
-    private static void delaunayHull(Telemetry ctx, int npts, float[] pts, int nhull, int[] hull, List<Integer> tris) {
+    private static void delaunayHull(Telemetry ctx, int npts, float[] pts, int nhull, int[] hull, DetailBuffers buffers) {
         int nfaces = 0;
         int maxEdges = npts * 10;
-        List<Integer> edges = new ArrayList<>(64);
+        buffers.edges = ensureCapacity(buffers.edges, maxEdges * 4);
+        buffers.nedges = 0;
         for (int i = 0, j = nhull - 1; i < nhull; j = i++) {
-            addEdge(ctx, edges, maxEdges, hull[j], hull[i], EV_HULL, EV_UNDEF);
+            addEdge(ctx, buffers, maxEdges, hull[j], hull[i], EV_HULL, EV_UNDEF);
         }
         int currentEdge = 0;
-        while (currentEdge < edges.size() / 4) {
-            if (edges.get(currentEdge * 4 + 2) == EV_UNDEF) {
-                nfaces = completeFacet(ctx, pts, npts, edges, maxEdges, nfaces, currentEdge);
+        while (currentEdge < buffers.nedges) {
+            if (buffers.edges[currentEdge * 4 + 2] == EV_UNDEF) {
+                nfaces = completeFacet(ctx, pts, npts, buffers, maxEdges, nfaces, currentEdge);
             }
-            if (edges.get(currentEdge * 4 + 3) == EV_UNDEF) {
-                nfaces = completeFacet(ctx, pts, npts, edges, maxEdges, nfaces, currentEdge);
+            if (buffers.edges[currentEdge * 4 + 3] == EV_UNDEF) {
+                nfaces = completeFacet(ctx, pts, npts, buffers, maxEdges, nfaces, currentEdge);
             }
             currentEdge++;
         }
         // Create tris
-        tris.clear();
-        for (int i = 0; i < nfaces * 4; ++i) {
-            tris.add(-1);
-        }
+        int[] edges = buffers.edges;
+        int[] tris = buffers.tris = ensureCapacity(buffers.tris, nfaces * 4);
+        int ntris = nfaces;
+        Arrays.fill(tris, 0, nfaces * 4, -1);
 
-        for (int i = 0; i < edges.size() / 4; ++i) {
+        for (int i = 0; i < buffers.nedges; ++i) {
             int e = i * 4;
-            if (edges.get(e + 3) >= 0) {
+            if (edges[e + 3] >= 0) {
                 // Left face
-                int t = edges.get(e + 3) * 4;
-                if (tris.get(t + 0) == -1) {
-                    tris.set(t + 0, edges.get(e + 0));
-                    tris.set(t + 1, edges.get(e + 1));
-                } else if (tris.get(t + 0) == edges.get(e + 1)) {
-                    tris.set(t + 2, edges.get(e + 0));
-                } else if (tris.get(t + 1) == edges.get(e + 0)) {
-                    tris.set(t + 2, edges.get(e + 1));
+                int t = edges[e + 3] * 4;
+                if (tris[t + 0] == -1) {
+                    tris[t + 0] = edges[e + 0];
+                    tris[t + 1] = edges[e + 1];
+                } else if (tris[t + 0] == edges[e + 1]) {
+                    tris[t + 2] = edges[e + 0];
+                } else if (tris[t + 1] == edges[e + 0]) {
+                    tris[t + 2] = edges[e + 1];
                 }
             }
-            if (edges.get(e + 2) >= 0) {
+            if (edges[e + 2] >= 0) {
                 // Right
-                int t = edges.get(e + 2) * 4;
-                if (tris.get(t + 0) == -1) {
-                    tris.set(t + 0, edges.get(e + 1));
-                    tris.set(t + 1, edges.get(e + 0));
-                } else if (tris.get(t + 0) == edges.get(e + 0)) {
-                    tris.set(t + 2, edges.get(e + 1));
-                } else if (tris.get(t + 1) == edges.get(e + 1)) {
-                    tris.set(t + 2, edges.get(e + 0));
+                int t = edges[e + 2] * 4;
+                if (tris[t + 0] == -1) {
+                    tris[t + 0] = edges[e + 1];
+                    tris[t + 1] = edges[e + 0];
+                } else if (tris[t + 0] == edges[e + 0]) {
+                    tris[t + 2] = edges[e + 1];
+                } else if (tris[t + 1] == edges[e + 1]) {
+                    tris[t + 2] = edges[e + 0];
                 }
             }
         }
 
-        for (int i = 0; i < tris.size() / 4; ++i) {
+        for (int i = 0; i < ntris; ++i) {
             int t = i * 4;
-            if (tris.get(t + 0) == -1 || tris.get(t + 1) == -1 || tris.get(t + 2) == -1) {
-                System.err.println("Dangling! " + tris.get(t) + " " + tris.get(t + 1) + "  " + tris.get(t + 2));
+            if (tris[t + 0] == -1 || tris[t + 1] == -1 || tris[t + 2] == -1) {
+                System.err.println("Dangling! " + tris[t] + " " + tris[t + 1] + "  " + tris[t + 2]);
                 // ctx.log(RC_LOG_WARNING, "delaunayHull: Removing dangling face %d [%d,%d,%d].", i, t[0],t[1],t[2]);
-                tris.set(t + 0, tris.get(tris.size() - 4));
-                tris.set(t + 1, tris.get(tris.size() - 3));
-                tris.set(t + 2, tris.get(tris.size() - 2));
-                tris.set(t + 3, tris.get(tris.size() - 1));
-                tris.remove(tris.size() - 1);
-                tris.remove(tris.size() - 1);
-                tris.remove(tris.size() - 1);
-                tris.remove(tris.size() - 1);
+                System.arraycopy(tris, (ntris - 1) * 4, tris, t, 4);
+                ntris--;
                 --i;
             }
         }
+        buffers.ntris = ntris;
     }
 
     // Calculate minimum extend of the polygon.
@@ -543,7 +605,8 @@ public class RecastMeshDetail {
         return (float) Math.sqrt(minDist);
     }
 
-    private static void triangulateHull(int nverts, float[] verts, int nhull, int[] hull, int nin, List<Integer> tris) {
+    private static void triangulateHull(int nverts, float[] verts, int nhull, int[] hull, int nin,
+            DetailBuffers buffers) {
         int start = 0, left = 1, right = nhull - 1;
 
         // Start from an ear with shortest perimeter.
@@ -569,10 +632,13 @@ public class RecastMeshDetail {
         }
 
         // Add first triangle
-        tris.add(hull[start]);
-        tris.add(hull[left]);
-        tris.add(hull[right]);
-        tris.add(0);
+        int[] tris = buffers.tris = ensureCapacity(buffers.tris, (buffers.ntris + nhull) * 4);
+        int ntris = buffers.ntris;
+        tris[ntris * 4 + 0] = hull[start];
+        tris[ntris * 4 + 1] = hull[left];
+        tris[ntris * 4 + 2] = hull[right];
+        tris[ntris * 4 + 3] = 0;
+        ntris++;
 
         // Triangulate the polygon by moving left or right,
         // depending on which triangle has shorter perimeter.
@@ -591,19 +657,21 @@ public class RecastMeshDetail {
             float dright = vdist2(verts, cvright, nvright) + vdist2(verts, cvleft, nvright);
 
             if (dleft < dright) {
-                tris.add(hull[left]);
-                tris.add(hull[nleft]);
-                tris.add(hull[right]);
-                tris.add(0);
+                tris[ntris * 4 + 0] = hull[left];
+                tris[ntris * 4 + 1] = hull[nleft];
+                tris[ntris * 4 + 2] = hull[right];
+                tris[ntris * 4 + 3] = 0;
                 left = nleft;
             } else {
-                tris.add(hull[left]);
-                tris.add(hull[nright]);
-                tris.add(hull[right]);
-                tris.add(0);
+                tris[ntris * 4 + 0] = hull[left];
+                tris[ntris * 4 + 1] = hull[nright];
+                tris[ntris * 4 + 2] = hull[right];
+                tris[ntris * 4 + 3] = 0;
                 right = nright;
             }
+            ntris++;
         }
+        buffers.ntris = ntris;
     }
 
     private static float getJitterX(int i) {
@@ -615,9 +683,12 @@ public class RecastMeshDetail {
     }
 
     static int buildPolyDetail(Telemetry ctx, float[] in, int nin, float sampleDist, float sampleMaxError,
-            int heightSearchRadius, CompactHeightfield chf, HeightPatch hp, float[] verts, List<Integer> tris) {
+            int heightSearchRadius, CompactHeightfield chf, DetailBuffers buffers) {
+
+        HeightPatch hp = buffers.hp;
+        float[] verts = buffers.verts;
 
-        List<Integer> samples = new ArrayList<>(512);
+        IntArray samples = buffers.samples;
 
         int nverts = 0;
         float[] edge = new float[(MAX_VERTS_PER_EDGE + 1) * 3];
@@ -629,7 +700,7 @@ public class RecastMeshDetail {
         for (int i = 0; i < nin; ++i) {
             RecastVectors.copy(verts, i * 3, in, i * 3);
         }
-        tris.clear();
+        buffers.ntris = 0;
 
         float cs = chf.cs;
         float ics = 1.0f / cs;
@@ -737,8 +808,8 @@ public class RecastMeshDetail {
 
         // If the polygon minimum extent is small (sliver or small triangle), do not try to add internal points.
         if (minExtent < sampleDist * 2) {
-            triangulateHull(nverts, verts, nhull, hull, nin, tris);
-            setTriFlags(tris, nhull, hull);
+            triangulateHull(nverts, verts, nhull, hull, nin, buffers);
+            setTriFlags(buffers.tris, buffers.ntris, nhull, hull);
             return nverts;
         }
 
@@ -746,9 +817,9 @@ public class RecastMeshDetail {
         // We're using the triangulateHull instead of delaunayHull as it tends to
         // create a bit better triangulation for long thin triangles when there
         // are no internal points.
-        triangulateHull(nverts, verts, nhull, hull, nin, tris);
+        triangulateHull(nverts, verts, nhull, hull, nin, buffers);
 
-        if (tris.size() == 0) {
+        if (buffers.ntris == 0) {
             // Could not triangulate the poly, make sure there is some valid data there.
             throw new RuntimeException("buildPolyDetail: Could not triangulate polygon (" + nverts + ") verts).");
         }
@@ -809,7 +880,7 @@ public class RecastMeshDetail {
                     pt[0] = samples.get(s + 0) * sampleDist + getJitterX(i) * cs * 0.1f;
                     pt[1] = samples.get(s + 1) * chf.ch;
                     pt[2] = samples.get(s + 2) * sampleDist + getJitterY(i) * cs * 0.1f;
-                    float d = distToTriMesh(pt, verts, nverts, tris, tris.size() / 4);
+                    float d = distToTriMesh(pt, verts, nverts, buffers.tris, buffers.ntris);
                     if (d < 0) {
                         continue; // did not hit the mesh.
                     }
@@ -831,35 +902,33 @@ public class RecastMeshDetail {
 
                 // Create new triangulation.
                 // TODO: Incremental add instead of full rebuild.
-                delaunayHull(ctx, nverts, verts, nhull, hull, tris);
+                delaunayHull(ctx, nverts, verts, nhull, hull, buffers);
             }
         }
 
-        int ntris = tris.size() / 4;
+        int ntris = buffers.ntris;
         if (ntris > MAX_TRIS) {
-            List<Integer> subList = tris.subList(0, MAX_TRIS * 4);
-            tris.clear();
-            tris.addAll(subList);
+            buffers.ntris = MAX_TRIS;
             throw new RuntimeException(
                     "rcBuildPolyMeshDetail: Shrinking triangle count from " + ntris + " to max " + MAX_TRIS);
         }
-        setTriFlags(tris, nhull, hull);
+        setTriFlags(buffers.tris, buffers.ntris, nhull, hull);
         return nverts;
     }
 
     // Find edges that lie on hull and mark them as such.
-    static void setTriFlags(List<Integer> tris, int nhull, int[] hull) {
+    static void setTriFlags(int[] tris, int ntris, int nhull, int[] hull) {
         // Matches DT_DETAIL_EDGE_BOUNDARY
 
-        for (int i = 0; i < tris.size(); i += 4) {
-            int a = tris.get(i);
-            int b = tris.get(i + 1);
-            int c = tris.get(i + 2);
+        for (int i = 0; i < ntris * 4; i += 4) {
+            int a = tris[i];
+            int b = tris[i + 1];
+            int c = tris[i + 2];
             int flags = 0;
             flags |= (onHull(a, b, nhull, hull) ? DETAIL_EDGE_BOUNDARY : 0) << 0;
             flags |= (onHull(b, c, nhull, hull) ? DETAIL_EDGE_BOUNDARY : 0) << 2;
             flags |= (onHull(c, a, nhull, hull) ? DETAIL_EDGE_BOUNDARY : 0) << 4;
-            tris.set(i + 3, flags);
+            tris[i + 3] = flags;
         }
     }
 
@@ -877,7 +946,7 @@ public class RecastMeshDetail {
     }
 
     static void seedArrayWithPolyCenter(Telemetry ctx, CompactHeightfield chf, int[] meshpoly, int poly, int npoly,
-            int[] verts, int bs, HeightPatch hp, List<Integer> array) {
+            int[] verts, int bs, HeightPatch hp, IntArray array) {
         // Note: Reads to the compact heightfield are offset by border size (bs)
         // since border size offset is already removed from the polymesh vertices.
 
@@ -895,10 +964,9 @@ public class RecastMeshDetail {
                     continue;
                 }
 
-                CompactCell c = chf.cells[(ax + bs) + (az + bs) * chf.width];
-                for (int i = c.index, ni = c.index + c.count; i < ni && dmin > 0; ++i) {
-                    CompactSpan s = chf.spans[i];
-                    int d = Math.abs(ay - s.y);
+                int c = (ax + bs) + (az + bs) * chf.width;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni && dmin > 0; ++i) {
+                    int d = Math.abs(ay - chf.spanY[i]);
                     if (d < dmin) {
                         startCellX = ax;
                         startCellY = az;
@@ -934,9 +1002,9 @@ public class RecastMeshDetail {
                 ctx.warn("Walk towards polygon center failed to reach center");
                 break;
             }
-            ci = array.remove(array.size() - 1);
-            cy = array.remove(array.size() - 1);
-            cx = array.remove(array.size() - 1);
+            ci = array.pop();
+            cy = array.pop();
+            cx = array.pop();
 
             // Check if close to center of the polygon.
             if (cx == pcx && cy == pcy) {
@@ -957,11 +1025,10 @@ public class RecastMeshDetail {
             dirs[3] = dirs[directDir];
             dirs[directDir] = tmp;
 
-            CompactSpan cs = chf.spans[ci];
 
             for (int i = 0; i < 4; ++i) {
                 int dir = dirs[i];
-                if (GetCon(cs, dir) == RC_NOT_CONNECTED) {
+                if (GetCon(chf, ci, dir) == RC_NOT_CONNECTED) {
                     continue;
                 }
 
@@ -981,7 +1048,7 @@ public class RecastMeshDetail {
 
                 array.add(newX);
                 array.add(newY);
-                array.add(chf.cells[(newX + bs) + (newY + bs) * chf.width].index + GetCon(cs, dir));
+                array.add(chf.cellIndex[(newX + bs) + (newY + bs) * chf.width] + GetCon(chf, ci, dir));
             }
 
             tmp = dirs[3];
@@ -996,24 +1063,23 @@ public class RecastMeshDetail {
         array.add(cy + bs);
         array.add(ci);
         Arrays.fill(hp.data, 0, hp.width * hp.height, RC_UNSET_HEIGHT);
-        CompactSpan cs = chf.spans[ci];
-        hp.data[cx - hp.xmin + (cy - hp.ymin) * hp.width] = cs.y;
+        hp.data[cx - hp.xmin + (cy - hp.ymin) * hp.width] = chf.spanY[ci];
     }
 
     static final int RETRACT_SIZE = 256;
 
-    static void push3(List<Integer> queue, int v1, int v2, int v3) {
+    static void push3(IntArray queue, int v1, int v2, int v3) {
         queue.add(v1);
         queue.add(v2);
         queue.add(v3);
     }
 
     static void getHeightData(Telemetry ctx, CompactHeightfield chf, int[] meshpolys, int poly, int npoly, int[] verts,
-            int bs, HeightPatch hp, int region) {
+            int bs, HeightPatch hp, IntArray queue, int region) {
         // Note: Reads to the compact heightfield are offset by border size (bs)
         // since border size offset is already removed from the polymesh vertices.
 
-        List<Integer> queue = new ArrayList<>(512);
+        queue.clear();
         Arrays.fill(hp.data, 0, hp.width * hp.height, RC_UNSET_HEIGHT);
 
         boolean empty = true;
@@ -1028,23 +1094,21 @@ public class RecastMeshDetail {
                 int y = hp.ymin + hy + bs;
                 for (int hx = 0; hx < hp.width; hx++) {
                     int x = hp.xmin + hx + bs;
-                    CompactCell c = chf.cells[x + y * chf.width];
-                    for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                        CompactSpan s = chf.spans[i];
-                        if (s.reg == region) {
+                    int c = x + y * chf.width;
+                    for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                        if (chf.spanReg[i] == region) {
                             // Store height
-                            hp.data[hx + hy * hp.width] = s.y;
+                            hp.data[hx + hy * hp.width] = chf.spanY[i];
                             empty = false;
                             // If any of the neighbours is not in same region,
                             // add the current location as flood fill start
                             boolean border = false;
                             for (int dir = 0; dir < 4; ++dir) {
-                                if (GetCon(s, dir) != RC_NOT_CONNECTED) {
+                                if (GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                                     int ax = x + GetDirOffsetX(dir);
                                     int ay = y + GetDirOffsetY(dir);
-                                    int ai = chf.cells[ax + ay * chf.width].index + GetCon(s, dir);
-                                    CompactSpan as = chf.spans[ai];
-                                    if (as.reg != region) {
+                                    int ai = chf.cellIndex[ax + ay * chf.width] + GetCon(chf, i, dir);
+                                    if (chf.spanReg[ai] != region) {
                                         border = true;
                                         break;
                                     }
@@ -1079,12 +1143,11 @@ public class RecastMeshDetail {
             head++;
             if (head >= RETRACT_SIZE) {
                 head = 0;
-                queue = queue.subList(RETRACT_SIZE * 3, queue.size());
+                queue.removeRange(0, RETRACT_SIZE * 3);
             }
 
-            CompactSpan cs = chf.spans[ci];
             for (int dir = 0; dir < 4; ++dir) {
-                if (GetCon(cs, dir) == RC_NOT_CONNECTED) {
+                if (GetCon(chf, ci, dir) == RC_NOT_CONNECTED) {
                     continue;
                 }
 
@@ -1101,10 +1164,9 @@ public class RecastMeshDetail {
                     continue;
                 }
 
-                int ai = chf.cells[ax + ay * chf.width].index + GetCon(cs, dir);
-                CompactSpan as = chf.spans[ai];
+                int ai = chf.cellIndex[ax + ay * chf.width] + GetCon(chf, ci, dir);
 
-                hp.data[hx + hy * hp.width] = as.y;
+                hp.data[hx + hy * hp.width] = chf.spanY[ai];
                 push3(queue, ax, ay, ai);
             }
         }
@@ -1117,28 +1179,35 @@ public class RecastMeshDetail {
     /// @see rcAllocPolyMeshDetail, rcPolyMesh, rcCompactHeightfield, rcPolyMeshDetail, rcConfig
     public static PolyMeshDetail buildPolyMeshDetail(Telemetry ctx, PolyMesh mesh, CompactHeightfield chf,
             float sampleDist, float sampleMaxError) {
+        return buildPolyMeshDetail(ctx, mesh, chf, sampleDist, sampleMaxError, new BuildArena(), Optional.empty());
+    }
+
+    /// Builds the detail meshes of bands of polygons concurrently on the executor. The detail mesh of a polygon
+    /// only depends on the polygon and the compact heightfield, and the results are stored in polygon order, so
+    /// the detail mesh is identical to the sequential build.
+    public static PolyMeshDetail buildPolyMeshDetail(Telemetry ctx, PolyMesh mesh, CompactHeightfield chf,
+            float sampleDist, float sampleMaxError, Executor executor) {
+        return buildPolyMeshDetail(ctx, mesh, chf, sampleDist, sampleMaxError, new BuildArena(), Optional.of(executor));
+    }
+
+    /// Builds the detail mesh with the work buffers of the arena, or in parallel on the executor with work buffers
+    /// per band of polygons if one is given.
+    public static PolyMeshDetail buildPolyMeshDetail(Telemetry ctx, PolyMesh mesh, CompactHeightfield chf,
+            float sampleDist, float sampleMaxError, BuildArena arena, Optional<Executor> executor) {
 
-        ctx.startTimer("POLYMESHDETAIL");
+        ctx.startTimer(BuildStage.POLYMESHDETAIL);
         if (mesh.nverts == 0 || mesh.npolys == 0) {
             return null;
         }
 
         PolyMeshDetail dmesh = new PolyMeshDetail();
         int nvp = mesh.nvp;
-        float cs = mesh.cs;
-        float ch = mesh.ch;
-        float[] orig = mesh.bmin;
-        int borderSize = mesh.borderSize;
         int heightSearchRadius = (int) Math.max(1, Math.ceil(mesh.maxEdgeError));
 
-        List<Integer> tris = new ArrayList<>(512);
-        float verts[] = new float[256 * 3];
-        HeightPatch hp = new HeightPatch();
         int nPolyVerts = 0;
         int maxhw = 0, maxhh = 0;
 
         int[] bounds = new int[mesh.npolys * 4];
-        float[] poly = new float[nvp * 3];
 
         // Find max size for a polygon area.
         for (int i = 0; i < mesh.npolys; ++i) {
@@ -1168,7 +1237,29 @@ public class RecastMeshDetail {
             maxhw = Math.max(maxhw, bounds[i * 4 + 1] - bounds[i * 4 + 0]);
             maxhh = Math.max(maxhh, bounds[i * 4 + 3] - bounds[i * 4 + 2]);
         }
-        hp.data = new int[maxhw * maxhh];
+        int patchSize = maxhw * maxhh;
+
+        // In parallel mode the detail meshes are built first, each band into its own output using scratch buffers
+        // of its own, and then stored in polygon order below. The buffers are dropped with the band, so a long-lived
+        // executor does not keep them.
+        DetailOutput[] outputs = null;
+        int[] parts = null;
+        if (executor.isPresent()) {
+            DetailOutput[] bandOutputs = outputs = new DetailOutput[mesh.npolys];
+            int[] bandParts = parts = new int[mesh.npolys * 4];
+            int bands = RecastParallel.bandCount(executor.get(), mesh.npolys, MIN_BAND_POLYS, 4);
+            RecastParallel.forEachBand(executor.get(), mesh.npolys, bands, (band, start, end) -> {
+                DetailBuffers buffers = new DetailBuffers(nvp, patchSize);
+                DetailOutput output = new DetailOutput();
+                for (int i = start; i < end; ++i) {
+                    int nverts = buildPolyDetail(ctx, mesh, chf, i, bounds, sampleDist, sampleMaxError, heightSearchRadius,
+                            buffers);
+                    output.add(buffers, nverts, bandParts, i);
+                    bandOutputs[i] = output;
+                }
+            });
+        }
+        DetailBuffers buffers = outputs == null ? arena.detailBuffers(nvp, patchSize) : null;
 
         dmesh.nmeshes = mesh.npolys;
         dmesh.nverts = 0;
@@ -1184,48 +1275,28 @@ public class RecastMeshDetail {
         dmesh.tris = new int[tcap * 4];
 
         for (int i = 0; i < mesh.npolys; ++i) {
-            int p = i * nvp * 2;
-
-            // Store polygon vertices for processing.
-            int npoly = 0;
-            for (int j = 0; j < nvp; ++j) {
-                if (mesh.polys[p + j] == RC_MESH_NULL_IDX) {
-                    break;
-                }
-                int v = mesh.polys[p + j] * 3;
-                poly[j * 3 + 0] = mesh.verts[v + 0] * cs;
-                poly[j * 3 + 1] = mesh.verts[v + 1] * ch;
-                poly[j * 3 + 2] = mesh.verts[v + 2] * cs;
-                npoly++;
-            }
-
-            // Get the height data from the area of the polygon.
-            hp.xmin = bounds[i * 4 + 0];
-            hp.ymin = bounds[i * 4 + 2];
-            hp.width = bounds[i * 4 + 1] - bounds[i * 4 + 0];
-            hp.height = bounds[i * 4 + 3] - bounds[i * 4 + 2];
-            getHeightData(ctx, chf, mesh.polys, p, npoly, mesh.verts, borderSize, hp, mesh.regs[i]);
-
-            // Build detail mesh.
-            int nverts = buildPolyDetail(ctx, poly, npoly, sampleDist, sampleMaxError, heightSearchRadius, chf, hp,
-                    verts, tris);
-
-            // Move detail verts to world space.
-            for (int j = 0; j < nverts; ++j) {
-                verts[j * 3 + 0] += orig[0];
-                verts[j * 3 + 1] += orig[1] + chf.ch; // Is this offset necessary? See
-                                                      // https://groups.google.com/d/msg/recastnavigation/UQFN6BGCcV0/-1Ny4koOBpkJ
-                verts[j * 3 + 2] += orig[2];
-            }
-            // Offset poly too, will be used to flag checking.
-            for (int j = 0; j < npoly; ++j) {
-                poly[j * 3 + 0] += orig[0];
-                poly[j * 3 + 1] += orig[1];
-                poly[j * 3 + 2] += orig[2];
+            float[] verts;
+            int vbase, nverts;
+            int[] tris;
+            int tbase, ntris;
+            if (outputs != null) {
+                verts = outputs[i].verts;
+                tris = outputs[i].tris;
+                vbase = parts[i * 4 + 0];
+                nverts = parts[i * 4 + 1];
+                tbase = parts[i * 4 + 2];
+                ntris = parts[i * 4 + 3];
+                outputs[i] = null;
+            } else {
+                nverts = buildPolyDetail(ctx, mesh, chf, i, bounds, sampleDist, sampleMaxError, heightSearchRadius, buffers);
+                verts = buffers.verts;
+                tris = buffers.tris;
+                vbase = 0;
+                tbase = 0;
+                ntris = buffers.ntris;
             }
 
             // Store detail submesh.
-            int ntris = tris.size() / 4;
 
             dmesh.meshes[i * 4 + 0] = dmesh.nverts;
             dmesh.meshes[i * 4 + 1] = nverts;
@@ -1244,12 +1315,8 @@ public class RecastMeshDetail {
                 }
                 dmesh.verts = newv;
             }
-            for (int j = 0; j < nverts; ++j) {
-                dmesh.verts[dmesh.nverts * 3 + 0] = verts[j * 3 + 0];
-                dmesh.verts[dmesh.nverts * 3 + 1] = verts[j * 3 + 1];
-                dmesh.verts[dmesh.nverts * 3 + 2] = verts[j * 3 + 2];
-                dmesh.nverts++;
-            }
+            System.arraycopy(verts, vbase * 3, dmesh.verts, dmesh.nverts * 3, nverts * 3);
+            dmesh.nverts += nverts;
 
             // Store triangles, allocate more memory if necessary.
             if (dmesh.ntris + ntris > tcap) {
@@ -1262,26 +1329,75 @@ public class RecastMeshDetail {
                 }
                 dmesh.tris = newt;
             }
-            for (int j = 0; j < ntris; ++j) {
-                int t = j * 4;
-                dmesh.tris[dmesh.ntris * 4 + 0] = tris.get(t + 0);
-                dmesh.tris[dmesh.ntris * 4 + 1] = tris.get(t + 1);
-                dmesh.tris[dmesh.ntris * 4 + 2] = tris.get(t + 2);
-                dmesh.tris[dmesh.ntris * 4 + 3] = tris.get(t + 3);
-                dmesh.ntris++;
-            }
+            System.arraycopy(tris, tbase * 4, dmesh.tris, dmesh.ntris * 4, ntris * 4);
+            dmesh.ntris += ntris;
         }
 
-        ctx.stopTimer("POLYMESHDETAIL");
+        ctx.stopTimer(BuildStage.POLYMESHDETAIL);
         return dmesh;
 
     }
 
+    /**
+     * Builds the detail mesh of polygon i into the buffers.
+     *
+     * @return the number of detail vertices, in world space
+     */
+    private static int buildPolyDetail(Telemetry ctx, PolyMesh mesh, CompactHeightfield chf, int i, int[] bounds,
+            float sampleDist, float sampleMaxError, int heightSearchRadius, DetailBuffers buffers) {
+        int nvp = mesh.nvp;
+        float cs = mesh.cs;
+        float ch = mesh.ch;
+        float[] orig = mesh.bmin;
+        float[] poly = buffers.poly;
+        float[] verts = buffers.verts;
+        HeightPatch hp = buffers.hp;
+        int p = i * nvp * 2;
+
+        // Store polygon vertices for processing.
+        int npoly = 0;
+        for (int j = 0; j < nvp; ++j) {
+            if (mesh.polys[p + j] == RC_MESH_NULL_IDX) {
+                break;
+            }
+            int v = mesh.polys[p + j] * 3;
+            poly[j * 3 + 0] = mesh.verts[v + 0] * cs;
+            poly[j * 3 + 1] = mesh.verts[v + 1] * ch;
+            poly[j * 3 + 2] = mesh.verts[v + 2] * cs;
+            npoly++;
+        }
+
+        // Get the height data from the area of the polygon.
+        hp.xmin = bounds[i * 4 + 0];
+        hp.ymin = bounds[i * 4 + 2];
+        hp.width = bounds[i * 4 + 1] - bounds[i * 4 + 0];
+        hp.height = bounds[i * 4 + 3] - bounds[i * 4 + 2];
+        getHeightData(ctx, chf, mesh.polys, p, npoly, mesh.verts, mesh.borderSize, hp, buffers.queue, mesh.regs[i]);
+
+        // Build detail mesh.
+        int nverts = buildPolyDetail(ctx, poly, npoly, sampleDist, sampleMaxError, heightSearchRadius, chf, buffers);
+
+        // Move detail verts to world space.
+        for (int j = 0; j < nverts; ++j) {
+            verts[j * 3 + 0] += orig[0];
+            verts[j * 3 + 1] += orig[1] + chf.ch; // Is this offset necessary? See
+                                                  // https://groups.google.com/d/msg/recastnavigation/UQFN6BGCcV0/-1Ny4koOBpkJ
+            verts[j * 3 + 2] += orig[2];
+        }
+        // Offset poly too, will be used to flag checking.
+        for (int j = 0; j < npoly; ++j) {
+            poly[j * 3 + 0] += orig[0];
+            poly[j * 3 + 1] += orig[1];
+            poly[j * 3 + 2] += orig[2];
+        }
+        return nverts;
+    }
+
     /// @see rcAllocPolyMeshDetail, rcPolyMeshDetail
     PolyMeshDetail mergePolyMeshDetails(Telemetry ctx, PolyMeshDetail[] meshes, int nmeshes) {
         PolyMeshDetail mesh = new PolyMeshDetail();
 
-        ctx.startTimer("MERGE_POLYMESHDETAIL");
+        ctx.startTimer(BuildStage.MERGE_POLYMESHDETAIL);
 
         int maxVerts = 0;
         int maxTris = 0;
@@ -1331,7 +1447,7 @@ public class RecastMeshDetail {
                 mesh.ntris++;
             }
         }
-        ctx.stopTimer("MERGE_POLYMESHDETAIL");
+        ctx.stopTimer(BuildStage.MERGE_POLYMESHDETAIL);
         return mesh;
     }
 
@@ -0,0 +1,73 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a build stage over consecutive bands of rows or polygons on an executor. The bands are disjoint, so stages that
+ * only write to their own band produce the same result as a sequential run.
+ */
+class RecastParallel {
+
+    interface Band {
+        void run(int band, int start, int end);
+    }
+
+    /**
+     * Number of bands to split count items into: a few bands per thread to balance uneven work, but never less than
+     * minBandSize items per band.
+     */
+    static int bandCount(Executor executor, int count, int minBandSize, int bandsPerThread) {
+        int parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(parallelism * bandsPerThread, count / minBandSize));
+    }
+
+    /**
+     * Splits [0, count) into the given number of bands of (almost) equal size, runs them on the executor and waits for
+     * all of them. The first failure is rethrown.
+     */
+    static void forEachBand(Executor executor, int count, int bands, Band task) {
+        if (bands <= 1) {
+            task.run(0, 0, count);
+            return;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[bands];
+        for (int b = 0; b < bands; b++) {
+            int band = b;
+            int start = (int) ((long) count * b / bands);
+            int end = (int) ((long) count * (b + 1) / bands);
+            futures[b] = CompletableFuture.runAsync(() -> task.run(band, start, end), executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -18,10 +18,31 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
+import static org.recast4j.recast.Heightfield.NULL_SPAN;
 import static org.recast4j.recast.RecastConstants.SPAN_MAX_HEIGHT;
 
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
 public class RecastRasterization {
 
+    /** Minimum number of heightfield rows rasterized by one band in a parallel build. */
+    private static final int MIN_BAND_ROWS = 32;
+
+    /**
+     * Scratch buffers of the triangle clipper, allocated once per rasterization call (or band) instead of per triangle.
+     */
+    private static class Scratch {
+        final float[] tmin = new float[3];
+        final float[] tmax = new float[3];
+        // Input, row, column and remainder polygons of at most 7 vertices each.
+        final float[] buf = new float[7 * 3 * 4];
+        final float[] d = new float[12];
+        // Vertex counts of the two polygons produced by dividePoly.
+        int m;
+        int n;
+    }
+
     /**
      * Check whether two bounding boxes overlap
      *
@@ -62,51 +83,51 @@ public class RecastRasterization {
      *            The area id of the span. [Limit: &lt;= WALKABLE_AREA)
      * @param flagMergeThreshold
      *            The merge theshold. [Limit: >= 0] [Units: vx]
-     * @see Heightfield, Span.
+     * @see Heightfield
      */
     public static void addSpan(Heightfield heightfield, int x, int y, int spanMin, int spanMax, int areaId,
             int flagMergeThreshold) {
 
         int idx = x + y * heightfield.width;
-
-        Span s = new Span();
-        s.smin = spanMin;
-        s.smax = spanMax;
-        s.area = areaId;
-        s.next = null;
+        int smin = spanMin;
+        int smax = spanMax;
+        int area = areaId;
 
         // Empty cell, add the first span.
-        if (heightfield.spans[idx] == null) {
-            heightfield.spans[idx] = s;
+        if (heightfield.spans[idx] == NULL_SPAN) {
+            heightfield.spans[idx] = heightfield.allocSpan(smin, smax, area, NULL_SPAN);
             return;
         }
-        Span prev = null;
-        Span cur = heightfield.spans[idx];
+        int prev = NULL_SPAN;
+        int cur = heightfield.spans[idx];
 
         // Insert and merge spans.
-        while (cur != null) {
-            if (cur.smin > s.smax) {
+        while (cur != NULL_SPAN) {
+            int curMin = heightfield.getSpanMin(cur);
+            int curMax = heightfield.getSpanMax(cur);
+            if (curMin > smax) {
                 // Current span is further than the new span, break.
                 break;
-            } else if (cur.smax < s.smin) {
+            } else if (curMax < smin) {
                 // Current span is before the new span advance.
                 prev = cur;
-                cur = cur.next;
+                cur = heightfield.getNextSpan(cur);
             } else {
                 // Merge spans.
-                if (cur.smin < s.smin)
-                    s.smin = cur.smin;
-                if (cur.smax > s.smax)
-                    s.smax = cur.smax;
+                if (curMin < smin)
+                    smin = curMin;
+                if (curMax > smax)
+                    smax = curMax;
 
                 // Merge flags.
-                if (Math.abs(s.smax - cur.smax) <= flagMergeThreshold)
-                    s.area = Math.max(s.area, cur.area);
+                if (Math.abs(smax - curMax) <= flagMergeThreshold)
+                    area = Math.max(area, heightfield.getSpanArea(cur));
 
                 // Remove current span.
-                Span next = cur.next;
-                if (prev != null)
-                    prev.next = next;
+                int next = heightfield.getNextSpan(cur);
+                heightfield.freeSpan(cur);
+                if (prev != NULL_SPAN)
+                    heightfield.setNextSpan(prev, next);
                 else
                     heightfield.spans[idx] = next;
                 cur = next;
@@ -114,12 +135,10 @@ public class RecastRasterization {
         }
 
         // Insert new span.
-        if (prev != null) {
-            s.next = prev.next;
-            prev.next = s;
+        if (prev != NULL_SPAN) {
+            heightfield.setNextSpan(prev, heightfield.allocSpan(smin, smax, area, heightfield.getNextSpan(prev)));
         } else {
-            s.next = heightfield.spans[idx];
-            heightfield.spans[idx] = s;
+            heightfield.spans[idx] = heightfield.allocSpan(smin, smax, area, heightfield.spans[idx]);
         }
     }
 
@@ -140,11 +159,12 @@ public class RecastRasterization {
      *            The offset along the specified axis
      * @param axis
      *            The separating axis
-     * @return The number of resulting polygon 1 and polygon 2 vertices
+     * @param scratch
+     *            Receives the number of resulting polygon 1 and polygon 2 vertices in m and n
      */
-    private static int[] dividePoly(float[] inVerts, int inVertsOffset, int inVertsCount, int outVerts1, int outVerts2, float axisOffset,
-            int axis) {
-        float d[] = new float[12];
+    private static void dividePoly(float[] inVerts, int inVertsOffset, int inVertsCount, int outVerts1, int outVerts2, float axisOffset,
+            int axis, Scratch scratch) {
+        float d[] = scratch.d;
         for (int i = 0; i < inVertsCount; ++i)
             d[i] = axisOffset - inVerts[inVertsOffset + i * 3 + axis];
 
@@ -185,7 +205,8 @@ public class RecastRasterization {
                 n++;
             }
         }
-        return new int[] { m, n };
+        scratch.m = m;
+        scratch.n = n;
     }
 
     /**
@@ -216,11 +237,26 @@ public class RecastRasterization {
      *            1 / cellHeight
      * @param flagMergeThreshold
      *            The threshold in which area flags will be merged
+     * @param scratch
+     *            Scratch buffers of the clipper
      */
     private static void rasterizeTri(float[] verts, int v0, int v1, int v2, int area, Heightfield hf, float[] hfBBMin,
-            float[] hfBBMax, float cellSize, float inverseCellSize, float inverseCellHeight, int flagMergeThreshold) {
+            float[] hfBBMax, float cellSize, float inverseCellSize, float inverseCellHeight, int flagMergeThreshold,
+            Scratch scratch) {
+        rasterizeTri(verts, v0, v1, v2, area, hf, 0, hf.height, hfBBMin, hfBBMax, cellSize, inverseCellSize,
+                inverseCellHeight, flagMergeThreshold, scratch);
+    }
+
+    /**
+     * Rasterizes a triangle into a band of rows of the heightfield grid. hf holds the rows [rowMin, rowMin +
+     * hf.height) of a grid that is gridHeight rows high. The triangle is clipped row by row from its first row as in a
+     * full rasterization, so the spans of the band are the same as the spans of the same rows in the full grid.
+     */
+    private static void rasterizeTri(float[] verts, int v0, int v1, int v2, int area, Heightfield hf, int rowMin,
+            int gridHeight, float[] hfBBMin, float[] hfBBMax, float cellSize, float inverseCellSize, float inverseCellHeight,
+            int flagMergeThreshold, Scratch scratch) {
 
-        float tmin[] = new float[3], tmax[] = new float[3];
+        float tmin[] = scratch.tmin, tmax[] = scratch.tmax;
         float by = hfBBMax[1] - hfBBMin[1];
 
         // Calculate the bounding box of the triangle.
@@ -240,13 +276,18 @@ public class RecastRasterization {
         int z1 = (int) ((tmax[2] - hfBBMin[2]) * inverseCellSize);
 
         int w = hf.width;
-        int h = hf.height;
+        int h = gridHeight;
         // use -1 rather than 0 to cut the polygon properly at the start of the tile
         z0 = RecastCommon.clamp(z0, -1, h - 1);
         z1 = RecastCommon.clamp(z1, 0, h - 1);
+        int rowMax = rowMin + hf.height - 1;
+        if (z0 > rowMax || z1 < rowMin) {
+            return;
+        }
+        z1 = Math.min(z1, rowMax);
 
         // Clip the triangle into all grid cells it touches.
-        float buf[] = new float[7 * 3 * 4];
+        float buf[] = scratch.buf;
         int in = 0;
         int inRow = 7 * 3;
         int p1 = inRow + 7 * 3;
@@ -260,9 +301,9 @@ public class RecastRasterization {
         for (int z = z0; z <= z1; ++z) {
             // Clip polygon to row. Store the remaining polygon as well
             float cellZ = hfBBMin[2] + z * cellSize;
-            int[] nvrowin = dividePoly(buf, in, nvIn, inRow, p1, cellZ + cellSize, 2);
-            nvRow = nvrowin[0];
-            nvIn = nvrowin[1];
+            dividePoly(buf, in, nvIn, inRow, p1, cellZ + cellSize, 2, scratch);
+            nvRow = scratch.m;
+            nvIn = scratch.n;
             {
                 int temp = in;
                 in = p1;
@@ -271,7 +312,7 @@ public class RecastRasterization {
             if (nvRow < 3)
                 continue;
 
-            if (z < 0) {
+            if (z < rowMin) {
                 continue;
             }
             // find the horizontal bounds in the row
@@ -293,9 +334,9 @@ public class RecastRasterization {
             for (int x = x0; x <= x1; ++x) {
                 // Clip polygon to column. store the remaining polygon as well
                 float cx = hfBBMin[0] + x * cellSize;
-                int[] nvnv2 = dividePoly(buf, inRow, nv2, p1, p2, cx + cellSize, 0);
-                nv = nvnv2[0];
-                nv2 = nvnv2[1];
+                dividePoly(buf, inRow, nv2, p1, p2, cx + cellSize, 0, scratch);
+                nv = scratch.m;
+                nv2 = scratch.n;
                 {
                     int temp = inRow;
                     inRow = p2;
@@ -331,7 +372,7 @@ public class RecastRasterization {
                 int spanMinCellIndex = RecastCommon.clamp((int) Math.floor(spanMin * inverseCellHeight), 0, SPAN_MAX_HEIGHT);
                 int spanMaxCellIndex = RecastCommon.clamp((int) Math.ceil(spanMax * inverseCellHeight), spanMinCellIndex + 1, SPAN_MAX_HEIGHT);
 
-                addSpan(hf, x, z, spanMinCellIndex, spanMaxCellIndex, area, flagMergeThreshold);
+                addSpan(hf, x, z - rowMin, spanMinCellIndex, spanMaxCellIndex, area, flagMergeThreshold);
             }
         }
     }
@@ -360,14 +401,14 @@ public class RecastRasterization {
     public static void rasterizeTriangle(Heightfield heightfield, float[] verts, int v0, int v1, int v2, int areaId,
             int flagMergeThreshold, Telemetry ctx) {
 
-        ctx.startTimer("RASTERIZE_TRIANGLES");
+        ctx.startTimer(BuildStage.RASTERIZE_TRIANGLES);
 
         float inverseCellSize = 1.0f / heightfield.cs;
         float inverseCellHeight = 1.0f / heightfield.ch;
         rasterizeTri(verts, v0, v1, v2, areaId, heightfield, heightfield.bmin, heightfield.bmax, heightfield.cs, inverseCellSize,
-                inverseCellHeight, flagMergeThreshold);
+                inverseCellHeight, flagMergeThreshold, new Scratch());
 
-        ctx.stopTimer("RASTERIZE_TRIANGLES");
+        ctx.stopTimer(BuildStage.RASTERIZE_TRIANGLES);
     }
 
     /**
@@ -391,19 +432,135 @@ public class RecastRasterization {
     public static void rasterizeTriangles(Heightfield heightfield, float[] verts, int[] tris, int[] areaIds, int numTris,
             int flagMergeThreshold, Telemetry ctx) {
 
-        ctx.startTimer("RASTERIZE_TRIANGLES");
+        ctx.startTimer(BuildStage.RASTERIZE_TRIANGLES);
 
         float inverseCellSize = 1.0f / heightfield.cs;
         float inverseCellHeight = 1.0f / heightfield.ch;
+        Scratch scratch = new Scratch();
         for (int triIndex = 0; triIndex < numTris; ++triIndex) {
             int v0 = tris[triIndex * 3 + 0];
             int v1 = tris[triIndex * 3 + 1];
             int v2 = tris[triIndex * 3 + 2];
             rasterizeTri(verts, v0, v1, v2, areaIds[triIndex], heightfield, heightfield.bmin, heightfield.bmax, heightfield.cs,
-                    inverseCellSize, inverseCellHeight, flagMergeThreshold);
+                    inverseCellSize, inverseCellHeight, flagMergeThreshold, scratch);
         }
 
-        ctx.stopTimer("RASTERIZE_TRIANGLES");
+        ctx.stopTimer(BuildStage.RASTERIZE_TRIANGLES);
+    }
+
+    /**
+     * Rasterizes an indexed triangle mesh like
+     * {@link #rasterizeTriangles(Heightfield, float[], int[], int[], int, int, Telemetry)}, split into bands of rows
+     * that are rasterized concurrently on the executor. The triangles are first binned into the bands they overlap, in
+     * their original order, so a band only visits its own triangles. Each band works on its own copy of its rows, which
+     * is copied back once all bands are done, so the result is identical to the sequential rasterization.
+     */
+    public static void rasterizeTriangles(Heightfield heightfield, float[] verts, int[] tris, int[] areaIds, int numTris,
+            int flagMergeThreshold, Telemetry ctx, Executor executor) {
+
+        ctx.startTimer(BuildStage.RASTERIZE_TRIANGLES);
+
+        float inverseCellSize = 1.0f / heightfield.cs;
+        float inverseCellHeight = 1.0f / heightfield.ch;
+        int bands = RecastParallel.bandCount(executor, heightfield.height, MIN_BAND_ROWS, 1);
+        if (bands <= 1) {
+            Scratch scratch = new Scratch();
+            for (int triIndex = 0; triIndex < numTris; ++triIndex) {
+                rasterizeTri(verts, tris[triIndex * 3], tris[triIndex * 3 + 1], tris[triIndex * 3 + 2],
+                        areaIds[triIndex], heightfield, heightfield.bmin, heightfield.bmax, heightfield.cs,
+                        inverseCellSize, inverseCellHeight, flagMergeThreshold, scratch);
+            }
+            ctx.stopTimer(BuildStage.RASTERIZE_TRIANGLES);
+            return;
+        }
+        int[] binStart = new int[bands + 1];
+        int[] bins = binTriangles(heightfield, verts, tris, numTris, inverseCellSize, bands, binStart);
+        Heightfield[] bandFields = new Heightfield[bands];
+        RecastParallel.forEachBand(executor, heightfield.height, bands, (band, rowMin, rowEnd) -> {
+            // The span pool is not thread safe, every band rasterizes into a heightfield of its own.
+            Heightfield hf = new Heightfield(heightfield.width, rowEnd - rowMin, heightfield.bmin, heightfield.bmax,
+                    heightfield.cs, heightfield.ch, heightfield.borderSize);
+            hf.copyRows(heightfield, rowMin, 0, hf.height);
+            Scratch scratch = new Scratch();
+            for (int i = binStart[band]; i < binStart[band + 1]; ++i) {
+                int triIndex = bins[i];
+                rasterizeTri(verts, tris[triIndex * 3], tris[triIndex * 3 + 1], tris[triIndex * 3 + 2],
+                        areaIds[triIndex], hf, rowMin, heightfield.height, heightfield.bmin, heightfield.bmax,
+                        heightfield.cs, inverseCellSize, inverseCellHeight, flagMergeThreshold, scratch);
+            }
+            bandFields[band] = hf;
+        });
+        for (int band = 0, rowMin = 0; band < bands; rowMin += bandFields[band].height, ++band) {
+            heightfield.copyRows(bandFields[band], 0, rowMin, bandFields[band].height);
+        }
+
+        ctx.stopTimer(BuildStage.RASTERIZE_TRIANGLES);
+    }
+
+    /**
+     * Sorts the triangles into the bands of rows their footprints overlap, using the same bounds test as rasterizeTri.
+     * The triangles of band b are bins[binStart[b] .. binStart[b + 1]), in ascending order.
+     */
+    private static int[] binTriangles(Heightfield heightfield, float[] verts, int[] tris, int numTris,
+            float inverseCellSize, int bands, int[] binStart) {
+        float[] bmin = heightfield.bmin;
+        float[] bmax = heightfield.bmax;
+        int h = heightfield.height;
+        // First and last band of each triangle, -1 if it misses the heightfield.
+        int[] triBands = new int[numTris * 2];
+        float[] tmin = new float[3];
+        float[] tmax = new float[3];
+        for (int triIndex = 0; triIndex < numTris; ++triIndex) {
+            RecastVectors.copy(tmin, verts, tris[triIndex * 3] * 3);
+            RecastVectors.copy(tmax, verts, tris[triIndex * 3] * 3);
+            for (int j = 1; j < 3; j++) {
+                RecastVectors.min(tmin, verts, tris[triIndex * 3 + j] * 3);
+                RecastVectors.max(tmax, verts, tris[triIndex * 3 + j] * 3);
+            }
+            triBands[triIndex * 2] = -1;
+            if (!overlapBounds(bmin, bmax, tmin, tmax)) {
+                continue;
+            }
+            int z0 = RecastCommon.clamp((int) ((tmin[2] - bmin[2]) * inverseCellSize), 0, h - 1);
+            int z1 = RecastCommon.clamp((int) ((tmax[2] - bmin[2]) * inverseCellSize), 0, h - 1);
+            int b0 = bandOfRow(z0, h, bands);
+            int b1 = bandOfRow(z1, h, bands);
+            triBands[triIndex * 2] = b0;
+            triBands[triIndex * 2 + 1] = b1;
+            for (int b = b0; b <= b1; b++) {
+                binStart[b + 1]++;
+            }
+        }
+        for (int b = 0; b < bands; b++) {
+            binStart[b + 1] += binStart[b];
+        }
+        int[] bins = new int[binStart[bands]];
+        int[] next = Arrays.copyOf(binStart, bands);
+        for (int triIndex = 0; triIndex < numTris; ++triIndex) {
+            int b0 = triBands[triIndex * 2];
+            if (b0 < 0) {
+                continue;
+            }
+            for (int b = b0; b <= triBands[triIndex * 2 + 1]; b++) {
+                bins[next[b]++] = triIndex;
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * Returns the band containing the row, with bands split as in {@link RecastParallel#forEachBand}.
+     */
+    private static int bandOfRow(int row, int count, int bands) {
+        int band = (int) ((long) row * bands / count);
+        // The band boundaries are rounded down, step forward if the row is past the end of the estimated band.
+        while (band < bands - 1 && row >= (int) ((long) count * (band + 1) / bands)) {
+            band++;
+        }
+        while (band > 0 && row < (int) ((long) count * band / bands)) {
+            band--;
+        }
+        return band;
     }
 
     /**
@@ -424,18 +581,19 @@ public class RecastRasterization {
      */
     public static void rasterizeTriangles(Heightfield heightfield, float[] verts, int[] areaIds, int numTris,
             int flagMergeThreshold, Telemetry ctx) {
-        ctx.startTimer("RASTERIZE_TRIANGLES");
+        ctx.startTimer(BuildStage.RASTERIZE_TRIANGLES);
 
         float inverseCellSize = 1.0f / heightfield.cs;
         float inverseCellHeight = 1.0f / heightfield.ch;
+        Scratch scratch = new Scratch();
         for (int triIndex = 0; triIndex < numTris; ++triIndex) {
             int v0 = (triIndex * 3 + 0);
             int v1 = (triIndex * 3 + 1);
             int v2 = (triIndex * 3 + 2);
             rasterizeTri(verts, v0, v1, v2, areaIds[triIndex], heightfield, heightfield.bmin, heightfield.bmax, heightfield.cs,
-                    inverseCellSize, inverseCellHeight, flagMergeThreshold);
+                    inverseCellSize, inverseCellHeight, flagMergeThreshold, scratch);
         }
-        ctx.stopTimer("RASTERIZE_TRIANGLES");
+        ctx.stopTimer(BuildStage.RASTERIZE_TRIANGLES);
     }
 
 }
@@ -22,14 +22,24 @@ import static org.recast4j.recast.RecastConstants.RC_BORDER_REG;
 import static org.recast4j.recast.RecastConstants.RC_NOT_CONNECTED;
 import static org.recast4j.recast.RecastConstants.RC_NULL_AREA;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 
 public class RecastRegion {
 
     static final int RC_NULL_NEI = 0xffff;
 
+    /** Minimum number of rows swept by one band in a parallel build. */
+    private static final int MIN_BAND_ROWS = 16;
+
+    /**
+     * Size of the tiles of the parallel distance field passes. The rows must not outnumber the columns, see
+     * {@link #distanceWavefront}.
+     */
+    private static final int DISTANCE_TILE_ROWS = 32;
+    private static final int DISTANCE_TILE_COLS = 128;
+
     static class SweepSpan {
         int rid; // row id
         int id; // region id
@@ -38,29 +48,79 @@ public class RecastRegion {
     }
 
     public static int calculateDistanceField(CompactHeightfield chf, int[] src) {
-        int maxDist;
         int w = chf.width;
         int h = chf.height;
 
+        // Init distance and mark boundary cells.
+        markDistanceBoundaries(chf, src, 0, h);
+
+        // Pass 1
+        distancePass1(chf, src, 0, h, 0, w, 0);
+
+        // Pass 2
+        distancePass2(chf, src, 0, h, 0, w, 0);
+
+        return maxDistance(src, 0, chf.spanCount);
+    }
+
+    /**
+     * Parallel version of {@link #calculateDistanceField(CompactHeightfield, int[])} with the same result. Boundary
+     * marking runs on row bands. The two chamfer passes run as a wavefront of tiles: each cell only depends on cells
+     * before it in sweep order, and tiles on the same anti-diagonal do not depend on each other.
+     */
+    public static int calculateDistanceField(CompactHeightfield chf, int[] src, Executor executor) {
+        int h = chf.height;
+        int bands = RecastParallel.bandCount(executor, h, MIN_BAND_ROWS, 4);
+        RecastParallel.forEachBand(executor, h, bands, (band, y0, y1) -> markDistanceBoundaries(chf, src, y0, y1));
+
+        distanceWavefront(chf, src, false, executor);
+        distanceWavefront(chf, src, true, executor);
+
+        int[] maxDist = new int[bands];
+        RecastParallel.forEachBand(executor, h, bands, (band, y0, y1) -> {
+            int d = 0;
+            for (int c = y0 * chf.width, nc = y1 * chf.width; c < nc; ++c) {
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                    d = Math.max(src[i], d);
+                }
+            }
+            maxDist[band] = d;
+        });
+        return maxDistance(maxDist, 0, bands);
+    }
+
+    private static int maxDistance(int[] src, int first, int last) {
+        int maxDist = 0;
+        for (int i = first; i < last; ++i) {
+            maxDist = Math.max(src[i], maxDist);
+        }
+        return maxDist;
+    }
+
+    /** Sets the distance of the spans in rows [y0, y1) to zero at area boundaries and to 0xffff elsewhere. */
+    private static void markDistanceBoundaries(CompactHeightfield chf, int[] src, int y0, int y1) {
+        int w = chf.width;
+
         // Init distance and points.
-        for (int i = 0; i < chf.spanCount; ++i) {
-            src[i] = 0xffff;
+        for (int c = y0 * w, nc = y1 * w; c < nc; ++c) {
+            for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                src[i] = 0xffff;
+            }
         }
 
         // Mark boundary cells.
-        for (int y = 0; y < h; ++y) {
+        for (int y = y0; y < y1; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     int area = chf.areas[i];
 
                     int nc = 0;
                     for (int dir = 0; dir < 4; ++dir) {
-                        if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                             int ax = x + RecastCommon.GetDirOffsetX(dir);
                             int ay = y + RecastCommon.GetDirOffsetY(dir);
-                            int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, dir);
+                            int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, dir);
                             if (area == chf.areas[ai]) {
                                 nc++;
                             }
@@ -72,49 +132,53 @@ public class RecastRegion {
                 }
             }
         }
+    }
 
-        // Pass 1
-        for (int y = 0; y < h; ++y) {
-            for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+    /**
+     * Forward chamfer pass over the rows [y0, y1), top to bottom and left to right. Row y covers the cells [x0, x1)
+     * shifted left by skew * (y - y0), clipped to the field.
+     */
+    private static void distancePass1(CompactHeightfield chf, int[] src, int y0, int y1, int x0, int x1, int skew) {
+        int w = chf.width;
+        for (int y = y0; y < y1; ++y) {
+            int shift = skew * (y - y0);
+            for (int x = Math.max(0, x0 - shift), nx = Math.min(w, x1 - shift); x < nx; ++x) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
 
-                    if (RecastCommon.GetCon(s, 0) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 0) != RC_NOT_CONNECTED) {
                         // (-1,0)
                         int ax = x + RecastCommon.GetDirOffsetX(0);
                         int ay = y + RecastCommon.GetDirOffsetY(0);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 0);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 0);
                         if (src[ai] + 2 < src[i]) {
                             src[i] = src[ai] + 2;
                         }
 
                         // (-1,-1)
-                        if (RecastCommon.GetCon(as, 3) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 3) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(3);
                             int aay = ay + RecastCommon.GetDirOffsetY(3);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 3);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 3);
                             if (src[aai] + 3 < src[i]) {
                                 src[i] = src[aai] + 3;
                             }
                         }
                     }
-                    if (RecastCommon.GetCon(s, 3) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 3) != RC_NOT_CONNECTED) {
                         // (0,-1)
                         int ax = x + RecastCommon.GetDirOffsetX(3);
                         int ay = y + RecastCommon.GetDirOffsetY(3);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 3);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 3);
                         if (src[ai] + 2 < src[i]) {
                             src[i] = src[ai] + 2;
                         }
 
                         // (1,-1)
-                        if (RecastCommon.GetCon(as, 2) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 2) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(2);
                             int aay = ay + RecastCommon.GetDirOffsetY(2);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 2);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 2);
                             if (src[aai] + 3 < src[i]) {
                                 src[i] = src[aai] + 3;
                             }
@@ -123,49 +187,53 @@ public class RecastRegion {
                 }
             }
         }
+    }
 
-        // Pass 2
-        for (int y = h - 1; y >= 0; --y) {
-            for (int x = w - 1; x >= 0; --x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+    /**
+     * Backward chamfer pass over the rows [y0, y1), bottom to top and right to left. Row y covers the cells [x0, x1)
+     * shifted right by skew * (y1 - 1 - y), clipped to the field.
+     */
+    private static void distancePass2(CompactHeightfield chf, int[] src, int y0, int y1, int x0, int x1, int skew) {
+        int w = chf.width;
+        for (int y = y1 - 1; y >= y0; --y) {
+            int shift = skew * (y1 - 1 - y);
+            for (int x = Math.min(w, x1 + shift) - 1, nx = Math.max(0, x0 + shift); x >= nx; --x) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
 
-                    if (RecastCommon.GetCon(s, 2) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 2) != RC_NOT_CONNECTED) {
                         // (1,0)
                         int ax = x + RecastCommon.GetDirOffsetX(2);
                         int ay = y + RecastCommon.GetDirOffsetY(2);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 2);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 2);
                         if (src[ai] + 2 < src[i]) {
                             src[i] = src[ai] + 2;
                         }
 
                         // (1,1)
-                        if (RecastCommon.GetCon(as, 1) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 1) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(1);
                             int aay = ay + RecastCommon.GetDirOffsetY(1);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 1);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 1);
                             if (src[aai] + 3 < src[i]) {
                                 src[i] = src[aai] + 3;
                             }
                         }
                     }
-                    if (RecastCommon.GetCon(s, 1) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 1) != RC_NOT_CONNECTED) {
                         // (0,1)
                         int ax = x + RecastCommon.GetDirOffsetX(1);
                         int ay = y + RecastCommon.GetDirOffsetY(1);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 1);
-                        CompactSpan as = chf.spans[ai];
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 1);
                         if (src[ai] + 2 < src[i]) {
                             src[i] = src[ai] + 2;
                         }
 
                         // (-1,1)
-                        if (RecastCommon.GetCon(as, 0) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, ai, 0) != RC_NOT_CONNECTED) {
                             int aax = ax + RecastCommon.GetDirOffsetX(0);
                             int aay = ay + RecastCommon.GetDirOffsetY(0);
-                            int aai = chf.cells[aax + aay * w].index + RecastCommon.GetCon(as, 0);
+                            int aai = chf.cellIndex[aax + aay * w] + RecastCommon.GetCon(chf, ai, 0);
                             if (src[aai] + 3 < src[i]) {
                                 src[i] = src[aai] + 3;
                             }
@@ -174,27 +242,51 @@ public class RecastRegion {
                 }
             }
         }
+    }
 
-        maxDist = 0;
-        for (int i = 0; i < chf.spanCount; ++i) {
-            maxDist = Math.max(src[i], maxDist);
+    /**
+     * Runs one chamfer pass as a wavefront of tiles. Coordinates are mirrored for the backward pass, so in both
+     * passes a cell reads its left neighbour and three cells of the row above. Each row of a tile is shifted one
+     * column left of the row above it. Tile (ty, tx) then only reads tiles (ty, tx - 1), (ty - 1, tx) and
+     * (ty - 1, tx + 1), and all tiles with the same 2 * ty + tx can run at once.
+     */
+    private static void distanceWavefront(CompactHeightfield chf, int[] src, boolean backward, Executor executor) {
+        int w = chf.width;
+        int h = chf.height;
+        int nty = (h + DISTANCE_TILE_ROWS - 1) / DISTANCE_TILE_ROWS;
+        int ntx = (w + DISTANCE_TILE_ROWS - 1 + DISTANCE_TILE_COLS - 1) / DISTANCE_TILE_COLS;
+        for (int step = 0, steps = 2 * (nty - 1) + ntx; step < steps; ++step) {
+            int t = step;
+            int ty0 = Math.max(0, (t - ntx + 2) / 2);
+            int ty1 = Math.min(nty - 1, t / 2);
+            RecastParallel.forEachBand(executor, ty1 - ty0 + 1, ty1 - ty0 + 1, (band, start, end) -> {
+                for (int k = start; k < end; ++k) {
+                    int ty = ty0 + k;
+                    int tx = t - 2 * ty;
+                    int y0 = ty * DISTANCE_TILE_ROWS;
+                    int y1 = Math.min(h, y0 + DISTANCE_TILE_ROWS);
+                    int x0 = tx * DISTANCE_TILE_COLS;
+                    int x1 = x0 + DISTANCE_TILE_COLS;
+                    if (backward) {
+                        distancePass2(chf, src, h - y1, h - y0, w - x1, w - x0, 1);
+                    } else {
+                        distancePass1(chf, src, y0, y1, x0, x1, 1);
+                    }
+                }
+            });
         }
-
-        return maxDist;
     }
 
-    private static int[] boxBlur(CompactHeightfield chf, int thr, int[] src) {
+    /** Blurs the distances of the spans in rows [y0, y1) from src into dst. */
+    private static void boxBlur(CompactHeightfield chf, int thr, int[] src, int[] dst, int y0, int y1) {
         int w = chf.width;
-        int h = chf.height;
-        int[] dst = new int[chf.spanCount];
 
         thr *= 2;
 
-        for (int y = 0; y < h; ++y) {
+        for (int y = y0; y < y1; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     int cd = src[i];
                     if (cd <= thr) {
                         dst[i] = cd;
@@ -203,18 +295,17 @@ public class RecastRegion {
 
                     int d = cd;
                     for (int dir = 0; dir < 4; ++dir) {
-                        if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                             int ax = x + RecastCommon.GetDirOffsetX(dir);
                             int ay = y + RecastCommon.GetDirOffsetY(dir);
-                            int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, dir);
+                            int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, dir);
                             d += src[ai];
 
-                            CompactSpan as = chf.spans[ai];
                             int dir2 = (dir + 1) & 0x3;
-                            if (RecastCommon.GetCon(as, dir2) != RC_NOT_CONNECTED) {
+                            if (RecastCommon.GetCon(chf, ai, dir2) != RC_NOT_CONNECTED) {
                                 int ax2 = ax + RecastCommon.GetDirOffsetX(dir2);
                                 int ay2 = ay + RecastCommon.GetDirOffsetY(dir2);
-                                int ai2 = chf.cells[ax2 + ay2 * w].index + RecastCommon.GetCon(as, dir2);
+                                int ai2 = chf.cellIndex[ax2 + ay2 * w] + RecastCommon.GetCon(chf, ai, dir2);
                                 d += src[ai2];
                             } else {
                                 d += cd;
@@ -227,19 +318,16 @@ public class RecastRegion {
                 }
             }
         }
-        return dst;
     }
 
-    private static boolean floodRegion(int x, int y, int i, int level, int r, CompactHeightfield chf, int[] srcReg,
-            int[] srcDist, List<Integer> stack) {
+    private static boolean floodRegion(int i, int level, int r, CompactHeightfield chf, int[] srcReg, int[] srcDist,
+            int[] spanCell, IntArray stack) {
         int w = chf.width;
 
         int area = chf.areas[i];
 
         // Flood fill mark region.
         stack.clear();
-        stack.add(x);
-        stack.add(y);
         stack.add(i);
         srcReg[i] = r;
         srcDist[i] = 0;
@@ -248,20 +336,16 @@ public class RecastRegion {
         int count = 0;
 
         while (stack.size() > 0) {
-            int ci = stack.remove(stack.size() - 1);
-            int cy = stack.remove(stack.size() - 1);
-            int cx = stack.remove(stack.size() - 1);
-
-            CompactSpan cs = chf.spans[ci];
+            int ci = stack.pop();
+            int cc = spanCell[ci];
 
             // Check if any of the neighbours already have a valid region set.
             int ar = 0;
             for (int dir = 0; dir < 4; ++dir) {
                 // 8 connected
-                if (RecastCommon.GetCon(cs, dir) != RC_NOT_CONNECTED) {
-                    int ax = cx + RecastCommon.GetDirOffsetX(dir);
-                    int ay = cy + RecastCommon.GetDirOffsetY(dir);
-                    int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(cs, dir);
+                if (RecastCommon.GetCon(chf, ci, dir) != RC_NOT_CONNECTED) {
+                    int ac = cc + RecastCommon.GetDirOffsetX(dir) + RecastCommon.GetDirOffsetY(dir) * w;
+                    int ai = chf.cellIndex[ac] + RecastCommon.GetCon(chf, ci, dir);
                     if (chf.areas[ai] != area) {
                         continue;
                     }
@@ -274,13 +358,10 @@ public class RecastRegion {
                         break;
                     }
 
-                    CompactSpan as = chf.spans[ai];
-
                     int dir2 = (dir + 1) & 0x3;
-                    if (RecastCommon.GetCon(as, dir2) != RC_NOT_CONNECTED) {
-                        int ax2 = ax + RecastCommon.GetDirOffsetX(dir2);
-                        int ay2 = ay + RecastCommon.GetDirOffsetY(dir2);
-                        int ai2 = chf.cells[ax2 + ay2 * w].index + RecastCommon.GetCon(as, dir2);
+                    if (RecastCommon.GetCon(chf, ai, dir2) != RC_NOT_CONNECTED) {
+                        int ac2 = ac + RecastCommon.GetDirOffsetX(dir2) + RecastCommon.GetDirOffsetY(dir2) * w;
+                        int ai2 = chf.cellIndex[ac2] + RecastCommon.GetCon(chf, ai, dir2);
                         if (chf.areas[ai2] != area) {
                             continue;
                         }
@@ -301,18 +382,15 @@ public class RecastRegion {
 
             // Expand neighbours.
             for (int dir = 0; dir < 4; ++dir) {
-                if (RecastCommon.GetCon(cs, dir) != RC_NOT_CONNECTED) {
-                    int ax = cx + RecastCommon.GetDirOffsetX(dir);
-                    int ay = cy + RecastCommon.GetDirOffsetY(dir);
-                    int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(cs, dir);
+                if (RecastCommon.GetCon(chf, ci, dir) != RC_NOT_CONNECTED) {
+                    int ac = cc + RecastCommon.GetDirOffsetX(dir) + RecastCommon.GetDirOffsetY(dir) * w;
+                    int ai = chf.cellIndex[ac] + RecastCommon.GetCon(chf, ci, dir);
                     if (chf.areas[ai] != area) {
                         continue;
                     }
                     if (chf.dist[ai] >= lev && srcReg[ai] == 0) {
                         srcReg[ai] = r;
                         srcDist[ai] = 0;
-                        stack.add(ax);
-                        stack.add(ay);
                         stack.add(ai);
                     }
                 }
@@ -322,63 +400,32 @@ public class RecastRegion {
         return count > 0;
     }
 
-    private static int[] expandRegions(int maxIter, int level, CompactHeightfield chf, int[] srcReg, int[] srcDist,
-            List<Integer> stack, boolean fillStack) {
+    /**
+     * Grows the existing regions into the spans of the frontier, one ring per iteration. Each iteration reads the
+     * region state left by the previous one and the new assignments are buffered in dirty, so the result does not
+     * depend on the frontier order. Assigned spans are compacted out of the frontier, keeping the order of the rest.
+     *
+     * @return the number of spans left in the frontier
+     */
+    private static int expandRegions(int maxIter, int level, CompactHeightfield chf, int[] srcReg, int[] srcDist,
+            int[] spanCell, int[] frontier, int n, int[] dirty) {
         int w = chf.width;
-        int h = chf.height;
 
-        if (fillStack) {
-            // Find cells revealed by the raised level.
-            stack.clear();
-            for (int y = 0; y < h; ++y) {
-                for (int x = 0; x < w; ++x) {
-                    CompactCell c = chf.cells[x + y * w];
-                    for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                        if (chf.dist[i] >= level && srcReg[i] == 0 && chf.areas[i] != RC_NULL_AREA) {
-                            stack.add(x);
-                            stack.add(y);
-                            stack.add(i);
-                        }
-                    }
-                }
-            }
-        } else // use cells in the input stack
-        {
-            // mark all cells which already have a region
-            for (int j = 0; j < stack.size(); j += 3) {
-                int i = stack.get(j + 2);
-                if (srcReg[i] != 0) {
-                    stack.set(j + 2, -1);
-                }
-            }
-        }
-
-        List<Integer> dirtyEntries = new ArrayList<>();
         int iter = 0;
-        while (stack.size() > 0) {
-            int failed = 0;
-            dirtyEntries.clear();
-
-            for (int j = 0; j < stack.size(); j += 3) {
-                int x = stack.get(j + 0);
-                int y = stack.get(j + 1);
-                int i = stack.get(j + 2);
-                if (i < 0) {
-                    failed++;
-                    continue;
-                }
-
-                int r = srcReg[i];
+        while (n > 0) {
+            int ndirty = 0;
+            for (int j = 0; j < n; ++j) {
+                int i = frontier[j];
+                int c = spanCell[i];
+                int r = 0;
                 int d2 = 0xffff;
                 int area = chf.areas[i];
-                CompactSpan s = chf.spans[i];
                 for (int dir = 0; dir < 4; ++dir) {
-                    if (RecastCommon.GetCon(s, dir) == RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, dir) == RC_NOT_CONNECTED) {
                         continue;
                     }
-                    int ax = x + RecastCommon.GetDirOffsetX(dir);
-                    int ay = y + RecastCommon.GetDirOffsetY(dir);
-                    int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, dir);
+                    int ac = c + RecastCommon.GetDirOffsetX(dir) + RecastCommon.GetDirOffsetY(dir) * w;
+                    int ai = chf.cellIndex[ac] + RecastCommon.GetCon(chf, i, dir);
                     if (chf.areas[ai] != area) {
                         continue;
                     }
@@ -390,25 +437,22 @@ public class RecastRegion {
                     }
                 }
                 if (r != 0) {
-                    stack.set(j + 2, -1); // mark as used
-                    dirtyEntries.add(i);
-                    dirtyEntries.add(r);
-                    dirtyEntries.add(d2);
-                } else {
-                    failed++;
+                    dirty[ndirty++] = j;
+                    dirty[ndirty++] = r;
+                    dirty[ndirty++] = d2;
                 }
             }
-
-            // Copy entries that differ between src and dst to keep them in sync.
-            for (int i = 0; i < dirtyEntries.size(); i += 3) {
-                int idx = dirtyEntries.get(i);
-                srcReg[idx] = dirtyEntries.get(i + 1);
-                srcDist[idx] = dirtyEntries.get(i + 2);
+            if (ndirty == 0) {
+                break;
             }
 
-            if (failed * 3 == stack.size()) {
-                break;
+            // Copy entries that differ between src and dst to keep them in sync.
+            for (int k = 0; k < ndirty; k += 3) {
+                int i = frontier[dirty[k]];
+                srcReg[i] = dirty[k + 1];
+                srcDist[i] = dirty[k + 2];
             }
+            n = retainUnassigned(frontier, n, srcReg);
 
             if (level > 0) {
                 ++iter;
@@ -418,56 +462,31 @@ public class RecastRegion {
             }
         }
 
-        return srcReg;
+        return n;
     }
 
-    private static void sortCellsByLevel(int startLevel, CompactHeightfield chf, int[] srcReg, int nbStacks,
-            List<List<Integer>> stacks, int loglevelsPerStack) // the levels per stack (2 in our case) as a bit shift
-    {
-        int w = chf.width;
-        int h = chf.height;
-        startLevel = startLevel >> loglevelsPerStack;
-
-        for (int j = 0; j < nbStacks; ++j) {
-            stacks.get(j).clear();
-        }
-
-        // put all cells in the level range into the appropriate stacks
-        for (int y = 0; y < h; ++y) {
-            for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    if (chf.areas[i] == RC_NULL_AREA || srcReg[i] != 0) {
-                        continue;
-                    }
-
-                    int level = chf.dist[i] >> loglevelsPerStack;
-                    int sId = startLevel - level;
-                    if (sId >= nbStacks) {
-                        continue;
-                    }
-                    if (sId < 0) {
-                        sId = 0;
-                    }
-
-                    stacks.get(sId).add(x);
-                    stacks.get(sId).add(y);
-                    stacks.get(sId).add(i);
-                }
+    /** Removes the spans that got a region from the first n entries of frontier and returns the new count. */
+    private static int retainUnassigned(int[] frontier, int n, int[] srcReg) {
+        int m = 0;
+        for (int j = 0; j < n; ++j) {
+            int i = frontier[j];
+            if (srcReg[i] == 0) {
+                frontier[m++] = i;
             }
         }
+        return m;
     }
 
-    private static void appendStacks(List<Integer> srcStack, List<Integer> dstStack, int[] srcReg) {
-        for (int j = 0; j < srcStack.size(); j += 3) {
-            int i = srcStack.get(j + 2);
-            if ((i < 0) || (srcReg[i] != 0)) {
-                continue;
+    /** Appends the still unassigned spans of buckets [from, to) to dst at n and returns the new count. */
+    private static int appendBuckets(int[] bucketStart, int[] bucketSpans, int from, int to, int[] srcReg, int[] dst,
+            int n) {
+        for (int j = bucketStart[from], nj = bucketStart[to]; j < nj; ++j) {
+            int i = bucketSpans[j];
+            if (srcReg[i] == 0) {
+                dst[n++] = i;
             }
-            dstStack.add(srcStack.get(j));
-            dstStack.add(srcStack.get(j + 1));
-            dstStack.add(srcStack.get(j + 2));
         }
+        return n;
     }
 
     static class Region {
@@ -479,14 +498,14 @@ public class RecastRegion {
         boolean overlap;
         boolean connectsToBorder;
         int ymin, ymax;
-        List<Integer> connections;
-        List<Integer> floors;
+        IntArray connections;
+        IntArray floors;
 
         Region(int i) {
             id = i;
             ymin = 0xFFFF;
-            connections = new ArrayList<>();
-            floors = new ArrayList<>();
+            connections = new IntArray();
+            floors = new IntArray();
         }
 
     }
@@ -553,8 +572,9 @@ public class RecastRegion {
         int bid = regb.id;
 
         // Duplicate current neighbourhood.
-        List<Integer> acon = new ArrayList<>(rega.connections);
-        List<Integer> bcon = regb.connections;
+        IntArray acon = new IntArray(rega.connections.size());
+        acon.addAll(rega.connections);
+        IntArray bcon = regb.connections;
 
         // Find insertion point on A.
         int insa = -1;
@@ -609,12 +629,11 @@ public class RecastRegion {
     }
 
     private static boolean isSolidEdge(CompactHeightfield chf, int[] srcReg, int x, int y, int i, int dir) {
-        CompactSpan s = chf.spans[i];
         int r = 0;
-        if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
             int ax = x + RecastCommon.GetDirOffsetX(dir);
             int ay = y + RecastCommon.GetDirOffsetY(dir);
-            int ai = chf.cells[ax + ay * chf.width].index + RecastCommon.GetCon(s, dir);
+            int ai = chf.cellIndex[ax + ay * chf.width] + RecastCommon.GetCon(chf, i, dir);
             r = srcReg[ai];
         }
         if (r == srcReg[i]) {
@@ -624,31 +643,29 @@ public class RecastRegion {
     }
 
     private static void walkContour(int x, int y, int i, int dir, CompactHeightfield chf, int[] srcReg,
-            List<Integer> cont) {
+            IntArray cont) {
         int startDir = dir;
         int starti = i;
 
-        CompactSpan ss = chf.spans[i];
         int curReg = 0;
-        if (RecastCommon.GetCon(ss, dir) != RC_NOT_CONNECTED) {
+        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
             int ax = x + RecastCommon.GetDirOffsetX(dir);
             int ay = y + RecastCommon.GetDirOffsetY(dir);
-            int ai = chf.cells[ax + ay * chf.width].index + RecastCommon.GetCon(ss, dir);
+            int ai = chf.cellIndex[ax + ay * chf.width] + RecastCommon.GetCon(chf, i, dir);
             curReg = srcReg[ai];
         }
         cont.add(curReg);
 
         int iter = 0;
         while (++iter < 40000) {
-            CompactSpan s = chf.spans[i];
 
             if (isSolidEdge(chf, srcReg, x, y, i, dir)) {
                 // Choose the edge corner
                 int r = 0;
-                if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                     int ax = x + RecastCommon.GetDirOffsetX(dir);
                     int ay = y + RecastCommon.GetDirOffsetY(dir);
-                    int ai = chf.cells[ax + ay * chf.width].index + RecastCommon.GetCon(s, dir);
+                    int ai = chf.cellIndex[ax + ay * chf.width] + RecastCommon.GetCon(chf, i, dir);
                     r = srcReg[ai];
                 }
                 if (r != curReg) {
@@ -661,9 +678,9 @@ public class RecastRegion {
                 int ni = -1;
                 int nx = x + RecastCommon.GetDirOffsetX(dir);
                 int ny = y + RecastCommon.GetDirOffsetY(dir);
-                if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
-                    CompactCell nc = chf.cells[nx + ny * chf.width];
-                    ni = nc.index + RecastCommon.GetCon(s, dir);
+                if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
+                    int nc = nx + ny * chf.width;
+                    ni = chf.cellIndex[nc] + RecastCommon.GetCon(chf, i, dir);
                 }
                 if (ni == -1) {
                     // Should not happen.
@@ -694,7 +711,7 @@ public class RecastRegion {
     }
 
     private static int mergeAndFilterRegions(Telemetry ctx, int minRegionArea, int mergeRegionSize, int maxRegionId,
-            CompactHeightfield chf, int[] srcReg, List<Integer> overlaps) {
+            CompactHeightfield chf, int[] srcReg, IntArray overlaps) {
         int w = chf.width;
         int h = chf.height;
 
@@ -709,8 +726,8 @@ public class RecastRegion {
         // Find edge of a region and find connections around the contour.
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     int r = srcReg[i];
                     if (r == 0 || r >= nreg) {
                         continue;
@@ -720,7 +737,7 @@ public class RecastRegion {
                     reg.spanCount++;
 
                     // Update floors.
-                    for (int j = c.index; j < ni; ++j) {
+                    for (int j = chf.cellIndex[c]; j < ni; ++j) {
                         if (i == j) {
                             continue;
                         }
@@ -760,8 +777,8 @@ public class RecastRegion {
         }
 
         // Remove too small regions.
-        List<Integer> stack = new ArrayList<>(32);
-        List<Integer> trace = new ArrayList<>(32);
+        IntArray stack = new IntArray(32);
+        IntArray trace = new IntArray(32);
         for (int i = 0; i < nreg; ++i) {
             Region reg = regions[i];
             if (reg.id == 0 || (reg.id & RC_BORDER_REG) != 0) {
@@ -786,7 +803,7 @@ public class RecastRegion {
 
             while (stack.size() > 0) {
                 // Pop
-                int ri = stack.remove(stack.size() - 1);
+                int ri = stack.pop();
 
                 Region creg = regions[ri];
 
@@ -942,7 +959,7 @@ public class RecastRegion {
     }
 
     private static int mergeAndFilterLayerRegions(Telemetry ctx, int minRegionArea, int maxRegionId,
-            CompactHeightfield chf, int[] srcReg, List<Integer> overlaps) {
+            CompactHeightfield chf, int[] srcReg, IntArray overlaps) {
         int w = chf.width;
         int h = chf.height;
 
@@ -955,15 +972,14 @@ public class RecastRegion {
         }
 
         // Find region neighbours and overlapping regions.
-        List<Integer> lregs = new ArrayList<>(32);
+        IntArray lregs = new IntArray(32);
         for (int y = 0; y < h; ++y) {
             for (int x = 0; x < w; ++x) {
-                CompactCell c = chf.cells[x + y * w];
+                int c = x + y * w;
 
                 lregs.clear();
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     int ri = srcReg[i];
                     if (ri == 0 || ri >= nreg) {
                         continue;
@@ -972,17 +988,17 @@ public class RecastRegion {
 
                     reg.spanCount++;
                     reg.areaType = chf.areas[i];
-                    reg.ymin = Math.min(reg.ymin, s.y);
-                    reg.ymax = Math.max(reg.ymax, s.y);
+                    reg.ymin = Math.min(reg.ymin, chf.spanY[i]);
+                    reg.ymax = Math.max(reg.ymax, chf.spanY[i]);
                     // Collect all region layers.
                     lregs.add(ri);
 
                     // Update neighbours
                     for (int dir = 0; dir < 4; ++dir) {
-                        if (RecastCommon.GetCon(s, dir) != RC_NOT_CONNECTED) {
+                        if (RecastCommon.GetCon(chf, i, dir) != RC_NOT_CONNECTED) {
                             int ax = x + RecastCommon.GetDirOffsetX(dir);
                             int ay = y + RecastCommon.GetDirOffsetY(dir);
-                            int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, dir);
+                            int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, dir);
                             int rai = srcReg[ai];
                             if (rai > 0 && rai < nreg && rai != ri) {
                                 addUniqueConnection(reg, rai);
@@ -1018,7 +1034,7 @@ public class RecastRegion {
         }
 
         // Merge montone regions to create non-overlapping areas.
-        List<Integer> stack = new ArrayList<>(32);
+        IntArray stack = new IntArray(32);
         for (int i = 1; i < nreg; ++i) {
             Region root = regions[i];
             // Skip already visited.
@@ -1141,27 +1157,46 @@ public class RecastRegion {
     ///
     /// @see rcCompactHeightfield, rcBuildRegions, rcBuildRegionsMonotone
     public static void buildDistanceField(Telemetry ctx, CompactHeightfield chf) {
+        buildDistanceField(ctx, chf, new BuildArena(), Optional.empty());
+    }
+
+    public static void buildDistanceField(Telemetry ctx, CompactHeightfield chf, Executor executor) {
+        buildDistanceField(ctx, chf, new BuildArena(), Optional.of(executor));
+    }
 
-        ctx.startTimer("DISTANCEFIELD");
-        int[] src = new int[chf.spanCount];
-        ctx.startTimer("DISTANCEFIELD_DIST");
+    /**
+     * Builds the distance field into chf.dist. The unblurred distances are kept in the arena, where
+     * {@link #buildRegions(Telemetry, CompactHeightfield, int, int, BuildArena)} reuses the buffer.
+     */
+    public static void buildDistanceField(Telemetry ctx, CompactHeightfield chf, BuildArena arena,
+            Optional<Executor> executor) {
 
-        int maxDist = calculateDistanceField(chf, src);
-        chf.maxDistance = maxDist;
+        ctx.startTimer(BuildStage.DISTANCEFIELD);
+        int[] src = arena.ints(BuildArena.DISTANCE, chf.spanCount);
+        ctx.startTimer(BuildStage.DISTANCEFIELD_DIST);
 
-        ctx.stopTimer("DISTANCEFIELD_DIST");
+        int maxDist = executor.isPresent() ? calculateDistanceField(chf, src, executor.get())
+                : calculateDistanceField(chf, src);
+        chf.maxDistance = maxDist;
 
-        ctx.startTimer("DISTANCEFIELD_BLUR");
+        ctx.stopTimer(BuildStage.DISTANCEFIELD_DIST);
 
-        // Blur
-        src = boxBlur(chf, 1, src);
+        ctx.startTimer(BuildStage.DISTANCEFIELD_BLUR);
 
-        // Store distance.
-        chf.dist = src;
+        // Blur, storing the distance.
+        int[] dst = chf.dist != null && chf.dist.length == chf.spanCount ? chf.dist : new int[chf.spanCount];
+        if (executor.isPresent()) {
+            int bands = RecastParallel.bandCount(executor.get(), chf.height, MIN_BAND_ROWS, 4);
+            RecastParallel.forEachBand(executor.get(), chf.height, bands,
+                    (band, y0, y1) -> boxBlur(chf, 1, src, dst, y0, y1));
+        } else {
+            boxBlur(chf, 1, src, dst, 0, chf.height);
+        }
+        chf.dist = dst;
 
-        ctx.stopTimer("DISTANCEFIELD_BLUR");
+        ctx.stopTimer(BuildStage.DISTANCEFIELD_BLUR);
 
-        ctx.stopTimer("DISTANCEFIELD");
+        ctx.stopTimer(BuildStage.DISTANCEFIELD);
 
     }
 
@@ -1170,8 +1205,8 @@ public class RecastRegion {
         int w = chf.width;
         for (int y = miny; y < maxy; ++y) {
             for (int x = minx; x < maxx; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
+                int c = x + y * w;
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (chf.areas[i] != RC_NULL_AREA) {
                         srcReg[i] = regId;
                     }
@@ -1201,20 +1236,32 @@ public class RecastRegion {
     /// @see rcCompactHeightfield, rcCompactSpan, rcBuildDistanceField, rcBuildRegionsMonotone, rcConfig
     public static void buildRegionsMonotone(Telemetry ctx, CompactHeightfield chf, int minRegionArea,
             int mergeRegionArea) {
-        ctx.startTimer("REGIONS");
+        buildRegionsMonotone(ctx, chf, minRegionArea, mergeRegionArea, new BuildArena(), Optional.empty());
+    }
+
+    /**
+     * Builds monotone regions like {@link #buildRegionsMonotone(Telemetry, CompactHeightfield, int, int)}, sweeping
+     * bands of rows concurrently on the executor. The regions are identical to the sequential build.
+     */
+    public static void buildRegionsMonotone(Telemetry ctx, CompactHeightfield chf, int minRegionArea,
+            int mergeRegionArea, Executor executor) {
+        buildRegionsMonotone(ctx, chf, minRegionArea, mergeRegionArea, new BuildArena(), Optional.of(executor));
+    }
+
+    /**
+     * Builds monotone regions with scratch buffers from the arena, sweeping bands of rows concurrently if an executor
+     * is given.
+     */
+    public static void buildRegionsMonotone(Telemetry ctx, CompactHeightfield chf, int minRegionArea,
+            int mergeRegionArea, BuildArena arena, Optional<Executor> executor) {
+        ctx.startTimer(BuildStage.REGIONS);
 
         int w = chf.width;
         int h = chf.height;
         int borderSize = chf.borderSize;
         int id = 1;
 
-        int[] srcReg = new int[chf.spanCount];
-
-        int nsweeps = Math.max(chf.width, chf.height);
-        SweepSpan[] sweeps = new SweepSpan[nsweeps];
-        for (int i = 0; i < sweeps.length; i++) {
-            sweeps[i] = new SweepSpan();
-        }
+        int[] srcReg = arena.zeroInts(BuildArena.REGIONS, chf.spanCount);
 
         // Mark border regions.
         if (borderSize > 0) {
@@ -1233,106 +1280,24 @@ public class RecastRegion {
 
         }
 
-        int[] prev = new int[1024];
+        id = executor.isPresent() ? sweepRows(chf, srcReg, id, executor.get()) : sweepRows(chf, srcReg, id);
 
-        // Sweep one line at a time.
-        for (int y = borderSize; y < h - borderSize; ++y) {
-            // Collect spans from this row.
-            if (prev.length < id * 2) {
-                prev = new int[id * 2];
-            } else {
-                Arrays.fill(prev, 0, id, 0);
-            }
-            int rid = 1;
-
-            for (int x = borderSize; x < w - borderSize; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
-                    if (chf.areas[i] == RC_NULL_AREA) {
-                        continue;
-                    }
-
-                    // -x
-                    int previd = 0;
-                    if (RecastCommon.GetCon(s, 0) != RC_NOT_CONNECTED) {
-                        int ax = x + RecastCommon.GetDirOffsetX(0);
-                        int ay = y + RecastCommon.GetDirOffsetY(0);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 0);
-                        if ((srcReg[ai] & RC_BORDER_REG) == 0 && chf.areas[i] == chf.areas[ai]) {
-                            previd = srcReg[ai];
-                        }
-                    }
-
-                    if (previd == 0) {
-                        previd = rid++;
-                        sweeps[previd].rid = previd;
-                        sweeps[previd].ns = 0;
-                        sweeps[previd].nei = 0;
-                    }
-
-                    // -y
-                    if (RecastCommon.GetCon(s, 3) != RC_NOT_CONNECTED) {
-                        int ax = x + RecastCommon.GetDirOffsetX(3);
-                        int ay = y + RecastCommon.GetDirOffsetY(3);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 3);
-                        if (srcReg[ai] != 0 && (srcReg[ai] & RC_BORDER_REG) == 0 && chf.areas[i] == chf.areas[ai]) {
-                            int nr = srcReg[ai];
-                            if (sweeps[previd].nei == 0 || sweeps[previd].nei == nr) {
-                                sweeps[previd].nei = nr;
-                                sweeps[previd].ns++;
-                                if (prev.length <= nr) {
-                                    prev = Arrays.copyOf(prev, prev.length * 2);
-                                }
-                                prev[nr]++;
-                            } else {
-                                sweeps[previd].nei = RC_NULL_NEI;
-                            }
-                        }
-                    }
-
-                    srcReg[i] = previd;
-                }
-            }
-
-            // Create unique ID.
-            for (int i = 1; i < rid; ++i) {
-                if (sweeps[i].nei != RC_NULL_NEI && sweeps[i].nei != 0 && prev[sweeps[i].nei] == sweeps[i].ns) {
-                    sweeps[i].id = sweeps[i].nei;
-                } else {
-                    sweeps[i].id = id++;
-                }
-            }
-
-            // Remap IDs
-            for (int x = borderSize; x < w - borderSize; ++x) {
-                CompactCell c = chf.cells[x + y * w];
-
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    if (srcReg[i] > 0 && srcReg[i] < rid) {
-                        srcReg[i] = sweeps[srcReg[i]].id;
-                    }
-                }
-            }
-        }
-
-        ctx.startTimer("REGIONS_FILTER");
+        ctx.startTimer(BuildStage.REGIONS_FILTER);
 
         // Merge regions and filter out small regions.
-        List<Integer> overlaps = new ArrayList<>();
+        IntArray overlaps = new IntArray();
         chf.maxRegions = mergeAndFilterRegions(ctx, minRegionArea, mergeRegionArea, id, chf, srcReg, overlaps);
 
         // Monotone partitioning does not generate overlapping regions.
 
-        ctx.stopTimer("REGIONS_FILTER");
+        ctx.stopTimer(BuildStage.REGIONS_FILTER);
 
         // Store the result out.
         for (int i = 0; i < chf.spanCount; ++i) {
-            chf.spans[i].reg = srcReg[i];
+            chf.spanReg[i] = srcReg[i];
         }
 
-        ctx.stopTimer("REGIONS");
+        ctx.stopTimer(BuildStage.REGIONS);
 
     }
 
@@ -1357,25 +1322,28 @@ public class RecastRegion {
     /// @see rcCompactHeightfield, rcCompactSpan, rcBuildDistanceField, rcBuildRegionsMonotone, rcConfig
     public static void buildRegions(Telemetry ctx, CompactHeightfield chf, int minRegionArea,
             int mergeRegionArea) {
-        ctx.startTimer("REGIONS");
+        buildRegions(ctx, chf, minRegionArea, mergeRegionArea, new BuildArena());
+    }
+
+    /** Same as {@link #buildRegions(Telemetry, CompactHeightfield, int, int)}, with scratch buffers from the arena. */
+    public static void buildRegions(Telemetry ctx, CompactHeightfield chf, int minRegionArea, int mergeRegionArea,
+            BuildArena arena) {
+        ctx.startTimer(BuildStage.REGIONS);
 
         int w = chf.width;
         int h = chf.height;
         int borderSize = chf.borderSize;
 
-        ctx.startTimer("REGIONS_WATERSHED");
+        ctx.startTimer(BuildStage.REGIONS_WATERSHED);
 
         int LOG_NB_STACKS = 3;
         int NB_STACKS = 1 << LOG_NB_STACKS;
-        List<List<Integer>> lvlStacks = new ArrayList<>();
-        for (int i = 0; i < NB_STACKS; ++i) {
-            lvlStacks.add(new ArrayList<>(1024));
-        }
 
-        List<Integer> stack = new ArrayList<>(1024);
+        IntArray stack = new IntArray(1024);
 
-        int[] srcReg = new int[chf.spanCount];
-        int[] srcDist = new int[chf.spanCount];
+        int[] srcReg = arena.zeroInts(BuildArena.REGIONS, chf.spanCount);
+        // Only read where a region has been assigned, which always writes the distance too.
+        int[] srcDist = arena.ints(BuildArena.DISTANCE, chf.spanCount);
 
         int regionId = 1;
         int level = (chf.maxDistance + 1) & ~1;
@@ -1404,54 +1372,92 @@ public class RecastRegion {
 
         chf.borderSize = borderSize;
 
+        // Bucket queue of the unassigned spans keyed by distance level (two distance units per level). Span indices
+        // follow the cell scan order, so each bucket is filled already sorted.
+        int nbuckets = (level >> 1) + 1;
+        int[] spanCell = arena.ints(BuildArena.SPAN_CELL, chf.spanCount);
+        int[] bucketStart = arena.zeroInts(BuildArena.BUCKET_START, nbuckets + 1);
+        for (int c = 0; c < w * h; ++c) {
+            for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                spanCell[i] = c;
+                if (chf.areas[i] != RC_NULL_AREA && srcReg[i] == 0) {
+                    bucketStart[(chf.dist[i] >> 1) + 1]++;
+                }
+            }
+        }
+        for (int b = 0; b < nbuckets; ++b) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        int nbucketSpans = bucketStart[nbuckets];
+        int[] bucketSpans = arena.ints(BuildArena.BUCKET_SPANS, nbucketSpans);
+        int[] bucketFill = Arrays.copyOf(bucketStart, nbuckets);
+        for (int i = 0; i < chf.spanCount; ++i) {
+            if (chf.areas[i] != RC_NULL_AREA && srcReg[i] == 0) {
+                bucketSpans[bucketFill[chf.dist[i] >> 1]++] = i;
+            }
+        }
+
+        // The frontier holds the spans of the current level followed by the unassigned left overs of the levels
+        // above. Every NB_STACKS levels it is rebuilt in scan order, which decides the order new regions are
+        // flooded and numbered in.
+        int[] frontier = arena.ints(BuildArena.FRONTIER, nbucketSpans);
+        int[] next = arena.ints(BuildArena.FRONTIER_NEXT, nbucketSpans);
+        int[] dirty = arena.ints(BuildArena.DIRTY, nbucketSpans * 3);
+        int nfrontier = 0;
+        int drained = nbuckets;
+
         int sId = -1;
         while (level > 0) {
             level = level >= 2 ? level - 2 : 0;
             sId = (sId + 1) & (NB_STACKS - 1);
-
-            // ctx->startTimer(RC_TIMER_DIVIDE_TO_LEVELS);
+            int bucket = level >> 1;
 
             if (sId == 0) {
-                sortCellsByLevel(level, chf, srcReg, NB_STACKS, lvlStacks, 1);
+                nfrontier = appendBuckets(bucketStart, bucketSpans, bucket, drained, srcReg, frontier, nfrontier);
+                Arrays.sort(frontier, 0, nfrontier);
             } else {
-                appendStacks(lvlStacks.get(sId - 1), lvlStacks.get(sId), srcReg); // copy left overs from last level
+                int n = appendBuckets(bucketStart, bucketSpans, bucket, drained, srcReg, next, 0);
+                System.arraycopy(frontier, 0, next, n, nfrontier); // copy left overs from last level
+                nfrontier += n;
+                int[] tmp = frontier;
+                frontier = next;
+                next = tmp;
             }
+            drained = bucket;
 
-            // ctx->stopTimer(RC_TIMER_DIVIDE_TO_LEVELS);
-
-            ctx.startTimer("REGIONS_EXPAND");
+            ctx.startTimer(BuildStage.REGIONS_EXPAND);
 
             // Expand current regions until no empty connected cells found.
-            expandRegions(expandIters, level, chf, srcReg, srcDist, lvlStacks.get(sId), false);
+            nfrontier = expandRegions(expandIters, level, chf, srcReg, srcDist, spanCell, frontier, nfrontier, dirty);
 
-            ctx.stopTimer("REGIONS_EXPAND");
+            ctx.stopTimer(BuildStage.REGIONS_EXPAND);
 
-            ctx.startTimer("REGIONS_FLOOD");
+            ctx.startTimer(BuildStage.REGIONS_FLOOD);
 
             // Mark new regions with IDs.
-            for (int j = 0; j < lvlStacks.get(sId).size(); j += 3) {
-                int x = lvlStacks.get(sId).get(j);
-                int y = lvlStacks.get(sId).get(j + 1);
-                int i = lvlStacks.get(sId).get(j + 2);
-                if (i >= 0 && srcReg[i] == 0) {
-                    if (floodRegion(x, y, i, level, regionId, chf, srcReg, srcDist, stack)) {
+            for (int j = 0; j < nfrontier; ++j) {
+                int i = frontier[j];
+                if (srcReg[i] == 0) {
+                    if (floodRegion(i, level, regionId, chf, srcReg, srcDist, spanCell, stack)) {
                         regionId++;
                     }
                 }
             }
+            nfrontier = retainUnassigned(frontier, nfrontier, srcReg);
 
-            ctx.stopTimer("REGIONS_FLOOD");
+            ctx.stopTimer(BuildStage.REGIONS_FLOOD);
         }
 
         // Expand current regions until no empty connected cells found.
-        expandRegions(expandIters * 8, 0, chf, srcReg, srcDist, stack, true);
+        nfrontier = appendBuckets(bucketStart, bucketSpans, 0, drained, srcReg, frontier, nfrontier);
+        expandRegions(expandIters * 8, 0, chf, srcReg, srcDist, spanCell, frontier, nfrontier, dirty);
 
-        ctx.stopTimer("REGIONS_WATERSHED");
+        ctx.stopTimer(BuildStage.REGIONS_WATERSHED);
 
-        ctx.startTimer("REGIONS_FILTER");
+        ctx.startTimer(BuildStage.REGIONS_FILTER);
 
         // Merge regions and filter out small regions.
-        List<Integer> overlaps = new ArrayList<>();
+        IntArray overlaps = new IntArray();
         chf.maxRegions = mergeAndFilterRegions(ctx, minRegionArea, mergeRegionArea, regionId, chf, srcReg, overlaps);
 
         // If overlapping regions were found during merging, split those regions.
@@ -1459,33 +1465,44 @@ public class RecastRegion {
             ctx.warn("rcBuildRegions: " + overlaps.size() + " overlapping regions.");
         }
 
-        ctx.stopTimer("REGIONS_FILTER");
+        ctx.stopTimer(BuildStage.REGIONS_FILTER);
 
         // Write the result out.
         for (int i = 0; i < chf.spanCount; ++i) {
-            chf.spans[i].reg = srcReg[i];
+            chf.spanReg[i] = srcReg[i];
         }
 
-        ctx.stopTimer("REGIONS");
+        ctx.stopTimer(BuildStage.REGIONS);
 
     }
 
     public static void buildLayerRegions(Telemetry ctx, CompactHeightfield chf, int minRegionArea) {
+        buildLayerRegions(ctx, chf, minRegionArea, new BuildArena(), Optional.empty());
+    }
 
-        ctx.startTimer("REGIONS");
+    /**
+     * Builds layer regions like {@link #buildLayerRegions(Telemetry, CompactHeightfield, int)}, sweeping bands of rows
+     * concurrently on the executor. The regions are identical to the sequential build.
+     */
+    public static void buildLayerRegions(Telemetry ctx, CompactHeightfield chf, int minRegionArea, Executor executor) {
+        buildLayerRegions(ctx, chf, minRegionArea, new BuildArena(), Optional.of(executor));
+    }
+
+    /**
+     * Builds layer regions with scratch buffers from the arena, sweeping bands of rows concurrently if an executor is
+     * given.
+     */
+    public static void buildLayerRegions(Telemetry ctx, CompactHeightfield chf, int minRegionArea, BuildArena arena,
+            Optional<Executor> executor) {
+
+        ctx.startTimer(BuildStage.REGIONS);
 
         int w = chf.width;
         int h = chf.height;
         int borderSize = chf.borderSize;
         int id = 1;
 
-        int[] srcReg = new int[chf.spanCount];
-        int nsweeps = Math.max(chf.width, chf.height);
-        SweepSpan[] sweeps = new SweepSpan[nsweeps];
-        for (int i = 0; i < sweeps.length; i++) {
-            sweeps[i] = new SweepSpan();
-        }
-
+        int[] srcReg = arena.zeroInts(BuildArena.REGIONS, chf.spanCount);
         // Mark border regions.
         if (borderSize > 0) {
             // Make sure border will not overflow.
@@ -1503,12 +1520,46 @@ public class RecastRegion {
 
         }
 
+        id = executor.isPresent() ? sweepRows(chf, srcReg, id, executor.get()) : sweepRows(chf, srcReg, id);
+
+        ctx.startTimer(BuildStage.REGIONS_FILTER);
+
+        // Merge monotone regions to layers and remove small regions.
+        IntArray overlaps = new IntArray();
+        chf.maxRegions = mergeAndFilterLayerRegions(ctx, minRegionArea, id, chf, srcReg, overlaps);
+
+        ctx.stopTimer(BuildStage.REGIONS_FILTER);
+
+        // Store the result out.
+        for (int i = 0; i < chf.spanCount; ++i) {
+            chf.spanReg[i] = srcReg[i];
+        }
+
+        ctx.stopTimer(BuildStage.REGIONS);
+
+    }
+
+    /**
+     * Sweeps the rows inside the border, one at a time, and assigns monotone region ids to the spans of each row. A
+     * row sweep (a run of connected spans) continues the region of the previous row if it is the only sweep connected
+     * to that region, otherwise it starts a new region. Returns the next free region id.
+     */
+    private static int sweepRows(CompactHeightfield chf, int[] srcReg, int id) {
+        int w = chf.width;
+        int h = chf.height;
+        int borderSize = chf.borderSize;
+        int nsweeps = Math.max(chf.width, chf.height);
+        SweepSpan[] sweeps = new SweepSpan[nsweeps];
+        for (int i = 0; i < sweeps.length; i++) {
+            sweeps[i] = new SweepSpan();
+        }
+
         int[] prev = new int[1024];
 
         // Sweep one line at a time.
         for (int y = borderSize; y < h - borderSize; ++y) {
             // Collect spans from this row.
-            if (prev.length <= id * 2) {
+            if (prev.length < id * 2) {
                 prev = new int[id * 2];
             } else {
                 Arrays.fill(prev, 0, id, 0);
@@ -1516,20 +1567,19 @@ public class RecastRegion {
             int rid = 1;
 
             for (int x = borderSize; x < w - borderSize; ++x) {
-                CompactCell c = chf.cells[x + y * w];
+                int c = x + y * w;
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
-                    CompactSpan s = chf.spans[i];
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (chf.areas[i] == RC_NULL_AREA) {
                         continue;
                     }
 
                     // -x
                     int previd = 0;
-                    if (RecastCommon.GetCon(s, 0) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 0) != RC_NOT_CONNECTED) {
                         int ax = x + RecastCommon.GetDirOffsetX(0);
                         int ay = y + RecastCommon.GetDirOffsetY(0);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 0);
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 0);
                         if ((srcReg[ai] & RC_BORDER_REG) == 0 && chf.areas[i] == chf.areas[ai]) {
                             previd = srcReg[ai];
                         }
@@ -1543,10 +1593,10 @@ public class RecastRegion {
                     }
 
                     // -y
-                    if (RecastCommon.GetCon(s, 3) != RC_NOT_CONNECTED) {
+                    if (RecastCommon.GetCon(chf, i, 3) != RC_NOT_CONNECTED) {
                         int ax = x + RecastCommon.GetDirOffsetX(3);
                         int ay = y + RecastCommon.GetDirOffsetY(3);
-                        int ai = chf.cells[ax + ay * w].index + RecastCommon.GetCon(s, 3);
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 3);
                         if (srcReg[ai] != 0 && (srcReg[ai] & RC_BORDER_REG) == 0 && chf.areas[i] == chf.areas[ai]) {
                             int nr = srcReg[ai];
                             if (sweeps[previd].nei == 0 || sweeps[previd].nei == nr) {
@@ -1577,30 +1627,154 @@ public class RecastRegion {
 
             // Remap IDs
             for (int x = borderSize; x < w - borderSize; ++x) {
-                CompactCell c = chf.cells[x + y * w];
+                int c = x + y * w;
 
-                for (int i = c.index, ni = c.index + c.count; i < ni; ++i) {
+                for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
                     if (srcReg[i] > 0 && srcReg[i] < rid) {
                         srcReg[i] = sweeps[srcReg[i]].id;
                     }
                 }
             }
         }
+        return id;
+    }
 
-        ctx.startTimer("REGIONS_FILTER");
-
-        // Merge monotone regions to layers and remove small regions.
-        List<Integer> overlaps = new ArrayList<>();
-        chf.maxRegions = mergeAndFilterLayerRegions(ctx, minRegionArea, id, chf, srcReg, overlaps);
-
-        ctx.stopTimer("REGIONS_FILTER");
-
-        // Store the result out.
-        for (int i = 0; i < chf.spanCount; ++i) {
-            chf.spans[i].reg = srcReg[i];
+    /**
+     * Parallel version of {@link #sweepRows(CompactHeightfield, int[], int)} with identical region ids. The sweeps of
+     * a row only depend on the row itself, and whether a sweep continues a region of the previous row only depends on
+     * how the sweeps of the two rows connect, not on the region ids. Bands of rows find their sweeps, and then the
+     * sweep of the previous row each of them continues, concurrently. The ids are then handed out sequentially in the
+     * order of the sequential sweep, which only visits the sweeps, and the spans are remapped concurrently again.
+     */
+    private static int sweepRows(CompactHeightfield chf, int[] srcReg, int id, Executor executor) {
+        int w = chf.width;
+        int borderSize = chf.borderSize;
+        int rows = chf.height - 2 * borderSize;
+        if (rows <= 0) {
+            return id;
+        }
+        int bands = RecastParallel.bandCount(executor, rows, MIN_BAND_ROWS, 4);
+        // Number of sweeps of each row, turned into the index of the first sweep of each row.
+        int[] rowSweeps = new int[rows + 1];
+
+        // Find the sweeps of each row, the spans get their 1-based sweep index within the row.
+        RecastParallel.forEachBand(executor, rows, bands, (band, rowStart, rowEnd) -> {
+            for (int r = rowStart; r < rowEnd; ++r) {
+                int y = r + borderSize;
+                int rid = 1;
+                for (int x = borderSize; x < w - borderSize; ++x) {
+                    int c = x + y * w;
+                    for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                        if (chf.areas[i] == RC_NULL_AREA) {
+                            continue;
+                        }
+                        // -x
+                        int previd = 0;
+                        if (RecastCommon.GetCon(chf, i, 0) != RC_NOT_CONNECTED) {
+                            int ax = x + RecastCommon.GetDirOffsetX(0);
+                            int ay = y + RecastCommon.GetDirOffsetY(0);
+                            int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 0);
+                            if ((srcReg[ai] & RC_BORDER_REG) == 0 && chf.areas[i] == chf.areas[ai]) {
+                                previd = srcReg[ai];
+                            }
+                        }
+                        if (previd == 0) {
+                            previd = rid++;
+                        }
+                        srcReg[i] = previd;
+                    }
+                }
+                rowSweeps[r + 1] = rid - 1;
+            }
+        });
+        for (int r = 0; r < rows; ++r) {
+            rowSweeps[r + 1] += rowSweeps[r];
+        }
+
+        // Find the sweep of the previous row each sweep continues, 0 if none.
+        int[] parent = new int[rowSweeps[rows]];
+        RecastParallel.forEachBand(executor, rows, bands, (band, rowStart, rowEnd) -> {
+            int[] nei = new int[0];
+            int[] ns = new int[0];
+            int[] prev = new int[0];
+            for (int r = rowStart; r < rowEnd; ++r) {
+                int y = r + borderSize;
+                int nsweeps = rowSweeps[r + 1] - rowSweeps[r];
+                int nprev = r > 0 ? rowSweeps[r] - rowSweeps[r - 1] : 0;
+                nei = clear(nei, nsweeps + 1);
+                ns = clear(ns, nsweeps + 1);
+                prev = clear(prev, nprev + 1);
+                for (int x = borderSize; x < w - borderSize; ++x) {
+                    int c = x + y * w;
+                    for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                        if (chf.areas[i] == RC_NULL_AREA || RecastCommon.GetCon(chf, i, 3) == RC_NOT_CONNECTED) {
+                            continue;
+                        }
+                        // -y
+                        int ax = x + RecastCommon.GetDirOffsetX(3);
+                        int ay = y + RecastCommon.GetDirOffsetY(3);
+                        int ai = chf.cellIndex[ax + ay * w] + RecastCommon.GetCon(chf, i, 3);
+                        if (srcReg[ai] != 0 && (srcReg[ai] & RC_BORDER_REG) == 0 && chf.areas[i] == chf.areas[ai]) {
+                            int sweep = srcReg[i];
+                            int nr = srcReg[ai];
+                            if (nei[sweep] == 0 || nei[sweep] == nr) {
+                                nei[sweep] = nr;
+                                ns[sweep]++;
+                                prev[nr]++;
+                            } else {
+                                nei[sweep] = -1;
+                            }
+                        }
+                    }
+                }
+                for (int sweep = 1; sweep <= nsweeps; ++sweep) {
+                    int nr = nei[sweep];
+                    parent[rowSweeps[r] + sweep - 1] = nr > 0 && prev[nr] == ns[sweep] ? nr : 0;
+                }
+            }
+        });
+
+        // Create unique IDs in the order of the sequential sweep.
+        int[] ids = new int[rowSweeps[rows]];
+        for (int r = 0; r < rows; ++r) {
+            for (int s = rowSweeps[r]; s < rowSweeps[r + 1]; ++s) {
+                if (parent[s] != 0) {
+                    int nr = ids[rowSweeps[r - 1] + parent[s] - 1];
+                    // The sequential sweep cannot tell region RC_NULL_NEI from a sweep with several neighbours.
+                    if (nr != RC_NULL_NEI) {
+                        ids[s] = nr;
+                        continue;
+                    }
+                }
+                ids[s] = id++;
+            }
         }
 
-        ctx.stopTimer("REGIONS");
+        // Remap IDs
+        RecastParallel.forEachBand(executor, rows, bands, (band, rowStart, rowEnd) -> {
+            for (int r = rowStart; r < rowEnd; ++r) {
+                int y = r + borderSize;
+                for (int x = borderSize; x < w - borderSize; ++x) {
+                    int c = x + y * w;
+                    for (int i = chf.cellIndex[c], ni = chf.cellIndex[c] + chf.cellCount[c]; i < ni; ++i) {
+                        if (srcReg[i] > 0 && (srcReg[i] & RC_BORDER_REG) == 0) {
+                            srcReg[i] = ids[rowSweeps[r] + srcReg[i] - 1];
+                        }
+                    }
+                }
+            }
+        });
+        return id;
+    }
 
+    /**
+     * Returns the array with its first size elements cleared, or a new one if it is too small.
+     */
+    private static int[] clear(int[] a, int size) {
+        if (a.length < size) {
+            return new int[Math.max(size, a.length * 2)];
+        }
+        Arrays.fill(a, 0, size, 0);
+        return a;
     }
 }
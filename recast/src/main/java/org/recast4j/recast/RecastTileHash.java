@@ -0,0 +1,160 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import org.recast4j.recast.geom.ChunkyTriMesh;
+import org.recast4j.recast.geom.InputGeomProvider;
+import org.recast4j.recast.geom.TriMesh;
+
+/**
+ * Hashes the input of a tile build, so that tiles whose input did not change can be skipped when the geometry is
+ * edited. The hash covers the build config, the tile bounds, the input triangles overlapping the tile (by vertex
+ * position and regardless of order, so edits elsewhere that renumber vertices or reorder triangles do not affect it)
+ * and the convex volumes overlapping the tile.
+ */
+public class RecastTileHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public static long hash(InputGeomProvider geom, RecastBuilderConfig builderCfg) {
+        RecastConfig cfg = builderCfg.cfg;
+        long h = hashConfig(FNV_OFFSET_BASIS, cfg);
+        h = add(h, builderCfg.width);
+        h = add(h, builderCfg.height);
+        for (int i = 0; i < 3; i++) {
+            h = add(h, builderCfg.bmin[i]);
+            h = add(h, builderCfg.bmax[i]);
+        }
+        float[] tbmin = new float[] { builderCfg.bmin[0], builderCfg.bmin[2] };
+        float[] tbmax = new float[] { builderCfg.bmax[0], builderCfg.bmax[2] };
+        // The order of the triangles depends on how the chunks were partitioned, combine their hashes by sum.
+        long triangles = 0;
+        for (TriMesh mesh : cfg.useTiles ? geom.meshes(tbmin, tbmax) : geom.meshes()) {
+            float[] verts = mesh.getVerts();
+            if (cfg.useTiles) {
+                ChunkyTriMesh chunkyMesh = mesh.getChunkyTriMesh();
+                int[] ids = new int[chunkyMesh.getChunkCount()];
+                int nids = chunkyMesh.getChunksOverlappingRect(tbmin, tbmax, ids);
+                for (int i = 0; i < nids; i++) {
+                    int start = chunkyMesh.getChunkStart(ids[i]);
+                    triangles = addTriangles(triangles, verts, chunkyMesh.getTris(), start,
+                            start + chunkyMesh.getChunkTriCount(ids[i]), tbmin, tbmax);
+                }
+            } else {
+                triangles = addTriangles(triangles, verts, mesh.getTris(), 0, mesh.getTris().length / 3, null, null);
+            }
+        }
+        h = add(h, (int) triangles);
+        h = add(h, (int) (triangles >>> 32));
+        for (ConvexVolume vol : geom.convexVolumes()) {
+            if (cfg.useTiles && !overlapsXZ(vol.verts, 0, vol.verts.length / 3, tbmin, tbmax)) {
+                continue;
+            }
+            for (float v : vol.verts) {
+                h = add(h, v);
+            }
+            h = add(h, vol.hmin);
+            h = add(h, vol.hmax);
+            h = add(h, vol.areaMod.getValue());
+            h = add(h, vol.areaMod.getMask());
+        }
+        return finish(h);
+    }
+
+    private static long hashConfig(long h, RecastConfig cfg) {
+        h = add(h, cfg.partitionType.ordinal());
+        h = add(h, cfg.useTiles ? 1 : 0);
+        h = add(h, cfg.tileSizeX);
+        h = add(h, cfg.tileSizeZ);
+        h = add(h, cfg.borderSize);
+        h = add(h, cfg.cs);
+        h = add(h, cfg.ch);
+        h = add(h, cfg.walkableSlopeAngle);
+        h = add(h, cfg.walkableHeight);
+        h = add(h, cfg.walkableClimb);
+        h = add(h, cfg.walkableRadius);
+        h = add(h, cfg.maxEdgeLen);
+        h = add(h, cfg.maxSimplificationError);
+        h = add(h, cfg.minRegionArea);
+        h = add(h, cfg.mergeRegionArea);
+        h = add(h, cfg.maxVertsPerPoly);
+        h = add(h, cfg.detailSampleDist);
+        h = add(h, cfg.detailSampleMaxError);
+        h = add(h, cfg.walkableAreaMod.getValue());
+        h = add(h, cfg.walkableAreaMod.getMask());
+        h = add(h, cfg.filterLowHangingObstacles ? 1 : 0);
+        h = add(h, cfg.filterLedgeSpans ? 1 : 0);
+        h = add(h, cfg.filterWalkableLowHeightSpans ? 1 : 0);
+        h = add(h, cfg.buildMeshDetail ? 1 : 0);
+        return h;
+    }
+
+    private static long addTriangles(long sum, float[] verts, int[] tris, int first, int end, float[] tbmin,
+            float[] tbmax) {
+        float[] tri = new float[9];
+        for (int t = first * 3; t < end * 3; t += 3) {
+            for (int j = 0; j < 3; j++) {
+                System.arraycopy(verts, tris[t + j] * 3, tri, j * 3, 3);
+            }
+            // Triangles outside of the tile are clipped away by the rasterizer.
+            if (tbmin != null && !overlapsXZ(tri, 0, 3, tbmin, tbmax)) {
+                continue;
+            }
+            long h = FNV_OFFSET_BASIS;
+            for (float v : tri) {
+                h = add(h, v);
+            }
+            sum += finish(h);
+        }
+        return sum;
+    }
+
+    private static boolean overlapsXZ(float[] verts, int first, int count, float[] bmin, float[] bmax) {
+        float minx = Float.MAX_VALUE, minz = Float.MAX_VALUE;
+        float maxx = -Float.MAX_VALUE, maxz = -Float.MAX_VALUE;
+        for (int i = first; i < first + count; i++) {
+            minx = Math.min(minx, verts[i * 3]);
+            maxx = Math.max(maxx, verts[i * 3]);
+            minz = Math.min(minz, verts[i * 3 + 2]);
+            maxz = Math.max(maxz, verts[i * 3 + 2]);
+        }
+        return minx <= bmax[0] && maxx >= bmin[0] && minz <= bmax[1] && maxz >= bmin[1];
+    }
+
+    private static long add(long h, float v) {
+        return add(h, Float.floatToIntBits(v));
+    }
+
+    private static long add(long h, int v) {
+        for (int i = 0; i < 4; i++) {
+            h ^= (v >>> (i * 8)) & 0xFF;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -18,9 +18,10 @@ freely, subject to the following restrictions:
 
 package org.recast4j.recast;
 
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 
-import org.recast4j.recast.geom.ChunkyTriMesh.ChunkyTriMeshNode;
+import org.recast4j.recast.geom.ChunkyTriMesh;
 import org.recast4j.recast.geom.InputGeomProvider;
 import org.recast4j.recast.geom.TriMesh;
 
@@ -28,11 +29,29 @@ public class RecastVoxelization {
 
     public static Heightfield buildSolidHeightfield(InputGeomProvider geomProvider, RecastBuilderConfig builderCfg,
             Telemetry ctx) {
+        return buildSolidHeightfield(geomProvider, builderCfg, ctx, Optional.empty());
+    }
+
+    /**
+     * Rasterizes the input geometry, each mesh rasterized in bands of rows concurrently if an executor is given. The
+     * heightfield is identical to the one built without executor.
+     */
+    public static Heightfield buildSolidHeightfield(InputGeomProvider geomProvider, RecastBuilderConfig builderCfg,
+            Telemetry ctx, Optional<Executor> executor) {
+        return buildSolidHeightfield(geomProvider, builderCfg, ctx, new BuildArena(), executor);
+    }
+
+    /**
+     * Same as {@link #buildSolidHeightfield(InputGeomProvider, RecastBuilderConfig, Telemetry, Optional)}, with
+     * scratch buffers from the arena. The heightfield takes over the storage of a heightfield recycled by the arena.
+     */
+    public static Heightfield buildSolidHeightfield(InputGeomProvider geomProvider, RecastBuilderConfig builderCfg,
+            Telemetry ctx, BuildArena arena, Optional<Executor> executor) {
         RecastConfig cfg = builderCfg.cfg;
 
         // Allocate voxel heightfield where we rasterize our input data to.
         Heightfield solid = new Heightfield(builderCfg.width, builderCfg.height, builderCfg.bmin, builderCfg.bmax, cfg.cs,
-                cfg.ch, cfg.borderSize);
+                cfg.ch, cfg.borderSize, arena);
 
         // Allocate array that can hold triangle area types.
         // If you have multiple meshes you need to process, allocate
@@ -44,33 +63,55 @@ public class RecastVoxelization {
         // If your input data is multiple meshes, you can transform them here,
         // calculate
         // the are type for each of the meshes and rasterize them.
-        for (TriMesh geom : geomProvider.meshes()) {
+        float[] tbmin = new float[] { builderCfg.bmin[0], builderCfg.bmin[2] };
+        float[] tbmax = new float[] { builderCfg.bmax[0], builderCfg.bmax[2] };
+        for (TriMesh geom : cfg.useTiles ? geomProvider.meshes(tbmin, tbmax) : geomProvider.meshes()) {
             float[] verts = geom.getVerts();
             if (cfg.useTiles) {
-                float[] tbmin = new float[2];
-                float[] tbmax = new float[2];
-                tbmin[0] = builderCfg.bmin[0];
-                tbmin[1] = builderCfg.bmin[2];
-                tbmax[0] = builderCfg.bmax[0];
-                tbmax[1] = builderCfg.bmax[2];
-                List<ChunkyTriMeshNode> nodes = geom.getChunksOverlappingRect(tbmin, tbmax);
-                for (ChunkyTriMeshNode node : nodes) {
-                    int[] tris = node.tris;
-                    int ntris = tris.length / 3;
-                    int[] m_triareas = Recast.markWalkableTriangles(ctx, cfg.walkableSlopeAngle, verts, tris, ntris,
-                            cfg.walkableAreaMod);
-                    RecastRasterization.rasterizeTriangles(solid, verts, tris, m_triareas, ntris, cfg.walkableClimb, ctx);
+                // Gather the triangles of all overlapping chunks and rasterize them in one go.
+                ChunkyTriMesh chunkyMesh = geom.getChunkyTriMesh();
+                int[] ids = arena.ints(BuildArena.CHUNK_IDS, chunkyMesh.getChunkCount());
+                int nids = chunkyMesh.getChunksOverlappingRect(tbmin, tbmax, ids);
+                int ntris = 0;
+                for (int i = 0; i < nids; i++) {
+                    ntris += chunkyMesh.getChunkTriCount(ids[i]);
                 }
+                int[] tris = arena.ints(BuildArena.TRIS, ntris * 3);
+                int[] areas = arena.ints(BuildArena.TRI_AREAS, ntris);
+                int[] chunkTris = chunkyMesh.getTris();
+                int[] chunkAreas = geom.getChunkAreas(cfg.walkableSlopeAngle, cfg.walkableAreaMod);
+                int n = 0;
+                for (int i = 0; i < nids; i++) {
+                    int start = chunkyMesh.getChunkStart(ids[i]);
+                    int count = chunkyMesh.getChunkTriCount(ids[i]);
+                    System.arraycopy(chunkTris, start * 3, tris, n * 3, count * 3);
+                    System.arraycopy(chunkAreas, start, areas, n, count);
+                    n += count;
+                }
+                if (ntris > 0) {
+                    rasterizeTriangles(solid, verts, tris, areas, ntris, cfg.walkableClimb, ctx, executor);
+                }
+                solid.triangleCount += ntris;
             } else {
-                int[] tris = geom.getTris();
-                int ntris = tris.length / 3;
-                int[] m_triareas = Recast.markWalkableTriangles(ctx, cfg.walkableSlopeAngle, verts, tris, ntris,
-                        cfg.walkableAreaMod);
-                RecastRasterization.rasterizeTriangles(solid, verts, tris, m_triareas, ntris, cfg.walkableClimb, ctx);
+                int ntris = geom.getTris().length / 3;
+                int[] m_triareas = Recast.markWalkableTriangles(ctx, cfg.walkableSlopeAngle, verts, geom.getTris(),
+                        ntris, cfg.walkableAreaMod);
+                rasterizeTriangles(solid, verts, geom.getTris(), m_triareas, ntris, cfg.walkableClimb, ctx, executor);
+                solid.triangleCount += ntris;
             }
         }
 
         return solid;
     }
 
+    private static void rasterizeTriangles(Heightfield solid, float[] verts, int[] tris, int[] areas, int ntris,
+            int flagMergeThreshold, Telemetry ctx, Optional<Executor> executor) {
+        if (executor.isPresent()) {
+            RecastRasterization.rasterizeTriangles(solid, verts, tris, areas, ntris, flagMergeThreshold, ctx,
+                    executor.get());
+        } else {
+            RecastRasterization.rasterizeTriangles(solid, verts, tris, areas, ntris, flagMergeThreshold, ctx);
+        }
+    }
+
 }
@@ -1,6 +1,5 @@
 /*
-Copyright (c) 2009-2010 Mikko Mononen memon@inside.org
-recast4j Copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
 
 This software is provided 'as-is', without any express or implied
 warranty.  In no event will the authors be held liable for any damages
@@ -18,16 +17,27 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
-/** Represents a span of unobstructed space within a compact heightfield. */
-public class CompactSpan {
+/** Timings of a build stage, see {@link Telemetry#snapshot()}. Times are in nanoseconds. */
+public class StageStats {
 
-    /** The lower extent of the span. (Measured from the heightfield's base.) */
-    public int y;
-    /** The id of the region the span belongs to. (Or zero if not in a region.) */
-    public int reg;
-    /** Packed neighbor connection data. */
-    public int con;
-    /** The height of the span. (Measured from #y.) */
-    public int h;
+    public final BuildStage stage;
+    /** Number of times the stage was timed. */
+    public final long count;
+    public final long totalTime;
+    public final long maxTime;
+    /** Percentiles of the stage time, accurate to within 1/8 of the value. */
+    public final long p50;
+    public final long p95;
+    public final long p99;
+
+    public StageStats(BuildStage stage, long count, long totalTime, long maxTime, long p50, long p95, long p99) {
+        this.stage = stage;
+        this.count = count;
+        this.totalTime = totalTime;
+        this.maxTime = maxTime;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
 
 }
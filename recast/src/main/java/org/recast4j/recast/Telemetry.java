@@ -17,30 +17,251 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Collects build stage timings, named counters and per-tile statistics (rcContext). Timing a stage does not allocate:
+ * start times are kept in a per-thread array indexed by stage and stop times are recorded in a lock-free histogram per
+ * stage. A telemetry can be shared by builds running on several threads, but a stage must be stopped on the thread that
+ * started it. Listeners see each stage and tile as it completes, exporters get a snapshot of the collected values.
+ */
 public class Telemetry {
 
-    private final ThreadLocal<Map<String, AtomicLong>> timerStart = ThreadLocal.withInitial(HashMap::new);
-    private final Map<String, AtomicLong> timerAccum = new ConcurrentHashMap<>();
+    private static final BuildStage[] STAGES = BuildStage.values();
+    private static final Map<String, BuildStage> STAGE_NAMES = new HashMap<>();
+    static {
+        for (BuildStage stage : STAGES) {
+            STAGE_NAMES.put(stage.name(), stage);
+        }
+    }
+
+    private final ThreadLocal<long[]> timerStart = ThreadLocal.withInitial(() -> new long[STAGES.length]);
+    private final ThreadLocal<Map<String, Long>> namedTimerStart = ThreadLocal.withInitial(HashMap::new);
+    private final AtomicReferenceArray<Histogram> timers = new AtomicReferenceArray<>(STAGES.length);
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Queue<TileStats> tiles = new ConcurrentLinkedQueue<>();
+    private final AtomicLong peakMemory = new AtomicLong();
+    private volatile TelemetryListener[] listeners = new TelemetryListener[0];
+
+    public synchronized void addListener(TelemetryListener listener) {
+        TelemetryListener[] l = Arrays.copyOf(listeners, listeners.length + 1);
+        l[l.length - 1] = listener;
+        listeners = l;
+    }
+
+    public synchronized void removeListener(TelemetryListener listener) {
+        List<TelemetryListener> l = new ArrayList<>(Arrays.asList(listeners));
+        l.remove(listener);
+        listeners = l.toArray(new TelemetryListener[0]);
+    }
+
+    public void startTimer(BuildStage stage) {
+        timerStart.get()[stage.ordinal()] = System.nanoTime();
+    }
+
+    /** Stops the timer of the stage started on this thread and returns the elapsed time in nanoseconds. */
+    public long stopTimer(BuildStage stage) {
+        long time = System.nanoTime() - timerStart.get()[stage.ordinal()];
+        record(stage, time);
+        return time;
+    }
 
+    /**
+     * Starts a timer by name on this thread.
+     *
+     * @deprecated use {@link #startTimer(BuildStage)}. Names of build stages are timed as that stage, other names are
+     *             accumulated in nanoseconds in the counter of the same name.
+     */
+    @Deprecated
     public void startTimer(String name) {
-        timerStart.get().put(name, new AtomicLong(System.nanoTime()));
+        namedTimerStart.get().put(name, System.nanoTime());
     }
 
+    /**
+     * Stops a timer started on this thread by {@link #startTimer(String)}.
+     *
+     * @deprecated use {@link #stopTimer(BuildStage)}
+     */
+    @Deprecated
     public void stopTimer(String name) {
-        timerAccum.computeIfAbsent(name, __ -> new AtomicLong()).addAndGet(System.nanoTime() - timerStart.get().get(name).get());
+        Long start = namedTimerStart.get().remove(name);
+        if (start == null) {
+            return;
+        }
+        long time = System.nanoTime() - start;
+        BuildStage stage = STAGE_NAMES.get(name);
+        if (stage != null) {
+            record(stage, time);
+        } else {
+            count(name, time);
+        }
+    }
+
+    /** Records a stage time in nanoseconds measured by the caller. */
+    public void record(BuildStage stage, long time) {
+        histogram(stage).record(time);
+        for (TelemetryListener listener : listeners) {
+            listener.stageCompleted(stage, time);
+        }
+    }
+
+    public void count(String name) {
+        count(name, 1);
+    }
+
+    public void count(String name, long delta) {
+        counters.computeIfAbsent(name, __ -> new LongAdder()).add(delta);
+    }
+
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /** Records the statistics of a completed tile and samples the used heap. Times are in nanoseconds. */
+    public void tileCompleted(int tileX, int tileZ, int triangles, int spans, int regions, int polys, long buildTime) {
+        TileStats tile = new TileStats(tileX, tileZ, triangles, spans, regions, polys, buildTime, sampleMemory());
+        tiles.add(tile);
+        for (TelemetryListener listener : listeners) {
+            listener.tileCompleted(tile);
+        }
     }
 
     public void warn(String string) {
         System.err.println(string);
+        for (TelemetryListener listener : listeners) {
+            listener.warning(string);
+        }
+    }
+
+    public TelemetrySnapshot snapshot() {
+        List<StageStats> stages = new ArrayList<>();
+        for (BuildStage stage : STAGES) {
+            Histogram h = timers.get(stage.ordinal());
+            if (h != null && h.count.sum() > 0) {
+                stages.add(h.stats(stage));
+            }
+        }
+        Map<String, Long> c = new TreeMap<>();
+        counters.forEach((n, v) -> c.put(n, v.sum()));
+        return new TelemetrySnapshot(Collections.unmodifiableList(stages), Collections.unmodifiableMap(c),
+                Collections.unmodifiableList(new ArrayList<>(tiles)), Math.max(peakMemory.get(), sampleMemory()));
+    }
+
+    public void export(TelemetryExporter exporter) {
+        exporter.export(snapshot());
     }
 
     public void print() {
-        timerAccum.forEach((n, v) -> System.out.println(n + ": " + v.get() / 1000000));
+        export(s -> {
+            s.stages.forEach(t -> System.out.printf("%s: %d ms (n=%d, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms)%n",
+                    t.stage, t.totalTime / 1000000, t.count, t.p50 / 1e6, t.p95 / 1e6, t.p99 / 1e6));
+            s.counters.forEach((n, v) -> System.out.println(n + ": " + v));
+            System.out.println("tiles: " + s.tiles.size() + ", peak memory: " + s.peakMemory / (1024 * 1024) + " MB");
+        });
+    }
+
+    private Histogram histogram(BuildStage stage) {
+        Histogram h = timers.get(stage.ordinal());
+        if (h == null) {
+            timers.compareAndSet(stage.ordinal(), null, new Histogram());
+            h = timers.get(stage.ordinal());
+        }
+        return h;
+    }
+
+    private long sampleMemory() {
+        Runtime rt = Runtime.getRuntime();
+        long used = rt.totalMemory() - rt.freeMemory();
+        long peak;
+        while (used > (peak = peakMemory.get()) && !peakMemory.compareAndSet(peak, used)) {
+            // retry
+        }
+        return used;
+    }
+
+    /**
+     * Log-linear histogram: values below 8 have their own bucket, larger values are split into 8 buckets per power of
+     * two, so a bucket is never wider than 1/8 of its values. Values above ~36 minutes share the last bucket.
+     */
+    private static class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_SHIFT = 37;
+        private static final long MAX_VALUE = (1L << (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1;
+        private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final LongAdder count = new LongAdder();
+        final LongAdder total = new LongAdder();
+        final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            value = Math.max(0, Math.min(value, MAX_VALUE));
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            total.add(value);
+            long m;
+            while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+                // retry
+            }
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        /** Largest value that falls into the bucket. */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+            long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        StageStats stats(BuildStage stage) {
+            long[] b = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                b[i] = buckets.get(i);
+                n += b[i];
+            }
+            long m = max.get();
+            return new StageStats(stage, n, total.sum(), m, percentile(b, n, 0.50, m), percentile(b, n, 0.95, m),
+                    percentile(b, n, 0.99, m));
+        }
+
+        private static long percentile(long[] b, long n, double p, long max) {
+            long rank = Math.max(1, (long) Math.ceil(p * n));
+            long seen = 0;
+            for (int i = 0; i < b.length; i++) {
+                seen += b[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
     }
 
 }
@@ -1,6 +1,5 @@
 /*
-Copyright (c) 2009-2010 Mikko Mononen memon@inside.org
-recast4j Copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
 
 This software is provided 'as-is', without any express or implied
 warranty.  In no event will the authors be held liable for any damages
@@ -18,12 +17,10 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
-/** Provides information on the content of a cell column in a compact heightfield. */
-public class CompactCell {
+/** Publishes a {@link TelemetrySnapshot}, e.g. to a metrics system. See {@link Telemetry#export(TelemetryExporter)}. */
+@FunctionalInterface
+public interface TelemetryExporter {
 
-    /** Index to the first span in the column. */
-    public int index;
-    /** Number of spans in the column. */
-    public int count;
+    void export(TelemetrySnapshot snapshot);
 
 }
@@ -1,6 +1,5 @@
 /*
-Copyright (c) 2009-2010 Mikko Mononen memon@inside.org
-recast4j Copyright (c) 2015-2019 Piotr Piastucki piotr@jtilia.org
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
 
 This software is provided 'as-is', without any express or implied
 warranty.  In no event will the authors be held liable for any damages
@@ -18,16 +17,19 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast;
 
-/** Represents a span in a heightfield. */
-public class Span {
+/**
+ * Receives build events from a {@link Telemetry} as they happen. Called on the build threads, so implementations must
+ * be thread-safe and should return quickly.
+ */
+public interface TelemetryListener {
 
-    /** The lower limit of the span. [Limit: &lt; smax] */
-    public int smin;
-    /** The upper limit of the span. [Limit: &lt;= SPAN_MAX_HEIGHT] */
-    public int smax;
-    /** The area id assigned to the span. */
-    public int area;
-    /** The next span higher up in column. */
-    public Span next;
+    default void stageCompleted(BuildStage stage, long time) {
+    }
+
+    default void tileCompleted(TileStats tile) {
+    }
+
+    default void warning(String message) {
+    }
 
 }
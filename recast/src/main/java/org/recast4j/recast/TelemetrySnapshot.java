@@ -0,0 +1,42 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import java.util.List;
+import java.util.Map;
+
+/** Point in time copy of the values collected by a {@link Telemetry}. */
+public class TelemetrySnapshot {
+
+    /** Stages that were timed at least once, in {@link BuildStage} order. */
+    public final List<StageStats> stages;
+    public final Map<String, Long> counters;
+    /** Completed tiles in completion order. */
+    public final List<TileStats> tiles;
+    /** Highest used heap in bytes sampled at the end of a tile or when the snapshot was taken. */
+    public final long peakMemory;
+
+    public TelemetrySnapshot(List<StageStats> stages, Map<String, Long> counters, List<TileStats> tiles,
+            long peakMemory) {
+        this.stages = stages;
+        this.counters = counters;
+        this.tiles = tiles;
+        this.peakMemory = peakMemory;
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Content addressed cache of built tiles on disk. Entries are keyed by the hash of the tile input (see RecastTileHash)
+ * combined with the version of the codec that serializes the tiles, so the cache directory can be shared between
+ * builds and machines. Each entry is a file written to a temporary file first and then renamed into place, so readers
+ * never see partially written entries. Entries start with the length and CRC32 of the data, truncated or corrupted
+ * entries are treated as misses. The total size of the entries is bounded, the least recently used entries are
+ * evicted first. Hits, misses and evictions are counted in the telemetry passed to the constructor.
+ */
+public class TileBuildCache {
+
+    public static final String CACHE_HIT = "tileCacheHit";
+    public static final String CACHE_MISS = "tileCacheMiss";
+    public static final String CACHE_EVICTION = "tileCacheEviction";
+    public static final String CACHE_WRITE_ERROR = "tileCacheWriteError";
+
+    private static final String ENTRY_SUFFIX = ".tile";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** Data length and CRC32 in front of the data of each entry. */
+    private static final int ENTRY_HEADER_SIZE = 8;
+    /**
+     * Temporary files older than this are left behind by interrupted writes. Younger ones may still be written by
+     * another build sharing the directory.
+     */
+    private static final long STALE_TEMP_AGE = TimeUnit.HOURS.toMillis(1);
+
+    /** Serializes the tiles stored in the cache. */
+    public interface Codec<T> {
+
+        byte[] encode(T tile) throws IOException;
+
+        T decode(byte[] data) throws IOException;
+
+        /**
+         * Part of the cache key. Change it when the encoding changes or when the conversion of the build results to
+         * tiles changes.
+         */
+        default long version() {
+            return 0;
+        }
+    }
+
+    private final Path dir;
+    private final long maxSize;
+    private final Telemetry telemetry;
+    /** Entry sizes in least recently used order. */
+    private final LinkedHashMap<Long, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * Opens the cache directory, creating it if needed. Existing entries are indexed by their last modified time,
+     * temporary files left behind by interrupted writes are removed once they are older than an hour.
+     */
+    public TileBuildCache(Path dir, long maxSize, Telemetry telemetry) throws IOException {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.telemetry = telemetry;
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(dir, 2)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+        Map<Path, BasicFileAttributes> found = new HashMap<>();
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_AGE;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    if (Files.getLastModifiedTime(file).toMillis() < staleBefore) {
+                        Files.deleteIfExists(file);
+                    }
+                } else if (name.endsWith(ENTRY_SUFFIX)) {
+                    found.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+                }
+            } catch (NoSuchFileException e) {
+                // renamed or removed by another build sharing the directory
+            }
+        }
+        files = new ArrayList<>(found.keySet());
+        files.sort(Comparator.comparing(f -> found.get(f).lastModifiedTime()));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                long key = Long.parseUnsignedLong(name.substring(0, name.length() - ENTRY_SUFFIX.length()), 16);
+                entries.put(key, found.get(file).size());
+                size += found.get(file).size();
+            } catch (NumberFormatException e) {
+                // not a cache entry
+            }
+        }
+        evict(null);
+    }
+
+    /** Combines the hash of the tile input with the codec version into the cache key. */
+    public static long key(long tileHash, long codecVersion) {
+        long h = tileHash ^ (codecVersion * 0x9e3779b97f4a7c15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public Optional<byte[]> get(long key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                telemetry.count(CACHE_MISS);
+                return Optional.empty();
+            }
+        }
+        Path file = path(key);
+        try {
+            byte[] data = decode(Files.readAllBytes(file));
+            if (data != null) {
+                // Keep the LRU order across runs.
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                telemetry.count(CACHE_HIT);
+                return Optional.of(data);
+            }
+            telemetry.warn("Corrupted tile cache entry " + file);
+        } catch (NoSuchFileException e) {
+            // evicted concurrently or removed externally
+        } catch (IOException e) {
+            telemetry.warn("Failed to read tile cache entry " + file + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            Long removed = entries.remove(key);
+            if (removed != null) {
+                size -= removed;
+            }
+        }
+        telemetry.count(CACHE_MISS);
+        return Optional.empty();
+    }
+
+    /**
+     * Stores an entry. Failures to write are reported through the telemetry and otherwise ignored, the cache is only
+     * an optimization.
+     */
+    public void put(long key, byte[] data) {
+        Path file = path(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMP_SUFFIX);
+            try {
+                Files.write(temp, encode(data));
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            telemetry.count(CACHE_WRITE_ERROR);
+            telemetry.warn("Failed to write tile cache entry " + file + ": " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            long length = ENTRY_HEADER_SIZE + data.length;
+            Long previous = entries.put(key, length);
+            size += length - (previous != null ? previous : 0);
+            evict(key);
+        }
+    }
+
+    private static byte[] encode(byte[] data) {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_SIZE + data.length);
+        entry.putInt(data.length).putInt(crc(data, 0, data.length)).put(data);
+        return entry.array();
+    }
+
+    /** Returns the data of an entry, or null if the entry is truncated or corrupted. */
+    private static byte[] decode(byte[] entry) {
+        if (entry.length < ENTRY_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(entry);
+        int length = buf.getInt();
+        int crc = buf.getInt();
+        if (length != entry.length - ENTRY_HEADER_SIZE || crc != crc(entry, ENTRY_HEADER_SIZE, length)) {
+            return null;
+        }
+        return Arrays.copyOfRange(entry, ENTRY_HEADER_SIZE, entry.length);
+    }
+
+    private static int crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /** Returns the total size of the entries in bytes. */
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /** Removes all entries. */
+    public synchronized void clear() {
+        for (Long key : new ArrayList<>(entries.keySet())) {
+            delete(key);
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    private synchronized void evict(Long keep) {
+        Iterator<Map.Entry<Long, Long>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<Long, Long> e = it.next();
+            if (e.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            size -= e.getValue();
+            delete(e.getKey());
+            telemetry.count(CACHE_EVICTION);
+        }
+    }
+
+    private void delete(long key) {
+        try {
+            Files.deleteIfExists(path(key));
+        } catch (IOException e) {
+            telemetry.warn("Failed to delete tile cache entry " + path(key) + ": " + e.getMessage());
+        }
+    }
+
+    private Path path(long key) {
+        String name = String.format("%016x", key);
+        return dir.resolve(name.substring(0, 2)).resolve(name + ENTRY_SUFFIX);
+    }
+}
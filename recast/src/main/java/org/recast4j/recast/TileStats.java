@@ -0,0 +1,50 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+/** Size of the input and output of a single tile (or solo mesh) build, reported by {@link Telemetry}. */
+public class TileStats {
+
+    public final int tileX;
+    public final int tileZ;
+    /** Number of input triangles overlapping the tile, 0 if the heightfield was rasterized by the caller. */
+    public final int triangles;
+    /** Number of spans in the solid heightfield. */
+    public final int spans;
+    /** Number of regions in the compact heightfield. */
+    public final int regions;
+    /** Number of polygons in the poly mesh. */
+    public final int polys;
+    /** Build time in nanoseconds. */
+    public final long buildTime;
+    /** Used heap in bytes sampled when the tile was done. */
+    public final long usedMemory;
+
+    public TileStats(int tileX, int tileZ, int triangles, int spans, int regions, int polys, long buildTime,
+            long usedMemory) {
+        this.tileX = tileX;
+        this.tileZ = tileZ;
+        this.triangles = triangles;
+        this.spans = spans;
+        this.regions = regions;
+        this.polys = polys;
+        this.buildTime = buildTime;
+        this.usedMemory = usedMemory;
+    }
+
+}
@@ -18,198 +18,344 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast.geom;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.List;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bounding volume tree of the triangles of a mesh on the xz-plane. The triangles are reordered so that the triangles
+ * of each leaf node (chunk) are stored next to each other in {@link #getTris()}. Nodes are stored in depth first order
+ * in flat arrays, an inner node keeps the negative index of the node following its subtree, so that a query can skip
+ * the subtree.
+ */
 public class ChunkyTriMesh {
 
-    private static class BoundsItem {
-        private final float[] bmin = new float[2];
-        private final float[] bmax = new float[2];
-        private int i;
-    }
+    /** Subtrees with more triangles are built as separate fork-join tasks. */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    // Node bounds [(minx, minz, maxx, maxz) * nnodes]
+    private final float[] bounds;
+    // First triangle of a leaf, negative escape index of an inner node
+    private final int[] index;
+    // Number of triangles of a node
+    private final int[] count;
+    private final int[] tris;
+    private final int nnodes;
+    private final int nchunks;
+    final int ntris;
+    final int maxTrisPerChunk;
 
-    public static class ChunkyTriMeshNode {
-        private final float[] bmin = new float[2];
-        private final float[] bmax = new float[2];
-        private int i;
-        public int[] tris;
+    public ChunkyTriMesh(float[] verts, int[] tris, int ntris, int trisPerChunk) {
+        this(verts, tris, ntris, trisPerChunk, null);
     }
 
-    private class CompareItemX implements Comparator<BoundsItem> {
-        @Override
-        public int compare(BoundsItem a, BoundsItem b) {
-            return Float.compare(a.bmin[0], b.bmin[0]);
+    /**
+     * Builds the tree, splitting large subtrees into fork-join tasks run on the pool. The result is identical to the
+     * sequential build.
+     */
+    public ChunkyTriMesh(float[] verts, int[] tris, int ntris, int trisPerChunk, ForkJoinPool pool) {
+        this.ntris = ntris;
+        nnodes = nodeCount(ntris, trisPerChunk);
+        bounds = new float[nnodes * 4];
+        index = new int[nnodes];
+        count = new int[nnodes];
+        this.tris = new int[ntris * 3];
+        int[] chunks = new int[2];
+        layout(0, 0, ntris, trisPerChunk, chunks);
+        nchunks = chunks[0];
+        maxTrisPerChunk = chunks[1];
+        Builder builder = new Builder(verts, tris, ntris);
+        if (pool != null && ntris > PARALLEL_THRESHOLD) {
+            pool.invoke(builder.new Bounds(0, ntris));
+            pool.invoke(builder.new Subdivide(0, 0, ntris));
+        } else {
+            builder.calcItemBounds(0, ntris);
+            builder.subdivide(0, 0, ntris, false);
         }
     }
 
-    private class CompareItemY implements Comparator<BoundsItem> {
-        @Override
-        public int compare(BoundsItem a, BoundsItem b) {
-            return Float.compare(a.bmin[1], b.bmin[1]);
+    private static int nodeCount(int n, int trisPerChunk) {
+        if (n <= trisPerChunk) {
+            return 1;
         }
+        return 1 + nodeCount(n / 2, trisPerChunk) + nodeCount(n - n / 2, trisPerChunk);
     }
 
-    List<ChunkyTriMeshNode> nodes;
-    int ntris;
-    int maxTrisPerChunk;
-
-    private void calcExtends(BoundsItem[] items, int imin, int imax, float[] bmin, float[] bmax) {
-        bmin[0] = items[imin].bmin[0];
-        bmin[1] = items[imin].bmin[1];
-
-        bmax[0] = items[imin].bmax[0];
-        bmax[1] = items[imin].bmax[1];
-
-        for (int i = imin + 1; i < imax; ++i) {
-            BoundsItem it = items[i];
-            if (it.bmin[0] < bmin[0]) {
-                bmin[0] = it.bmin[0];
-            }
-            if (it.bmin[1] < bmin[1]) {
-                bmin[1] = it.bmin[1];
-            }
-
-            if (it.bmax[0] > bmax[0]) {
-                bmax[0] = it.bmax[0];
-            }
-            if (it.bmax[1] > bmax[1]) {
-                bmax[1] = it.bmax[1];
-            }
+    /**
+     * Lays out the nodes of the subtree. The shape of the tree only depends on the number of triangles, so the node
+     * indices and triangle ranges are known before the triangles are partitioned. Returns the index of the node
+     * following the subtree.
+     */
+    private int layout(int node, int imin, int imax, int trisPerChunk, int[] chunks) {
+        int inum = imax - imin;
+        count[node] = inum;
+        if (inum <= trisPerChunk) {
+            // Leaf
+            index[node] = imin;
+            chunks[0]++;
+            chunks[1] = Math.max(chunks[1], inum);
+            return node + 1;
         }
+        int isplit = imin + inum / 2;
+        int next = layout(node + 1, imin, isplit, trisPerChunk, chunks);
+        next = layout(next, isplit, imax, trisPerChunk, chunks);
+        // Negative index means escape.
+        index[node] = -next;
+        return next;
     }
 
-    private int longestAxis(float x, float y) {
-        return y > x ? 1 : 0;
-    }
+    private class Builder {
 
-    private void subdivide(BoundsItem[] items, int imin, int imax, int trisPerChunk, List<ChunkyTriMeshNode> nodes,
-            int[] inTris) {
-        int inum = imax - imin;
+        private final float[] verts;
+        private final int[] inTris;
+        // Triangle indices, partitioned in place
+        private final int[] items;
+        // Triangle bounds [(minx, minz, maxx, maxz) * ntris]
+        private final float[] itemBounds;
 
-        ChunkyTriMeshNode node = new ChunkyTriMeshNode();
-        nodes.add(node);
-
-        if (inum <= trisPerChunk) {
-            // Leaf
-            calcExtends(items, imin, imax, node.bmin, node.bmax);
+        Builder(float[] verts, int[] inTris, int ntris) {
+            this.verts = verts;
+            this.inTris = inTris;
+            items = new int[ntris];
+            itemBounds = new float[ntris * 4];
+        }
 
-            // Copy triangles.
-            node.i = nodes.size();
-            node.tris = new int[inum * 3];
+        private class Bounds extends RecursiveAction {
+            private final int imin;
+            private final int imax;
 
-            int dst = 0;
-            for (int i = imin; i < imax; ++i) {
-                int src = items[i].i * 3;
-                node.tris[dst++] = inTris[src];
-                node.tris[dst++] = inTris[src + 1];
-                node.tris[dst++] = inTris[src + 2];
+            Bounds(int imin, int imax) {
+                this.imin = imin;
+                this.imax = imax;
             }
-        } else {
-            // Split
-            calcExtends(items, imin, imax, node.bmin, node.bmax);
 
-            int axis = longestAxis(node.bmax[0] - node.bmin[0], node.bmax[1] - node.bmin[1]);
-
-            if (axis == 0) {
-                Arrays.sort(items, imin, imax, new CompareItemX());
-                // Sort along x-axis
-            } else if (axis == 1) {
-                Arrays.sort(items, imin, imax, new CompareItemY());
-                // Sort along y-axis
+            @Override
+            protected void compute() {
+                if (imax - imin <= PARALLEL_THRESHOLD) {
+                    calcItemBounds(imin, imax);
+                } else {
+                    int imid = (imin + imax) >>> 1;
+                    ForkJoinTask.invokeAll(new Bounds(imin, imid), new Bounds(imid, imax));
+                }
             }
+        }
 
-            int isplit = imin + inum / 2;
+        private class Subdivide extends RecursiveAction {
+            private final int node;
+            private final int imin;
+            private final int imax;
 
-            // Left
-            subdivide(items, imin, isplit, trisPerChunk, nodes, inTris);
-            // Right
-            subdivide(items, isplit, imax, trisPerChunk, nodes, inTris);
+            Subdivide(int node, int imin, int imax) {
+                this.node = node;
+                this.imin = imin;
+                this.imax = imax;
+            }
 
-            // Negative index means escape.
-            node.i = -nodes.size();
+            @Override
+            protected void compute() {
+                subdivide(node, imin, imax, true);
+            }
         }
-    }
 
-    public ChunkyTriMesh(float[] verts, int[] tris, int ntris, int trisPerChunk) {
-        int nchunks = (ntris + trisPerChunk - 1) / trisPerChunk;
+        void calcItemBounds(int imin, int imax) {
+            for (int i = imin; i < imax; i++) {
+                items[i] = i;
+                int t = i * 3;
+                int b = i * 4;
+                // Calc triangle XZ bounds.
+                float minx = verts[inTris[t] * 3];
+                float minz = verts[inTris[t] * 3 + 2];
+                float maxx = minx;
+                float maxz = minz;
+                for (int j = 1; j < 3; ++j) {
+                    int v = inTris[t + j] * 3;
+                    minx = Math.min(minx, verts[v]);
+                    minz = Math.min(minz, verts[v + 2]);
+                    maxx = Math.max(maxx, verts[v]);
+                    maxz = Math.max(maxz, verts[v + 2]);
+                }
+                itemBounds[b] = minx;
+                itemBounds[b + 1] = minz;
+                itemBounds[b + 2] = maxx;
+                itemBounds[b + 3] = maxz;
+            }
+        }
 
-        nodes = new ArrayList<>(nchunks);
-        this.ntris = ntris;
+        private void calcExtends(int imin, int imax, int node) {
+            float minx = Float.MAX_VALUE;
+            float minz = Float.MAX_VALUE;
+            float maxx = -Float.MAX_VALUE;
+            float maxz = -Float.MAX_VALUE;
+            for (int i = imin; i < imax; ++i) {
+                int b = items[i] * 4;
+                minx = Math.min(minx, itemBounds[b]);
+                minz = Math.min(minz, itemBounds[b + 1]);
+                maxx = Math.max(maxx, itemBounds[b + 2]);
+                maxz = Math.max(maxz, itemBounds[b + 3]);
+            }
+            bounds[node * 4] = minx;
+            bounds[node * 4 + 1] = minz;
+            bounds[node * 4 + 2] = maxx;
+            bounds[node * 4 + 3] = maxz;
+        }
 
-        // Build tree
-        BoundsItem[] items = new BoundsItem[ntris];
-
-        for (int i = 0; i < ntris; i++) {
-            int t = i * 3;
-            BoundsItem it = items[i] = new BoundsItem();
-            it.i = i;
-            // Calc triangle XZ bounds.
-            it.bmin[0] = it.bmax[0] = verts[tris[t] * 3 + 0];
-            it.bmin[1] = it.bmax[1] = verts[tris[t] * 3 + 2];
-            for (int j = 1; j < 3; ++j) {
-                int v = tris[t + j] * 3;
-                if (verts[v] < it.bmin[0]) {
-                    it.bmin[0] = verts[v];
-                }
-                if (verts[v + 2] < it.bmin[1]) {
-                    it.bmin[1] = verts[v + 2];
+        void subdivide(int node, int imin, int imax, boolean fork) {
+            calcExtends(imin, imax, node);
+            if (index[node] >= 0) {
+                // Leaf, copy triangles.
+                for (int i = imin; i < imax; ++i) {
+                    System.arraycopy(inTris, items[i] * 3, tris, i * 3, 3);
                 }
+                return;
+            }
+            // Split
+            int b = node * 4;
+            int axis = longestAxis(bounds[b + 2] - bounds[b], bounds[b + 3] - bounds[b + 1]);
+            int isplit = imin + (imax - imin) / 2;
+            nthElement(imin, imax, isplit, axis);
+
+            int left = node + 1;
+            int right = index[left] >= 0 ? left + 1 : -index[left];
+            if (fork && imax - imin > PARALLEL_THRESHOLD) {
+                ForkJoinTask.invokeAll(new Subdivide(left, imin, isplit), new Subdivide(right, isplit, imax));
+            } else {
+                subdivide(left, imin, isplit, false);
+                subdivide(right, isplit, imax, false);
+            }
+        }
 
-                if (verts[v] > it.bmax[0]) {
-                    it.bmax[0] = verts[v];
+        /**
+         * Partitions the items so that the item at nth is the one a sort by the minimum bound on the axis would put
+         * there, items before it are not greater and items after it are not less.
+         */
+        private void nthElement(int lo, int hi, int nth, int axis) {
+            hi--;
+            while (lo < hi) {
+                float a = key(lo, axis);
+                float b = key((lo + hi) >>> 1, axis);
+                float c = key(hi, axis);
+                // Median of three
+                float pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (key(i, axis) < pivot) {
+                        i++;
+                    }
+                    while (key(j, axis) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int tmp = items[i];
+                        items[i] = items[j];
+                        items[j] = tmp;
+                        i++;
+                        j--;
+                    }
                 }
-                if (verts[v + 2] > it.bmax[1]) {
-                    it.bmax[1] = verts[v + 2];
+                if (nth <= j) {
+                    hi = j;
+                } else if (nth >= i) {
+                    lo = i;
+                } else {
+                    return;
                 }
             }
         }
 
-        subdivide(items, 0, ntris, trisPerChunk, nodes, tris);
-
-        // Calc max tris per node.
-        maxTrisPerChunk = 0;
-        for (ChunkyTriMeshNode node : nodes) {
-            boolean isLeaf = node.i >= 0;
-            if (!isLeaf) {
-                continue;
-            }
-            if (node.tris.length / 3 > maxTrisPerChunk) {
-                maxTrisPerChunk = node.tris.length / 3;
-            }
+        private float key(int i, int axis) {
+            return itemBounds[items[i] * 4 + axis];
         }
+    }
 
+    private static int longestAxis(float x, float y) {
+        return y > x ? 1 : 0;
     }
 
-    private boolean checkOverlapRect(float[] amin, float[] amax, float[] bmin, float[] bmax) {
+    private boolean checkOverlapRect(float[] amin, float[] amax, int node) {
+        int b = node * 4;
         boolean overlap = true;
-        overlap = (amin[0] > bmax[0] || amax[0] < bmin[0]) ? false : overlap;
-        overlap = (amin[1] > bmax[1] || amax[1] < bmin[1]) ? false : overlap;
+        overlap = (amin[0] > bounds[b + 2] || amax[0] < bounds[b]) ? false : overlap;
+        overlap = (amin[1] > bounds[b + 3] || amax[1] < bounds[b + 1]) ? false : overlap;
         return overlap;
     }
 
-    public List<ChunkyTriMeshNode> getChunksOverlappingRect(float[] bmin, float[] bmax) {
+    /**
+     * Finds the chunks overlapping the rectangle on the xz-plane.
+     *
+     * @param ids
+     *            receives the ids of the chunks, must have room for {@link #getChunkCount()} ids
+     * @return the number of chunks found
+     */
+    public int getChunksOverlappingRect(float[] bmin, float[] bmax, int[] ids) {
         // Traverse tree
-        List<ChunkyTriMeshNode> ids = new ArrayList<>();
+        int n = 0;
+        int i = 0;
+        while (i < nnodes) {
+            boolean overlap = checkOverlapRect(bmin, bmax, i);
+            boolean isLeafNode = index[i] >= 0;
+
+            if (isLeafNode && overlap) {
+                ids[n++] = i;
+            }
+
+            if (overlap || isLeafNode) {
+                i++;
+            } else {
+                i = -index[i];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Counts the triangles of the chunks overlapping the rectangle on the xz-plane, the same chunks
+     * {@link #getChunksOverlappingRect(float[], float[], int[])} finds.
+     */
+    public int getTriCountOverlappingRect(float[] bmin, float[] bmax) {
+        int n = 0;
         int i = 0;
-        while (i < nodes.size()) {
-            ChunkyTriMeshNode node = nodes.get(i);
-            boolean overlap = checkOverlapRect(bmin, bmax, node.bmin, node.bmax);
-            boolean isLeafNode = node.i >= 0;
+        while (i < nnodes) {
+            boolean overlap = checkOverlapRect(bmin, bmax, i);
+            boolean isLeafNode = index[i] >= 0;
 
             if (isLeafNode && overlap) {
-                ids.add(node);
+                n += count[i];
             }
 
             if (overlap || isLeafNode) {
                 i++;
             } else {
-                i = -node.i;
+                i = -index[i];
             }
         }
-        return ids;
+        return n;
+    }
+
+    /**
+     * Returns the triangles of the mesh ordered by chunk [(vertA, vertB, vertC) * ntris].
+     */
+    public int[] getTris() {
+        return tris;
+    }
+
+    /**
+     * Returns the index of the first triangle of the chunk in {@link #getTris()}.
+     */
+    public int getChunkStart(int id) {
+        return index[id];
+    }
+
+    public int getChunkTriCount(int id) {
+        return count[id];
+    }
+
+    public int getChunkCount() {
+        return nchunks;
+    }
+
+    public int getMaxTrisPerChunk() {
+        return maxTrisPerChunk;
     }
 
 }
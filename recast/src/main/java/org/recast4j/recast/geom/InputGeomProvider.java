@@ -26,4 +26,36 @@ public interface InputGeomProvider extends ConvexVolumeProvider {
 
     Iterable<TriMesh> meshes();
 
+    /**
+     * Returns the meshes containing the triangles overlapping the given rectangle on the xz-plane. The meshes may also
+     * contain triangles outside of the rectangle. Providers that do not keep the whole geometry in memory can use it
+     * to load only the geometry needed to build a tile.
+     *
+     * @param bmin
+     *            minimum bounds of the rectangle [(x, z)]
+     * @param bmax
+     *            maximum bounds of the rectangle [(x, z)]
+     */
+    default Iterable<TriMesh> meshes(float[] bmin, float[] bmax) {
+        return meshes();
+    }
+
+    /**
+     * Estimates the number of triangles a tiled build rasterizes for the given rectangle on the xz-plane, used to
+     * schedule expensive tiles first. The default counts the triangles of the chunks overlapping the rectangle.
+     * Providers that load geometry on demand should override it to answer without loading any geometry.
+     *
+     * @param bmin
+     *            minimum bounds of the rectangle [(x, z)]
+     * @param bmax
+     *            maximum bounds of the rectangle [(x, z)]
+     */
+    default long estimateTriangleCount(float[] bmin, float[] bmax) {
+        long ntris = 0;
+        for (TriMesh mesh : meshes(bmin, bmax)) {
+            ntris += mesh.getChunkyTriMesh().getTriCountOverlappingRect(bmin, bmax);
+        }
+        return ntris;
+    }
+
 }
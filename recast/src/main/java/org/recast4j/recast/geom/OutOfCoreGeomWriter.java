@@ -0,0 +1,261 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast.geom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes geometry for {@link OutOfCoreInputGeomProvider}. Meshes are added one at a time and spooled to a temporary
+ * file next to the output, so the whole geometry never has to be in memory. On close the triangles are partitioned
+ * into a grid of square cells on the xz-plane, by triangle centroid, and written cell by cell.
+ *
+ * <pre>
+ * header: magic, version, cell size, grid width, grid height, bmin[3], bmax[3], margin
+ * cells:  grid width * grid height times (data offset, triangle count, xz bounds[4]), row by row
+ * data:   9 floats (3 vertices) per triangle, grouped by cell
+ * </pre>
+ *
+ * All values are little endian. The margin is the largest distance a triangle reaches outside the cell it is stored in.
+ */
+public class OutOfCoreGeomWriter implements AutoCloseable {
+
+    static final int MAGIC = 'R' << 24 | 'C' << 16 | 'G' << 8 | 'G';
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * 12;
+    static final int CELL_SIZE = 8 + 4 + 4 * 4;
+    static final int TRI_SIZE = 9 * 4;
+    /** Largest number of triangles in a cell, a cell is read into a single buffer. */
+    static final int MAX_CELL_TRIANGLES = Integer.MAX_VALUE / TRI_SIZE;
+    /** Upper bound of the memory used for the per-cell write buffers when partitioning. */
+    private static final int MAX_CELL_BUFFERS_SIZE = 32 << 20;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+
+    private final Path file;
+    private final float cellSize;
+    private final Path spoolFile;
+    private final FileChannel spool;
+    private final ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER_SIZE - IO_BUFFER_SIZE % TRI_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private final float[] bmin = new float[] { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+    private final float[] bmax = new float[] { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+    private long ntris;
+    private boolean closed;
+
+    /**
+     * @param cellSize
+     *            size of the grid cells in world units, usually the size of a few tiles (tile size * cs)
+     */
+    public OutOfCoreGeomWriter(Path file, float cellSize) throws IOException {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.file = file;
+        this.cellSize = cellSize;
+        Path dir = file.toAbsolutePath().getParent();
+        spoolFile = Files.createTempFile(dir, file.getFileName().toString(), ".spool");
+        spool = FileChannel.open(spoolFile, StandardOpenOption.WRITE, StandardOpenOption.READ,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    public void addMesh(float[] verts, int[] faces) throws IOException {
+        for (int i = 0; i < faces.length; i += 3) {
+            if (buf.remaining() < TRI_SIZE) {
+                flush();
+            }
+            for (int j = 0; j < 3; j++) {
+                int v = faces[i + j] * 3;
+                for (int k = 0; k < 3; k++) {
+                    float f = verts[v + k];
+                    buf.putFloat(f);
+                    bmin[k] = Math.min(bmin[k], f);
+                    bmax[k] = Math.max(bmax[k], f);
+                }
+            }
+            ntris++;
+        }
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            spool.write(buf);
+        }
+        buf.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            write();
+        } finally {
+            spool.close();
+        }
+    }
+
+    private void write() throws IOException {
+        if (ntris == 0) {
+            Arrays.fill(bmin, 0);
+            Arrays.fill(bmax, 0);
+        }
+        int gw = ntris == 0 ? 0 : Math.max(1, (int) Math.ceil((bmax[0] - bmin[0]) / cellSize));
+        int gh = ntris == 0 ? 0 : Math.max(1, (int) Math.ceil((bmax[2] - bmin[2]) / cellSize));
+        int ncells = gw * gh;
+        int[] counts = new int[ncells];
+        float[] bounds = new float[ncells * 4];
+        for (int c = 0; c < ncells; c++) {
+            bounds[c * 4 + 0] = Float.MAX_VALUE;
+            bounds[c * 4 + 1] = Float.MAX_VALUE;
+            bounds[c * 4 + 2] = -Float.MAX_VALUE;
+            bounds[c * 4 + 3] = -Float.MAX_VALUE;
+        }
+
+        // Pass 1: count the triangles of each cell and their bounds.
+        float[] tri = new float[9];
+        rewind();
+        for (long t = 0; t < ntris; t++) {
+            readTriangle(tri);
+            int c = cell(tri, gw, gh);
+            if (counts[c] == MAX_CELL_TRIANGLES) {
+                throw new IOException("Cell (" + c % gw + ", " + c / gw + ") has more than " + MAX_CELL_TRIANGLES
+                        + " triangles, use a smaller cell size than " + cellSize);
+            }
+            counts[c]++;
+            for (int j = 0; j < 9; j += 3) {
+                bounds[c * 4 + 0] = Math.min(bounds[c * 4 + 0], tri[j]);
+                bounds[c * 4 + 1] = Math.min(bounds[c * 4 + 1], tri[j + 2]);
+                bounds[c * 4 + 2] = Math.max(bounds[c * 4 + 2], tri[j]);
+                bounds[c * 4 + 3] = Math.max(bounds[c * 4 + 3], tri[j + 2]);
+            }
+        }
+        float margin = 0;
+        long[] offsets = new long[ncells];
+        long offset = HEADER_SIZE + (long) ncells * CELL_SIZE;
+        for (int y = 0; y < gh; y++) {
+            for (int x = 0; x < gw; x++) {
+                int c = x + y * gw;
+                offsets[c] = offset;
+                offset += (long) counts[c] * TRI_SIZE;
+                if (counts[c] > 0) {
+                    margin = Math.max(margin, bmin[0] + x * cellSize - bounds[c * 4 + 0]);
+                    margin = Math.max(margin, bmin[2] + y * cellSize - bounds[c * 4 + 1]);
+                    margin = Math.max(margin, bounds[c * 4 + 2] - (bmin[0] + (x + 1) * cellSize));
+                    margin = Math.max(margin, bounds[c * 4 + 3] - (bmin[2] + (y + 1) * cellSize));
+                }
+            }
+        }
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + ncells * CELL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putFloat(cellSize).putInt(gw).putInt(gh);
+            for (int k = 0; k < 3; k++) {
+                header.putFloat(bmin[k]);
+            }
+            for (int k = 0; k < 3; k++) {
+                header.putFloat(bmax[k]);
+            }
+            header.putFloat(margin);
+            for (int c = 0; c < ncells; c++) {
+                header.putLong(offsets[c]).putInt(counts[c]);
+                for (int k = 0; k < 4; k++) {
+                    header.putFloat(counts[c] > 0 ? bounds[c * 4 + k] : 0);
+                }
+            }
+            header.flip();
+            writeFully(out, header, 0);
+
+            // Pass 2: copy the triangles to their cells through small per-cell buffers.
+            int cellBufferSize = Math.max(1, Math.min(64, MAX_CELL_BUFFERS_SIZE / TRI_SIZE / Math.max(1, ncells)))
+                    * TRI_SIZE;
+            ByteBuffer[] cellBuffers = new ByteBuffer[ncells];
+            long[] written = offsets.clone();
+            rewind();
+            for (long t = 0; t < ntris; t++) {
+                readTriangle(tri);
+                int c = cell(tri, gw, gh);
+                ByteBuffer cb = cellBuffers[c];
+                if (cb == null) {
+                    cb = cellBuffers[c] = ByteBuffer.allocate(cellBufferSize).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                for (float f : tri) {
+                    cb.putFloat(f);
+                }
+                if (!cb.hasRemaining()) {
+                    cb.flip();
+                    written[c] += writeFully(out, cb, written[c]);
+                    cb.clear();
+                }
+            }
+            for (int c = 0; c < ncells; c++) {
+                if (cellBuffers[c] != null && cellBuffers[c].position() > 0) {
+                    cellBuffers[c].flip();
+                    writeFully(out, cellBuffers[c], written[c]);
+                }
+            }
+        }
+    }
+
+    private int cell(float[] tri, int gw, int gh) {
+        float cx = (tri[0] + tri[3] + tri[6]) / 3;
+        float cz = (tri[2] + tri[5] + tri[8]) / 3;
+        int x = Math.max(0, Math.min(gw - 1, (int) ((cx - bmin[0]) / cellSize)));
+        int y = Math.max(0, Math.min(gh - 1, (int) ((cz - bmin[2]) / cellSize)));
+        return x + y * gw;
+    }
+
+    private void rewind() throws IOException {
+        spool.position(0);
+        buf.clear().limit(0);
+    }
+
+    private void readTriangle(float[] tri) throws IOException {
+        if (buf.remaining() < TRI_SIZE) {
+            buf.compact();
+            while (buf.position() < TRI_SIZE) {
+                if (spool.read(buf) < 0) {
+                    throw new IOException("Unexpected end of spool file " + spoolFile);
+                }
+            }
+            buf.flip();
+        }
+        for (int i = 0; i < 9; i++) {
+            tri[i] = buf.getFloat();
+        }
+    }
+
+    private static int writeFully(FileChannel out, ByteBuffer b, long position) throws IOException {
+        int n = 0;
+        while (b.hasRemaining()) {
+            n += out.write(b, position + n);
+        }
+        return n;
+    }
+
+}
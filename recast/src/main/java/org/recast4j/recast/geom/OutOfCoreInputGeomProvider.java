@@ -0,0 +1,320 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast.geom;
+
+import static org.recast4j.recast.geom.OutOfCoreGeomWriter.CELL_SIZE;
+import static org.recast4j.recast.geom.OutOfCoreGeomWriter.HEADER_SIZE;
+import static org.recast4j.recast.geom.OutOfCoreGeomWriter.MAGIC;
+import static org.recast4j.recast.geom.OutOfCoreGeomWriter.MAX_CELL_TRIANGLES;
+import static org.recast4j.recast.geom.OutOfCoreGeomWriter.TRI_SIZE;
+import static org.recast4j.recast.geom.OutOfCoreGeomWriter.VERSION;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import org.recast4j.recast.AreaModification;
+import org.recast4j.recast.ConvexVolume;
+
+/**
+ * Input geometry read on demand from a grid file written by {@link OutOfCoreGeomWriter}. Tiled builds only read the
+ * grid cells overlapping the tile being built. Loaded cells are kept in a cache bounded by the number of triangles,
+ * which is shared by all threads building tiles, and a cell requested by several threads at once is read only once.
+ */
+public class OutOfCoreInputGeomProvider implements InputGeomProvider, AutoCloseable {
+
+    private final FileChannel channel;
+    private final float cellSize;
+    private final int gw;
+    private final int gh;
+    private final float[] bmin = new float[3];
+    private final float[] bmax = new float[3];
+    private final float margin;
+    private final long[] offsets;
+    private final int[] counts;
+    private final float[] bounds;
+    private final List<ConvexVolume> volumes = new ArrayList<>();
+    private final long maxCachedTriangles;
+    private final Map<Integer, TriMesh> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, CompletableFuture<TriMesh>> loading = new ConcurrentHashMap<>();
+    private long cachedTriangles;
+    private final AtomicLong cellLoads = new AtomicLong();
+
+    /**
+     * @param maxCachedTriangles
+     *            maximum number of triangles kept in the cache, evicted cells stay in memory while a build still
+     *            uses them
+     */
+    public OutOfCoreInputGeomProvider(Path file, long maxCachedTriangles) throws IOException {
+        this.maxCachedTriangles = maxCachedTriangles;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Invalid magic in " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " in " + file);
+            }
+            cellSize = header.getFloat();
+            gw = header.getInt();
+            gh = header.getInt();
+            for (int k = 0; k < 3; k++) {
+                bmin[k] = header.getFloat();
+            }
+            for (int k = 0; k < 3; k++) {
+                bmax[k] = header.getFloat();
+            }
+            margin = header.getFloat();
+            int ncells = gw * gh;
+            offsets = new long[ncells];
+            counts = new int[ncells];
+            bounds = new float[ncells * 4];
+            ByteBuffer table = read(HEADER_SIZE, ncells * CELL_SIZE);
+            for (int c = 0; c < ncells; c++) {
+                offsets[c] = table.getLong();
+                counts[c] = table.getInt();
+                if (counts[c] < 0 || counts[c] > MAX_CELL_TRIANGLES) {
+                    throw new IOException("Invalid triangle count " + counts[c] + " of cell " + c + " in " + file);
+                }
+                for (int k = 0; k < 4; k++) {
+                    bounds[c * 4 + k] = table.getFloat();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public float[] getMeshBoundsMin() {
+        return bmin;
+    }
+
+    @Override
+    public float[] getMeshBoundsMax() {
+        return bmax;
+    }
+
+    @Override
+    public List<ConvexVolume> convexVolumes() {
+        return volumes;
+    }
+
+    public void addConvexVolume(float[] verts, float minh, float maxh, AreaModification areaMod) {
+        ConvexVolume vol = new ConvexVolume();
+        vol.hmin = minh;
+        vol.hmax = maxh;
+        vol.verts = verts;
+        vol.areaMod = areaMod;
+        volumes.add(vol);
+    }
+
+    /**
+     * Iterates all cells of the grid, loading them one by one.
+     */
+    @Override
+    public Iterable<TriMesh> meshes() {
+        return () -> new Iterator<TriMesh>() {
+            private int next = nextCell(0);
+
+            private int nextCell(int c) {
+                while (c < counts.length && counts[c] == 0) {
+                    c++;
+                }
+                return c;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < counts.length;
+            }
+
+            @Override
+            public TriMesh next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                TriMesh mesh = cell(next);
+                next = nextCell(next + 1);
+                return mesh;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<TriMesh> meshes(float[] rmin, float[] rmax) {
+        List<TriMesh> meshes = new ArrayList<>();
+        forEachCell(rmin, rmax, c -> meshes.add(cell(c)));
+        return meshes;
+    }
+
+    /**
+     * Sums the triangle counts of the cell table for the cells overlapping the rectangle, without reading any cell.
+     */
+    @Override
+    public long estimateTriangleCount(float[] rmin, float[] rmax) {
+        long[] ntris = new long[1];
+        forEachCell(rmin, rmax, c -> ntris[0] += counts[c]);
+        return ntris[0];
+    }
+
+    /**
+     * Visits the non-empty cells whose triangle bounds overlap the rectangle on the xz-plane.
+     */
+    private void forEachCell(float[] rmin, float[] rmax, IntConsumer consumer) {
+        if (counts.length == 0) {
+            return;
+        }
+        int x0 = clamp((int) Math.floor((rmin[0] - margin - bmin[0]) / cellSize), gw);
+        int x1 = clamp((int) Math.floor((rmax[0] + margin - bmin[0]) / cellSize), gw);
+        int y0 = clamp((int) Math.floor((rmin[1] - margin - bmin[2]) / cellSize), gh);
+        int y1 = clamp((int) Math.floor((rmax[1] + margin - bmin[2]) / cellSize), gh);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int c = x + y * gw;
+                if (counts[c] > 0 && bounds[c * 4] <= rmax[0] && bounds[c * 4 + 2] >= rmin[0]
+                        && bounds[c * 4 + 1] <= rmax[1] && bounds[c * 4 + 3] >= rmin[1]) {
+                    consumer.accept(c);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int v, int n) {
+        return Math.max(0, Math.min(n - 1, v));
+    }
+
+    private TriMesh cell(int c) {
+        synchronized (cache) {
+            TriMesh mesh = cache.get(c);
+            if (mesh != null) {
+                return mesh;
+            }
+        }
+        CompletableFuture<TriMesh> future = new CompletableFuture<>();
+        CompletableFuture<TriMesh> pending = loading.putIfAbsent(c, future);
+        if (pending != null) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            TriMesh mesh;
+            synchronized (cache) {
+                // Another thread may have finished loading the cell since the first lookup
+                mesh = cache.get(c);
+            }
+            if (mesh != null) {
+                future.complete(mesh);
+                return mesh;
+            }
+            mesh = load(c);
+            synchronized (cache) {
+                cache.put(c, mesh);
+                cachedTriangles += counts[c];
+                evict();
+            }
+            future.complete(mesh);
+            return mesh;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(c);
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Integer, TriMesh>> it = cache.entrySet().iterator();
+        // Keep at least the most recently used cell, even if it is larger than the limit
+        while (cachedTriangles > maxCachedTriangles && cache.size() > 1) {
+            Map.Entry<Integer, TriMesh> e = it.next();
+            cachedTriangles -= counts[e.getKey()];
+            it.remove();
+        }
+    }
+
+    private TriMesh load(int c) {
+        int ntris = counts[c];
+        float[] verts = new float[ntris * 9];
+        int[] faces = new int[ntris * 3];
+        try {
+            read(offsets[c], ntris * TRI_SIZE).asFloatBuffer().get(verts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = i;
+        }
+        cellLoads.incrementAndGet();
+        return new TriMesh(verts, faces);
+    }
+
+    private ByteBuffer read(long position, int size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of file at " + (position + buf.position()));
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Returns the number of grid cells read from the file so far.
+     */
+    public long getCellLoads() {
+        return cellLoads.get();
+    }
+
+    /**
+     * Returns the number of triangles currently held in the cache.
+     */
+    public long getCachedTriangles() {
+        synchronized (cache) {
+            return cachedTriangles;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -34,6 +34,7 @@ public class SimpleInputGeomProvider implements InputGeomProvider {
     final float[] bmin;
     final float[] bmax;
     final List<ConvexVolume> volumes = new ArrayList<>();
+    private volatile TriMesh mesh;
 
     public SimpleInputGeomProvider(List<Float> vertexPositions, List<Integer> meshFaces) {
         this(mapVertices(vertexPositions), mapFaces(meshFaces));
@@ -96,15 +97,25 @@ public class SimpleInputGeomProvider implements InputGeomProvider {
 
     @Override
     public Iterable<TriMesh> meshes() {
-        return Collections.singletonList(new TriMesh(vertices, faces));
+        // Building the chunks is the expensive part, do it once instead of once per tile
+        TriMesh m = mesh;
+        if (m == null) {
+            synchronized (this) {
+                m = mesh;
+                if (m == null) {
+                    m = mesh = new TriMesh(vertices, faces);
+                }
+            }
+        }
+        return Collections.singletonList(m);
     }
 
     public void calculateNormals() {
+        float[] e0 = new float[3], e1 = new float[3];
         for (int i = 0; i < faces.length; i += 3) {
             int v0 = faces[i] * 3;
             int v1 = faces[i + 1] * 3;
             int v2 = faces[i + 2] * 3;
-            float[] e0 = new float[3], e1 = new float[3];
             for (int j = 0; j < 3; ++j) {
                 e0[j] = vertices[v1 + j] - vertices[v0 + j];
                 e1[j] = vertices[v2 + j] - vertices[v0 + j];
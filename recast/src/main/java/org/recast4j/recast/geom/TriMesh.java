@@ -18,20 +18,48 @@ freely, subject to the following restrictions:
 */
 package org.recast4j.recast.geom;
 
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-import org.recast4j.recast.geom.ChunkyTriMesh.ChunkyTriMeshNode;
+import org.recast4j.recast.AreaModification;
+import org.recast4j.recast.Recast;
 
 public class TriMesh {
 
     private final float[] vertices;
     private final int[] faces;
     private final ChunkyTriMesh chunkyTriMesh;
+    private volatile ChunkAreas chunkAreas;
+
+    private static class ChunkAreas {
+        final float walkableSlopeAngle;
+        final int value;
+        final int mask;
+        final int[] areas;
+
+        ChunkAreas(float walkableSlopeAngle, AreaModification areaMod, int[] areas) {
+            this.walkableSlopeAngle = walkableSlopeAngle;
+            value = areaMod.getValue();
+            mask = areaMod.getMask();
+            this.areas = areas;
+        }
+
+        boolean matches(float walkableSlopeAngle, AreaModification areaMod) {
+            return this.walkableSlopeAngle == walkableSlopeAngle && value == areaMod.getValue()
+                    && mask == areaMod.getMask();
+        }
+    }
 
     public TriMesh(float[] vertices, int[] faces) {
+        this(vertices, faces, null);
+    }
+
+    /**
+     * Creates the mesh, building the chunks of large meshes in parallel on the pool.
+     */
+    public TriMesh(float[] vertices, int[] faces, ForkJoinPool pool) {
         this.vertices = vertices;
         this.faces = faces;
-        chunkyTriMesh = new ChunkyTriMesh(vertices, faces, faces.length / 3, 32);
+        chunkyTriMesh = new ChunkyTriMesh(vertices, faces, faces.length / 3, 32, pool);
     }
 
     public int[] getTris() {
@@ -42,8 +70,32 @@ public class TriMesh {
         return vertices;
     }
 
-    public List<ChunkyTriMeshNode> getChunksOverlappingRect(float[] bmin, float[] bmax) {
-        return chunkyTriMesh.getChunksOverlappingRect(bmin, bmax);
+    /**
+     * Returns the areas of the triangles of {@link ChunkyTriMesh#getTris()}, marked by
+     * {@link Recast#markWalkableTriangles(float, float[], int[], int, AreaModification, int[])}. The areas are
+     * computed once for all the tiles built with the same slope and area modification, instead of once per tile for
+     * every chunk the tile overlaps.
+     */
+    public int[] getChunkAreas(float walkableSlopeAngle, AreaModification areaMod) {
+        ChunkAreas cached = chunkAreas;
+        if (cached == null || !cached.matches(walkableSlopeAngle, areaMod)) {
+            int[] areas = new int[chunkyTriMesh.ntris];
+            Recast.markWalkableTriangles(walkableSlopeAngle, vertices, chunkyTriMesh.getTris(), chunkyTriMesh.ntris,
+                    areaMod, areas);
+            cached = chunkAreas = new ChunkAreas(walkableSlopeAngle, areaMod, areas);
+        }
+        return cached.areas;
+    }
+
+    public ChunkyTriMesh getChunkyTriMesh() {
+        return chunkyTriMesh;
+    }
+
+    /**
+     * @see ChunkyTriMesh#getChunksOverlappingRect(float[], float[], int[])
+     */
+    public int getChunksOverlappingRect(float[] bmin, float[] bmax, int[] ids) {
+        return chunkyTriMesh.getChunksOverlappingRect(bmin, bmax, ids);
     }
 
 }
@@ -0,0 +1,105 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.recast4j.recast.geom.ChunkyTriMesh;
+
+public class ChunkyTriMeshTest {
+
+    @Test
+    public void testParallelBuild() {
+        float[] verts = randomTriangles(100000);
+        int[] tris = faces(verts);
+        ChunkyTriMesh sequential = new ChunkyTriMesh(verts, tris, tris.length / 3, 32);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ChunkyTriMesh parallel = new ChunkyTriMesh(verts, tris, tris.length / 3, 32, pool);
+            assertThat(parallel.getTris()).containsExactly(sequential.getTris());
+            assertThat(parallel.getChunkCount()).isEqualTo(sequential.getChunkCount());
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(sequential.getMaxTrisPerChunk()).isLessThanOrEqualTo(32);
+    }
+
+    @Test
+    public void testChunksOverlappingRect() {
+        float[] verts = randomTriangles(20000);
+        int[] tris = faces(verts);
+        ChunkyTriMesh mesh = new ChunkyTriMesh(verts, tris, tris.length / 3, 32);
+        int[] ids = new int[mesh.getChunkCount()];
+        float[] bmin = new float[] { 20, 30 };
+        float[] bmax = new float[] { 35, 40 };
+        int nids = mesh.getChunksOverlappingRect(bmin, bmax, ids);
+        Set<Integer> found = new HashSet<>();
+        for (int i = 0; i < nids; i++) {
+            int start = mesh.getChunkStart(ids[i]);
+            for (int t = start; t < start + mesh.getChunkTriCount(ids[i]); t++) {
+                found.add(mesh.getTris()[t * 3] / 3);
+            }
+        }
+        assertThat(found.size()).isLessThan(tris.length / 3);
+        assertThat(mesh.getTriCountOverlappingRect(bmin, bmax)).isEqualTo(found.size());
+        for (int t = 0; t < tris.length / 3; t++) {
+            boolean overlaps = true;
+            for (int axis = 0; axis < 2; axis++) {
+                float min = Float.MAX_VALUE;
+                float max = -Float.MAX_VALUE;
+                for (int j = 0; j < 3; j++) {
+                    min = Math.min(min, verts[t * 9 + j * 3 + axis * 2]);
+                    max = Math.max(max, verts[t * 9 + j * 3 + axis * 2]);
+                }
+                overlaps &= min <= bmax[axis] && max >= bmin[axis];
+            }
+            if (overlaps) {
+                assertThat(found.contains(t)).isTrue();
+            }
+        }
+    }
+
+    private static float[] randomTriangles(int ntris) {
+        Random random = new Random(42);
+        float[] verts = new float[ntris * 9];
+        for (int t = 0; t < ntris; t++) {
+            float x = random.nextFloat() * 100;
+            float z = random.nextFloat() * 100;
+            for (int j = 0; j < 3; j++) {
+                verts[t * 9 + j * 3] = x + random.nextFloat();
+                verts[t * 9 + j * 3 + 1] = random.nextFloat();
+                verts[t * 9 + j * 3 + 2] = z + random.nextFloat();
+            }
+        }
+        return verts;
+    }
+
+    private static int[] faces(float[] verts) {
+        int[] faces = new int[verts.length / 3];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = i;
+        }
+        return faces;
+    }
+}
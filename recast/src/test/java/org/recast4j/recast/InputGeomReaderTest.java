@@ -0,0 +1,142 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.recast4j.recast.geom.SimpleInputGeomProvider;
+
+public class InputGeomReaderTest {
+
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("recast");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testObj() {
+        for (String name : new String[] { "dungeon.obj", "nav_test.obj" }) {
+            SimpleInputGeomProvider expected = (SimpleInputGeomProvider) new ObjImporter()
+                    .load(getClass().getResourceAsStream(name));
+            SimpleInputGeomProvider geom = InputGeomReader.readObj(getClass().getResourceAsStream(name));
+            assertThat(geom.vertices).containsExactly(expected.vertices);
+            assertThat(geom.faces).containsExactly(expected.faces);
+        }
+    }
+
+    @Test
+    public void testParallelObj() throws IOException {
+        Path obj = copy("nav_test.obj");
+        SimpleInputGeomProvider expected = InputGeomReader.readObj(Files.newInputStream(obj));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // Small chunks to split the file into many pieces
+            SimpleInputGeomProvider geom = InputGeomReader.readObj(obj, Optional.of(executor), 4096);
+            assertThat(geom.vertices).containsExactly(expected.vertices);
+            assertThat(geom.faces).containsExactly(expected.faces);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNumbersAndFaces() {
+        Random random = new Random(1);
+        StringBuilder obj = new StringBuilder("# comment\nvn 0 1 0\nvt 0.5 0.5\n");
+        float[] expected = new float[3000];
+        for (int i = 0; i < expected.length; i += 3) {
+            obj.append(i % 2 == 0 ? "v " : "  v\t");
+            for (int j = 0; j < 3; j++) {
+                String s;
+                float f = (random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(12) - 6);
+                switch ((i / 3 + j) % 5) {
+                case 0:
+                    s = Float.toString(f);
+                    break;
+                case 1:
+                    s = String.format(Locale.ROOT, "%.6f", f);
+                    break;
+                case 2:
+                    s = String.format(Locale.ROOT, "%.9e", f);
+                    break;
+                case 3:
+                    s = Double.toString(random.nextDouble() * 1000);
+                    break;
+                default:
+                    s = Integer.toString(random.nextInt(2000) - 1000);
+                }
+                expected[i + j] = Float.parseFloat(s);
+                obj.append(s).append(' ');
+            }
+            obj.append("\r\n");
+        }
+        obj.append("f 1 2 3\nf 4/1/1 5/1/1 6/1/1 7/1/1\nf -3//1 -2//1 -1//1\n");
+        SimpleInputGeomProvider geom = InputGeomReader
+                .readObj(new ByteArrayInputStream(obj.toString().getBytes(StandardCharsets.US_ASCII)));
+        assertThat(geom.vertices).containsExactly(expected);
+        assertThat(geom.faces).containsExactly(0, 1, 2, 3, 4, 5, 3, 5, 6, 997, 998, 999);
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        Path obj = copy("dungeon.obj");
+        Path cache = dir.resolve("dungeon.bin");
+        SimpleInputGeomProvider parsed = InputGeomReader.load(obj, cache, Optional.empty());
+        assertThat(Files.exists(cache)).isTrue();
+        SimpleInputGeomProvider cached = InputGeomReader.load(obj, cache, Optional.empty());
+        assertThat(cached.vertices).containsExactly(parsed.vertices);
+        assertThat(cached.faces).containsExactly(parsed.faces);
+        assertThat(cached.getMeshBoundsMin()).isEqualTo(parsed.getMeshBoundsMin());
+        assertThat(InputGeomReader.readCache(cache).faces).containsExactly(parsed.faces);
+    }
+
+    private Path copy(String name) throws IOException {
+        Path file = dir.resolve(name);
+        try (InputStream is = getClass().getResourceAsStream(name)) {
+            Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+}
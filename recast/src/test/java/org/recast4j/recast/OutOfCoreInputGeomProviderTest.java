@@ -0,0 +1,174 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.recast4j.recast.RecastConstants.PartitionType;
+import org.recast4j.recast.geom.OutOfCoreGeomWriter;
+import org.recast4j.recast.geom.OutOfCoreInputGeomProvider;
+import org.recast4j.recast.geom.SimpleInputGeomProvider;
+import org.recast4j.recast.geom.TriMesh;
+
+public class OutOfCoreInputGeomProviderTest {
+
+    private Path dir;
+    private Path file;
+    private SimpleInputGeomProvider geom;
+    private final RecastConfig cfg = new RecastConfig(true, 32, 32, RecastConfig.calcBorder(0.6f, 0.3f),
+            PartitionType.WATERSHED, 0.3f, 0.2f, 45f, true, true, true, 2f, 0.6f, 0.9f, 8 * 8 * 0.3f * 0.3f,
+            20 * 20 * 0.3f * 0.3f, 12f, 1.3f, 6, true, 6f, 1f, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("recast");
+        file = dir.resolve("dungeon.grid");
+        geom = (SimpleInputGeomProvider) new ObjImporter().load(getClass().getResourceAsStream("dungeon.obj"));
+        // Cells of 2x2 tiles
+        try (OutOfCoreGeomWriter writer = new OutOfCoreGeomWriter(file, 2 * 32 * 0.3f)) {
+            writer.addMesh(geom.vertices, geom.faces);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testBounds() throws IOException {
+        try (OutOfCoreInputGeomProvider ooc = new OutOfCoreInputGeomProvider(file, Long.MAX_VALUE)) {
+            assertThat(ooc.getMeshBoundsMin()).isEqualTo(geom.getMeshBoundsMin());
+            assertThat(ooc.getMeshBoundsMax()).isEqualTo(geom.getMeshBoundsMax());
+            int ntris = 0;
+            for (TriMesh mesh : ooc.meshes()) {
+                ntris += mesh.getTris().length / 3;
+            }
+            assertThat(ntris).isEqualTo(geom.faces.length / 3);
+        }
+    }
+
+    @Test
+    public void testTiledBuild() throws IOException {
+        List<RecastBuilder.RecastBuilderResult> expected = new RecastBuilder().buildTiles(geom, cfg, Optional.empty());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        // A cache smaller than the geometry forces cells to be evicted and read again
+        try (OutOfCoreInputGeomProvider ooc = new OutOfCoreInputGeomProvider(file, geom.faces.length / 3 / 4)) {
+            List<RecastBuilder.RecastBuilderResult> results = new RecastBuilder().buildTiles(ooc, cfg,
+                    Optional.of(executor));
+            assertThat(results).hasSize(expected.size());
+            for (int i = 0; i < results.size(); i++) {
+                RecastBuilder.RecastBuilderResult r = results.get(i);
+                RecastBuilder.RecastBuilderResult e = expected.get(i);
+                assertThat(r.tileX).isEqualTo(e.tileX);
+                assertThat(r.tileZ).isEqualTo(e.tileZ);
+                assertThat(r.getMesh().npolys).isEqualTo(e.getMesh().npolys);
+                assertThat(r.getMesh().nverts).isEqualTo(e.getMesh().nverts);
+            }
+            int ncells = 0;
+            try (OutOfCoreInputGeomProvider all = new OutOfCoreInputGeomProvider(file, 0)) {
+                for (TriMesh mesh : all.meshes()) {
+                    ncells++;
+                }
+            }
+            assertThat(ooc.getCellLoads()).isGreaterThan((long) ncells);
+            assertThat(ooc.getCachedTriangles()).isLessThan((long) geom.faces.length / 3);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTileLoadsOnlyOverlappingCells() throws IOException {
+        try (OutOfCoreInputGeomProvider ooc = new OutOfCoreInputGeomProvider(file, Long.MAX_VALUE)) {
+            float[] bmin = ooc.getMeshBoundsMin();
+            float[] bmax = ooc.getMeshBoundsMax();
+            float cx = (bmin[0] + bmax[0]) / 2;
+            float cz = (bmin[2] + bmax[2]) / 2;
+            float[] tbmin = new float[] { cx, cz };
+            float[] tbmax = new float[] { cx + 32 * 0.3f, cz + 32 * 0.3f };
+            int ntris = 0;
+            for (TriMesh mesh : ooc.meshes(tbmin, tbmax)) {
+                ntris += mesh.getTris().length / 3;
+            }
+            assertThat(ntris).isGreaterThan(0);
+            assertThat(ntris).isLessThan(geom.faces.length / 3);
+            long loads = ooc.getCellLoads();
+            assertThat(loads).isGreaterThan(0L);
+            ooc.meshes(tbmin, tbmax);
+            assertThat(ooc.getCellLoads()).isEqualTo(loads);
+        }
+    }
+
+    @Test
+    public void testEstimateReadsNoCells() throws IOException {
+        try (OutOfCoreInputGeomProvider ooc = new OutOfCoreInputGeomProvider(file, Long.MAX_VALUE)) {
+            float[] bmin = ooc.getMeshBoundsMin();
+            float[] bmax = ooc.getMeshBoundsMax();
+            float cx = (bmin[0] + bmax[0]) / 2;
+            float cz = (bmin[2] + bmax[2]) / 2;
+            float[] tbmin = new float[] { cx, cz };
+            float[] tbmax = new float[] { cx + 32 * 0.3f, cz + 32 * 0.3f };
+            long all = ooc.estimateTriangleCount(new float[] { bmin[0], bmin[2] }, new float[] { bmax[0], bmax[2] });
+            long tile = ooc.estimateTriangleCount(tbmin, tbmax);
+            assertThat(ooc.getCellLoads()).isEqualTo(0L);
+            assertThat(all).isEqualTo(geom.faces.length / 3);
+            int ntris = 0;
+            for (TriMesh mesh : ooc.meshes(tbmin, tbmax)) {
+                ntris += mesh.getTris().length / 3;
+            }
+            assertThat(tile).isEqualTo(ntris);
+        }
+    }
+
+    @Test
+    public void testRejectsOversizedCells() throws IOException {
+        // Triangle count of the first cell: 12 header fields, then the cell data offset.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            count.putInt(Integer.MAX_VALUE / 36 + 1).flip();
+            channel.write(count, 12 * 4 + 8);
+        }
+        String message = null;
+        try (OutOfCoreInputGeomProvider ooc = new OutOfCoreInputGeomProvider(file, Long.MAX_VALUE)) {
+            ooc.meshes().iterator().next();
+        } catch (IOException e) {
+            message = e.getMessage();
+        }
+        assertThat(message).startsWith("Invalid triangle count");
+    }
+}
@@ -23,8 +23,10 @@ import static org.recast4j.recast.RecastConstants.RC_MESH_NULL_IDX;
 import java.io.File;
 import java.io.FileWriter;
 import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
+import org.recast4j.recast.RecastBuilder.RecastBuilderResult;
 import org.recast4j.recast.RecastConstants.PartitionType;
 import org.recast4j.recast.geom.InputGeomProvider;
 import org.recast4j.recast.geom.TriMesh;
@@ -85,6 +87,84 @@ public class RecastSoloMeshTest {
         testBuild("nav_test.obj", PartitionType.LAYERS, 0, 19, 32, 310, 150, 150, 773, 526);
     }
 
+    @Test
+    public void testParallelBuild() {
+        ForkJoinPool executor = new ForkJoinPool(4);
+        try {
+            for (String filename : new String[] { "dungeon.obj", "nav_test.obj" }) {
+                InputGeomProvider geom = new ObjImporter().load(getClass().getResourceAsStream(filename));
+                for (PartitionType partitionType : PartitionType.values()) {
+                    RecastConfig cfg = new RecastConfig(partitionType, m_cellSize, m_cellHeight, m_agentHeight,
+                            m_agentRadius, m_agentMaxClimb, m_agentMaxSlope, m_regionMinSize, m_regionMergeSize,
+                            m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly, m_detailSampleDist, m_detailSampleMaxError,
+                            SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+                    RecastBuilderConfig bcfg = new RecastBuilderConfig(cfg, geom.getMeshBoundsMin(),
+                            geom.getMeshBoundsMax());
+                    RecastBuilderResult expected = new RecastBuilder().build(geom, bcfg);
+                    RecastBuilderResult actual = new RecastBuilder().build(geom, bcfg, executor);
+
+                    Heightfield expSolid = expected.getSolidHeightfield();
+                    Heightfield solid = actual.getSolidHeightfield();
+                    assertThat(solid.getSpanCount()).isEqualTo(expSolid.getSpanCount());
+                    for (int i = 0; i < solid.width * solid.height; i++) {
+                        int s = solid.spans[i];
+                        for (int e = expSolid.spans[i]; e != Heightfield.NULL_SPAN; e = expSolid.getNextSpan(e)) {
+                            assertThat(s).isNotEqualTo(Heightfield.NULL_SPAN);
+                            assertThat(solid.getSpanMin(s)).isEqualTo(expSolid.getSpanMin(e));
+                            assertThat(solid.getSpanMax(s)).isEqualTo(expSolid.getSpanMax(e));
+                            assertThat(solid.getSpanArea(s)).isEqualTo(expSolid.getSpanArea(e));
+                            s = solid.getNextSpan(s);
+                        }
+                        assertThat(s).isEqualTo(Heightfield.NULL_SPAN);
+                    }
+                    assertThat(actual.getCompactHeightfield().spanReg)
+                            .containsExactly(expected.getCompactHeightfield().spanReg);
+                    assertThat(actual.getMesh().verts).containsExactly(expected.getMesh().verts);
+                    assertThat(actual.getMesh().polys).containsExactly(expected.getMesh().polys);
+                    PolyMeshDetail expDetail = expected.getMeshDetail();
+                    PolyMeshDetail detail = actual.getMeshDetail();
+                    assertThat(detail.meshes).containsExactly(expDetail.meshes);
+                    assertThat(detail.verts).containsExactly(expDetail.verts);
+                    assertThat(detail.tris).containsExactly(expDetail.tris);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelDistanceField() {
+        ForkJoinPool executor = new ForkJoinPool(4);
+        try {
+            InputGeomProvider geom = new ObjImporter().load(getClass().getResourceAsStream("nav_test.obj"));
+            RecastConfig cfg = new RecastConfig(PartitionType.WATERSHED, 0.1f, m_cellHeight, m_agentHeight,
+                    m_agentRadius, m_agentMaxClimb, m_agentMaxSlope, m_regionMinSize, m_regionMergeSize, m_edgeMaxLen,
+                    m_edgeMaxError, m_vertsPerPoly, m_detailSampleDist, m_detailSampleMaxError,
+                    SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+            RecastBuilderConfig bcfg = new RecastBuilderConfig(cfg, geom.getMeshBoundsMin(), geom.getMeshBoundsMax());
+            Telemetry ctx = new Telemetry();
+            Heightfield solid = RecastVoxelization.buildSolidHeightfield(geom, bcfg, ctx);
+            CompactHeightfield chf = RecastCompact.buildCompactHeightfield(ctx, cfg.walkableHeight,
+                    cfg.walkableClimb, solid);
+            RecastArea.erodeWalkableArea(ctx, cfg.walkableRadius, chf);
+
+            int[] expected = new int[chf.spanCount];
+            int[] actual = new int[chf.spanCount];
+            int expMaxDist = RecastRegion.calculateDistanceField(chf, expected);
+            assertThat(RecastRegion.calculateDistanceField(chf, actual, executor)).isEqualTo(expMaxDist);
+            assertThat(actual).containsExactly(expected);
+
+            RecastRegion.buildDistanceField(ctx, chf);
+            int[] expDist = chf.dist.clone();
+            RecastRegion.buildDistanceField(ctx, chf, executor);
+            assertThat(chf.dist).containsExactly(expDist);
+            assertThat(chf.maxDistance).isEqualTo(expMaxDist);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     public void testBuild(String filename, PartitionType partitionType, int expDistance, int expRegions,
             int expContours, int expVerts, int expPolys, int expDetMeshes, int expDetVerts, int expDetTris) {
         m_partitionType = partitionType;
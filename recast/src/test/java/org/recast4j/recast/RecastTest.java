@@ -21,6 +21,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.recast4j.recast.RecastConstants.RC_NULL_AREA;
 
 import org.junit.jupiter.api.Test;
+import org.recast4j.recast.geom.SimpleInputGeomProvider;
+import org.recast4j.recast.geom.TriMesh;
 
 public class RecastTest {
 
@@ -51,4 +53,26 @@ public class RecastTest {
             assertThat(areas[0]).isEqualTo(RC_NULL_AREA).describedAs("Slopes equal to the max slope are considered unwalkable.");
         }
     }
+
+    @Test
+    public void testMarkWalkableTriangles() {
+        float walkableSlopeAngle = 45;
+        float verts[] = { 0, 0, 0, 1, 0, 0, 0, 0, -1, 0, 2, -1 };
+        int tris[] = { 0, 1, 2, 0, 2, 1, 0, 1, 3 };
+        AreaModification areaMod = SampleAreaModifications.SAMPLE_AREAMOD_GROUND;
+        int[] areas = Recast.markWalkableTriangles(new Telemetry(), walkableSlopeAngle, verts, tris, 3, areaMod);
+        assertThat(areas).containsExactly(areaMod.apply(0), 0, 0);
+
+        // Cached per mesh in chunk order
+        SimpleInputGeomProvider geom = (SimpleInputGeomProvider) new ObjImporter()
+                .load(getClass().getResourceAsStream("dungeon.obj"));
+        TriMesh mesh = geom.meshes().iterator().next();
+        int[] chunkTris = mesh.getChunkyTriMesh().getTris();
+        int[] expected = Recast.markWalkableTriangles(new Telemetry(), walkableSlopeAngle, geom.vertices, chunkTris,
+                chunkTris.length / 3, areaMod);
+        int[] chunkAreas = mesh.getChunkAreas(walkableSlopeAngle, areaMod);
+        assertThat(chunkAreas).containsExactly(expected);
+        assertThat(mesh.getChunkAreas(walkableSlopeAngle, areaMod) == chunkAreas).isTrue();
+        assertThat(mesh.getChunkAreas(30, areaMod) == chunkAreas).isFalse();
+    }
 }
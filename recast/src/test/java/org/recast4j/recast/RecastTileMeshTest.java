@@ -19,16 +19,21 @@ package org.recast4j.recast;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 import org.recast4j.recast.RecastBuilder.RecastBuilderResult;
 import org.recast4j.recast.RecastConstants.PartitionType;
 import org.recast4j.recast.geom.InputGeomProvider;
+import org.recast4j.recast.geom.SimpleInputGeomProvider;
 
 public class RecastTileMeshTest {
 
@@ -145,6 +150,187 @@ public class RecastTileMeshTest {
         }
     }
 
+    @Test
+    public void testStreamingBuild() throws InterruptedException {
+        ObjImporter importer = new ObjImporter();
+        InputGeomProvider geom = importer.load(getClass().getResourceAsStream("dungeon.obj"));
+        RecastBuilder builder = new RecastBuilder();
+        RecastConfig cfg = new RecastConfig(true, m_tileSize, m_tileSize, RecastConfig.calcBorder(m_agentRadius, m_cellSize),
+                m_partitionType, m_cellSize, m_cellHeight, m_agentMaxSlope, true, true, true, m_agentHeight, m_agentRadius,
+                m_agentMaxClimb, m_regionMinArea, m_regionMergeArea, m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly, true,
+                m_detailSampleDist, m_detailSampleMaxError, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+        List<RecastBuilderResult> expected = builder.buildTiles(geom, cfg, Optional.empty());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        int maxInFlight = 2;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+        List<RecastBuilderResult> tiles = new ArrayList<>();
+        builder.buildTiles(geom, cfg, Optional.of(executor), maxInFlight, false, r -> {
+            maxObserved.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return r;
+        }, r -> {
+            tiles.add(r);
+            inFlight.decrementAndGet();
+        });
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        assertThat(maxObserved.get()).isLessThanOrEqualTo(maxInFlight);
+        assertThat(tiles).hasSize(expected.size());
+        for (RecastBuilderResult e : expected) {
+            RecastBuilderResult tile = getTile(tiles, e.tileX, e.tileZ);
+            assertThat(tile.getMesh().npolys).isEqualTo(e.getMesh().npolys);
+            assertThat(tile.getMesh().nverts).isEqualTo(e.getMesh().nverts);
+            assertThat(tile.getCompactHeightfield()).isNull();
+            assertThat(tile.getSolidHeightfield()).isNull();
+        }
+    }
+
+    @Test
+    public void testStreamingBuildRecyclesBuffers() {
+        ObjImporter importer = new ObjImporter();
+        InputGeomProvider geom = importer.load(getClass().getResourceAsStream("dungeon.obj"));
+        for (PartitionType partitionType : PartitionType.values()) {
+            RecastConfig cfg = new RecastConfig(true, m_tileSize, m_tileSize,
+                    RecastConfig.calcBorder(m_agentRadius, m_cellSize), partitionType, m_cellSize, m_cellHeight,
+                    m_agentMaxSlope, true, true, true, m_agentHeight, m_agentRadius, m_agentMaxClimb, m_regionMinArea,
+                    m_regionMergeArea, m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly, true, m_detailSampleDist,
+                    m_detailSampleMaxError, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+            // Every tile of the single threaded streaming build reuses the buffers of the tile before.
+            List<RecastBuilderResult> tiles = new ArrayList<>();
+            new RecastBuilder().buildTiles(geom, cfg, Optional.empty(), 1, false, r -> r, tiles::add);
+            for (RecastBuilderResult tile : tiles) {
+                RecastBuilderConfig bcfg = new RecastBuilderConfig(cfg, geom.getMeshBoundsMin(), geom.getMeshBoundsMax(),
+                        tile.tileX, tile.tileZ);
+                RecastBuilderResult expected = new RecastBuilder().build(geom, bcfg);
+                assertThat(tile.getMesh().verts).isEqualTo(expected.getMesh().verts);
+                assertThat(tile.getMesh().polys).isEqualTo(expected.getMesh().polys);
+                assertThat(tile.getMesh().regs).isEqualTo(expected.getMesh().regs);
+                if (expected.getMeshDetail() != null) {
+                    assertThat(tile.getMeshDetail().verts).isEqualTo(expected.getMeshDetail().verts);
+                    assertThat(tile.getMeshDetail().tris).isEqualTo(expected.getMeshDetail().tris);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMergePolyMeshes() {
+        ObjImporter importer = new ObjImporter();
+        InputGeomProvider geom = importer.load(getClass().getResourceAsStream("dungeon.obj"));
+        RecastConfig cfg = new RecastConfig(true, m_tileSize, m_tileSize, RecastConfig.calcBorder(m_agentRadius, m_cellSize),
+                m_partitionType, m_cellSize, m_cellHeight, m_agentMaxSlope, true, true, true, m_agentHeight, m_agentRadius,
+                m_agentMaxClimb, m_regionMinArea, m_regionMergeArea, m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly, true,
+                m_detailSampleDist, m_detailSampleMaxError, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+        List<RecastBuilderResult> tiles = new RecastBuilder().buildTiles(geom, cfg, Optional.empty());
+        PolyMesh[] meshes = tiles.stream().map(RecastBuilderResult::getMesh).toArray(PolyMesh[]::new);
+        Telemetry ctx = new Telemetry();
+        PolyMesh expected = RecastMesh.mergePolyMeshes(ctx, meshes, meshes.length);
+        int polys = Arrays.stream(meshes).mapToInt(m -> m.npolys).sum();
+        assertThat(expected.npolys).isEqualTo(polys);
+        assertThat(expected.nverts).isLessThan(Arrays.stream(meshes).mapToInt(m -> m.nverts).sum());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            PolyMesh merged = RecastMesh.mergePolyMeshes(ctx, meshes, meshes.length, executor);
+            assertThat(merged.nverts).isEqualTo(expected.nverts);
+            assertThat(merged.npolys).isEqualTo(expected.npolys);
+            assertThat(merged.verts).isEqualTo(expected.verts);
+            assertThat(merged.polys).isEqualTo(expected.polys);
+            assertThat(merged.regs).isEqualTo(expected.regs);
+            assertThat(merged.areas).isEqualTo(expected.areas);
+            assertThat(merged.flags).isEqualTo(expected.flags);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBuildTilesAsync() {
+        ObjImporter importer = new ObjImporter();
+        InputGeomProvider geom = importer.load(getClass().getResourceAsStream("dungeon.obj"));
+        RecastConfig cfg = new RecastConfig(true, m_tileSize, m_tileSize, RecastConfig.calcBorder(m_agentRadius, m_cellSize),
+                m_partitionType, m_cellSize, m_cellHeight, m_agentMaxSlope, true, true, true, m_agentHeight, m_agentRadius,
+                m_agentMaxClimb, m_regionMinArea, m_regionMergeArea, m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly, true,
+                m_detailSampleDist, m_detailSampleMaxError, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+        List<RecastBuilderResult> expected = new RecastBuilder().buildTiles(geom, cfg, Optional.empty());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<RecastBuilderResult>> tiles = new RecastBuilder().buildTilesAsync(geom, cfg, executor);
+            assertThat(tiles).hasSize(expected.size());
+            for (int i = 0; i < tiles.size(); i++) {
+                RecastBuilderResult tile = tiles.get(i).join();
+                assertThat(tile.tileX).isEqualTo(expected.get(i).tileX);
+                assertThat(tile.tileZ).isEqualTo(expected.get(i).tileZ);
+                assertThat(tile.getMesh().npolys).isEqualTo(expected.get(i).getMesh().npolys);
+            }
+            // Multi threaded build returns the tiles in the same order as the single threaded build.
+            List<RecastBuilderResult> result = new RecastBuilder().buildTiles(geom, cfg, Optional.of(executor));
+            for (int i = 0; i < result.size(); i++) {
+                assertThat(result.get(i).tileX).isEqualTo(expected.get(i).tileX);
+                assertThat(result.get(i).tileZ).isEqualTo(expected.get(i).tileZ);
+            }
+            // Failures are propagated.
+            RecastBuilder failing = new RecastBuilder((completed, total) -> {
+                if (completed == 3) {
+                    throw new IllegalStateException("tile failed");
+                }
+            });
+            String message = null;
+            try {
+                failing.buildTiles(geom, cfg, Optional.of(executor));
+            } catch (IllegalStateException e) {
+                message = e.getMessage();
+            }
+            assertThat(message).isEqualTo("tile failed");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testIncrementalBuild() {
+        ObjImporter importer = new ObjImporter();
+        SimpleInputGeomProvider geom = (SimpleInputGeomProvider) importer
+                .load(getClass().getResourceAsStream("dungeon.obj"));
+        RecastBuilder builder = new RecastBuilder();
+        RecastConfig cfg = new RecastConfig(true, m_tileSize, m_tileSize, RecastConfig.calcBorder(m_agentRadius, m_cellSize),
+                m_partitionType, m_cellSize, m_cellHeight, m_agentMaxSlope, true, true, true, m_agentHeight, m_agentRadius,
+                m_agentMaxClimb, m_regionMinArea, m_regionMergeArea, m_edgeMaxLen, m_edgeMaxError, m_vertsPerPoly, true,
+                m_detailSampleDist, m_detailSampleMaxError, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+        int[] twh = Recast.calcTileCount(geom.getMeshBoundsMin(), geom.getMeshBoundsMax(), cfg.cs, cfg.tileSizeX,
+                cfg.tileSizeZ);
+        long[] hashes = new long[twh[0] * twh[1]];
+        List<RecastBuilderResult> original = builder.buildChangedTiles(geom, cfg, hashes, Optional.empty());
+        assertThat(original).hasSize(hashes.length);
+        assertThat(builder.buildChangedTiles(geom, cfg, hashes, Optional.empty())).isEmpty();
+
+        // Add a small platform inside the mesh bounds.
+        float[] bmin = geom.getMeshBoundsMin();
+        float[] bmax = geom.getMeshBoundsMax();
+        float cx = (bmin[0] + bmax[0]) * 0.5f;
+        float cy = (bmin[1] + bmax[1]) * 0.5f;
+        float cz = (bmin[2] + bmax[2]) * 0.5f;
+        int nv = geom.vertices.length / 3;
+        float[] verts = Arrays.copyOf(geom.vertices, geom.vertices.length + 9);
+        System.arraycopy(new float[] { cx, cy, cz, cx, cy, cz + 3f, cx + 3f, cy, cz }, 0, verts, geom.vertices.length, 9);
+        int[] faces = Arrays.copyOf(geom.faces, geom.faces.length + 3);
+        faces[geom.faces.length] = nv;
+        faces[geom.faces.length + 1] = nv + 1;
+        faces[geom.faces.length + 2] = nv + 2;
+        SimpleInputGeomProvider modified = new SimpleInputGeomProvider(verts, faces);
+
+        List<RecastBuilderResult> changed = builder.buildChangedTiles(modified, cfg, hashes, Optional.empty());
+        assertThat(changed.size()).isGreaterThan(0);
+        assertThat(changed.size()).isLessThanOrEqualTo(9);
+        List<RecastBuilderResult> full = builder.buildTiles(modified, cfg, Optional.empty());
+        for (RecastBuilderResult tile : full) {
+            RecastBuilderResult rebuilt = getTile(changed, tile.tileX, tile.tileZ);
+            RecastBuilderResult expected = rebuilt != null ? rebuilt : getTile(original, tile.tileX, tile.tileZ);
+            assertThat(expected.getMesh().npolys).isEqualTo(tile.getMesh().npolys);
+            assertThat(expected.getMesh().nverts).isEqualTo(tile.getMesh().nverts);
+            assertThat(expected.getMesh().verts).containsExactly(tile.getMesh().verts);
+        }
+    }
+
     private RecastBuilderResult getTile(List<RecastBuilderResult> tiles, int x, int z) {
         return tiles.stream().filter(tile -> tile.tileX == x && tile.tileZ == z).findFirst().orElse(null);
     }
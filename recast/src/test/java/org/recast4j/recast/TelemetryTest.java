@@ -0,0 +1,124 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.recast4j.recast.RecastConstants.PartitionType;
+import org.recast4j.recast.geom.InputGeomProvider;
+
+public class TelemetryTest {
+
+    @Test
+    public void testPercentiles() {
+        Telemetry telemetry = new Telemetry();
+        for (int i = 1; i <= 1000; i++) {
+            telemetry.record(BuildStage.CONTOURS, i * 1000L);
+        }
+        telemetry.record(BuildStage.POLYMESH, 5);
+        TelemetrySnapshot snapshot = telemetry.snapshot();
+        assertThat(snapshot.stages).hasSize(2);
+        StageStats contours = snapshot.stages.get(0);
+        assertThat(contours.stage).isEqualTo(BuildStage.CONTOURS);
+        assertThat(contours.count).isEqualTo(1000L);
+        assertThat(contours.totalTime).isEqualTo(500500000L);
+        assertThat(contours.maxTime).isEqualTo(1000000L);
+        // Buckets are at most 1/8 of the value wide.
+        assertThat((double) contours.p50).isEqualTo(500000.0, offset(500000 / 8.0));
+        assertThat((double) contours.p95).isEqualTo(950000.0, offset(950000 / 8.0));
+        assertThat((double) contours.p99).isEqualTo(990000.0, offset(990000 / 8.0));
+        assertThat(contours.p99).isLessThanOrEqualTo(contours.maxTime);
+        StageStats polymesh = snapshot.stages.get(1);
+        assertThat(polymesh.p50).isEqualTo(5L);
+        assertThat(polymesh.p99).isEqualTo(5L);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testNamedTimers() {
+        Telemetry telemetry = new Telemetry();
+        telemetry.startTimer("CONTOURS");
+        telemetry.stopTimer("CONTOURS");
+        telemetry.startTimer("custom");
+        telemetry.stopTimer("custom");
+        TelemetrySnapshot snapshot = telemetry.snapshot();
+        assertThat(snapshot.stages).hasSize(1);
+        assertThat(snapshot.stages.get(0).stage).isEqualTo(BuildStage.CONTOURS);
+        assertThat(snapshot.stages.get(0).count).isEqualTo(1L);
+        assertThat(snapshot.counters).containsKey("custom");
+    }
+
+    @Test
+    public void testTiledBuild() {
+        InputGeomProvider geom = new ObjImporter().load(getClass().getResourceAsStream("dungeon.obj"));
+        RecastConfig cfg = new RecastConfig(true, 32, 32, RecastConfig.calcBorder(0.6f, 0.3f), PartitionType.WATERSHED,
+                0.3f, 0.2f, 45f, true, true, true, 2f, 0.6f, 0.9f, 8 * 8 * 0.3f * 0.3f, 20 * 20 * 0.3f * 0.3f, 12f,
+                1.3f, 6, true, 6f, 1f, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+        Telemetry telemetry = new Telemetry();
+        AtomicInteger tilesSeen = new AtomicInteger();
+        AtomicInteger contoursSeen = new AtomicInteger();
+        telemetry.addListener(new TelemetryListener() {
+            @Override
+            public void stageCompleted(BuildStage stage, long time) {
+                if (stage == BuildStage.CONTOURS) {
+                    contoursSeen.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void tileCompleted(TileStats tile) {
+                tilesSeen.incrementAndGet();
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<RecastBuilder.RecastBuilderResult> results;
+        try {
+            results = new RecastBuilder(null, telemetry).buildTiles(geom, cfg, Optional.of(executor));
+        } finally {
+            executor.shutdown();
+        }
+        TelemetrySnapshot snapshot = telemetry.snapshot();
+        assertThat(snapshot.tiles).hasSize(results.size());
+        assertThat(tilesSeen.get()).isEqualTo(results.size());
+        assertThat(contoursSeen.get()).isEqualTo(results.size());
+        int polys = 0;
+        for (RecastBuilder.RecastBuilderResult r : results) {
+            assertThat(r.getTelemetry()).isEqualTo(telemetry);
+            polys += r.getMesh().npolys;
+        }
+        assertThat(snapshot.tiles.stream().mapToInt(t -> t.polys).sum()).isEqualTo(polys);
+        assertThat(snapshot.tiles.stream().mapToInt(t -> t.triangles).sum()).isGreaterThan(0);
+        assertThat(snapshot.tiles.stream().mapToInt(t -> t.spans).sum()).isGreaterThan(0);
+        assertThat(snapshot.stages.get(0).stage).isEqualTo(BuildStage.TOTAL);
+        assertThat(snapshot.stages.get(0).count).isEqualTo((long) results.size());
+        for (StageStats stage : snapshot.stages) {
+            assertThat(stage.p50).isLessThanOrEqualTo(stage.p95);
+            assertThat(stage.p95).isLessThanOrEqualTo(stage.p99);
+            assertThat(stage.p99).isLessThanOrEqualTo(stage.maxTime);
+        }
+        assertThat(snapshot.peakMemory).isGreaterThan(0L);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+recast4j copyright (c) 2021 Piotr Piastucki piotr@jtilia.org
+
+This software is provided 'as-is', without any express or implied
+warranty.  In no event will the authors be held liable for any damages
+arising from the use of this software.
+Permission is granted to anyone to use this software for any purpose,
+including commercial applications, and to alter it and redistribute it
+freely, subject to the following restrictions:
+1. The origin of this software must not be misrepresented; you must not
+ claim that you wrote the original software. If you use this software
+ in a product, an acknowledgment in the product documentation would be
+ appreciated but is not required.
+2. Altered source versions must be plainly marked as such, and must not be
+ misrepresented as being the original software.
+3. This notice may not be removed or altered from any source distribution.
+*/
+package org.recast4j.recast;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.recast4j.recast.RecastConstants.PartitionType;
+import org.recast4j.recast.geom.InputGeomProvider;
+
+public class TileBuildCacheTest {
+
+    /** Stores the tile coordinates, polygon and vertex counts of a tile. */
+    private static final TileBuildCache.Codec<int[]> CODEC = new TileBuildCache.Codec<int[]>() {
+
+        @Override
+        public byte[] encode(int[] tile) {
+            ByteBuffer buf = ByteBuffer.allocate(tile.length * 4);
+            buf.asIntBuffer().put(tile);
+            return buf.array();
+        }
+
+        @Override
+        public int[] decode(byte[] data) {
+            int[] tile = new int[data.length / 4];
+            ByteBuffer.wrap(data).asIntBuffer().get(tile);
+            return tile;
+        }
+    };
+
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("tilecache");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPutGet() throws IOException {
+        Telemetry telemetry = new Telemetry();
+        TileBuildCache cache = new TileBuildCache(dir, 100, telemetry);
+        assertThat(cache.get(1)).isEmpty();
+        cache.put(1, new byte[40]);
+        cache.put(2, new byte[40]);
+        assertThat(cache.get(1).get()).hasSize(40);
+        // Entry 2 is the least recently used one.
+        cache.put(3, new byte[40]);
+        assertThat(cache.get(2)).isEmpty();
+        assertThat(cache.get(3)).isPresent();
+        // 40 bytes of data and 8 bytes of entry header each.
+        assertThat(cache.size()).isEqualTo(96L);
+        assertThat(telemetry.getCount(TileBuildCache.CACHE_HIT)).isEqualTo(2L);
+        assertThat(telemetry.getCount(TileBuildCache.CACHE_MISS)).isEqualTo(2L);
+        assertThat(telemetry.getCount(TileBuildCache.CACHE_EVICTION)).isEqualTo(1L);
+        // Entries survive reopening the cache.
+        TileBuildCache reopened = new TileBuildCache(dir, 100, new Telemetry());
+        assertThat(reopened.getEntryCount()).isEqualTo(2);
+        assertThat(reopened.get(1).get()).hasSize(40);
+        assertThat(reopened.get(3).get()).hasSize(40);
+    }
+
+    @Test
+    public void testCorruptedEntriesAreMisses() throws IOException {
+        Telemetry telemetry = new Telemetry();
+        TileBuildCache cache = new TileBuildCache(dir, 1000, telemetry);
+        byte[] data = new byte[40];
+        Arrays.fill(data, (byte) 7);
+        cache.put(1, data);
+        cache.put(2, data);
+        cache.put(3, data);
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        assertThat(files).hasSize(3);
+        // Truncate one entry and flip a data byte of another.
+        Path truncated = files.get(0);
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(truncated), 30));
+        Path flipped = files.get(1);
+        byte[] bytes = Files.readAllBytes(flipped);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(flipped, bytes);
+        TileBuildCache reopened = new TileBuildCache(dir, 1000, telemetry);
+        int hits = 0;
+        for (long key = 1; key <= 3; key++) {
+            Optional<byte[]> entry = reopened.get(key);
+            if (entry.isPresent()) {
+                assertThat(entry.get()).isEqualTo(data);
+                hits++;
+            }
+        }
+        assertThat(hits).isEqualTo(1);
+        assertThat(telemetry.getCount(TileBuildCache.CACHE_MISS)).isEqualTo(2L);
+        assertThat(reopened.getEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOpenKeepsTempFilesOfConcurrentWrites() throws IOException {
+        new TileBuildCache(dir, 100, new Telemetry()).put(1, new byte[40]);
+        Path writing = Files.createTempFile(dir, "writing", ".tmp");
+        Path stale = Files.createTempFile(dir, "stale", ".tmp");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+        TileBuildCache cache = new TileBuildCache(dir, 100, new Telemetry());
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+        assertThat(Files.exists(writing)).isTrue();
+        assertThat(Files.exists(stale)).isFalse();
+    }
+
+    @Test
+    public void testCachedBuild() throws IOException {
+        InputGeomProvider geom = new ObjImporter().load(getClass().getResourceAsStream("dungeon.obj"));
+        RecastConfig cfg = new RecastConfig(true, 32, 32, RecastConfig.calcBorder(0.6f, 0.3f), PartitionType.WATERSHED,
+                0.3f, 0.2f, 45f, true, true, true, 2f, 0.6f, 0.9f, 8 * 8 * 0.3f * 0.3f, 20 * 20 * 0.3f * 0.3f, 12f,
+                1.3f, 6, true, 6f, 1f, SampleAreaModifications.SAMPLE_AREAMOD_GROUND);
+        Telemetry telemetry = new Telemetry();
+        TileBuildCache cache = new TileBuildCache(dir, 1 << 20, telemetry);
+        RecastBuilder builder = new RecastBuilder();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<int[]> built = new ArrayList<>();
+            builder.buildTiles(geom, cfg, Optional.of(executor), 4, cache, CODEC, this::convert, built::add);
+            int tiles = (int) telemetry.getCount(TileBuildCache.CACHE_MISS);
+            assertThat(tiles).isGreaterThan(0);
+            assertThat(telemetry.getCount(TileBuildCache.CACHE_HIT)).isEqualTo(0L);
+
+            List<int[]> cached = new ArrayList<>();
+            builder.buildTiles(geom, cfg, Optional.empty(), 1, cache, CODEC, r -> {
+                throw new IllegalStateException("tile should have been cached");
+            }, cached::add);
+            assertThat(telemetry.getCount(TileBuildCache.CACHE_HIT)).isEqualTo((long) tiles);
+            assertThat(cached).hasSize(built.size());
+            for (int[] tile : cached) {
+                assertThat(built.stream().anyMatch(b -> b[0] == tile[0] && b[1] == tile[1] && b[2] == tile[2]
+                        && b[3] == tile[3])).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private int[] convert(RecastBuilder.RecastBuilderResult result) {
+        if (result.getMesh().npolys == 0) {
+            return null;
+        }
+        return new int[] { result.tileX, result.tileZ, result.getMesh().npolys, result.getMesh().nverts };
+    }
+}